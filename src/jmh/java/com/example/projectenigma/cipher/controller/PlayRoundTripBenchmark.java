@@ -0,0 +1,96 @@
+package com.example.projectenigma.cipher.controller;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.test.autoconfigure.web.servlet.MockMvcPrint;
+import org.springframework.boot.test.autoconfigure.web.servlet.SpringBootMockMvcBuilderCustomizer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.DefaultMockMvcBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import com.example.projectenigma.support.BenchmarkApplication;
+
+import jakarta.servlet.http.Cookie;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GET /play を MockMvc で丸ごと流すベンチマーク（フィルター → プレイヤー特定 → コントローラー → Thymeleaf）。
+ * ネットワークと Tomcat は含まない。
+ * <ul>
+ *   <li>visitor=registered: 本登録済みプレイヤー。playerCacheTtl が PT0S なら毎回 H2 を読む</li>
+ *   <li>visitor=guest: Cookie なし。仮プレイヤーを発行する</li>
+ * </ul>
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlayRoundTripBenchmark {
+
+    @Param({"registered", "guest"})
+    String visitor;
+
+    /** プレイヤーキャッシュの有効期限（PT0S でキャッシュなし） */
+    @Param({"PT5M", "PT0S"})
+    String playerCacheTtl;
+
+    private ConfigurableApplicationContext context;
+
+    private MockMvc mockMvc;
+
+    private Cookie cookie;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start("--enigma.cache.player.ttl=" + playerCacheTtl);
+        // @AutoConfigureMockMvc と同じく、アプリのフィルターも通す
+        DefaultMockMvcBuilder builder = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context);
+        SpringBootMockMvcBuilderCustomizer customizer = new SpringBootMockMvcBuilderCustomizer((WebApplicationContext) context);
+        // 既定だとリクエスト・レスポンスを毎回書き出すので、測るのはアプリの分だけにする
+        customizer.setPrint(MockMvcPrint.NONE);
+        customizer.customize(builder);
+        mockMvc = builder.build();
+        cookie = "registered".equals(visitor) ? BenchmarkApplication.register(context) : null;
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public MvcResult play() throws Exception {
+        MockHttpServletRequestBuilder request = get("/play");
+        if (cookie != null) {
+            request.cookie(cookie);
+        }
+        MvcResult result = mockMvc.perform(request).andReturn();
+        if (result.getResponse().getStatus() != 200) {
+            throw new IllegalStateException("GET /play returned " + result.getResponse().getStatus());
+        }
+        return result;
+    }
+}
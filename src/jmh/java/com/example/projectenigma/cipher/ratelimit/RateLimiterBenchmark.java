@@ -0,0 +1,82 @@
+package com.example.projectenigma.cipher.ratelimit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 解答のレート制限 (GcraRateLimiter) が1回あたりどれくらい掛かるかのベンチマーク。
+ * <ul>
+ *   <li>allowed: 普通のプレイヤー。多数のキーに散らばっていて、ほぼ全部通る</li>
+ *   <li>rejected: 1つのキーを連打するボット。ほぼ全部 429</li>
+ *   <li>contended: 同じキーを4スレッドから同時に叩く (CAS の取り合い)</li>
+ * </ul>
+ * どれもアロケーションなしで 100 ナノ秒以下になるはず（{@code -prof gc} で確認）。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RateLimiterBenchmark {
+
+    private static final int KEYS = 10_000;
+
+    private GcraRateLimiter spread;
+    private GcraRateLimiter hammered;
+    private GcraRateLimiter shared;
+    private String[] keys;
+
+    /** 呼ぶたびに次のキーへ (スレッドごと) */
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        // 通す側は容量を十分大きくして、計測中に上限に当たらんようにする
+        spread = new GcraRateLimiter(Integer.MAX_VALUE, Duration.ofSeconds(1), KEYS * 2);
+        hammered = new GcraRateLimiter(10, Duration.ofSeconds(30), KEYS * 2);
+        shared = new GcraRateLimiter(Integer.MAX_VALUE, Duration.ofSeconds(1), KEYS * 2);
+        keys = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = UUID.randomUUID().toString();
+        }
+    }
+
+    @Benchmark
+    public long allowed(Cursor cursor) {
+        cursor.next = (cursor.next + 1) % KEYS;
+        return spread.tryAcquire(keys[cursor.next]);
+    }
+
+    @Benchmark
+    public long rejected() {
+        return hammered.tryAcquire("bot");
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long contended() {
+        return shared.tryAcquire("hot");
+    }
+}
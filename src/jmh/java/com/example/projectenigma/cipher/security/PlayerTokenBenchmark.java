@@ -0,0 +1,79 @@
+package com.example.projectenigma.cipher.security;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 署名付きトークンの検証・発行にかかる1リクエストあたりのコストを計測するベンチマーク。
+ * Macのプールが効いているかを見るため、複数スレッドでも計測する。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlayerTokenBenchmark {
+
+    private PlayerTokenCodec codec;
+
+    private String token;
+
+    private String tampered;
+
+    private String userId;
+
+    @Setup
+    public void setUp() {
+        codec = new PlayerTokenCodec(new PlayerTokenProperties(
+                Map.of("k1", "YmVuY2htYXJrLWtleS1mb3ItcGxheWVyLXRva2Vucw=="), "k1", Duration.ofDays(30), Instant.EPOCH));
+        userId = UUID.randomUUID().toString();
+        token = codec.issue(userId, 1);
+        tampered = token.replace(".1.", ".2.");
+    }
+
+    /** 正しいトークンの検証（毎リクエストの処理） */
+    @Benchmark
+    public Optional<PlayerToken> verify() {
+        return codec.verify(token);
+    }
+
+    /** 改ざんされたトークンの検証 */
+    @Benchmark
+    public Optional<PlayerToken> verifyTampered() {
+        return codec.verify(tampered);
+    }
+
+    /** 8スレッドから同時に検証 */
+    @Benchmark
+    @Threads(8)
+    public Optional<PlayerToken> verifyContended() {
+        return codec.verify(token);
+    }
+
+    /** 発行（ステージが進んだときだけ） */
+    @Benchmark
+    public String issue() {
+        return codec.issue(userId, 2);
+    }
+}
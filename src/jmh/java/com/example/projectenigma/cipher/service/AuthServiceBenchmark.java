@@ -0,0 +1,78 @@
+package com.example.projectenigma.cipher.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.example.projectenigma.cipher.entity.User;
+import com.example.projectenigma.support.BenchmarkApplication;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AuthService.authOrCreateUser（毎リクエストのプレイヤー特定）のベンチマーク。アプリを起動して H2 に対して測る。
+ * <ul>
+ *   <li>hit: 本登録済みプレイヤーの Cookie。playerCacheTtl が PT0S ならキャッシュが効かず、毎回 H2 を読む</li>
+ *   <li>miss: Cookie なし（初めての人）。仮プレイヤーを発行するだけで、DBは見ない</li>
+ * </ul>
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthServiceBenchmark {
+
+    /** プレイヤーキャッシュの有効期限（PT0S でキャッシュなし） */
+    @Param({"PT5M", "PT0S"})
+    String playerCacheTtl;
+
+    private ConfigurableApplicationContext context;
+
+    private AuthService authService;
+
+    private MockHttpServletRequest registered;
+
+    private MockHttpServletRequest newcomer;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start("--enigma.cache.player.ttl=" + playerCacheTtl);
+        authService = context.getBean(AuthService.class);
+        registered = new MockHttpServletRequest();
+        registered.setCookies(BenchmarkApplication.register(context));
+        newcomer = new MockHttpServletRequest();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public User hit() {
+        return authService.authOrCreateUser(registered, new MockHttpServletResponse());
+    }
+
+    @Benchmark
+    public User miss() {
+        return authService.authOrCreateUser(newcomer, new MockHttpServletResponse());
+    }
+}
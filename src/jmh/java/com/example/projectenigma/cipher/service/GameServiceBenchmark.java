@@ -0,0 +1,77 @@
+package com.example.projectenigma.cipher.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import com.example.projectenigma.cipher.dto.AnswerOutcome;
+import com.example.projectenigma.cipher.security.PlayerTokenCodec;
+import com.example.projectenigma.cipher.util.CookieUtil;
+import com.example.projectenigma.support.BenchmarkApplication;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GameService.checkAnswer のベンチマーク。アプリを起動して H2 に対して測る。
+ * <ul>
+ *   <li>incorrect: 不正解。判定だけで、DBには触らない</li>
+ *   <li>correct: 正解。条件付き UPDATE を1本発行する</li>
+ * </ul>
+ * correct は同じプレイヤーでステージ1に正解し続けるので、2回目からは UPDATE が0件になる
+ * （二重送信と同じ経路）。UPDATE 1本と、今のステージを読み直す SELECT 1本のコストとして見る。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GameServiceBenchmark {
+
+    private ConfigurableApplicationContext context;
+
+    private GameService gameService;
+
+    private String userId;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        gameService = context.getBean(GameService.class);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setCookies(BenchmarkApplication.register(context));
+        userId = CookieUtil.getCookieValue(request, CookieUtil.COOKIE_NAME)
+                .flatMap(context.getBean(PlayerTokenCodec.class)::verify)
+                .orElseThrow()
+                .userId();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public AnswerOutcome incorrect() {
+        return gameService.checkAnswer(userId, 1, "banana");
+    }
+
+    @Benchmark
+    public AnswerOutcome correct() {
+        return gameService.checkAnswer(userId, 1, "apple");
+    }
+}
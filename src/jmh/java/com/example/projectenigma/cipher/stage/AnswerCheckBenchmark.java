@@ -0,0 +1,72 @@
+package com.example.projectenigma.cipher.stage;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 正解判定の旧実装（trim() + equalsIgnoreCase）と、ハッシュ照合の新実装を比較するベンチマーク。
+ * 短い解答と数KBの長い解答それぞれで計測する。アロケーション量は {@code -prof gc} で確認する。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnswerCheckBenchmark {
+
+    /** short: 普通の解答 / long: 4KB程度の解答 */
+    @Param({"short", "long"})
+    private String size;
+
+    private String answer;
+
+    private AnswerMatcher digestMatcher;
+
+    private AnswerMatcher normalizedMatcher;
+
+    @Setup
+    public void setUp() {
+        answer = "short".equals(size)
+                ? "  Apple "
+                : "  " + "Apple pie is made of apples. ".repeat(140) + " ";
+        digestMatcher = AnswerDigests.matcher(List.of(
+                AnswerDigests.hex("apple"), AnswerDigests.hex("りんご"),
+                AnswerDigests.hex("リンゴ"), AnswerDigests.hex("林檎")));
+        normalizedMatcher = AnswerMatchers.normalized("apple");
+    }
+
+    /** 旧実装: GameService に直書きされていた判定 */
+    @Benchmark
+    public boolean legacyTrimEqualsIgnoreCase() {
+        return "apple".equalsIgnoreCase(answer.trim());
+    }
+
+    /** 平文を保持した正規化マッチャー */
+    @Benchmark
+    public boolean normalizedMatcher() {
+        return normalizedMatcher.matches(answer);
+    }
+
+    /** 新実装: スレッドごとのバッファで正規化してハッシュ照合 */
+    @Benchmark
+    public boolean digestMatcher() {
+        return digestMatcher.matches(answer);
+    }
+}
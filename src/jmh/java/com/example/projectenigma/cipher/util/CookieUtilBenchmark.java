@@ -0,0 +1,86 @@
+package com.example.projectenigma.cipher.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import jakarta.servlet.http.Cookie;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 毎リクエストの最初に呼ばれる CookieUtil.getCookieValue のベンチマーク。
+ * 本番のブラウザは、アクセス解析や広告・同意管理の Cookie を 10〜40 個くらい抱えて来るので、
+ * その中から enigma_uid を探す。
+ * <ul>
+ *   <li>cookies: 送られてくる Cookie の数</li>
+ *   <li>position: enigma_uid がどこにあるか（first / last / absent = 初めての人）</li>
+ * </ul>
+ * ヘッダーの解析は Tomcat の仕事なので、ここでは解析済みの Cookie 配列から探すところだけを測る。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CookieUtilBenchmark {
+
+    /** よく見かける Cookie の名前（足りない分は連番で埋める） */
+    private static final String[] NAMES = {
+            "_ga", "_gid", "_gat_gtag", "_fbp", "_gcl_au", "OptanonConsent", "OptanonAlertBoxClosed",
+            "__cf_bm", "_hjSessionUser", "_hjSession", "ajs_anonymous_id", "intercom-id", "_clck", "_clsk",
+            "AMCV_ADOBE", "s_cc", "s_sq", "NID", "IDE", "cookie_consent"};
+
+    /** 実物に近い長さの値（_ga や同意管理の Cookie は長い） */
+    private static final String VALUE = "GA1.1.1234567890.1700000000%7Cconsent%3Dtrue%26groups%3DC0001%253A1";
+
+    /** 署名付きトークンと同じくらいの長さ */
+    private static final String TOKEN = "k1.3f1c2e4a-8b7d-4c6e-9a0f-1b2c3d4e5f60.1.1700000000.Xk9mQ2hVdE1oZk5yR0pLd3pYb0VqY2c";
+
+    @Param({"10", "40"})
+    int cookies;
+
+    @Param({"first", "last", "absent"})
+    String position;
+
+    private MockHttpServletRequest request;
+
+    @Setup
+    public void setUp() {
+        List<Cookie> jar = new ArrayList<>(cookies);
+        for (int i = 0; jar.size() < cookies - 1; i++) {
+            String name = i < NAMES.length ? NAMES[i] : "_pref_" + i;
+            jar.add(new Cookie(name, VALUE));
+        }
+        Cookie uid = new Cookie(CookieUtil.COOKIE_NAME, TOKEN);
+        switch (position) {
+            case "first" -> jar.addFirst(uid);
+            case "last" -> jar.addLast(uid);
+            default -> jar.addLast(new Cookie("_pref_last", VALUE));
+        }
+        request = new MockHttpServletRequest();
+        request.setCookies(jar.toArray(Cookie[]::new));
+    }
+
+    @Benchmark
+    public Optional<String> getCookieValue() {
+        return CookieUtil.getCookieValue(request, CookieUtil.COOKIE_NAME);
+    }
+}
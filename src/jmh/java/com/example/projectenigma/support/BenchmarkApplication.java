@@ -0,0 +1,67 @@
+package com.example.projectenigma.support;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import jakarta.servlet.http.Cookie;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.example.projectenigma.ProjectenigmaApplication;
+import com.example.projectenigma.cipher.dto.Player;
+import com.example.projectenigma.cipher.provisioning.ProvisioningQueue;
+import com.example.projectenigma.cipher.service.AuthService;
+import com.example.projectenigma.cipher.util.CookieUtil;
+
+/**
+ * アプリを丸ごと起動するベンチマークの共通処理。
+ * DBはフォークごとにインメモリの H2 を作り、Flyway でテーブルを作る（ディスクには書かない）。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+public final class BenchmarkApplication {
+
+    private BenchmarkApplication() {
+    }
+
+    /**
+     * アプリを起動します。
+     *
+     * @param overrides 追加の設定（{@code --key=value} 形式。既定より優先）
+     * @return 起動したコンテキスト（@TearDown で閉じること）
+     */
+    public static ConfigurableApplicationContext start(String... overrides) {
+        List<String> args = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:benchmark-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                // 同じ相手から連打するので、回答の流量制限は切っておく
+                "--enigma.ratelimit.enabled=false",
+                "--enigma.analytics.log-file=",
+                "--spring.devtools.restart.enabled=false",
+                "--logging.level.root=WARN"));
+        // application.properties より優先させたいので、既定値ではなくコマンドライン引数で渡す
+        args.addAll(List.of(overrides));
+        return new SpringApplicationBuilder(ProjectenigmaApplication.class).run(args.toArray(String[]::new));
+    }
+
+    /**
+     * プレイヤーを1人本登録して、行が書かれるまで待ってから、その Cookie を返します。
+     *
+     * @param context 起動したコンテキスト
+     * @return 本登録済みプレイヤーの enigma_uid
+     */
+    public static Cookie register(ConfigurableApplicationContext context) {
+        AuthService authService = context.getBean(AuthService.class);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        Player player = authService.materialize(
+                authService.authOrCreatePlayer(new MockHttpServletRequest(), new MockHttpServletResponse()), response);
+        context.getBean(ProvisioningQueue.class).awaitPersisted(player.userId());
+        return response.getCookie(CookieUtil.COOKIE_NAME);
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.projectenigma.cipher.analytics;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * 解答1回分のイベント。追記専用ログ ({@link AnswerEventLog}) に固定長のバイナリで書きます。
+ * <p>
+ * レコードは 29 バイト: ユーザーID (UUID 16) + ステージID (int 4) + 正誤 (1) + 時刻 (epoch ミリ秒 8)。
+ *
+ * @param userId    ユーザーID
+ * @param stageId   解答したステージID
+ * @param correct   正解なら true
+ * @param timestamp 解答した時刻（epoch ミリ秒）
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+public record AnswerEvent(String userId, int stageId, boolean correct, long timestamp) {
+
+    /** 1レコードのバイト数 */
+    public static final int BYTES = 16 + Integer.BYTES + 1 + Long.BYTES;
+
+    /**
+     * バッファの現在位置にレコードを書き込みます。
+     *
+     * @param buffer 書き込み先（BYTES 以上の空きがあること）
+     */
+    public void writeTo(ByteBuffer buffer) {
+        UUID id = toUuid(userId);
+        buffer.putLong(id.getMostSignificantBits());
+        buffer.putLong(id.getLeastSignificantBits());
+        buffer.putInt(stageId);
+        buffer.put(correct ? (byte) 1 : (byte) 0);
+        buffer.putLong(timestamp);
+    }
+
+    /**
+     * バッファの現在位置からレコードを1件読み込みます。
+     *
+     * @param buffer 読み込み元（BYTES 以上残っていること）
+     * @return イベント
+     */
+    public static AnswerEvent readFrom(ByteBuffer buffer) {
+        UUID id = new UUID(buffer.getLong(), buffer.getLong());
+        int stageId = buffer.getInt();
+        boolean correct = buffer.get() != 0;
+        long timestamp = buffer.getLong();
+        return new AnswerEvent(id.toString(), stageId, correct, timestamp);
+    }
+
+    /**
+     * ユーザーIDは UUID の文字列なのでそのまま16バイトにする。
+     * UUID でないIDが来たら名前ベースの UUID にする（集計でユーザーを区別できればいい）。
+     */
+    private static UUID toUuid(String userId) {
+        try {
+            return UUID.fromString(userId);
+        } catch (IllegalArgumentException e) {
+            return UUID.nameUUIDFromBytes(userId.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.example.projectenigma.cipher.analytics;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 解答イベントの追記専用ログ。
+ * <p>
+ * 解答の処理はイベントをキューに積むだけ（満杯なら捨てて数えるだけ、待たない）で、
+ * 1本の書き込みスレッドがまとめてファイルの末尾に追記してから {@link FunnelAggregator} に流す。
+ * 解答の処理に DB の INSERT も ファイルI/O も増やさない。
+ * <p>
+ * 起動時にはファイルを頭から読み直して集計を復元する。途中で落ちて最後のレコードが
+ * 半端に書かれていたら、その分は切り捨ててから追記を始める。
+ * log-file が空ならファイルには書かず、集計だけする。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+@Slf4j
+@Component
+public class AnswerEventLog {
+
+    /** キューが空のときに書き込みスレッドが待つ時間 */
+    private static final long POLL_MILLIS = 200;
+
+    /** 1回に書き込む最大件数 */
+    private static final int BATCH_SIZE = 1024;
+
+    private final FunnelAggregator aggregator;
+    private final Path file;
+    private final Clock clock;
+    private final BlockingQueue<AnswerEvent> queue;
+
+    /** 書き込み用のバッファ。書き込みスレッド（終了時は呼び出し元）だけが触る */
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BATCH_SIZE * AnswerEvent.BYTES);
+
+    private final LongAdder appended = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder written = new LongAdder();
+
+    private FileChannel channel;
+    private volatile boolean running;
+    private Thread writer;
+
+    /**
+     * 設定値からログを生成します。
+     *
+     * @param aggregator 集計器
+     * @param file       ログファイル (enigma.analytics.log-file、空ならファイルに書かない)
+     * @param capacity   キューの容量 (enigma.analytics.queue-capacity)
+     */
+    @Autowired
+    public AnswerEventLog(FunnelAggregator aggregator,
+                          @Value("${enigma.analytics.log-file:}") String file,
+                          @Value("${enigma.analytics.queue-capacity:10000}") int capacity) {
+        this(aggregator, file.isBlank() ? null : Path.of(file), capacity, Clock.systemUTC());
+    }
+
+    AnswerEventLog(FunnelAggregator aggregator, Path file, int capacity, Clock clock) {
+        this.aggregator = aggregator;
+        this.file = file;
+        this.clock = clock;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.running = true;
+    }
+
+    /**
+     * ログファイルを読み直して集計を復元し、書き込みスレッドを起動します。
+     */
+    @PostConstruct
+    public void start() {
+        open();
+        writer = Thread.ofPlatform().name("answer-event-writer").daemon().start(this::writeLoop);
+    }
+
+    /**
+     * 解答イベントを積みます。キューが満杯なら捨てます（解答の処理は待たせない）。
+     *
+     * @param userId  ユーザーID
+     * @param stageId 解答したステージID
+     * @param correct 正解なら true
+     */
+    public void append(String userId, int stageId, boolean correct) {
+        if (running && queue.offer(new AnswerEvent(userId, stageId, correct, clock.millis()))) {
+            appended.increment();
+        } else {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * 現在の統計情報を返します。
+     *
+     * @return 受付数・書き込み数・破棄数・残り件数
+     */
+    public Stats stats() {
+        return new Stats(appended.sum(), written.sum(), dropped.sum(), queue.size());
+    }
+
+    /**
+     * 受付を止めて、キューに残っている分を書き込んでからファイルを閉じます。
+     */
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (writer != null) {
+            try {
+                writer.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        while (drainOnce(false) > 0) {
+            // 空になるまで
+        }
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("Failed to close answer event log {}", file, e);
+            }
+        }
+        log.info("Answer event log stopped: {}", stats());
+    }
+
+    /**
+     * ファイルを開き、既存のレコードを集計に流してから末尾に位置を合わせます。
+     */
+    void open() {
+        if (file == null) {
+            return;
+        }
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            long valid = replay();
+            if (valid < channel.size()) {
+                log.warn("Truncating partial record at the end of {} ({} -> {} bytes)", file, channel.size(), valid);
+                channel.truncate(valid);
+            }
+            channel.position(valid);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open answer event log " + file, e);
+        }
+    }
+
+    /**
+     * ファイルの先頭からレコードを読んで集計に流します。
+     *
+     * @return 完全なレコードが入っているバイト数
+     */
+    private long replay() throws IOException {
+        ByteBuffer in = ByteBuffer.allocate(BATCH_SIZE * AnswerEvent.BYTES);
+        List<AnswerEvent> batch = new ArrayList<>(BATCH_SIZE);
+        long position = 0;
+        long replayed = 0;
+        while (channel.read(in, position) > 0) {
+            in.flip();
+            while (in.remaining() >= AnswerEvent.BYTES) {
+                batch.add(AnswerEvent.readFrom(in));
+            }
+            if (batch.isEmpty()) {
+                // 末尾の半端なレコードだけが残ってる
+                break;
+            }
+            position += (long) batch.size() * AnswerEvent.BYTES;
+            aggregator.apply(batch);
+            replayed += batch.size();
+            batch.clear();
+            // 読み残し（半端なレコード）は次の read で頭から読み直す
+            in.clear();
+        }
+        if (replayed > 0) {
+            log.info("Replayed {} answer events from {}", replayed, file);
+        }
+        return position;
+    }
+
+    private void writeLoop() {
+        while (running && !Thread.currentThread().isInterrupted()) {
+            try {
+                drainOnce(true);
+            } catch (RuntimeException e) {
+                // ここで死ぬと誰も書かなくなるので、ログだけ出して続ける
+                log.error("Answer event writer failed", e);
+            }
+        }
+    }
+
+    /**
+     * キューから最大 BATCH_SIZE 件を取り出して、ファイルに追記してから集計に流します。
+     *
+     * @param wait キューが空のときに少し待つなら true
+     * @return 処理した件数
+     */
+    int drainOnce(boolean wait) {
+        List<AnswerEvent> batch = new ArrayList<>(BATCH_SIZE);
+        if (wait) {
+            try {
+                AnswerEvent first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    return 0;
+                }
+                batch.add(first);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return 0;
+            }
+        }
+        queue.drainTo(batch, BATCH_SIZE - batch.size());
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        if (channel != null) {
+            write(batch);
+        }
+        aggregator.apply(batch);
+        written.add(batch.size());
+        return batch.size();
+    }
+
+    private void write(List<AnswerEvent> batch) {
+        buffer.clear();
+        for (AnswerEvent event : batch) {
+            event.writeTo(buffer);
+        }
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            // 集計は続けたいので、ファイルに書けなかった分はログだけ出して先に進む
+            log.error("Failed to append {} answer events to {}", batch.size(), file, e);
+        }
+    }
+
+    /**
+     * ログの統計情報。
+     *
+     * @param appended 受け付けた件数
+     * @param written  書き込んで集計に流した件数
+     * @param dropped  キュー満杯・終了処理中で捨てた件数
+     * @param backlog  書き込み待ちの件数
+     */
+    public record Stats(long appended, long written, long dropped, int backlog) {
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.projectenigma.cipher.analytics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 解答イベントからステージごとのファネル（到達数・解答数・正解率・解くまでの時間の中央値）を
+ * 1件ずつ積み上げていく集計器。イベントを流すのは {@link AnswerEventLog} の書き込みスレッドだけ。
+ * <p>
+ * 「ステージに着いた時刻」は、前のステージを解いた時刻（最初のステージなら最初に解答した時刻）とする。
+ * そのためにプレイヤーごとの現在地を覚えておくが、max-tracked-players を超えたら
+ * しばらく解答のないプレイヤーから忘れる（忘れたプレイヤーが戻ってきたら、次の解答から数え直す）。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+@Component
+public class FunnelAggregator {
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /** ステージID → 集計値 */
+    private final Map<Integer, Tally> stages = new TreeMap<>();
+
+    /** ユーザーID → 今いるステージ（アクセス順。先頭が一番古い） */
+    private final LinkedHashMap<String, Cursor> cursors;
+
+    private long events;
+
+    /**
+     * 設定値から集計器を生成します。
+     *
+     * @param maxTrackedPlayers 現在地を覚えておくプレイヤー数の上限 (enigma.analytics.max-tracked-players)
+     */
+    public FunnelAggregator(@Value("${enigma.analytics.max-tracked-players:100000}") int maxTrackedPlayers) {
+        if (maxTrackedPlayers <= 0) {
+            throw new IllegalArgumentException("maxTrackedPlayers must be positive: " + maxTrackedPlayers);
+        }
+        this.cursors = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Cursor> eldest) {
+                return size() > maxTrackedPlayers;
+            }
+        };
+    }
+
+    /**
+     * イベントをまとめて集計に反映します。
+     *
+     * @param batch 解答イベント（時刻順）
+     */
+    public void apply(List<AnswerEvent> batch) {
+        lock.lock();
+        try {
+            for (AnswerEvent event : batch) {
+                applyOne(event);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 現在の集計結果をステージID順に返します。
+     *
+     * @return ステージごとのファネル
+     */
+    public List<StageFunnel> snapshot() {
+        lock.lock();
+        try {
+            List<StageFunnel> result = new ArrayList<>(stages.size());
+            stages.forEach((stageId, tally) -> result.add(tally.toFunnel(stageId)));
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 集計に反映したイベント数を返します。
+     *
+     * @return イベント数
+     */
+    public long events() {
+        lock.lock();
+        try {
+            return events;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void applyOne(AnswerEvent event) {
+        events++;
+        int stageId = event.stageId();
+        Tally tally = stages.computeIfAbsent(stageId, id -> new Tally());
+        tally.attempts++;
+        if (event.correct()) {
+            tally.correctAttempts++;
+        }
+
+        Cursor cursor = cursors.get(event.userId());
+        if (cursor != null && cursor.stageId > stageId) {
+            // もう先に進んでる（別タブ・二重送信）。送信数だけ数える
+            return;
+        }
+        if (cursor == null || cursor.stageId < stageId) {
+            // 初めて見たプレイヤー、または途中のイベントを取りこぼしてる: この解答の時刻を着いた時刻にする
+            cursor = new Cursor(stageId, event.timestamp());
+            cursors.put(event.userId(), cursor);
+            tally.playersReached++;
+        }
+        if (event.correct()) {
+            tally.solvers++;
+            tally.solveTimes.record((event.timestamp() - cursor.enteredAt) / 1000);
+            // 次のステージに着いたことにする (最終ステージの次 = 全クリ も数えておく)
+            cursor.stageId = stageId + 1;
+            cursor.enteredAt = event.timestamp();
+            stages.computeIfAbsent(stageId + 1, id -> new Tally()).playersReached++;
+        }
+    }
+
+    /**
+     * プレイヤーの現在地。
+     */
+    private static final class Cursor {
+
+        int stageId;
+
+        /** このステージに着いた時刻（epoch ミリ秒） */
+        long enteredAt;
+
+        Cursor(int stageId, long enteredAt) {
+            this.stageId = stageId;
+            this.enteredAt = enteredAt;
+        }
+    }
+
+    /**
+     * 1ステージ分の集計値。
+     */
+    private static final class Tally {
+
+        long playersReached;
+        long attempts;
+        long correctAttempts;
+        long solvers;
+        final SolveTimeHistogram solveTimes = new SolveTimeHistogram();
+
+        StageFunnel toFunnel(int stageId) {
+            double solveRate = playersReached == 0 ? 0 : (double) solvers / playersReached;
+            return new StageFunnel(stageId, playersReached, attempts, correctAttempts, solvers, solveRate,
+                    solveTimes.median());
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.projectenigma.cipher.analytics;
+
+import java.util.List;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 管理用のファネル集計エンドポイント ({@code GET /actuator/funnel})。
+ * どのステージでプレイヤーが詰まってるかを見るためのもの。集計は {@link FunnelAggregator} が
+ * 解答のたびに積み上げてるので、ここでは読み出すだけ。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+@Component
+@Endpoint(id = "funnel")
+@RequiredArgsConstructor
+public class FunnelEndpoint {
+
+    private final FunnelAggregator aggregator;
+    private final AnswerEventLog eventLog;
+
+    /**
+     * ステージごとのファネルを返します。
+     *
+     * @return 集計結果
+     */
+    @ReadOperation
+    public FunnelReport funnel() {
+        AnswerEventLog.Stats stats = eventLog.stats();
+        return new FunnelReport(aggregator.events(), stats.dropped(), stats.backlog(), aggregator.snapshot());
+    }
+
+    /**
+     * ファネルの集計結果。最終ステージの次のステージIDは「全クリ」で、到達数だけが入る。
+     *
+     * @param events  集計に反映したイベント数
+     * @param dropped キュー満杯で集計できなかったイベント数
+     * @param backlog まだ集計に反映していないイベント数
+     * @param stages  ステージごとのファネル（ステージID順）
+     */
+    public record FunnelReport(long events, long dropped, int backlog, List<StageFunnel> stages) {
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.projectenigma.cipher.analytics;
+
+/**
+ * ステージの解答にかかった時間（秒）の分布を、対数スケールのバケットで数えるヒストグラム。
+ * 値を全部持たずに中央値を出すため。16秒未満は1秒刻み、それ以上は2のべき乗ごとに8分割するので、
+ * 誤差は最大でも 1/8（12.5%）程度に収まる。
+ * <p>
+ * スレッドセーフではない。{@link FunnelAggregator} のロックの中で使う。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+final class SolveTimeHistogram {
+
+    /** 1秒刻みで数える範囲 */
+    private static final int LINEAR_LIMIT = 16;
+
+    /** 2のべき乗ごとの分割数（2^SUB_BITS） */
+    private static final int SUB_BITS = 3;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    /** LINEAR_LIMIT = 2^4 から long の上限 2^63 まで */
+    private static final int BUCKETS = LINEAR_LIMIT + (Long.SIZE - 1 - 4) * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKETS];
+
+    private long total;
+
+    /**
+     * 1件記録します。負の値は0秒として扱います。
+     *
+     * @param seconds かかった時間（秒）
+     */
+    void record(long seconds) {
+        counts[indexOf(Math.max(0, seconds))]++;
+        total++;
+    }
+
+    /**
+     * 記録した件数を返します。
+     *
+     * @return 件数
+     */
+    long count() {
+        return total;
+    }
+
+    /**
+     * 中央値を返します（バケットの下限値）。1件もなければ -1 を返します。
+     *
+     * @return 中央値（秒）
+     */
+    long median() {
+        if (total == 0) {
+            return -1;
+        }
+        // 下側の中央値: (total+1)/2 件目が入ってるバケット
+        long rank = (total + 1) / 2;
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return lowerBound(i);
+            }
+        }
+        throw new IllegalStateException("unreachable");
+    }
+
+    static int indexOf(long seconds) {
+        if (seconds < LINEAR_LIMIT) {
+            return (int) seconds;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(seconds);
+        int sub = (int) (seconds >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR_LIMIT + (exponent - 4) * SUB_BUCKETS + sub;
+    }
+
+    static long lowerBound(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        int exponent = (index - LINEAR_LIMIT) / SUB_BUCKETS + 4;
+        int sub = (index - LINEAR_LIMIT) % SUB_BUCKETS;
+        return (1L << exponent) + ((long) sub << (exponent - SUB_BITS));
+    }
+}
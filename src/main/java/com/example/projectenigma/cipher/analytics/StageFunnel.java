@@ -0,0 +1,19 @@
+package com.example.projectenigma.cipher.analytics;
+
+/**
+ * 1ステージ分のファネル集計。
+ *
+ * @param stageId              ステージID
+ * @param playersReached       このステージに着いたプレイヤー数
+ * @param attempts             解答の送信数
+ * @param correctAttempts      そのうち正解だった送信数（二重送信を含む）
+ * @param solvers              このステージを解いたプレイヤー数
+ * @param solveRate            solvers / playersReached（着いた人がいなければ0）
+ * @param medianSecondsToSolve ステージに着いてから解くまでの時間の中央値（秒）。解いた人がいなければ -1
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+public record StageFunnel(int stageId, long playersReached, long attempts, long correctAttempts,
+                          long solvers, double solveRate, long medianSecondsToSolve) {
+}
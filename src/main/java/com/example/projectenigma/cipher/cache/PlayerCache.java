@@ -0,0 +1,272 @@
+package com.example.projectenigma.cipher.cache;
+
+import com.example.projectenigma.cipher.cache.invalidation.InvalidationListener;
+import com.example.projectenigma.cipher.dto.Player;
+import com.example.projectenigma.cipher.entity.GameProgress;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * ユーザーIDをキーに、ユーザーと進捗をまとめて保持するプロセス内キャッシュ。
+ * 件数上限（LRU）と有効期限（TTL）の両方で古いエントリを追い出す。
+ * ヒット・ミス・追い出しの件数をカウントしており、{@link #stats()} で参照できる。
+ * <p>
+ * DBから読んで載せるときは、読む前に {@link #stamp()} を取って {@link #put(Player, long)} に渡す。
+ * 読んでる間に無効化（他のインスタンスからの通知を含む）が来たキーは載せないので、
+ * 無効化より前に読んだ古い行がキャッシュに残ることはない。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+@Component
+public class PlayerCache implements InvalidationListener {
+
+    /** 保持する最大件数 */
+    private final int maxSize;
+
+    /** エントリの有効期限（ナノ秒） */
+    private final long ttlNanos;
+
+    /** 現在時刻（ナノ秒）の取得元。テストで差し替えるため */
+    private final LongSupplier clock;
+
+    /** アクセス順のLinkedHashMap。先頭が一番古い */
+    private final LinkedHashMap<String, Entry> entries;
+
+    /** 最近無効化したキー → 無効化の通し番号。挿入順で、先頭が一番古い */
+    private final LinkedHashMap<String, Long> tombstones = new LinkedHashMap<>();
+
+    /** 無効化の通し番号（entries のロックの中で更新する） */
+    private long sequence;
+
+    /** tombstones から捨てた中で一番新しい通し番号。これより古いスタンプの put は信用できない */
+    private long forgottenUpTo;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * 設定値からキャッシュを生成します。
+     *
+     * @param maxSize 最大件数 (enigma.cache.player.max-size)
+     * @param ttl     有効期限 (enigma.cache.player.ttl)
+     */
+    @Autowired
+    public PlayerCache(@Value("${enigma.cache.player.max-size:10000}") int maxSize,
+                       @Value("${enigma.cache.player.ttl:PT5M}") Duration ttl) {
+        this(maxSize, ttl, System::nanoTime);
+    }
+
+    PlayerCache(int maxSize, Duration ttl, LongSupplier clock) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > PlayerCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * キャッシュからプレイヤーを取得します。期限切れのエントリは追い出してミス扱いにします。
+     *
+     * @param userId ユーザーID
+     * @return キャッシュされたプレイヤー、なければEmpty
+     */
+    public Optional<Player> get(String userId) {
+        long now = clock.getAsLong();
+        synchronized (entries) {
+            Entry entry = entries.get(userId);
+            if (entry != null && now - entry.expiresAt() >= 0) {
+                entries.remove(userId);
+                evictions.increment();
+                entry = null;
+            }
+            if (entry == null) {
+                misses.increment();
+                return Optional.empty();
+            }
+            hits.increment();
+            return Optional.of(entry.player());
+        }
+    }
+
+    /**
+     * プレイヤーをキャッシュに登録（上書き）します。
+     *
+     * @param player 登録するプレイヤー
+     */
+    public void put(Player player) {
+        Entry entry = new Entry(player, clock.getAsLong() + ttlNanos);
+        synchronized (entries) {
+            entries.put(player.userId(), entry);
+        }
+    }
+
+    /**
+     * DBから読む前の時点を表すスタンプを返します。読んだ結果は {@link #put(Player, long)} に渡してください。
+     *
+     * @return スタンプ
+     */
+    public long stamp() {
+        synchronized (entries) {
+            return sequence;
+        }
+    }
+
+    /**
+     * DBから読んだプレイヤーを登録します。スタンプを取ってから今までの間に
+     * このユーザーが無効化されていたら、読んだ行が古いかもしれないので登録しません。
+     *
+     * @param player 登録するプレイヤー
+     * @param stamp  読む前に {@link #stamp()} で取ったスタンプ
+     * @return 登録したら true
+     */
+    public boolean put(Player player, long stamp) {
+        Entry entry = new Entry(player, clock.getAsLong() + ttlNanos);
+        synchronized (entries) {
+            if (stamp < forgottenUpTo) {
+                // 無効化の記録がもう残ってない。載せなくても次に読み直すだけなので、安全側に倒す
+                return false;
+            }
+            Long invalidatedAt = tombstones.get(player.userId());
+            if (invalidatedAt != null && invalidatedAt > stamp) {
+                return false;
+            }
+            entries.put(player.userId(), entry);
+            return true;
+        }
+    }
+
+    /**
+     * 指定ユーザーのエントリを削除します。
+     *
+     * @param userId ユーザーID
+     */
+    @Override
+    public void invalidate(String userId) {
+        synchronized (entries) {
+            entries.remove(userId);
+            tombstone(userId);
+        }
+    }
+
+    /**
+     * DBに加算した経過時間を、キャッシュしている進捗にも足します（エントリは追い出さない）。
+     * 読んでるスレッドが持ってる進捗は書き換えず、足した後の写しに差し替える。
+     * 加算より前に読み始めた行は古いので、無効化と同じく {@link #put(Player, long)} では載せない。
+     *
+     * @param userId  ユーザーID
+     * @param seconds DBに加算した秒数
+     */
+    public void addElapsed(String userId, long seconds) {
+        synchronized (entries) {
+            tombstone(userId);
+            Entry entry = entries.get(userId);
+            if (entry == null) {
+                return;
+            }
+            GameProgress progress = entry.player().progress();
+            GameProgress updated = new GameProgress();
+            updated.setUserId(progress.getUserId());
+            updated.setCurrentStageId(progress.getCurrentStageId());
+            updated.setTotalElapsedSeconds(progress.getTotalElapsedSeconds() + seconds);
+            updated.setLastUpdated(progress.getLastUpdated());
+            Player player = entry.player();
+            entries.put(userId, new Entry(new Player(player.user(), updated, player.provisional()), entry.expiresAt()));
+        }
+    }
+
+    /**
+     * 無効化の通し番号を進めて、このキーの記録を残します（entries のロックの中で呼ぶ）。
+     */
+    private void tombstone(String userId) {
+        tombstones.remove(userId);
+        tombstones.put(userId, ++sequence);
+        // 記録はキャッシュと同じ件数まで。溢れたら古いのから忘れる
+        if (tombstones.size() > maxSize) {
+            Iterator<Long> eldest = tombstones.values().iterator();
+            forgottenUpTo = eldest.next();
+            eldest.remove();
+        }
+    }
+
+    /**
+     * 全エントリを削除します。読み込み中の結果も載せないようにします。
+     */
+    @Override
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+            tombstones.clear();
+            forgottenUpTo = ++sequence;
+        }
+    }
+
+    /**
+     * 指定ユーザーのエントリを今すぐ削除し、トランザクション中ならコミット（ロールバック）後にもう一度削除します。
+     * コミット前に別リクエストが古い行を読んでキャッシュし直すのを防ぐため。
+     *
+     * @param userId ユーザーID
+     */
+    public void invalidateAfterCommit(String userId) {
+        invalidate(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidate(userId);
+                }
+            });
+        }
+    }
+
+    /**
+     * 現在の統計情報を返します。
+     *
+     * @return ヒット数・ミス数・追い出し数・件数
+     */
+    public Stats stats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), size);
+    }
+
+    /**
+     * キャッシュの統計情報。
+     *
+     * @param hits      ヒット数
+     * @param misses    ミス数
+     * @param evictions 追い出し数（件数超過・期限切れ）
+     * @param size      現在の件数
+     */
+    public record Stats(long hits, long misses, long evictions, int size) {
+    }
+
+    private record Entry(Player player, long expiresAt) {
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.projectenigma.cipher.cache.invalidation;
+
+/**
+ * インスタンス間でキャッシュの無効化を配るバス。
+ * <p>
+ * あるインスタンスがプレイヤーの状態（ステージなど）を変えたら {@link #publish} し、
+ * 全インスタンス（自分を含む）の {@link InvalidationListener} に届ける。
+ * トランザクション中に publish した場合は、コミットされてから届く（ロールバックしたら届かない）。
+ * 実装は enigma.cache.invalidation.mode で選ぶ。
+ * <ul>
+ *   <li>local : プロセス内だけ（1台構成・テスト用）</li>
+ *   <li>jdbc  : cache_invalidations テーブルに書いて、各インスタンスがポーリングする（H2 / PostgreSQL）</li>
+ *   <li>notify: PostgreSQL の LISTEN / NOTIFY</li>
+ * </ul>
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+public interface InvalidationBus {
+
+    /**
+     * 指定ユーザーのキャッシュの無効化を全インスタンスに配ります。
+     *
+     * @param userId ユーザーID
+     */
+    void publish(String userId);
+
+    /**
+     * 無効化を受け取るリスナーを登録します。
+     *
+     * @param listener リスナー
+     */
+    void subscribe(InvalidationListener listener);
+
+    /**
+     * この実装を選ぶ enigma.cache.invalidation.mode の値を返します。
+     *
+     * @return local / jdbc / notify
+     */
+    String mode();
+
+    /**
+     * 現在の統計情報を返します。
+     *
+     * @return 送信数・受信数・失敗数
+     */
+    Stats stats();
+
+    /**
+     * バスの統計情報。
+     *
+     * @param published 送信した無効化の件数
+     * @param received  他のインスタンスから受け取った無効化の件数
+     * @param failures  送信・受信に失敗した回数
+     */
+    record Stats(long published, long received, long failures) {
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.projectenigma.cipher.cache.invalidation;
+
+/**
+ * {@link InvalidationBus} から届いた無効化を受け取る側（プロセス内のキャッシュ）。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+public interface InvalidationListener {
+
+    /**
+     * 指定ユーザーのエントリを捨てます。
+     *
+     * @param userId ユーザーID
+     */
+    void invalidate(String userId);
+
+    /**
+     * 全エントリを捨てます。通知を取りこぼしたかもしれないとき（接続が切れてた等）に呼ばれます。
+     */
+    void invalidateAll();
+}
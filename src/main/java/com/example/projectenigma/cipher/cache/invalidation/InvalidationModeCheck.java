@@ -0,0 +1,52 @@
+package com.example.projectenigma.cipher.cache.invalidation;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 起動時に、使われる {@link InvalidationBus} が enigma.cache.invalidation.mode と合ってるかを確かめる。
+ * <p>
+ * 普段は @ConditionalOnProperty で選ぶので必ず合う。
+ * ただ AOT (-Dspring.aot.enabled=true) で起動すると、どのバスを使うかはビルド時の mode で固まってて、
+ * 起動時に mode を変えても黙ってビルド時のバスのままになる。
+ * 複数台なのに local のまま動くとキャッシュが古いまま残るので、食い違ってたら起動を止める。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+@Component
+public class InvalidationModeCheck {
+
+    private final InvalidationBus bus;
+
+    /** 起動時の設定値 */
+    private final String mode;
+
+    /**
+     * 使われるバスと起動時の設定値からチェックを生成します。
+     *
+     * @param bus  使われるバス
+     * @param mode enigma.cache.invalidation.mode
+     */
+    public InvalidationModeCheck(InvalidationBus bus,
+                                 @Value("${enigma.cache.invalidation.mode:local}") String mode) {
+        this.bus = bus;
+        this.mode = mode;
+    }
+
+    /**
+     * バスと設定値が食い違ってたら、起動を止めます。
+     *
+     * @throws IllegalStateException 食い違ってるとき
+     */
+    @PostConstruct
+    void check() {
+        if (!bus.mode().equals(mode)) {
+            throw new IllegalStateException("enigma.cache.invalidation.mode is '" + mode + "' but the '" + bus.mode()
+                    + "' invalidation bus is wired. With -Dspring.aot.enabled=true the bus is fixed at build time; "
+                    + "rebuild with -Pstartup -Dstartup.invalidation.mode=" + mode);
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.example.projectenigma.cipher.cache.invalidation;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * cache_invalidations テーブルを介して無効化を配るバス（enigma.cache.invalidation.mode=jdbc）。
+ * H2（ファイル・AUTO_SERVER）でも PostgreSQL でも動く。
+ * <p>
+ * {@link #publish} は行を1つ INSERT するだけ（呼び出し元のトランザクションに乗るので、コミットされたら見える）。
+ * 各インスタンスは poll-interval ごとに、前回より大きい ID の行を読んで自分のキャッシュを捨てる。
+ * 自分が書いた行（origin が自分）は、書いた時点でローカルは捨て済みなので読み飛ばす。
+ * <p>
+ * ID は INSERT の順に振られるが、コミットの順とは限らない。読んだ行の ID が飛んでいたら、
+ * 飛んだ ID を gap-timeout の間だけ覚えておき、次からはそれも一緒に読む（遅れてコミットされた行を拾うため）。
+ * 古い行は retention を過ぎたらどのインスタンスからでも消す。
+ * ポーリングが retention 以上止まってた（DBに繋がらなかった等）ときは、取りこぼしたかもしれないので全部捨てる。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "enigma.cache.invalidation.mode", havingValue = "jdbc")
+public class JdbcPollingInvalidationBus implements InvalidationBus {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO cache_invalidations (user_id, origin, created_at) VALUES (?, ?, ?)";
+
+    private static final String SELECT_SQL = "SELECT id, user_id, origin FROM cache_invalidations "
+            + "WHERE id > ? ORDER BY id FETCH FIRST ? ROWS ONLY";
+
+    private static final String SELECT_WITH_GAPS_SQL = "SELECT id, user_id, origin FROM cache_invalidations "
+            + "WHERE id > ? OR id IN (%s) ORDER BY id FETCH FIRST ? ROWS ONLY";
+
+    private static final String DELETE_SQL = "DELETE FROM cache_invalidations WHERE created_at < ?";
+
+    /** 覚えておく飛んだ ID の上限（IN句が長くなりすぎんように） */
+    static final int MAX_GAPS = 1000;
+
+    private static final RowMapper<Row> ROW_MAPPER =
+            (rs, rowNum) -> new Row(rs.getLong(1), rs.getString(2), rs.getString(3));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final List<InvalidationListener> listeners = new CopyOnWriteArrayList<>();
+
+    /** このインスタンスの識別子（自分が書いた行を読み飛ばすため） */
+    private final String origin;
+
+    /** 1回に読む最大件数 */
+    private final int batchSize;
+
+    /** 飛んだ ID を待つ時間（ミリ秒） */
+    private final long gapTimeoutMillis;
+
+    /** 行を残しておく期間 */
+    private final Duration retention;
+
+    private final Clock clock;
+
+    /** ポーリングの多重実行を防ぐ（JDBCを待つので synchronized にはしない） */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /** 読んだ中で一番大きい ID */
+    private long lastId;
+
+    /** 飛んでた ID → 見つけた時刻（ミリ秒）。見つけた順 */
+    private final Map<Long, Long> gaps = new LinkedHashMap<>();
+
+    /** 最後にポーリングが成功した時刻（ミリ秒） */
+    private long lastPolledAt;
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder gapsExpired = new LongAdder();
+
+    /**
+     * 設定値からバスを生成します。
+     */
+    @Autowired
+    public JdbcPollingInvalidationBus(JdbcTemplate jdbcTemplate,
+                                      List<InvalidationListener> listeners,
+                                      @Value("${enigma.cache.invalidation.batch-size:500}") int batchSize,
+                                      @Value("${enigma.cache.invalidation.gap-timeout:PT30S}") Duration gapTimeout,
+                                      @Value("${enigma.cache.invalidation.retention:PT10M}") Duration retention) {
+        this(jdbcTemplate, UUID.randomUUID().toString(), batchSize, gapTimeout, retention, Clock.systemDefaultZone());
+        this.listeners.addAll(listeners);
+    }
+
+    JdbcPollingInvalidationBus(JdbcTemplate jdbcTemplate, String origin, int batchSize,
+                               Duration gapTimeout, Duration retention, Clock clock) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.origin = origin;
+        this.batchSize = batchSize;
+        this.gapTimeoutMillis = gapTimeout.toMillis();
+        this.retention = retention;
+        this.clock = clock;
+    }
+
+    /**
+     * 起動前に書かれた行は読まんでいいので（キャッシュは空）、今の最大 ID から読み始めます。
+     */
+    @PostConstruct
+    public void start() {
+        Long max = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM cache_invalidations", Long.class);
+        lock.lock();
+        try {
+            lastId = max == null ? 0 : max;
+            lastPolledAt = clock.millis();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 無効化の行を書きます。失敗しても解答の処理は止めない（他のインスタンスは TTL で追いつく）。
+     *
+     * @param userId ユーザーID
+     */
+    @Override
+    public void publish(String userId) {
+        try {
+            jdbcTemplate.update(INSERT_SQL, userId, origin, Timestamp.valueOf(LocalDateTime.now(clock)));
+            published.increment();
+        } catch (DataAccessException e) {
+            failures.increment();
+            log.warn("Failed to publish cache invalidation for {}", userId, e);
+        }
+    }
+
+    @Override
+    public void subscribe(InvalidationListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public String mode() {
+        return "jdbc";
+    }
+
+    /**
+     * 他のインスタンスが書いた無効化を読んで、キャッシュを捨てます。
+     *
+     * @return 捨てた件数
+     */
+    @Scheduled(fixedDelayString = "${enigma.cache.invalidation.poll-interval:PT1S}")
+    public int poll() {
+        lock.lock();
+        try {
+            long now = clock.millis();
+            int delivered = 0;
+            List<Row> rows;
+            do {
+                try {
+                    rows = fetch();
+                } catch (DataAccessException e) {
+                    failures.increment();
+                    log.warn("Failed to poll cache invalidations; will retry", e);
+                    return delivered;
+                }
+                delivered += apply(rows, now);
+            } while (rows.size() == batchSize);
+
+            if (now - lastPolledAt > retention.toMillis()) {
+                // 止まってる間に消された行があるかもしれない
+                log.warn("Cache invalidation polling was stalled for {} ms; invalidating all entries", now - lastPolledAt);
+                listeners.forEach(InvalidationListener::invalidateAll);
+            }
+            lastPolledAt = now;
+            expireGaps(now);
+            return delivered;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * retention を過ぎた行を消します。どのインスタンスが消しても同じ結果になります。
+     *
+     * @return 消した行数
+     */
+    @Scheduled(fixedDelayString = "${enigma.cache.invalidation.cleanup-interval:PT1M}")
+    public int cleanup() {
+        try {
+            return jdbcTemplate.update(DELETE_SQL, Timestamp.valueOf(LocalDateTime.now(clock).minus(retention)));
+        } catch (DataAccessException e) {
+            failures.increment();
+            log.warn("Failed to clean up cache invalidations", e);
+            return 0;
+        }
+    }
+
+    @Override
+    public Stats stats() {
+        return new Stats(published.sum(), received.sum(), failures.sum());
+    }
+
+    /**
+     * 待ってるうちに来なかった ID の数（ロールバックされた、または gap-timeout より長いトランザクション）。
+     *
+     * @return 諦めた飛んだ ID の累計
+     */
+    public long gapsExpired() {
+        return gapsExpired.sum();
+    }
+
+    private List<Row> fetch() {
+        if (gaps.isEmpty()) {
+            return jdbcTemplate.query(SELECT_SQL, ROW_MAPPER, lastId, batchSize);
+        }
+        List<Object> args = new ArrayList<>(gaps.size() + 2);
+        args.add(lastId);
+        args.addAll(gaps.keySet());
+        args.add(batchSize);
+        String sql = String.format(SELECT_WITH_GAPS_SQL, String.join(",", Collections.nCopies(gaps.size(), "?")));
+        return jdbcTemplate.query(sql, ROW_MAPPER, args.toArray());
+    }
+
+    private int apply(List<Row> rows, long now) {
+        int delivered = 0;
+        for (Row row : rows) {
+            if (row.id() > lastId) {
+                // 間の ID がまだコミットされてないかもしれないので覚えとく
+                for (long missing = lastId + 1; missing < row.id() && gaps.size() < MAX_GAPS; missing++) {
+                    gaps.put(missing, now);
+                }
+                lastId = row.id();
+            } else {
+                gaps.remove(row.id());
+            }
+            if (origin.equals(row.origin())) {
+                continue;
+            }
+            received.increment();
+            for (InvalidationListener listener : listeners) {
+                listener.invalidate(row.userId());
+            }
+            delivered++;
+        }
+        return delivered;
+    }
+
+    private void expireGaps(long now) {
+        Iterator<Long> foundAt = gaps.values().iterator();
+        while (foundAt.hasNext() && now - foundAt.next() >= gapTimeoutMillis) {
+            foundAt.remove();
+            gapsExpired.increment();
+        }
+    }
+
+    private record Row(long id, String userId, String origin) {
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.projectenigma.cipher.cache.invalidation;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * プロセス内だけで無効化を配るバス（enigma.cache.invalidation.mode=local、既定）。
+ * 1台で動かすときと、複数インスタンスの動きをテストで真似するとき用。
+ * 同じバスに複数のキャッシュを登録すれば、それぞれが別インスタンスのキャッシュの代わりになる。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+@Component
+@ConditionalOnProperty(name = "enigma.cache.invalidation.mode", havingValue = "local", matchIfMissing = true)
+public class LocalInvalidationBus implements InvalidationBus {
+
+    private final List<InvalidationListener> listeners = new CopyOnWriteArrayList<>();
+
+    private final LongAdder published = new LongAdder();
+
+    /**
+     * プロセス内のキャッシュを全部登録してバスを生成します。
+     *
+     * @param listeners 無効化を受け取るキャッシュ
+     */
+    @Autowired
+    public LocalInvalidationBus(List<InvalidationListener> listeners) {
+        this.listeners.addAll(listeners);
+    }
+
+    LocalInvalidationBus() {
+    }
+
+    /**
+     * 登録済みのリスナーに無効化を配ります。トランザクション中ならコミットされてから配ります。
+     *
+     * @param userId ユーザーID
+     */
+    @Override
+    public void publish(String userId) {
+        published.increment();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    deliver(userId);
+                }
+            });
+            return;
+        }
+        deliver(userId);
+    }
+
+    @Override
+    public void subscribe(InvalidationListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public String mode() {
+        return "local";
+    }
+
+    /**
+     * プロセス内なので、受信数は数えない（送ったものがそのまま届く）。
+     */
+    @Override
+    public Stats stats() {
+        return new Stats(published.sum(), 0, 0);
+    }
+
+    private void deliver(String userId) {
+        for (InvalidationListener listener : listeners) {
+            listener.invalidate(userId);
+        }
+    }
+}
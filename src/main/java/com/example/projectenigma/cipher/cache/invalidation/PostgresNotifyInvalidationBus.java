@@ -0,0 +1,200 @@
+package com.example.projectenigma.cipher.cache.invalidation;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * PostgreSQL の LISTEN / NOTIFY で無効化を配るバス（enigma.cache.invalidation.mode=notify）。
+ * <p>
+ * {@link #publish} は {@code pg_notify(channel, 'origin:userId')} を呼ぶだけ。
+ * トランザクション中なら PostgreSQL がコミットのときに配ってくれる（ロールバックしたら配られない）。
+ * 受信は常駐の1本のスレッド（invalidation-listener）が、プールとは別の専用コネクションで LISTEN して待つ
+ * （プールのコネクションを1本ずっと握ったままにしないため）。
+ * 接続が切れてる間の通知は届かないので、繋ぎ直したら取りこぼしたかもしれない分としてキャッシュを全部捨てる。
+ * 配る行がテーブルに残らない分、jdbc モードより軽い。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "enigma.cache.invalidation.mode", havingValue = "notify")
+public class PostgresNotifyInvalidationBus implements InvalidationBus {
+
+    /** LISTEN に埋め込むので、チャンネル名は識別子として安全なものだけ許す */
+    private static final Pattern CHANNEL = Pattern.compile("[a-z_][a-z0-9_]{0,62}");
+
+    /** 通知を待つ1回あたりの時間（停止の確認間隔） */
+    private static final int WAIT_MILLIS = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSourceProperties dataSourceProperties;
+    private final List<InvalidationListener> listeners = new CopyOnWriteArrayList<>();
+
+    /** このインスタンスの識別子（自分が配った通知を読み飛ばすため） */
+    private final String origin;
+
+    private final String channel;
+
+    /** 接続が切れたときに繋ぎ直すまで待つ時間（ミリ秒） */
+    private final long reconnectDelayMillis;
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    private volatile boolean running;
+    private Thread listener;
+
+    /**
+     * 設定値からバスを生成します。
+     */
+    @Autowired
+    public PostgresNotifyInvalidationBus(JdbcTemplate jdbcTemplate,
+                                         DataSourceProperties dataSourceProperties,
+                                         List<InvalidationListener> listeners,
+                                         @Value("${enigma.cache.invalidation.channel:enigma_cache}") String channel,
+                                         @Value("${enigma.cache.invalidation.reconnect-delay:PT5S}") Duration reconnectDelay) {
+        this(jdbcTemplate, dataSourceProperties, UUID.randomUUID().toString(), channel, reconnectDelay);
+        this.listeners.addAll(listeners);
+    }
+
+    PostgresNotifyInvalidationBus(JdbcTemplate jdbcTemplate, DataSourceProperties dataSourceProperties,
+                                  String origin, String channel, Duration reconnectDelay) {
+        if (!CHANNEL.matcher(channel).matches()) {
+            throw new IllegalArgumentException("Invalid channel name: " + channel);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSourceProperties = dataSourceProperties;
+        this.origin = origin;
+        this.channel = channel;
+        this.reconnectDelayMillis = reconnectDelay.toMillis();
+    }
+
+    /**
+     * 受信スレッドを起動します。
+     */
+    @PostConstruct
+    public void start() {
+        running = true;
+        listener = Thread.ofPlatform().name("invalidation-listener").daemon().start(this::listenLoop);
+    }
+
+    /**
+     * 受信スレッドを止めます。
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        if (listener != null) {
+            listener.interrupt();
+            listener.join(WAIT_MILLIS * 4L);
+        }
+    }
+
+    /**
+     * 無効化を通知します。失敗しても解答の処理は止めない（他のインスタンスは TTL で追いつく）。
+     *
+     * @param userId ユーザーID
+     */
+    @Override
+    public void publish(String userId) {
+        try {
+            jdbcTemplate.query("SELECT pg_notify(?, ?)", rs -> null, channel, origin + ':' + userId);
+            published.increment();
+        } catch (DataAccessException e) {
+            failures.increment();
+            log.warn("Failed to publish cache invalidation for {}", userId, e);
+        }
+    }
+
+    @Override
+    public void subscribe(InvalidationListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public String mode() {
+        return "notify";
+    }
+
+    @Override
+    public Stats stats() {
+        return new Stats(published.sum(), received.sum(), failures.sum());
+    }
+
+    /**
+     * 通知1件分のペイロード（origin:userId）を処理します。自分が配ったものは読み飛ばします。
+     *
+     * @param payload ペイロード
+     * @return リスナーに配ったら true
+     */
+    boolean dispatch(String payload) {
+        int separator = payload.indexOf(':');
+        if (separator < 0 || origin.equals(payload.substring(0, separator))) {
+            return false;
+        }
+        String userId = payload.substring(separator + 1);
+        received.increment();
+        for (InvalidationListener l : listeners) {
+            l.invalidate(userId);
+        }
+        return true;
+    }
+
+    private void listenLoop() {
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                // LISTEN するまでの間（初回は起動中、2回目以降は切れてた間）の通知は取りこぼしてる
+                listeners.forEach(InvalidationListener::invalidateAll);
+                PGConnection pg = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pg.getNotifications(WAIT_MILLIS);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        dispatch(notification.getParameter());
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                failures.increment();
+                log.warn("Cache invalidation listener lost its connection; reconnecting in {} ms", reconnectDelayMillis, e);
+                try {
+                    Thread.sleep(reconnectDelayMillis);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package com.example.projectenigma.cipher.clock;
+
+import com.example.projectenigma.cipher.cache.PlayerCache;
+import com.example.projectenigma.cipher.leaderboard.Leaderboard;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * プレイ時間をサーバー側で計測するクロック。
+ * <p>
+ * プレイ画面の表示・解答送信・ハートビートのたびに前回からの経過時間をメモリ上に積み上げ、
+ * 一定間隔でまとめて game_progress.total_elapsed_seconds に加算する（JDBCバッチ）。
+ * ハートビートごとにUPDATEを発行しないので、毎秒のDB書き込みにはならない。
+ * 前回から max-gap 以上空いた場合（タブを閉じていた等）は max-gap 分だけ数える。
+ * まだ行のない仮プレイヤーの時間は別枠 (max-provisional-sessions) で測って、本登録されたら本登録済みの枠に移す。
+ * 仮プレイヤーの枠は古いものから捨てるので、クローラーが Cookie なしで叩き続けても本登録済みの枠 (max-sessions) は埋まらない。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+@Slf4j
+@Component
+public class SessionClock {
+
+    private static final String FLUSH_SQL = "UPDATE game_progress "
+            + "SET total_elapsed_seconds = total_elapsed_seconds + ?, last_updated = ? "
+            + "WHERE user_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionOperations transactionOperations;
+    private final PlayerCache playerCache;
+    private final Leaderboard leaderboard;
+
+    /** 1回の計測で数える最大の間隔（ミリ秒） */
+    private final long maxGapMillis;
+
+    /** この時間操作がなく、未反映の時間もないセッションは破棄する（ミリ秒） */
+    private final long idleTimeoutMillis;
+
+    /** 1回のJDBCバッチに詰めるUPDATEの数 */
+    private final int batchSize;
+
+    /** 同時に追跡するセッション数の上限（本登録済み） */
+    private final int maxSessions;
+
+    /** 現在時刻（ミリ秒）の取得元。テストで差し替えるため */
+    private final LongSupplier clock;
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+
+    /** 仮プレイヤーのセッション。触った順に並べて、上限を超えたら一番古いのを捨てる（アクセスは provisionalSessions で同期） */
+    private final Map<String, Session> provisionalSessions;
+
+    /**
+     * 設定値からクロックを生成します。
+     */
+    @Autowired
+    public SessionClock(JdbcTemplate jdbcTemplate,
+                        PlatformTransactionManager transactionManager,
+                        PlayerCache playerCache,
+                        Leaderboard leaderboard,
+                        @Value("${enigma.clock.max-gap:PT90S}") Duration maxGap,
+                        @Value("${enigma.clock.idle-timeout:PT30M}") Duration idleTimeout,
+                        @Value("${enigma.clock.batch-size:500}") int batchSize,
+                        @Value("${enigma.clock.max-sessions:100000}") int maxSessions,
+                        @Value("${enigma.clock.max-provisional-sessions:10000}") int maxProvisionalSessions) {
+        this(jdbcTemplate, new TransactionTemplate(transactionManager), playerCache, leaderboard,
+                maxGap, idleTimeout, batchSize, maxSessions, maxProvisionalSessions, System::currentTimeMillis);
+    }
+
+    SessionClock(JdbcTemplate jdbcTemplate, TransactionOperations transactionOperations,
+                 PlayerCache playerCache, Leaderboard leaderboard, Duration maxGap, Duration idleTimeout, int batchSize,
+                 int maxSessions, int maxProvisionalSessions, LongSupplier clock) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionOperations = transactionOperations;
+        this.playerCache = playerCache;
+        this.leaderboard = leaderboard;
+        this.maxGapMillis = maxGap.toMillis();
+        this.idleTimeoutMillis = idleTimeout.toMillis();
+        this.batchSize = batchSize;
+        this.maxSessions = maxSessions;
+        this.clock = clock;
+        this.provisionalSessions = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Session> eldest) {
+                return size() > maxProvisionalSessions;
+            }
+        };
+    }
+
+    /**
+     * 前回の操作からの経過時間を積み上げます（画面表示・ハートビート・解答送信時）。
+     * 初めてのユーザーならここから計測を始めます。仮プレイヤーの間に測ってた分があれば引き継ぎます。
+     *
+     * @param userId ユーザーID
+     */
+    public void touch(String userId) {
+        Session session = session(userId);
+        if (session != null) {
+            session.advance(clock.getAsLong(), maxGapMillis);
+        }
+    }
+
+    /**
+     * 仮プレイヤー（まだ行がない）の経過時間を積み上げます。
+     * 仮プレイヤーの枠で測り、枠がいっぱいなら一番長く触られてないセッションを捨てます。
+     * 本登録後の最初の {@link #touch} で本登録済みの枠に移ります。
+     *
+     * @param userId ユーザーID
+     */
+    public void touchProvisional(String userId) {
+        // 古い仮Cookieのリクエストでも、本登録済みならそっちで測る
+        Session session = sessions.get(userId);
+        if (session == null) {
+            synchronized (provisionalSessions) {
+                session = provisionalSessions.computeIfAbsent(userId, id -> new Session(clock.getAsLong()));
+            }
+        }
+        session.advance(clock.getAsLong(), maxGapMillis);
+    }
+
+    /**
+     * 経過時間を積み上げたうえで、新しいステージの開始時刻を記録します（正解してステージが進んだとき）。
+     *
+     * @param userId ユーザーID
+     * @return 直前のステージに費やした時間（ミリ秒）。計測していなかった場合は -1
+     */
+    public long startStage(String userId) {
+        Session session = session(userId);
+        if (session == null) {
+            return -1;
+        }
+        long now = clock.getAsLong();
+        session.advance(now, maxGapMillis);
+        return session.restartStage(now);
+    }
+
+    /**
+     * まだDBに反映していない経過時間（秒）を返します。画面表示用。
+     *
+     * @param userId ユーザーID
+     * @return 未反映の秒数
+     */
+    public long pendingSeconds(String userId) {
+        Session session = sessions.get(userId);
+        if (session == null) {
+            synchronized (provisionalSessions) {
+                session = provisionalSessions.get(userId);
+            }
+        }
+        return session == null ? 0 : session.pendingMillis() / 1000;
+    }
+
+    /**
+     * 積み上げた経過時間を、秒単位でまとめて game_progress に加算します。
+     * 1秒未満の端数と、本登録したけどまだ行が書けてない分は次回に持ち越します。あわせて放置されたセッションを破棄します。
+     * 仮プレイヤーの枠は行がないので書き出さず、放置されたものを捨てるだけです。
+     *
+     * @return 更新したユーザー数
+     */
+    @Scheduled(fixedDelayString = "${enigma.clock.flush-interval:PT10S}")
+    public int flush() {
+        long now = clock.getAsLong();
+        synchronized (provisionalSessions) {
+            provisionalSessions.values().removeIf(session -> session.isIdle(now, idleTimeoutMillis));
+        }
+        List<Object[]> rows = new ArrayList<>();
+        sessions.forEach((userId, session) -> {
+            long seconds = session.drainSeconds();
+            if (seconds > 0) {
+                rows.add(new Object[]{seconds, userId});
+            } else if (session.isIdle(now, idleTimeoutMillis)) {
+                sessions.remove(userId, session);
+            }
+        });
+        if (rows.isEmpty()) {
+            return 0;
+        }
+
+        Timestamp updatedAt = Timestamp.valueOf(LocalDateTime.now());
+        int[][] counts;
+        try {
+            counts = transactionOperations.execute(status ->
+                    jdbcTemplate.batchUpdate(FLUSH_SQL, rows, batchSize, (ps, row) -> {
+                        ps.setLong(1, (Long) row[0]);
+                        ps.setTimestamp(2, updatedAt);
+                        ps.setString(3, (String) row[1]);
+                    }));
+        } catch (DataAccessException e) {
+            // 書けなかった分は次回に持ち越す
+            log.warn("Failed to flush elapsed time for {} players; will retry", rows.size(), e);
+            for (Object[] row : rows) {
+                Session session = session((String) row[1]);
+                if (session != null) {
+                    session.restore((Long) row[0] * 1000);
+                }
+            }
+            return 0;
+        }
+
+        int flushed = 0;
+        int index = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                Object[] row = rows.get(index++);
+                String userId = (String) row[1];
+                if (count == 0) {
+                    // 本登録したけど行がまだ書けてない (後書きキュー待ち・掃除で消えた): 書けるまで持ち越す。放置されてたら捨てる
+                    Session session = sessions.get(userId);
+                    if (session != null) {
+                        if (session.isIdle(now, idleTimeoutMillis)) {
+                            sessions.remove(userId, session);
+                        } else {
+                            session.restore((Long) row[0] * 1000);
+                        }
+                    }
+                    continue;
+                }
+                // キャッシュしてる進捗にも同じだけ足す (捨てると、遊んでる人ほど毎回DBを読みに行くことになる)
+                // ランキングのタイムも進める
+                playerCache.addElapsed(userId, (Long) row[0]);
+                leaderboard.addElapsed(userId, (Long) row[0]);
+                flushed++;
+            }
+        }
+        return flushed;
+    }
+
+    /**
+     * 終了時に未反映の経過時間を書き出します。
+     */
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private Session session(String userId) {
+        Session session = sessions.get(userId);
+        if (session == null) {
+            // 仮プレイヤーの間に測ってた分があれば、本登録済みの枠に移して続きを測る
+            Session carried;
+            synchronized (provisionalSessions) {
+                carried = provisionalSessions.remove(userId);
+            }
+            if (sessions.size() >= maxSessions) {
+                // 上限を超えたら新しいユーザーは計測しない（メモリ保護）
+                return null;
+            }
+            session = sessions.computeIfAbsent(userId, id -> carried != null ? carried : new Session(clock.getAsLong()));
+        }
+        return session;
+    }
+
+    /**
+     * 1ユーザー分の計測状態。
+     */
+    private static final class Session {
+
+        private long lastMark;
+        private long stageStart;
+        private long pendingMillis;
+
+        Session(long now) {
+            this.lastMark = now;
+            this.stageStart = now;
+        }
+
+        synchronized void advance(long now, long maxGap) {
+            long gap = now - lastMark;
+            if (gap > 0) {
+                pendingMillis += Math.min(gap, maxGap);
+                lastMark = now;
+            }
+        }
+
+        synchronized long restartStage(long now) {
+            long spent = now - stageStart;
+            stageStart = now;
+            return spent;
+        }
+
+        synchronized long pendingMillis() {
+            return pendingMillis;
+        }
+
+        synchronized long drainSeconds() {
+            long seconds = pendingMillis / 1000;
+            pendingMillis -= seconds * 1000;
+            return seconds;
+        }
+
+        synchronized void restore(long millis) {
+            pendingMillis += millis;
+        }
+
+        synchronized boolean isIdle(long now, long idleTimeout) {
+            return now - lastMark > idleTimeout;
+        }
+    }
+}
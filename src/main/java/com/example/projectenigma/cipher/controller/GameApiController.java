@@ -0,0 +1,94 @@
+package com.example.projectenigma.cipher.controller;
+
+import com.example.projectenigma.cipher.clock.SessionClock;
+import com.example.projectenigma.cipher.dto.AnswerForm;
+import com.example.projectenigma.cipher.dto.AnswerOutcome;
+import com.example.projectenigma.cipher.dto.AnswerResult;
+import com.example.projectenigma.cipher.dto.PlayState;
+import com.example.projectenigma.cipher.dto.Player;
+import com.example.projectenigma.cipher.service.AuthService;
+import com.example.projectenigma.cipher.service.GameService;
+import com.example.projectenigma.cipher.web.CurrentPlayer;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * プレイ画面から fetch で呼ばれる軽量なJSON API。
+ * 解答ごとにリダイレクト＋画面全体の再描画をせず、小さなJSONだけを返す。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+@RestController
+@RequestMapping("/api/play")
+@RequiredArgsConstructor
+public class GameApiController {
+
+    private final AuthService authService;
+    private final GameService gameService;
+    private final SessionClock sessionClock;
+
+    /**
+     * 現在のプレイ状態を返します。
+     *
+     * @param player リクエストを送ってきたプレイヤー
+     * @return プレイ状態
+     */
+    @GetMapping("/state")
+    public PlayState state(@CurrentPlayer Player player) {
+        return gameService.stateOf(player.userId(), player.progress().getCurrentStageId(),
+                player.progress().getTotalElapsedSeconds());
+    }
+
+    /**
+     * 解答を判定し、結果と解答後のプレイ状態を返します。
+     * 送りすぎのチェック（429）は、ここに来る前に PlayerWebConfig のインターセプターで済んでいます。
+     *
+     * @param answerForm 解答 (JSON: {"answer": "..."})
+     * @param player     リクエストを送ってきたプレイヤー（最初の解答なら、ここで本登録される）
+     * @param response   レスポンス情報（Cookie書き込み用）
+     * @return 解答結果
+     */
+    @PostMapping("/answer")
+    public AnswerResult answer(@RequestBody AnswerForm answerForm,
+                               @CurrentPlayer(materialize = true) Player player,
+                               HttpServletResponse response) {
+        AnswerOutcome outcome = gameService.checkAnswer(player.userId(),
+                player.progress().getCurrentStageId(), answerForm.getAnswer());
+        if (outcome.stageChanged()) {
+            // ステージが変わったのでCookieのトークンも発行し直す (DBに入ってるステージで)
+            authService.issueToken(response, player.userId(), outcome.stageId());
+        }
+
+        PlayState state = gameService.stateOf(player.userId(), outcome.stageId(),
+                player.progress().getTotalElapsedSeconds());
+        return AnswerResult.of(outcome, state);
+    }
+
+    /**
+     * プレイ画面から定期的に送られるハートビート。経過時間をメモリ上に積み上げるだけでDBには書かない。
+     * Cookieの署名を検証するだけで、ユーザーの新規作成やDBアクセスはしない。
+     *
+     * @param request リクエスト情報
+     * @return 204 No Content
+     */
+    @PostMapping("/heartbeat")
+    public ResponseEntity<Void> heartbeat(HttpServletRequest request) {
+        authService.resolveToken(request).ifPresent(token -> {
+            if (token.isProvisional()) {
+                sessionClock.touchProvisional(token.userId());
+            } else {
+                sessionClock.touch(token.userId());
+            }
+        });
+        return ResponseEntity.noContent().build();
+    }
+}
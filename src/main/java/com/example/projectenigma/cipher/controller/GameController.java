@@ -1,12 +1,14 @@
 package com.example.projectenigma.cipher.controller;
 
+import com.example.projectenigma.cipher.clock.SessionClock;
 import com.example.projectenigma.cipher.dto.AnswerForm;
-import com.example.projectenigma.cipher.entity.GameProgress;
-import com.example.projectenigma.cipher.entity.User;
-import com.example.projectenigma.cipher.repository.GameProgressRepository;
+import com.example.projectenigma.cipher.dto.AnswerOutcome;
+import com.example.projectenigma.cipher.dto.AnswerResult;
+import com.example.projectenigma.cipher.dto.Player;
 import com.example.projectenigma.cipher.service.AuthService;
 import com.example.projectenigma.cipher.service.GameService;
-import jakarta.servlet.http.HttpServletRequest;
+import com.example.projectenigma.cipher.stage.StageRegistry;
+import com.example.projectenigma.cipher.web.CurrentPlayer;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Controller;
@@ -23,17 +25,25 @@ import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 public class GameController {
 
     private final AuthService authService;
-    private final GameProgressRepository gameProgressRepository;
     private final GameService gameService;
+    private final StageRegistry stageRegistry;
+    private final SessionClock sessionClock;
 
     @GetMapping
-    public String play(Model model, HttpServletRequest request, HttpServletResponse response) {
-        User user = authService.authOrCreateUser(request, response);
-        GameProgress progress = gameProgressRepository.findById(user.getId())
-                .orElseThrow(() -> new IllegalStateException("No progress"));
-
-        model.addAttribute("user", user);
-        model.addAttribute("progress", progress);
+    public String play(@CurrentPlayer Player player, Model model) {
+        model.addAttribute("user", player.user());
+        model.addAttribute("progress", player.progress());
+        // 表示する経過時間 = DBに反映済みの時間 + まだメモリ上にある時間
+        // 仮プレイヤー (Cookie なしで来たクローラーもここ) は別枠で測る
+        if (player.provisional()) {
+            sessionClock.touchProvisional(player.userId());
+        } else {
+            sessionClock.touch(player.userId());
+        }
+        model.addAttribute("elapsedSeconds",
+                player.progress().getTotalElapsedSeconds() + sessionClock.pendingSeconds(player.userId()));
+        // 問題文はステージ定義から引く (全クリ後は null)
+        model.addAttribute("stage", stageRegistry.find(player.progress().getCurrentStageId()).orElse(null));
         
         // ★ここが抜けてるとエラーになるで！
         if (!model.containsAttribute("answerForm")) {
@@ -45,22 +55,23 @@ public class GameController {
 
     @PostMapping("/answer")
     public String submitAnswer(@ModelAttribute AnswerForm answerForm,
-                               HttpServletRequest request,
+                               @CurrentPlayer(materialize = true) Player player,
                                HttpServletResponse response,
                                RedirectAttributes redirectAttributes) {
-        
-        User user = authService.authOrCreateUser(request, response);
-        
-        boolean isCorrect = gameService.checkAnswer(user.getId(), answerForm.getAnswer());
+        // 最初の解答なら、ここに来るまでに本登録 (DBに行を作る) されてる
+        // 送りすぎのチェック (429) は、その前に PlayerWebConfig のインターセプターで済んでる
 
-        if (isCorrect) {
-            redirectAttributes.addFlashAttribute("message", "Correct! Next Stage Unlocked! 🎉");
-            redirectAttributes.addFlashAttribute("alertClass", "success");
-        } else {
-            redirectAttributes.addFlashAttribute("message", "Wrong answer... Try again. 😢");
-            redirectAttributes.addFlashAttribute("alertClass", "error");
+        // 画面に出てたステージに対する解答として判定 (進捗の読み直しはしない)
+        AnswerOutcome outcome = gameService.checkAnswer(player.userId(),
+                player.progress().getCurrentStageId(), answerForm.getAnswer());
+
+        if (outcome.stageChanged()) {
+            // ステージが変わったのでCookieのトークンも発行し直す (DBに入ってるステージで)
+            authService.issueToken(response, player.userId(), outcome.stageId());
         }
+        redirectAttributes.addFlashAttribute("message", AnswerResult.message(outcome));
+        redirectAttributes.addFlashAttribute("alertClass", outcome.stageChanged() ? "success" : "error");
 
         return "redirect:/play";
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,68 @@
+package com.example.projectenigma.cipher.controller;
+
+import com.example.projectenigma.cipher.dto.LeaderboardRow;
+import com.example.projectenigma.cipher.dto.LeaderboardView;
+import com.example.projectenigma.cipher.leaderboard.Leaderboard;
+import com.example.projectenigma.cipher.leaderboard.Standing;
+import com.example.projectenigma.cipher.service.AuthService;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ランキングを返すJSON API。
+ * メモリ上のランキングを引くだけで、DBにはアクセスしない。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+@RestController
+@RequestMapping("/api/leaderboard")
+@RequiredArgsConstructor
+public class LeaderboardController {
+
+    /** 1回で返す最大件数 */
+    private static final int MAX_LIMIT = 100;
+
+    private final Leaderboard leaderboard;
+    private final AuthService authService;
+
+    /**
+     * 上位N件と自分の順位を返します。
+     * 自分の判定はCookieの署名を検証するだけで、ユーザーの新規作成はしません。
+     *
+     * @param limit   上位何件まで返すか（1〜100）
+     * @param request リクエスト情報
+     * @return ランキング
+     */
+    @GetMapping
+    public LeaderboardView leaderboard(@RequestParam(defaultValue = "10") int limit, HttpServletRequest request) {
+        int n = Math.clamp(limit, 1, MAX_LIMIT);
+
+        List<Standing> top = leaderboard.top(n);
+        List<LeaderboardRow> rows = new ArrayList<>(top.size());
+        for (int i = 0; i < top.size(); i++) {
+            rows.add(toRow(i + 1, top.get(i)));
+        }
+
+        LeaderboardRow me = authService.resolveUserId(request)
+                .flatMap(userId -> leaderboard.standingOf(userId)
+                        .map(standing -> toRow(leaderboard.rankOf(userId), standing)))
+                .orElse(null);
+
+        return new LeaderboardView(leaderboard.size(), rows, me);
+    }
+
+    private static LeaderboardRow toRow(int rank, Standing standing) {
+        String userId = standing.userId();
+        String name = userId.length() > 8 ? userId.substring(0, 8) : userId;
+        return new LeaderboardRow(rank, name, standing.stageId(), standing.elapsedSeconds());
+    }
+}
@@ -1,18 +1,11 @@
 package com.example.projectenigma.cipher.controller;
 
-import jakarta.servlet.http.HttpServletRequest;
-import jakarta.servlet.http.HttpServletResponse;
-import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 
-import com.example.projectenigma.cipher.entity.GameProgress;
-import com.example.projectenigma.cipher.entity.User;
-import com.example.projectenigma.cipher.repository.GameProgressRepository;
-import com.example.projectenigma.cipher.service.AuthService;
-
-import java.util.Optional;
+import com.example.projectenigma.cipher.dto.Player;
+import com.example.projectenigma.cipher.web.CurrentPlayer;
 
 /**
  * トップページおよびルートアクセスの制御を行うコントローラー。
@@ -22,39 +15,24 @@ import java.util.Optional;
  * @since 1.0
  */
 @Controller
-@RequiredArgsConstructor
 public class RootController {
 
-    private final AuthService authService;
-    private final GameProgressRepository gameProgressRepository;
-
     /**
      * トップページを表示します。
-     * アクセス時に自動でユーザー認証（Cookie確認・新規作成）を行います。
+     * プレイヤーはアクセス時に自動で特定（Cookie確認・新規作成）されて渡ってきます。
      *
+     * @param player   リクエストを送ってきたプレイヤー
      * @param model    画面に渡すデータ
-     * @param request  リクエスト情報
-     * @param response レスポンス情報（Cookie書き込み用）
      * @return テンプレート名
      * @author R.Morioka
      * @version 1.0
      * @since 1.0
      */
     @GetMapping("/")
-    public String index(Model model, HttpServletRequest request, HttpServletResponse response) {
-        // 1. サービスを呼ぶ
-        User user = authService.authOrCreateUser(request, response);
-
-        // 2. 進捗状況を取得
-        // ※ ここで user が null だと user.getId() でまたエラーになるからガードしとく
-        Optional<GameProgress> progressOpt = Optional.empty();
-        if (user != null) {
-             progressOpt = gameProgressRepository.findById(user.getId());
-        }
-
-        // 3. 画面にデータを渡す
-        model.addAttribute("user", user);
-        model.addAttribute("progress", progressOpt.orElse(null));
+    public String index(@CurrentPlayer Player player, Model model) {
+        // ユーザーと進捗は @CurrentPlayer でまとめて取得済み (キャッシュにあればDBは見ない)
+        model.addAttribute("user", player.user());
+        model.addAttribute("progress", player.progress());
 
         return "index";
     }
@@ -0,0 +1,45 @@
+package com.example.projectenigma.cipher.dto;
+
+/**
+ * 解答を判定した結果。正解でも、ステージを進められたとは限らない。
+ *
+ * @param status  判定の結果
+ * @param stageId 判定後にプレイヤーがいるステージ（DBに入っているステージ。行がなければ解答したステージ）
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+public record AnswerOutcome(Status status, int stageId) {
+
+    /**
+     * 判定の結果。
+     */
+    public enum Status {
+        /** 不正解 */
+        WRONG,
+        /** 正解で、このリクエストがステージを進めた */
+        ADVANCED,
+        /** 正解だが、別タブ・二重送信などで既にステージが進んでいた */
+        ALREADY_ADVANCED,
+        /** 正解だが、進捗の行がなかった（本登録前・削除済みなど）ので進められなかった */
+        NOT_SAVED
+    }
+
+    /**
+     * 解答が正解だったかどうかを返します（進められたかどうかは問わない）。
+     *
+     * @return 正解なら true
+     */
+    public boolean correct() {
+        return status != Status.WRONG;
+    }
+
+    /**
+     * DBに入っているステージが解答したステージから変わったか（Cookieのトークンを発行し直すか）を返します。
+     *
+     * @return ADVANCED / ALREADY_ADVANCED なら true
+     */
+    public boolean stageChanged() {
+        return status == Status.ADVANCED || status == Status.ALREADY_ADVANCED;
+    }
+}
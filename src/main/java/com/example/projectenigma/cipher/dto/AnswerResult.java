@@ -0,0 +1,53 @@
+package com.example.projectenigma.cipher.dto;
+
+/**
+ * 解答結果を返すJSON API用のDTO。
+ *
+ * @param correct 正解なら true
+ * @param message 画面に表示するメッセージ
+ * @param state   解答後のプレイ状態
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+public record AnswerResult(boolean correct, String message, PlayState state) {
+
+    /** 正解時のメッセージ */
+    public static final String MESSAGE_CORRECT = "Correct! Next Stage Unlocked! 🎉";
+
+    /** 正解だが、別のタブなどで既に進んでいたときのメッセージ */
+    public static final String MESSAGE_ALREADY_ADVANCED = "Correct! This stage was already cleared. 👍";
+
+    /** 正解だが、進捗を保存できなかったときのメッセージ */
+    public static final String MESSAGE_NOT_SAVED = "Correct, but your progress could not be saved. Please try again. 🙏";
+
+    /** 不正解時のメッセージ */
+    public static final String MESSAGE_WRONG = "Wrong answer... Try again. 😢";
+
+    /**
+     * 判定結果に応じたメッセージ付きの結果を生成します。
+     * 進捗を保存できなかったときは、正解でも correct=false（画面では失敗として出す）。
+     *
+     * @param outcome 判定結果
+     * @param state   解答後のプレイ状態
+     * @return 解答結果
+     */
+    public static AnswerResult of(AnswerOutcome outcome, PlayState state) {
+        return new AnswerResult(outcome.stageChanged(), message(outcome), state);
+    }
+
+    /**
+     * 判定結果に対応するメッセージを返します。
+     *
+     * @param outcome 判定結果
+     * @return 画面に表示するメッセージ
+     */
+    public static String message(AnswerOutcome outcome) {
+        return switch (outcome.status()) {
+            case ADVANCED -> MESSAGE_CORRECT;
+            case ALREADY_ADVANCED -> MESSAGE_ALREADY_ADVANCED;
+            case NOT_SAVED -> MESSAGE_NOT_SAVED;
+            case WRONG -> MESSAGE_WRONG;
+        };
+    }
+}
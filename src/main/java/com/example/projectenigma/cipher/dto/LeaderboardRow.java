@@ -0,0 +1,16 @@
+package com.example.projectenigma.cipher.dto;
+
+/**
+ * ランキングの1行分を返すJSON API用のDTO。
+ * ユーザーIDはそのまま出さず、先頭8文字だけにする。
+ *
+ * @param rank           順位（1始まり）
+ * @param player         表示名（ユーザーIDの先頭8文字）
+ * @param stageId        現在のステージID
+ * @param elapsedSeconds 総経過時間（秒）
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+public record LeaderboardRow(int rank, String player, int stageId, long elapsedSeconds) {
+}
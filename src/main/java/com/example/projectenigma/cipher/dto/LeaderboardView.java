@@ -0,0 +1,16 @@
+package com.example.projectenigma.cipher.dto;
+
+import java.util.List;
+
+/**
+ * ランキングAPIのレスポンス。
+ *
+ * @param total 参加プレイヤー数
+ * @param top   上位のプレイヤー
+ * @param me    自分の順位（Cookieがない・ランキングにいない場合はnull）
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+public record LeaderboardView(int total, List<LeaderboardRow> top, LeaderboardRow me) {
+}
@@ -0,0 +1,16 @@
+package com.example.projectenigma.cipher.dto;
+
+/**
+ * プレイ画面の状態を返すJSON API用のDTO。
+ *
+ * @param stageId        現在のステージID
+ * @param riddle         問題文（全クリ後はnull）
+ * @param hint           ヒント（なければnull）
+ * @param cleared        全ステージクリア済みなら true
+ * @param elapsedSeconds 経過時間（秒）
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+public record PlayState(int stageId, String riddle, String hint, boolean cleared, long elapsedSeconds) {
+}
@@ -0,0 +1,53 @@
+package com.example.projectenigma.cipher.dto;
+
+import com.example.projectenigma.cipher.entity.GameProgress;
+import com.example.projectenigma.cipher.entity.User;
+
+/**
+ * リクエストを送ってきたプレイヤー（ユーザーとその進捗）をまとめた値オブジェクト。
+ * 認証処理とキャッシュの受け渡しに使用する。
+ *
+ * @param user        ユーザー情報
+ * @param progress    ゲームの進行状況
+ * @param provisional 仮プレイヤー（Cookieだけで、まだDBに行がない）なら true
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+public record Player(User user, GameProgress progress, boolean provisional) {
+
+    /**
+     * DBに保存済みのプレイヤーを生成します。
+     *
+     * @param user     ユーザー情報
+     * @param progress ゲームの進行状況
+     */
+    public Player(User user, GameProgress progress) {
+        this(user, progress, false);
+    }
+
+    /**
+     * まだDBに保存していない仮プレイヤー（ステージ1・タイム0）を生成します。
+     *
+     * @param userId ユーザーID
+     * @return 仮プレイヤー
+     */
+    public static Player provisional(String userId) {
+        User user = new User();
+        user.setId(userId);
+        GameProgress progress = new GameProgress();
+        progress.setUserId(userId);
+        progress.setCurrentStageId(1);
+        progress.setTotalElapsedSeconds(0L);
+        return new Player(user, progress, true);
+    }
+
+    /**
+     * プレイヤーのユーザーIDを返します。
+     *
+     * @return ユーザーID
+     */
+    public String userId() {
+        return user.getId();
+    }
+}
@@ -2,6 +2,7 @@ package com.example.projectenigma.cipher.entity;
 
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 import lombok.Data;
 import java.time.LocalDateTime;
@@ -14,6 +15,7 @@ import java.time.LocalDateTime;
  * - 総経過時間（秒）
  * - 最終更新日時
  * データベースの "game_progress" テーブルにマッピングされる。
+ * ランキング順（ステージ降順・タイム昇順）と最終更新日時で辿るためのインデックスを持つ。
  * Lombokの@Dataアノテーションを使用して、ゲッター、セッター、toString、equals、hashCodeメソッドを自動生成する。
  * @author R.Morioka
  * @version 1.0
@@ -21,7 +23,11 @@ import java.time.LocalDateTime;
  */
 @Data
 @Entity
-@Table(name = "game_progress")
+@Table(name = "game_progress", indexes = {
+        @Index(name = "idx_game_progress_rank",
+                columnList = "current_stage_id DESC, total_elapsed_seconds ASC, user_id ASC"),
+        @Index(name = "idx_game_progress_last_updated", columnList = "last_updated, user_id")
+})
 public class GameProgress {
     @Id
     private String userId;
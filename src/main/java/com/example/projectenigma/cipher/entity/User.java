@@ -2,6 +2,7 @@ package com.example.projectenigma.cipher.entity;
 
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 import lombok.Data;
 import java.time.LocalDateTime;
@@ -12,6 +13,7 @@ import java.time.LocalDateTime;
  * - ユーザーID
  * - 作成日時
  * データベースの "users" テーブルにマッピングされる。
+ * メンテナンス用に作成日時で辿るためのインデックスを持つ。
  * Lombokの@Dataアノテーションを使用して、ゲッター、セッター、toString、equals、hashCodeメソッドを自動生成する。
  * @author R.Morioka
  * @version 1.0
@@ -19,7 +21,9 @@ import java.time.LocalDateTime;
  */
 @Data
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = {
+        @Index(name = "idx_users_created_at", columnList = "created_at, id")
+})
 public class User {
     @Id
     private String id;
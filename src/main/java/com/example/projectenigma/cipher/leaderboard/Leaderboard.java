@@ -0,0 +1,320 @@
+package com.example.projectenigma.cipher.leaderboard;
+
+import com.example.projectenigma.cipher.cache.invalidation.InvalidationListener;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * メモリ上で順位を管理するランキング。
+ * <p>
+ * 起動時に game_progress から1回だけ組み立て、あとはステージ進行・経過時間の反映のたびに
+ * 該当プレイヤーの1件だけを付け替える。上位N件・自分の順位はどちらも O(log n) で、テーブルは読まない。
+ * 経過時間は SessionClock がDBに反映したタイミングで加算するので、最大 flush-interval 分だけ遅れる。
+ * <p>
+ * 複数台で動かすときは、よそのインスタンスでの更新を {@link InvalidationListener} として受け取る。
+ * 無効化が届いたらそのプレイヤーの1行を読み直し、取りこぼしたかもしれないときは全部組み立て直す。
+ * ステージ進行と削除は無効化で届くけど、本登録と経過時間の加算は配ってない (数が多すぎる) ので、
+ * mode が local 以外のときは rebuild-interval ごとに組み立て直して追いつく。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+@Slf4j
+@Component
+public class Leaderboard implements InvalidationListener {
+
+    private static final String LOAD_SQL =
+            "SELECT user_id, current_stage_id, total_elapsed_seconds FROM game_progress";
+
+    private static final String ROW_SQL = LOAD_SQL + " WHERE user_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /** enigma.cache.invalidation.mode。local なら定期的な組み立て直しはしない */
+    private final String mode;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    /** 組み立て直すときは丸ごと差し替える (書き込みロックを持って) */
+    private RankedSkipList<Standing> ranking = new RankedSkipList<>(Standing.ORDER);
+    private Map<String, Standing> standings = new HashMap<>();
+
+    /**
+     * ランキングを生成します。
+     *
+     * @param jdbcTemplate game_progress を読むのに使う
+     * @param mode         enigma.cache.invalidation.mode
+     */
+    @Autowired
+    public Leaderboard(JdbcTemplate jdbcTemplate,
+                       @Value("${enigma.cache.invalidation.mode:local}") String mode) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.mode = mode;
+    }
+
+    Leaderboard(JdbcTemplate jdbcTemplate) {
+        this(jdbcTemplate, "local");
+    }
+
+    /**
+     * game_progress の全件からランキングを組み立て直します（起動時・無効化を取りこぼしたかもしれないとき）。
+     * 読み込みはロックの外でやって、最後に差し替えるときだけ書き込みロックを持つ。
+     * 読んでる間に反映された更新は消えることがあるけど、DBにはもう入ってるので次の組み立てで戻る。
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.nanoTime();
+        int size = reload();
+        log.info("Leaderboard rebuilt with {} players in {} ms", size, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * 複数台のとき、よそのインスタンスの本登録・経過時間に追いつくため定期的に組み立て直します。
+     * local (1台) なら全部の更新がここを通るので何もしない。
+     */
+    @Scheduled(fixedDelayString = "${enigma.leaderboard.rebuild-interval:PT1M}",
+            initialDelayString = "${enigma.leaderboard.rebuild-interval:PT1M}")
+    public void resync() {
+        if ("local".equals(mode)) {
+            return;
+        }
+        long start = System.nanoTime();
+        int size = reload();
+        log.debug("Leaderboard resynced with {} players in {} ms", size, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * よそのインスタンスで変わったプレイヤーの1行を読み直して付け替えます。
+     * 行がなければ（消された）ランキングから外します。
+     *
+     * @param userId ユーザーID
+     */
+    @Override
+    public void invalidate(String userId) {
+        List<Standing> rows = jdbcTemplate.query(ROW_SQL,
+                (rs, rowNum) -> new Standing(rs.getString(1), rs.getInt(2), rs.getLong(3)), userId);
+        if (rows.isEmpty()) {
+            remove(userId);
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            put(rows.get(0));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 通知を取りこぼしたかもしれないので、全部組み立て直します。
+     */
+    @Override
+    public void invalidateAll() {
+        rebuild();
+    }
+
+    /**
+     * 新しいプレイヤーをステージ1・タイム0で登録します。すでに載っている場合は何もしません。
+     * トランザクション中ならコミット後に反映します。
+     *
+     * @param userId ユーザーID
+     */
+    public void join(String userId) {
+        afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                if (!standings.containsKey(userId)) {
+                    put(new Standing(userId, 1, 0));
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * プレイヤーのステージを進めます。タイムはそのまま。トランザクション中ならコミット後に反映します。
+     *
+     * @param userId     ユーザーID
+     * @param newStageId 進んだ先のステージID
+     */
+    public void advance(String userId, int newStageId) {
+        afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                Standing current = standings.get(userId);
+                long elapsed = current == null ? 0 : current.elapsedSeconds();
+                // 二重送信などで先に進んでる場合は戻さない
+                if (current == null || current.stageId() < newStageId) {
+                    put(new Standing(userId, newStageId, elapsed));
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * DBに反映した経過時間をランキングにも加算します。
+     * 未登録のプレイヤーは無視します（次の組み立てで拾う）。
+     *
+     * @param userId  ユーザーID
+     * @param seconds 加算する秒数
+     */
+    public void addElapsed(String userId, long seconds) {
+        lock.writeLock().lock();
+        try {
+            Standing current = standings.get(userId);
+            if (current != null) {
+                put(new Standing(userId, current.stageId(), current.elapsedSeconds() + seconds));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * プレイヤーをランキングから外します。
+     *
+     * @param userId ユーザーID
+     */
+    public void remove(String userId) {
+        lock.writeLock().lock();
+        try {
+            Standing current = standings.remove(userId);
+            if (current != null) {
+                ranking.remove(current);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 上位 limit 件を返します。
+     *
+     * @param limit 最大件数
+     * @return 1位から順の成績
+     */
+    public List<Standing> top(int limit) {
+        return page(1, limit);
+    }
+
+    /**
+     * 指定順位から limit 件を返します。
+     *
+     * @param fromRank 開始順位（1始まり）
+     * @param limit    最大件数
+     * @return 成績のリスト
+     */
+    public List<Standing> page(int fromRank, int limit) {
+        lock.readLock().lock();
+        try {
+            return ranking.range(fromRank, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * プレイヤーの順位（1始まり）を返します。
+     *
+     * @param userId ユーザーID
+     * @return 順位。ランキングにいなければ 0
+     */
+    public int rankOf(String userId) {
+        lock.readLock().lock();
+        try {
+            Standing current = standings.get(userId);
+            return current == null ? 0 : ranking.rankOf(current);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * プレイヤーの現在の成績を返します。
+     *
+     * @param userId ユーザーID
+     * @return 成績、ランキングにいなければEmpty
+     */
+    public Optional<Standing> standingOf(String userId) {
+        lock.readLock().lock();
+        try {
+            return Optional.ofNullable(standings.get(userId));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * ランキングに載っているプレイヤー数を返します。
+     *
+     * @return プレイヤー数
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ranking.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** 全件を新しいランキングに読み込んで差し替える。差し替えた後の件数を返す */
+    private int reload() {
+        RankedSkipList<Standing> newRanking = new RankedSkipList<>(Standing.ORDER);
+        Map<String, Standing> newStandings = new HashMap<>();
+        jdbcTemplate.query(LOAD_SQL, (RowCallbackHandler) rs ->
+                put(newRanking, newStandings, new Standing(rs.getString(1), rs.getInt(2), rs.getLong(3))));
+        lock.writeLock().lock();
+        try {
+            ranking = newRanking;
+            standings = newStandings;
+            return ranking.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** 書き込みロックを持った状態で呼ぶこと。前の成績があれば付け替える */
+    private void put(Standing standing) {
+        put(ranking, standings, standing);
+    }
+
+    private static void put(RankedSkipList<Standing> ranking, Map<String, Standing> standings, Standing standing) {
+        Standing previous = standings.put(standing.userId(), standing);
+        if (previous != null) {
+            ranking.remove(previous);
+        }
+        ranking.insert(standing);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
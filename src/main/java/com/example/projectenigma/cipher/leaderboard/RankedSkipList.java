@@ -0,0 +1,205 @@
+package com.example.projectenigma.cipher.leaderboard;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * 順位を O(log n) で引けるスキップリスト（indexable skip list）。
+ * <p>
+ * 各ノードの各レベルに「次のノードまでに何件飛ばすか (span)」を持たせることで、
+ * 挿入・削除・順位取得・n位のノード取得をすべて O(log n) で行う（Redis の ZSET と同じ作り）。
+ * スレッドセーフではないので、呼び出し側でロックすること。
+ *
+ * @param <K> 要素の型（comparator で全順序になること。同値の要素は入れられない）
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+final class RankedSkipList<K> {
+
+    /** 最大レベル。p=1/4 なので 4^16 件くらいまでは十分 */
+    private static final int MAX_LEVEL = 16;
+
+    private final Comparator<? super K> comparator;
+    private final Node<K> head = new Node<>(null, MAX_LEVEL);
+    private final SplittableRandom random = new SplittableRandom();
+
+    private int level = 1;
+    private int size;
+
+    RankedSkipList(Comparator<? super K> comparator) {
+        this.comparator = comparator;
+    }
+
+    /**
+     * 要素を追加します。
+     *
+     * @param key 追加する要素（同値の要素がすでにある場合の動作は未定義）
+     */
+    @SuppressWarnings("unchecked")
+    void insert(K key) {
+        Node<K>[] update = new Node[MAX_LEVEL];
+        int[] rank = new int[MAX_LEVEL];
+        Node<K> x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            rank[i] = i == level - 1 ? 0 : rank[i + 1];
+            while (x.next[i] != null && comparator.compare(x.next[i].key, key) < 0) {
+                rank[i] += x.span[i];
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+
+        int newLevel = randomLevel();
+        if (newLevel > level) {
+            for (int i = level; i < newLevel; i++) {
+                rank[i] = 0;
+                update[i] = head;
+                head.span[i] = size;
+            }
+            level = newLevel;
+        }
+
+        x = new Node<>(key, newLevel);
+        for (int i = 0; i < newLevel; i++) {
+            x.next[i] = update[i].next[i];
+            update[i].next[i] = x;
+            // 前のノードが飛ばしてた件数を、新しいノードの前後で分ける
+            x.span[i] = update[i].span[i] - (rank[0] - rank[i]);
+            update[i].span[i] = (rank[0] - rank[i]) + 1;
+        }
+        // 新しいノードより上のレベルは、1件増えた分だけ飛ばす件数が増える
+        for (int i = newLevel; i < level; i++) {
+            update[i].span[i]++;
+        }
+        size++;
+    }
+
+    /**
+     * 要素を削除します。
+     *
+     * @param key 削除する要素
+     * @return 削除したら true
+     */
+    @SuppressWarnings("unchecked")
+    boolean remove(K key) {
+        Node<K>[] update = new Node[MAX_LEVEL];
+        Node<K> x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && comparator.compare(x.next[i].key, key) < 0) {
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+        x = x.next[0];
+        if (x == null || comparator.compare(x.key, key) != 0) {
+            return false;
+        }
+
+        for (int i = 0; i < level; i++) {
+            if (update[i].next[i] == x) {
+                update[i].span[i] += x.span[i] - 1;
+                update[i].next[i] = x.next[i];
+            } else {
+                update[i].span[i]--;
+            }
+        }
+        while (level > 1 && head.next[level - 1] == null) {
+            level--;
+        }
+        size--;
+        return true;
+    }
+
+    /**
+     * 要素の順位（1始まり）を返します。
+     *
+     * @param key 要素
+     * @return 順位。見つからなければ 0
+     */
+    int rankOf(K key) {
+        int rank = 0;
+        Node<K> x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && comparator.compare(x.next[i].key, key) <= 0) {
+                rank += x.span[i];
+                x = x.next[i];
+            }
+            if (x != head && comparator.compare(x.key, key) == 0) {
+                return rank;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 指定順位から最大 limit 件を順に返します。
+     * 開始位置までは O(log n) で飛び、そこからは limit 件たどるだけ。
+     *
+     * @param fromRank 開始順位（1始まり）
+     * @param limit    最大件数
+     * @return 要素のリスト
+     */
+    List<K> range(int fromRank, int limit) {
+        List<K> result = new ArrayList<>(Math.max(0, Math.min(limit, size - fromRank + 1)));
+        Node<K> x = nodeAt(fromRank);
+        while (x != null && result.size() < limit) {
+            result.add(x.key);
+            x = x.next[0];
+        }
+        return result;
+    }
+
+    /**
+     * 要素数を返します。
+     *
+     * @return 要素数
+     */
+    int size() {
+        return size;
+    }
+
+
+    private Node<K> nodeAt(int rank) {
+        if (rank < 1 || rank > size) {
+            return null;
+        }
+        int traversed = 0;
+        Node<K> x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && traversed + x.span[i] <= rank) {
+                traversed += x.span[i];
+                x = x.next[i];
+            }
+            if (traversed == rank) {
+                return x;
+            }
+        }
+        return null;
+    }
+
+    private int randomLevel() {
+        int lvl = 1;
+        // 1/4 の確率で1段ずつ上がる
+        while (lvl < MAX_LEVEL && (random.nextInt() & 3) == 0) {
+            lvl++;
+        }
+        return lvl;
+    }
+
+    private static final class Node<K> {
+
+        final K key;
+        final Node<K>[] next;
+        final int[] span;
+
+        @SuppressWarnings("unchecked")
+        Node(K key, int level) {
+            this.key = key;
+            this.next = new Node[level];
+            this.span = new int[level];
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.projectenigma.cipher.leaderboard;
+
+import java.util.Comparator;
+
+/**
+ * ランキング上の1プレイヤー分の成績。
+ *
+ * @param userId         ユーザーID
+ * @param stageId        現在のステージID
+ * @param elapsedSeconds 総経過時間（秒）
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+public record Standing(String userId, int stageId, long elapsedSeconds) {
+
+    /** ランキング順: ステージが進んでる順 → タイムが短い順 → 同点ならユーザーID順 */
+    static final Comparator<Standing> ORDER = Comparator
+            .comparingInt(Standing::stageId).reversed()
+            .thenComparingLong(Standing::elapsedSeconds)
+            .thenComparing(Standing::userId);
+}
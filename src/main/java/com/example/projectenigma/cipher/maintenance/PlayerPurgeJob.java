@@ -0,0 +1,259 @@
+package com.example.projectenigma.cipher.maintenance;
+
+import com.example.projectenigma.cipher.cache.PlayerCache;
+import com.example.projectenigma.cipher.cache.invalidation.InvalidationBus;
+import com.example.projectenigma.cipher.entity.GameProgress;
+import com.example.projectenigma.cipher.entity.User;
+import com.example.projectenigma.cipher.leaderboard.Leaderboard;
+import com.example.projectenigma.cipher.repository.GameProgressRepository;
+import com.example.projectenigma.cipher.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.Period;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 長い間遊ばれていないプレイヤーの行（game_progress / users）を消す定期ジョブ。
+ * <p>
+ * Cookie の有効期限（30日）を過ぎたプレイヤーは二度と戻ってこられないので、行を残しておく意味がない。
+ * <ol>
+ *   <li>最終更新日時が horizon より古い進捗を、インデックス順（キーセット）に chunk-size 件ずつ消す</li>
+ *   <li>作成日時が horizon より古く、進捗の行がないユーザーを同じように消す</li>
+ * </ol>
+ * 1チャンクごとに短いトランザクションでコミットし、チャンクの間は pause だけ休む。
+ * 長いロックを持ったり、1トランザクションで大量のログを出したりしない。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+@Slf4j
+@Component
+public class PlayerPurgeJob {
+
+    private final GameProgressRepository gameProgressRepository;
+    private final UserRepository userRepository;
+    private final TransactionOperations transactionOperations;
+    private final PlayerCache playerCache;
+    private final Leaderboard leaderboard;
+    private final InvalidationBus invalidationBus;
+
+    /** これより長く遊ばれていないプレイヤーを消す */
+    private final Period horizon;
+
+    /** 1回のトランザクションで消す最大件数 */
+    private final int chunkSize;
+
+    /** チャンクの間に休む時間（ミリ秒） */
+    private final long pauseMillis;
+
+    private final Clock clock;
+
+    /** 多重起動の防止 */
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder progressPurged = new LongAdder();
+    private final LongAdder usersPurged = new LongAdder();
+    private final AtomicReference<RunResult> lastRun = new AtomicReference<>();
+
+    /**
+     * 設定値からジョブを生成します。
+     */
+    @Autowired
+    public PlayerPurgeJob(GameProgressRepository gameProgressRepository,
+                          UserRepository userRepository,
+                          PlatformTransactionManager transactionManager,
+                          PlayerCache playerCache,
+                          Leaderboard leaderboard,
+                          InvalidationBus invalidationBus,
+                          @Value("${enigma.purge.horizon:P30D}") Period horizon,
+                          @Value("${enigma.purge.chunk-size:500}") int chunkSize,
+                          @Value("${enigma.purge.pause:PT0.2S}") Duration pause) {
+        this(gameProgressRepository, userRepository, new TransactionTemplate(transactionManager),
+                playerCache, leaderboard, invalidationBus, horizon, chunkSize, pause, Clock.systemDefaultZone());
+    }
+
+    PlayerPurgeJob(GameProgressRepository gameProgressRepository, UserRepository userRepository,
+                   TransactionOperations transactionOperations, PlayerCache playerCache, Leaderboard leaderboard,
+                   InvalidationBus invalidationBus, Period horizon, int chunkSize, Duration pause, Clock clock) {
+        this.gameProgressRepository = gameProgressRepository;
+        this.userRepository = userRepository;
+        this.transactionOperations = transactionOperations;
+        this.playerCache = playerCache;
+        this.leaderboard = leaderboard;
+        this.invalidationBus = invalidationBus;
+        this.horizon = horizon;
+        this.chunkSize = chunkSize;
+        this.pauseMillis = pause.toMillis();
+        this.clock = clock;
+    }
+
+    /**
+     * 期限切れのプレイヤーを消します。実行中に呼ばれた場合は何もしません。
+     *
+     * @return 今回の実行結果（実行中だった場合はnull）
+     */
+    @Scheduled(cron = "${enigma.purge.cron:0 30 4 * * *}")
+    public RunResult purge() {
+        if (!running.compareAndSet(false, true)) {
+            log.info("Player purge is already running; skipped");
+            return null;
+        }
+        try {
+            long start = System.nanoTime();
+            LocalDateTime before = LocalDateTime.now(clock).minus(horizon);
+
+            long progress = purgeStaleProgress(before);
+            long orphans = purgeOrphanUsers(before);
+
+            RunResult result = new RunResult(before, progress, orphans, Duration.ofNanos(System.nanoTime() - start));
+            runs.increment();
+            lastRun.set(result);
+            log.info("Player purge finished: {}", result);
+            return result;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * これまでの累計と、直近の実行結果を返します。
+     *
+     * @return 統計情報
+     */
+    public Stats stats() {
+        return new Stats(runs.sum(), progressPurged.sum(), usersPurged.sum(), lastRun.get());
+    }
+
+    /**
+     * 最終更新が before より古い進捗と、そのユーザーを消します。
+     *
+     * @return 消した進捗の件数
+     */
+    private long purgeStaleProgress(LocalDateTime before) {
+        long deleted = 0;
+        List<GameProgress> chunk = gameProgressRepository.findStaleFirst(before, chunkSize);
+        while (!chunk.isEmpty()) {
+            List<String> ids = chunk.stream().map(GameProgress::getUserId).toList();
+            ChunkResult result = transactionOperations.execute(status -> {
+                int progress = gameProgressRepository.deleteStaleByUserIds(ids, before);
+                int users = userRepository.deleteOrphansByIds(ids);
+                // 選んでから再開されて消さなかった行は、同じトランザクションで読むと残ってる
+                Set<String> kept = new HashSet<>(gameProgressRepository.findExistingUserIds(ids));
+                return new ChunkResult(progress, users, ids.stream().filter(id -> !kept.contains(id)).toList());
+            });
+            deleted += result.progress();
+            progressPurged.add(result.progress());
+            usersPurged.add(result.users());
+            // 実際に消したプレイヤーだけ外す (戻ってきた人はランキングに残す)
+            forget(result.deletedIds());
+
+            if (chunk.size() < chunkSize || !pause()) {
+                break;
+            }
+            // 消した行の続きから (キーセット)。選んでから再開されて消さなかった行は飛ばす
+            GameProgress last = chunk.get(chunk.size() - 1);
+            chunk = gameProgressRepository.findStaleAfter(before, last.getLastUpdated(), last.getUserId(), chunkSize);
+        }
+        return deleted;
+    }
+
+    /**
+     * 作成日時が before より古く、進捗の行がないユーザーを消します。
+     *
+     * @return 消したユーザーの件数
+     */
+    private long purgeOrphanUsers(LocalDateTime before) {
+        long deleted = 0;
+        List<User> chunk = userRepository.findOrphansCreatedBeforeAfter(
+                before, UserRepository.KEYSET_START, "", chunkSize);
+        while (!chunk.isEmpty()) {
+            List<String> ids = chunk.stream().map(User::getId).toList();
+            Integer count = transactionOperations.execute(status -> userRepository.deleteOrphansByIds(ids));
+            deleted += count;
+            usersPurged.add(count);
+
+            if (chunk.size() < chunkSize || !pause()) {
+                break;
+            }
+            User last = chunk.get(chunk.size() - 1);
+            chunk = userRepository.findOrphansCreatedBeforeAfter(before, last.getCreatedAt(), last.getId(), chunkSize);
+        }
+        return deleted;
+    }
+
+    /** 消したプレイヤーをキャッシュとランキングから外す。よそのインスタンスにも配る */
+    private void forget(List<String> ids) {
+        for (String id : ids) {
+            playerCache.invalidate(id);
+            leaderboard.remove(id);
+            invalidationBus.publish(id);
+        }
+    }
+
+    /**
+     * 次のチャンクの前に少し休みます。
+     *
+     * @return 続けてよければ true（割り込まれたら false）
+     */
+    private boolean pause() {
+        if (pauseMillis <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(pauseMillis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * 1チャンク分の削除結果。
+     *
+     * @param progress   消した進捗の件数
+     * @param users      消したユーザーの件数
+     * @param deletedIds 進捗を消したユーザーID
+     */
+    private record ChunkResult(int progress, int users, List<String> deletedIds) {
+    }
+
+    /**
+     * 1回分の実行結果。
+     *
+     * @param before         この日時より前のものを消した
+     * @param progressPurged 消した進捗の件数
+     * @param orphansPurged  進捗の行がなくて消したユーザーの件数
+     * @param duration       かかった時間
+     */
+    public record RunResult(LocalDateTime before, long progressPurged, long orphansPurged, Duration duration) {
+    }
+
+    /**
+     * ジョブの統計情報。
+     *
+     * @param runs           実行回数
+     * @param progressPurged 消した進捗の累計
+     * @param usersPurged    消したユーザーの累計
+     * @param lastRun        直近の実行結果（まだ動いてなければnull）
+     */
+    public record Stats(long runs, long progressPurged, long usersPurged, RunResult lastRun) {
+    }
+}
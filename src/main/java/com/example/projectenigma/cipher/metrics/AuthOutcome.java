@@ -0,0 +1,42 @@
+package com.example.projectenigma.cipher.metrics;
+
+/**
+ * {@code AuthService#authOrCreatePlayer} でプレイヤーをどう特定したか。
+ * メトリクス {@code enigma.auth.resolutions} の outcome タグになります。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+public enum AuthOutcome {
+
+    /** 署名付きCookieからキャッシュ・DBで本登録済みのプレイヤーを特定した */
+    COOKIE_HIT("cookie_hit"),
+
+    /** 仮プレイヤーのCookieをそのまま使った（DBは見ない） */
+    PROVISIONAL_HIT("provisional_hit"),
+
+    /** 旧形式 (UUIDそのまま) のCookieをDBで確認して署名付きに切り替えた */
+    LEGACY_MIGRATED("legacy_migrated"),
+
+    /** Cookieがなかったので仮プレイヤーを発行した */
+    CREATED("created"),
+
+    /** Cookieはあったが改ざん・期限切れ・DBにないので仮プレイヤーを発行し直した */
+    RECREATED("recreated");
+
+    private final String tag;
+
+    AuthOutcome(String tag) {
+        this.tag = tag;
+    }
+
+    /**
+     * メトリクスのタグ値を返します。
+     *
+     * @return タグ値
+     */
+    public String tag() {
+        return tag;
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.projectenigma.cipher.metrics;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+
+import com.example.projectenigma.cipher.stage.StageRegistry;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * 認証・解答判定・画面描画まわりのメトリクス。
+ * <p>
+ * タグの組み合わせが決まっているメーターは起動時に全部登録して配列で持っておき、
+ * 記録するときは添字で引いて increment / record するだけにする。
+ * 呼び出しごとに Tags を組み立てたりレジストリを検索したりはしない。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+@Component
+public class EnigmaMetrics {
+
+    /** 定義にないステージへの解答をまとめるタグ値 */
+    static final String OTHER_STAGE = "other";
+
+    private static final int CORRECT = 0;
+    private static final int INCORRECT = 1;
+    private static final String[] RESULTS = {"correct", "incorrect"};
+
+    private final MeterRegistry registry;
+
+    /** AuthOutcome の ordinal ごとのカウンター */
+    private final Counter[] authResolutions;
+
+    private final Timer authDuration;
+
+    /** [ステージID][正解/不正解] のカウンター。添字0は定義にないステージ */
+    private final Counter[][] answerChecks;
+
+    /** 正解/不正解ごとの判定時間 (ヒストグラム付き) */
+    private final Timer[] answerDuration;
+
+    private final DistributionSummary repositoryCalls;
+
+    /** ビュー名ごとの描画時間。ビュー名はコントローラーが返す定数なので数は増えん */
+    private final ConcurrentHashMap<String, Timer> renderTimers = new ConcurrentHashMap<>();
+
+    /**
+     * メーターを全部登録します。
+     *
+     * @param registry      メーターレジストリ
+     * @param stageRegistry ステージ定義（ステージごとのカウンターを作るため）
+     */
+    public EnigmaMetrics(MeterRegistry registry, StageRegistry stageRegistry) {
+        this.registry = registry;
+
+        AuthOutcome[] outcomes = AuthOutcome.values();
+        this.authResolutions = new Counter[outcomes.length];
+        for (AuthOutcome outcome : outcomes) {
+            authResolutions[outcome.ordinal()] = Counter.builder("enigma.auth.resolutions")
+                    .description("How players were resolved from the request cookie")
+                    .tag("outcome", outcome.tag())
+                    .register(registry);
+        }
+        this.authDuration = Timer.builder("enigma.auth.duration")
+                .description("Time spent resolving or issuing the player for a request")
+                .register(registry);
+
+        int lastStageId = stageRegistry.lastStageId();
+        this.answerChecks = new Counter[lastStageId + 1][RESULTS.length];
+        for (int stageId = 0; stageId <= lastStageId; stageId++) {
+            String stageTag = stageId == 0 ? OTHER_STAGE : String.valueOf(stageId);
+            for (int result = 0; result < RESULTS.length; result++) {
+                answerChecks[stageId][result] = Counter.builder("enigma.answer.checks")
+                        .description("Submitted answers per stage and result")
+                        .tag("stage", stageTag)
+                        .tag("result", RESULTS[result])
+                        .register(registry);
+            }
+        }
+        this.answerDuration = new Timer[RESULTS.length];
+        for (int result = 0; result < RESULTS.length; result++) {
+            answerDuration[result] = Timer.builder("enigma.answer.duration")
+                    .description("Time spent checking an answer (including the stage update)")
+                    .tag("result", RESULTS[result])
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofNanos(1_000))
+                    .maximumExpectedValue(Duration.ofSeconds(5))
+                    .register(registry);
+        }
+
+        this.repositoryCalls = DistributionSummary.builder("enigma.request.repository.calls")
+                .description("Repository method calls per request")
+                .baseUnit("calls")
+                .register(registry);
+    }
+
+    /**
+     * プレイヤーの特定方法を記録します。
+     *
+     * @param outcome 特定方法
+     */
+    public void authResolved(AuthOutcome outcome) {
+        authResolutions[outcome.ordinal()].increment();
+    }
+
+    /**
+     * プレイヤーの特定にかかった時間を記録します。
+     *
+     * @param nanos かかった時間（ナノ秒）
+     */
+    public void authTimed(long nanos) {
+        authDuration.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 解答の判定結果と判定時間を記録します。
+     *
+     * @param stageId ステージID
+     * @param correct 正解なら true
+     * @param nanos   かかった時間（ナノ秒）
+     */
+    public void answerChecked(int stageId, boolean correct, long nanos) {
+        int result = correct ? CORRECT : INCORRECT;
+        int index = stageId > 0 && stageId < answerChecks.length ? stageId : 0;
+        answerChecks[index][result].increment();
+        answerDuration[result].record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 1リクエストの中でのリポジトリ呼び出し回数を記録します。
+     *
+     * @param calls 呼び出し回数
+     */
+    public void repositoryCalls(int calls) {
+        repositoryCalls.record(calls);
+    }
+
+    /**
+     * テンプレートの描画時間を記録します。
+     *
+     * @param viewName ビュー名
+     * @param nanos    かかった時間（ナノ秒）
+     */
+    public void viewRendered(String viewName, long nanos) {
+        Timer timer = renderTimers.get(viewName);
+        if (timer == null) {
+            timer = renderTimers.computeIfAbsent(viewName, this::newRenderTimer);
+        }
+        timer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer newRenderTimer(String viewName) {
+        return Timer.builder("enigma.view.render")
+                .description("Template rendering time")
+                .tag("view", viewName)
+                .register(registry);
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.projectenigma.cipher.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.example.projectenigma.cipher.analytics.AnswerEventLog;
+import com.example.projectenigma.cipher.cache.PlayerCache;
+import com.example.projectenigma.cipher.cache.invalidation.InvalidationBus;
+import com.example.projectenigma.cipher.leaderboard.Leaderboard;
+import com.example.projectenigma.cipher.maintenance.PlayerPurgeJob;
+import com.example.projectenigma.cipher.provisioning.ProvisioningQueue;
+import com.example.projectenigma.cipher.ratelimit.AnswerRateLimiter;
+import com.example.projectenigma.cipher.service.AuthService;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * メトリクスまわりの設定。
+ * <ul>
+ * <li>リクエストごとの計測 ({@link RequestMetricsInterceptor}) の登録</li>
+ * <li>全リポジトリへの呼び出し回数カウンターの取り付け</li>
+ * <li>キャッシュ・後書きキューなどが持ってる統計値の公開（スクレイプのときに読むだけ）</li>
+ * </ul>
+ * WebMvcTest のスライスに入らんように、インターセプターなどは全部ここの {@code @Bean} で登録する。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+@Configuration(proxyBeanMethods = false)
+public class MetricsConfig {
+
+    /**
+     * リクエストごとの計測をコントローラーに掛けます。
+     *
+     * @param metrics メトリクス
+     * @return WebMvcConfigurer
+     */
+    @Bean
+    WebMvcConfigurer requestMetricsConfigurer(EnigmaMetrics metrics) {
+        RequestMetricsInterceptor interceptor = new RequestMetricsInterceptor(metrics);
+        return new WebMvcConfigurer() {
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                registry.addInterceptor(interceptor);
+            }
+        };
+    }
+
+    /**
+     * 全リポジトリに、呼ばれるたびにリクエストの呼び出し回数を数えるリスナーを付けます。
+     * 依存なしの static にしとかんと、他の Bean が後処理の対象外になってしまう。
+     *
+     * @return BeanPostProcessor
+     */
+    @Bean
+    static BeanPostProcessor repositoryCallCounter() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+                    factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addInvocationListener(
+                            invocation -> RequestMetricsInterceptor.countRepositoryCall()));
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * 各コンポーネントが LongAdder で数えてる統計値を、スクレイプのときに読み出すメーターとして登録します。
+     *
+     * @return MeterBinder
+     */
+    @Bean
+    MeterBinder enigmaStatsMeters(PlayerCache playerCache, ProvisioningQueue provisioningQueue,
+                                  AuthService authService, Leaderboard leaderboard, PlayerPurgeJob purgeJob,
+                                  AnswerEventLog answerEventLog, AnswerRateLimiter answerRateLimiter,
+                                  InvalidationBus invalidationBus) {
+        return registry -> {
+            FunctionCounter.builder("enigma.cache.player.hits", playerCache, c -> c.stats().hits())
+                    .description("Player cache hits")
+                    .register(registry);
+            FunctionCounter.builder("enigma.cache.player.misses", playerCache, c -> c.stats().misses())
+                    .description("Player cache misses (including expired entries)")
+                    .register(registry);
+            FunctionCounter.builder("enigma.cache.player.evictions", playerCache, c -> c.stats().evictions())
+                    .description("Player cache evictions by size")
+                    .register(registry);
+            Gauge.builder("enigma.cache.player.size", playerCache, c -> c.stats().size())
+                    .description("Players currently cached")
+                    .register(registry);
+            FunctionCounter.builder("enigma.cache.invalidation.published", invalidationBus, b -> b.stats().published())
+                    .description("Cache invalidations published to other instances")
+                    .register(registry);
+            FunctionCounter.builder("enigma.cache.invalidation.received", invalidationBus, b -> b.stats().received())
+                    .description("Cache invalidations received from other instances")
+                    .register(registry);
+            FunctionCounter.builder("enigma.cache.invalidation.failures", invalidationBus, b -> b.stats().failures())
+                    .description("Cache invalidation publish/receive failures")
+                    .register(registry);
+
+            FunctionCounter.builder("enigma.provisioning.enqueued", provisioningQueue, q -> q.stats().enqueued())
+                    .description("Players queued for the write-behind insert")
+                    .register(registry);
+            FunctionCounter.builder("enigma.provisioning.written", provisioningQueue, q -> q.stats().written())
+                    .description("Players written by the write-behind queue")
+                    .register(registry);
+            FunctionCounter.builder("enigma.provisioning.batches", provisioningQueue, q -> q.stats().batches())
+                    .description("Insert batches committed by the write-behind queue")
+                    .register(registry);
+            FunctionCounter.builder("enigma.provisioning.rejected", provisioningQueue, q -> q.stats().rejected())
+                    .description("Players rejected because the write-behind queue was full")
+                    .register(registry);
+            Gauge.builder("enigma.provisioning.backlog", provisioningQueue, ProvisioningQueue::backlog)
+                    .description("Players waiting in the write-behind queue")
+                    .register(registry);
+
+            FunctionCounter.builder("enigma.players.provisional", authService,
+                    s -> s.provisioningStats().provisionalIssued())
+                    .description("Provisional (cookie-only) players issued")
+                    .register(registry);
+            FunctionCounter.builder("enigma.players.materialized", authService,
+                    s -> s.provisioningStats().materialized())
+                    .description("Provisional players whose rows were written")
+                    .register(registry);
+            Gauge.builder("enigma.leaderboard.size", leaderboard, Leaderboard::size)
+                    .description("Players on the in-memory leaderboard")
+                    .register(registry);
+
+            // 遅くなった・止まった (runs が増えない) 掃除をアラートで拾えるように、回数と直近の所要時間も出す
+            FunctionCounter.builder("enigma.purge.runs", purgeJob, j -> j.stats().runs())
+                    .description("Completed purge job runs")
+                    .register(registry);
+            TimeGauge.builder("enigma.purge.last.duration", purgeJob, TimeUnit.NANOSECONDS, MetricsConfig::lastPurgeNanos)
+                    .description("Duration of the most recent purge job run")
+                    .register(registry);
+            FunctionCounter.builder("enigma.purge.progress", purgeJob, j -> j.stats().progressPurged())
+                    .description("Expired game_progress rows purged")
+                    .register(registry);
+            FunctionCounter.builder("enigma.purge.users", purgeJob, j -> j.stats().usersPurged())
+                    .description("Orphaned users rows purged")
+                    .register(registry);
+
+            FunctionCounter.builder("enigma.analytics.events", answerEventLog, l -> l.stats().written())
+                    .description("Answer events appended to the event log")
+                    .register(registry);
+            FunctionCounter.builder("enigma.analytics.dropped", answerEventLog, l -> l.stats().dropped())
+                    .description("Answer events dropped because the event log queue was full")
+                    .register(registry);
+
+            FunctionCounter.builder("enigma.ratelimit.rejected", answerRateLimiter, l -> l.userStats().rejected())
+                    .description("Answer submissions rejected with 429")
+                    .tag("scope", "player")
+                    .register(registry);
+            FunctionCounter.builder("enigma.ratelimit.rejected", answerRateLimiter, l -> l.ipStats().rejected())
+                    .description("Answer submissions rejected with 429")
+                    .tag("scope", "ip")
+                    .register(registry);
+            Gauge.builder("enigma.ratelimit.keys", answerRateLimiter, l -> l.userStats().keys())
+                    .description("Rate limiter buckets currently tracked")
+                    .tag("scope", "player")
+                    .register(registry);
+            Gauge.builder("enigma.ratelimit.keys", answerRateLimiter, l -> l.ipStats().keys())
+                    .description("Rate limiter buckets currently tracked")
+                    .tag("scope", "ip")
+                    .register(registry);
+        };
+    }
+
+    /** 直近の掃除にかかった時間（ナノ秒）。まだ1回も動いてなければ NaN */
+    private static double lastPurgeNanos(PlayerPurgeJob purgeJob) {
+        PlayerPurgeJob.RunResult lastRun = purgeJob.stats().lastRun();
+        return lastRun == null ? Double.NaN : lastRun.duration().toNanos();
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.projectenigma.cipher.metrics;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * コントローラーを通るリクエストごとに、リポジトリの呼び出し回数とテンプレートの描画時間を計るインターセプター。
+ * <p>
+ * 計測中の値はリクエスト属性に置いた {@link Tally} に溜める。リポジトリ側からは
+ * {@link #countRepositoryCall()} で、Spring がもともと持っている RequestContextHolder 経由でたどるので、
+ * 専用の ThreadLocal は作らない（リクエストの外、後書きキューのスレッドなどからの呼び出しは数えない）。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+@RequiredArgsConstructor
+public class RequestMetricsInterceptor implements HandlerInterceptor {
+
+    /** 計測中の値を置くリクエスト属性名 */
+    static final String ATTRIBUTE = RequestMetricsInterceptor.class.getName() + ".TALLY";
+
+    private static final String REDIRECT_PREFIX = "redirect:";
+    private static final String FORWARD_PREFIX = "forward:";
+
+    private final EnigmaMetrics metrics;
+
+    /**
+     * 1リクエスト分の計測値。同じリクエストのスレッドからしか触らんので同期はいらん。
+     */
+    static final class Tally {
+
+        int repositoryCalls;
+
+        /** 描画開始時刻（ナノ秒）。描画しないリクエストなら0 */
+        long renderStart;
+
+        String viewName;
+    }
+
+    /**
+     * 今のリクエストのリポジトリ呼び出し回数を1つ増やします。リクエストの外なら何もしません。
+     */
+    public static void countRepositoryCall() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null
+                && attributes.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) instanceof Tally tally) {
+            tally.repositoryCalls++;
+        }
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod) {
+            request.setAttribute(ATTRIBUTE, new Tally());
+        }
+        return true;
+    }
+
+    @Override
+    public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler,
+                           ModelAndView modelAndView) {
+        if (modelAndView == null || !(request.getAttribute(ATTRIBUTE) instanceof Tally tally)) {
+            return;
+        }
+        String viewName = modelAndView.getViewName();
+        // リダイレクト・フォワードはテンプレートを描画せんので計らない
+        if (viewName != null && !viewName.startsWith(REDIRECT_PREFIX) && !viewName.startsWith(FORWARD_PREFIX)) {
+            tally.viewName = viewName;
+            tally.renderStart = System.nanoTime();
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        if (!(request.getAttribute(ATTRIBUTE) instanceof Tally tally)) {
+            return;
+        }
+        request.removeAttribute(ATTRIBUTE);
+        if (tally.renderStart != 0) {
+            metrics.viewRendered(tally.viewName, System.nanoTime() - tally.renderStart);
+        }
+        metrics.repositoryCalls(tally.repositoryCalls);
+    }
+}
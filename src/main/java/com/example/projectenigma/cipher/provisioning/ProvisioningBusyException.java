@@ -0,0 +1,20 @@
+package com.example.projectenigma.cipher.provisioning;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * 本登録の書き込み待ちが溢れている（キューが満杯・書き込みが間に合わない）ことを表す例外。
+ * 503 を返して、クライアントには少し待ってから送り直してもらう。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class ProvisioningBusyException extends RuntimeException {
+
+    public ProvisioningBusyException(String message) {
+        super(message);
+    }
+}
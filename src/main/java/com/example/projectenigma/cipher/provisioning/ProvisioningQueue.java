@@ -0,0 +1,310 @@
+package com.example.projectenigma.cipher.provisioning;
+
+import com.example.projectenigma.cipher.entity.GameProgress;
+import com.example.projectenigma.cipher.entity.User;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 本登録（users / game_progress の INSERT）を後書きするキュー。
+ * <p>
+ * リクエストは行をキューに積むだけで返し、1本の書き込みスレッドがまとめて
+ * 1トランザクション・JDBCバッチ（hibernate.jdbc.batch_size + order_inserts）で INSERT する。
+ * 新規の訪問者が一気に来てもリクエストごとに INSERT とコミットが走らない。
+ * <ul>
+ *   <li>キューが満杯なら offer-timeout まで待ち、それでも空かなければ 503（背圧）</li>
+ *   <li>行がないと困る操作（ステージを進めるUPDATE）の前には {@link #awaitPersisted} で書き込みを待つ</li>
+ *   <li>終了時は受付を止めて、残りを全部書いてから終わる</li>
+ * </ul>
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+@Slf4j
+@Component
+public class ProvisioningQueue {
+
+    /** キューが空のときに書き込みスレッドが待つ時間 */
+    private static final long POLL_MILLIS = 200;
+
+    private final EntityManager entityManager;
+    private final TransactionOperations transactionOperations;
+    private final BlockingQueue<Pending> queue;
+
+    /** まだ書き込んでいない行（ユーザーID → 書き込み待ち） */
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+
+    /** 1回のトランザクションで書く最大件数 */
+    private final int batchSize;
+
+    /** キューが満杯のときに空きを待つ時間（ミリ秒） */
+    private final long offerTimeoutMillis;
+
+    /** 書き込みを待つ最大時間（ミリ秒） */
+    private final long awaitTimeoutMillis;
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    private volatile boolean running;
+    private Thread writer;
+
+    /**
+     * 設定値からキューを生成します。
+     */
+    @Autowired
+    public ProvisioningQueue(EntityManager entityManager,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${enigma.provisioning.queue-capacity:10000}") int capacity,
+                             @Value("${enigma.provisioning.batch-size:100}") int batchSize,
+                             @Value("${enigma.provisioning.offer-timeout:PT1S}") Duration offerTimeout,
+                             @Value("${enigma.provisioning.await-timeout:PT5S}") Duration awaitTimeout) {
+        this(entityManager, new TransactionTemplate(transactionManager), capacity, batchSize, offerTimeout, awaitTimeout);
+    }
+
+    ProvisioningQueue(EntityManager entityManager, TransactionOperations transactionOperations,
+                      int capacity, int batchSize, Duration offerTimeout, Duration awaitTimeout) {
+        this.entityManager = entityManager;
+        this.transactionOperations = transactionOperations;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.offerTimeoutMillis = offerTimeout.toMillis();
+        this.awaitTimeoutMillis = awaitTimeout.toMillis();
+        this.running = true;
+    }
+
+    /**
+     * 書き込みスレッドを起動します。
+     */
+    @PostConstruct
+    public void start() {
+        writer = Thread.ofPlatform().name("provisioning-writer").daemon().start(this::writeLoop);
+    }
+
+    /**
+     * ユーザーと初期進捗の INSERT をキューに積みます。
+     * 同じユーザーがすでに書き込み待ちなら、積み直さずに同じ完了通知を返します。
+     *
+     * @param user     ユーザー
+     * @param progress 初期進捗
+     * @return コミットされたら完了する Future。行を新しく書いたら true、もう行があった（古い仮Cookieで先に本登録されてた）ら false
+     * @throws ProvisioningBusyException キューが満杯のまま空かなかった、または終了処理中の場合
+     */
+    public CompletableFuture<Boolean> enqueue(User user, GameProgress progress) {
+        if (!running) {
+            throw new ProvisioningBusyException("Provisioning queue is shutting down");
+        }
+        Pending entry = new Pending(user, progress, new CompletableFuture<>());
+        Pending existing = pending.putIfAbsent(user.getId(), entry);
+        if (existing != null) {
+            return existing.written();
+        }
+        try {
+            if (!queue.offer(entry, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                pending.remove(user.getId(), entry);
+                rejected.increment();
+                throw new ProvisioningBusyException("Provisioning queue is full");
+            }
+        } catch (InterruptedException e) {
+            pending.remove(user.getId(), entry);
+            Thread.currentThread().interrupt();
+            throw new ProvisioningBusyException("Interrupted while waiting for the provisioning queue");
+        }
+        enqueued.increment();
+        return entry.written();
+    }
+
+    /**
+     * 指定ユーザーが書き込み待ちなら、コミットされるまで待ちます。書き込み待ちでなければすぐ返ります。
+     * トランザクションの外で呼ぶこと（コネクションを持ったまま待つと、書き込みスレッドの分が枯れる）。
+     *
+     * @param userId ユーザーID
+     * @throws ProvisioningBusyException await-timeout までに書き込めなかった場合
+     */
+    public void awaitPersisted(String userId) {
+        Pending entry = pending.get(userId);
+        if (entry == null) {
+            return;
+        }
+        try {
+            entry.written().get(awaitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            throw new ProvisioningBusyException("User " + userId + " has not been persisted yet");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProvisioningBusyException("Interrupted while waiting for user " + userId);
+        }
+    }
+
+    /**
+     * 書き込み待ちの件数を返します。
+     *
+     * @return キューに残っている件数
+     */
+    public int backlog() {
+        return queue.size();
+    }
+
+    /**
+     * 現在の統計情報を返します。
+     *
+     * @return 受付数・書き込み数・バッチ数・拒否数・残り件数
+     */
+    public Stats stats() {
+        return new Stats(enqueued.sum(), written.sum(), batches.sum(), rejected.sum(), queue.size());
+    }
+
+    /**
+     * 受付を止めて、キューに残っている分をすべて書き込んでから終了します。
+     */
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (writer != null) {
+            // 書き込み中に割り込むとJDBCが中断されるので、ループが自分で抜けるのを待つ
+            try {
+                writer.join(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // 書き込みスレッドが止まった後の残りは呼び出し元のスレッドで書く
+        while (drainOnce(false) > 0) {
+            // 空になるまで
+        }
+        log.info("Provisioning queue stopped: {}", stats());
+    }
+
+    private void writeLoop() {
+        while (running && !Thread.currentThread().isInterrupted()) {
+            try {
+                drainOnce(true);
+            } catch (RuntimeException e) {
+                // ここで死ぬと誰も書かなくなるので、ログだけ出して続ける
+                log.error("Provisioning writer failed", e);
+            }
+        }
+    }
+
+    /**
+     * キューから最大 batch-size 件を取り出して書き込みます。
+     *
+     * @param wait キューが空のときに少し待つなら true
+     * @return 書き込んだ件数
+     */
+    int drainOnce(boolean wait) {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        if (wait) {
+            try {
+                Pending first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    return 0;
+                }
+                batch.add(first);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return 0;
+            }
+        }
+        queue.drainTo(batch, batchSize - batch.size());
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            persist(batch);
+        } catch (RuntimeException e) {
+            // 1件でもコケるとバッチ全体がロールバックされるので、1件ずつ書き直す
+            log.warn("Batch insert of {} users failed; retrying one by one", batch.size(), e);
+            for (Pending entry : batch) {
+                try {
+                    if (exists(entry)) {
+                        // もう行がある（古いCookieで別リクエストが先に本登録した）なら、目的は達成してる
+                        complete(entry, false, null);
+                    } else {
+                        persist(List.of(entry));
+                    }
+                } catch (RuntimeException single) {
+                    complete(entry, false, single);
+                }
+            }
+            return batch.size();
+        }
+        batches.increment();
+        return batch.size();
+    }
+
+    private void persist(List<Pending> batch) {
+        transactionOperations.executeWithoutResult(status -> {
+            // order_inserts が効くので、users → game_progress の2種類のバッチにまとまる
+            for (Pending entry : batch) {
+                entityManager.persist(entry.user());
+                entityManager.persist(entry.progress());
+            }
+            entityManager.flush();
+            entityManager.clear();
+        });
+        for (Pending entry : batch) {
+            complete(entry, true, null);
+        }
+    }
+
+    private boolean exists(Pending entry) {
+        Boolean found = transactionOperations.execute(status ->
+                entityManager.find(User.class, entry.user().getId()) != null);
+        return Boolean.TRUE.equals(found);
+    }
+
+    private void complete(Pending entry, boolean created, Throwable failure) {
+        pending.remove(entry.user().getId(), entry);
+        if (failure == null) {
+            written.increment();
+            entry.written().complete(created);
+        } else {
+            log.error("Failed to provision user {}", entry.user().getId(), failure);
+            entry.written().completeExceptionally(failure);
+        }
+    }
+
+    /**
+     * 書き込み待ちの1ユーザー分。
+     */
+    private record Pending(User user, GameProgress progress, CompletableFuture<Boolean> written) {
+    }
+
+    /**
+     * キューの統計情報。
+     *
+     * @param enqueued 受け付けた件数
+     * @param written  書き込んだ件数
+     * @param batches  成功したバッチ（トランザクション）数
+     * @param rejected キュー満杯で断った件数
+     * @param backlog  書き込み待ちの件数
+     */
+    public record Stats(long enqueued, long written, long batches, long rejected, int backlog) {
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.projectenigma.cipher.ratelimit;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.projectenigma.cipher.service.AuthService;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 解答の送信に掛けるレート制限。プレイヤー単位（署名を検証した enigma_uid のユーザーID）と
+ * 接続元IP単位の2つのバケットで数える。
+ * <p>
+ * 解答の処理のいちばん最初（本登録やDBアクセスより前）に {@link #check} を呼ぶ
+ * （PlayerWebConfig のインターセプターが、プレイヤーの特定より先に呼んでる）。
+ * Cookie の署名検証だけで済むので、DBにもキャッシュにも触らない。
+ * Cookie がない・偽物のリクエストはプレイヤー単位では数えられんので、IP単位の制限だけが掛かる。
+ * プロキシの後ろで動かすときは server.forward-headers-strategy で接続元IPを取れるようにしておくこと。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+@Component
+public class AnswerRateLimiter {
+
+    private final AuthService authService;
+    private final boolean enabled;
+    private final GcraRateLimiter perUser;
+    private final GcraRateLimiter perIp;
+
+    /**
+     * 設定値からレート制限を生成します。
+     */
+    @Autowired
+    public AnswerRateLimiter(AuthService authService,
+                             @Value("${enigma.ratelimit.enabled:true}") boolean enabled,
+                             @Value("${enigma.ratelimit.user.permits:10}") int userPermits,
+                             @Value("${enigma.ratelimit.user.period:PT30S}") Duration userPeriod,
+                             @Value("${enigma.ratelimit.ip.permits:60}") int ipPermits,
+                             @Value("${enigma.ratelimit.ip.period:PT30S}") Duration ipPeriod,
+                             @Value("${enigma.ratelimit.max-keys:100000}") int maxKeys) {
+        this(authService, enabled,
+                new GcraRateLimiter(userPermits, userPeriod, maxKeys),
+                new GcraRateLimiter(ipPermits, ipPeriod, maxKeys));
+    }
+
+    AnswerRateLimiter(AuthService authService, boolean enabled, GcraRateLimiter perUser, GcraRateLimiter perIp) {
+        this.authService = authService;
+        this.enabled = enabled;
+        this.perUser = perUser;
+        this.perIp = perIp;
+    }
+
+    /**
+     * 解答を1回分数えて、多すぎれば例外を投げます。
+     *
+     * @param request リクエスト
+     * @throws RateLimitedException プレイヤーまたはIPの上限を超えた場合
+     */
+    public void check(HttpServletRequest request) {
+        if (!enabled) {
+            return;
+        }
+        long wait = perIp.tryAcquire(request.getRemoteAddr());
+        if (wait > 0) {
+            throw new RateLimitedException("ip", toRetryAfterSeconds(wait));
+        }
+        Optional<String> userId = authService.resolveUserId(request);
+        if (userId.isPresent()) {
+            wait = perUser.tryAcquire(userId.get());
+            if (wait > 0) {
+                throw new RateLimitedException("player", toRetryAfterSeconds(wait));
+            }
+        }
+    }
+
+    /**
+     * バケットが満タンに戻ったキーを定期的に捨てます。
+     */
+    @Scheduled(fixedDelayString = "${enigma.ratelimit.sweep-interval:PT1M}")
+    public void evictIdle() {
+        perUser.evictIdle();
+        perIp.evictIdle();
+    }
+
+    /**
+     * プレイヤー単位の統計情報を返します。
+     *
+     * @return 統計情報
+     */
+    public GcraRateLimiter.Stats userStats() {
+        return perUser.stats();
+    }
+
+    /**
+     * IP単位の統計情報を返します。
+     *
+     * @return 統計情報
+     */
+    public GcraRateLimiter.Stats ipStats() {
+        return perIp.stats();
+    }
+
+    /** Retry-After は秒単位なので切り上げる (0秒だとすぐ送り直してくるので最低1秒) */
+    private static long toRetryAfterSeconds(long waitNanos) {
+        return Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.projectenigma.cipher.ratelimit;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * キーごとのトークンバケットを GCRA (Generic Cell Rate Algorithm) で実装したレートリミッター。
+ * <p>
+ * バケットの状態は「理論上の次の到着時刻 (TAT)」の long 1個だけで、AtomicLong の CAS で更新する。
+ * ロックは取らないし、許可・拒否のどちらでもオブジェクトは作らない（初めてのキーだけ AtomicLong を1個作る）。
+ * <ul>
+ *   <li>permits 回までは一気に通し（バースト）、その後は period / permits ごとに1回ずつ回復する</li>
+ *   <li>TAT が現在時刻より前 = バケットが満タンのキーは覚えておく必要がないので、{@link #evictIdle()} で捨てる</li>
+ *   <li>キー数が max-keys に達したら、その場で一度掃除する。それでも空かなければ新しいキーは素通しにする
+ *       （数えられんキーで正規のプレイヤーを止めるよりまし。IP 単位の制限は別に掛かってる）</li>
+ * </ul>
+ * 掃除で捨てた直後に同じキーの CAS が古い AtomicLong に入ると、その1回分は数え漏れる。
+ * 満タンのバケットでしか起きないので、最大でも1回余分に通るだけ。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+public class GcraRateLimiter {
+
+    /** 満杯のときにその場で掃除する間隔の下限（ナノ秒） */
+    private static final long INLINE_SWEEP_INTERVAL = Duration.ofSeconds(1).toNanos();
+
+    /** 1回分の回復にかかる時間（ナノ秒） */
+    private final long emissionInterval;
+
+    /** バースト分の許容量（ナノ秒）= permits × emissionInterval */
+    private final long burstTolerance;
+
+    private final int maxKeys;
+
+    /** 現在時刻（ナノ秒）の取得元。テストで差し替えるため */
+    private final LongSupplier clock;
+
+    /** キー → TAT（ナノ秒） */
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder overflow = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+
+    /** 最後にその場で掃除した時刻（ナノ秒） */
+    private final AtomicLong lastInlineSweep = new AtomicLong(Long.MIN_VALUE / 2);
+
+    /**
+     * レートリミッターを生成します。
+     *
+     * @param permits 一気に通せる回数（バケットの容量）
+     * @param period  バケットが空から満タンに戻るまでの時間
+     * @param maxKeys 覚えておくキー数の上限
+     */
+    public GcraRateLimiter(int permits, Duration period, int maxKeys) {
+        this(permits, period, maxKeys, System::nanoTime);
+    }
+
+    GcraRateLimiter(int permits, Duration period, int maxKeys, LongSupplier clock) {
+        if (permits <= 0 || maxKeys <= 0 || period.isNegative() || period.isZero()) {
+            throw new IllegalArgumentException(
+                    "permits, period and maxKeys must be positive: " + permits + ", " + period + ", " + maxKeys);
+        }
+        this.emissionInterval = Math.max(1, period.toNanos() / permits);
+        this.burstTolerance = emissionInterval * permits;
+        this.maxKeys = maxKeys;
+        this.clock = clock;
+    }
+
+    /**
+     * 1回分の許可を取ります。
+     *
+     * @param key キー（ユーザーID・IPアドレスなど）
+     * @return 許可なら0、拒否なら次に許可されるまでの時間（ナノ秒）
+     */
+    public long tryAcquire(String key) {
+        long now = clock.getAsLong();
+        AtomicLong bucket = bucketOf(key);
+        if (bucket == null) {
+            // キー数の上限に達してる: 数えられんので素通し
+            overflow.increment();
+            allowed.increment();
+            return 0;
+        }
+        while (true) {
+            long tat = bucket.get();
+            long newTat = Math.max(tat, now) + emissionInterval;
+            long wait = newTat - now - burstTolerance;
+            if (wait > 0) {
+                rejected.increment();
+                return wait;
+            }
+            if (bucket.compareAndSet(tat, newTat)) {
+                allowed.increment();
+                return 0;
+            }
+            // 他のスレッドが先に更新した: 読み直してやり直し
+        }
+    }
+
+    /**
+     * バケットが満タンに戻ったキーを捨てます。
+     *
+     * @return 捨てたキー数
+     */
+    public int evictIdle() {
+        long now = clock.getAsLong();
+        int removed = 0;
+        for (Map.Entry<String, AtomicLong> entry : buckets.entrySet()) {
+            AtomicLong bucket = entry.getValue();
+            // 同じ AtomicLong のままのときだけ消す (消してる間に作り直されたキーは残す)
+            if (bucket.get() <= now && buckets.remove(entry.getKey(), bucket)) {
+                removed++;
+            }
+        }
+        evicted.add(removed);
+        return removed;
+    }
+
+    /**
+     * 覚えているキー数を返します。
+     *
+     * @return キー数
+     */
+    public int size() {
+        return buckets.size();
+    }
+
+    /**
+     * 現在の統計情報を返します。
+     *
+     * @return 許可数・拒否数・素通し数・掃除したキー数・キー数
+     */
+    public Stats stats() {
+        return new Stats(allowed.sum(), rejected.sum(), overflow.sum(), evicted.sum(), buckets.size());
+    }
+
+    private AtomicLong bucketOf(String key) {
+        AtomicLong bucket = buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= maxKeys && (!sweepAllowed() || evictIdle() == 0) && buckets.size() >= maxKeys) {
+            return null;
+        }
+        // 初回は TAT = 遠い過去 (= 満タンのバケット) から始める
+        return buckets.computeIfAbsent(key, k -> new AtomicLong(Long.MIN_VALUE / 2));
+    }
+
+    /**
+     * 満杯のときのその場の掃除は全件を舐めるので、1秒に1回までにする（新しいキーを大量に投げられても重くならんように）。
+     */
+    private boolean sweepAllowed() {
+        long now = clock.getAsLong();
+        long last = lastInlineSweep.get();
+        return now - last >= INLINE_SWEEP_INTERVAL && lastInlineSweep.compareAndSet(last, now);
+    }
+
+    /**
+     * レートリミッターの統計情報。
+     *
+     * @param allowed  許可した回数（素通しを含む）
+     * @param rejected 拒否した回数
+     * @param overflow キー数の上限に達して素通しにした回数
+     * @param evicted  満タンに戻って捨てたキー数
+     * @param keys     覚えているキー数
+     */
+    public record Stats(long allowed, long rejected, long overflow, long evicted, int keys) {
+    }
+}
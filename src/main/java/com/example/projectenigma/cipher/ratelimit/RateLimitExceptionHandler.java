@@ -0,0 +1,44 @@
+package com.example.projectenigma.cipher.ratelimit;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * {@link RateLimitedException} を 429 + Retry-After の短いJSONにするハンドラー。
+ * エラーページ (/error) へのフォワードや描画をせずにその場で返す。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+@RestControllerAdvice
+public class RateLimitExceptionHandler {
+
+    /** 画面に出すメッセージ */
+    public static final String MESSAGE_TOO_MANY = "Too many answers. Please wait a moment. ⏳";
+
+    /**
+     * 429 を返します。
+     *
+     * @param e 例外
+     * @return 429 レスポンス
+     */
+    @ExceptionHandler(RateLimitedException.class)
+    public ResponseEntity<RateLimitedBody> handle(RateLimitedException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(e.getRetryAfterSeconds()))
+                .body(new RateLimitedBody(MESSAGE_TOO_MANY, e.getRetryAfterSeconds()));
+    }
+
+    /**
+     * 429 のレスポンス本文。
+     *
+     * @param message           メッセージ
+     * @param retryAfterSeconds 次に送れるまでの秒数
+     */
+    public record RateLimitedBody(String message, long retryAfterSeconds) {
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.projectenigma.cipher.ratelimit;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * 解答の送信が多すぎることを表す例外。429 と Retry-After を返す（{@link RateLimitExceptionHandler}）。
+ * 連打してくるボットに毎回投げるものなので、スタックトレースは取らない。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+@ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+public class RateLimitedException extends RuntimeException {
+
+    /** 次に送れるまでの秒数 */
+    private final long retryAfterSeconds;
+
+    public RateLimitedException(String scope, long retryAfterSeconds) {
+        super("Too many answers per " + scope, null, false, false);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -1,10 +1,20 @@
 package com.example.projectenigma.cipher.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.example.projectenigma.cipher.dto.Player;
 import com.example.projectenigma.cipher.entity.GameProgress;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 /**
  * ゲームの進行状況を操作するためのリポジトリインターフェース。
  * JpaRepositoryを継承しており、基本的なCRUD操作が利用可能。
@@ -16,4 +26,171 @@ import com.example.projectenigma.cipher.entity.GameProgress;
  */
 @Repository
 public interface GameProgressRepository extends JpaRepository<GameProgress, String> {
-}
\ No newline at end of file
+
+    /** キーセットページングの先頭ページ用の番兵（これより古い日時は扱わない） */
+    LocalDateTime KEYSET_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    /**
+     * ランキング順のキーセットページング用SQL。
+     * 前のページの最後の行のステージからインデックスを範囲検索し、ORDER BY も idx_game_progress_rank と同じ並びなので
+     * ソートせずに LIMIT 件で止まる（OFFSET は使わない）。
+     */
+    String RANKING_AFTER_SQL = "SELECT * FROM game_progress "
+            + "WHERE current_stage_id <= :stageId "
+            + "AND (current_stage_id < :stageId OR total_elapsed_seconds > :elapsedSeconds "
+            + "OR (total_elapsed_seconds = :elapsedSeconds AND user_id > :userId)) "
+            + "ORDER BY current_stage_id DESC, total_elapsed_seconds ASC, user_id ASC "
+            + "LIMIT :limit";
+
+    /**
+     * 最終更新日時が古い順のキーセットページング用SQL（メンテナンス用）。
+     * idx_game_progress_last_updated を前のページの最後の行から before まで範囲検索する。
+     */
+    String STALE_AFTER_SQL = "SELECT * FROM game_progress "
+            + "WHERE last_updated < :before AND last_updated >= :lastUpdated "
+            + "AND (last_updated > :lastUpdated OR user_id > :userId) "
+            + "ORDER BY last_updated ASC, user_id ASC "
+            + "LIMIT :limit";
+
+    /**
+     * ユーザーとその進捗を1本のSQL（users と game_progress の結合）でまとめて取得します。
+     * どちらかの行が欠けている場合はEmptyになります。
+     *
+     * @param userId ユーザーID
+     * @return ユーザーと進捗をまとめたプレイヤー
+     * @author R.Morioka
+     * @version 1.0
+     * @since 1.0
+     */
+    @Query("select new com.example.projectenigma.cipher.dto.Player(u, p) "
+            + "from User u join GameProgress p on p.userId = u.id "
+            + "where u.id = :userId")
+    Optional<Player> findPlayerById(@Param("userId") String userId);
+
+    /**
+     * 現在のステージが expectedStageId の場合に限り、次のステージへ進めます。
+     * エンティティを読み込まずに条件付きUPDATE 1本で済ませるため、
+     * 二重送信や複数タブからの同時送信でもステージが飛んだり巻き戻ったりしない。
+     *
+     * @param userId          ユーザーID
+     * @param expectedStageId 進める前のステージID（画面に表示していたステージ）
+     * @param now             更新日時
+     * @return 更新件数（他のリクエストが先に進めていた場合は 0）
+     * @author R.Morioka
+     * @version 1.0
+     * @since 1.0
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update GameProgress p set p.currentStageId = :expectedStageId + 1, p.lastUpdated = :now "
+            + "where p.userId = :userId and p.currentStageId = :expectedStageId")
+    int advanceStage(@Param("userId") String userId,
+                     @Param("expectedStageId") int expectedStageId,
+                     @Param("now") LocalDateTime now);
+
+    /**
+     * 現在のステージIDだけを取得します（エンティティは読み込まない）。
+     *
+     * @param userId ユーザーID
+     * @return 現在のステージID、進捗の行がなければEmpty
+     * @author R.Morioka
+     * @version 1.0
+     * @since 1.0
+     */
+    @Query("select p.currentStageId from GameProgress p where p.userId = :userId")
+    Optional<Integer> findCurrentStageId(@Param("userId") String userId);
+
+    /**
+     * ランキング順（ステージ降順 → タイム昇順 → ユーザーID昇順）で、指定した位置の次から limit 件取得します。
+     * 前のページの最後の行を渡して次のページを取る（キーセットページング）。何ページ目でも同じコストで済む。
+     *
+     * @param stageId        前のページの最後の行のステージID
+     * @param elapsedSeconds 前のページの最後の行の経過時間
+     * @param userId         前のページの最後の行のユーザーID
+     * @param limit          最大件数
+     * @return 進捗のリスト
+     * @author R.Morioka
+     * @version 1.0
+     * @since 1.0
+     */
+    @Query(value = RANKING_AFTER_SQL, nativeQuery = true)
+    List<GameProgress> findRankingAfter(@Param("stageId") int stageId,
+                                        @Param("elapsedSeconds") long elapsedSeconds,
+                                        @Param("userId") String userId,
+                                        @Param("limit") int limit);
+
+    /**
+     * ランキングの先頭から limit 件取得します。
+     *
+     * @param limit 最大件数
+     * @return 進捗のリスト
+     * @author R.Morioka
+     * @version 1.0
+     * @since 1.0
+     */
+    default List<GameProgress> findRankingFirst(int limit) {
+        return findRankingAfter(Integer.MAX_VALUE, 0L, "", limit);
+    }
+
+    /**
+     * before より前から更新されていない進捗を、古い順に指定した位置の次から limit 件取得します（メンテナンス用）。
+     *
+     * @param before      この日時より前に最終更新されたものが対象
+     * @param lastUpdated 前のページの最後の行の最終更新日時
+     * @param userId      前のページの最後の行のユーザーID
+     * @param limit       最大件数
+     * @return 進捗のリスト
+     * @author R.Morioka
+     * @version 1.0
+     * @since 1.0
+     */
+    @Query(value = STALE_AFTER_SQL, nativeQuery = true)
+    List<GameProgress> findStaleAfter(@Param("before") LocalDateTime before,
+                                      @Param("lastUpdated") LocalDateTime lastUpdated,
+                                      @Param("userId") String userId,
+                                      @Param("limit") int limit);
+
+    /**
+     * before より前から更新されていない進捗を、古い順に先頭から limit 件取得します（メンテナンス用）。
+     *
+     * @param before この日時より前に最終更新されたものが対象
+     * @param limit  最大件数
+     * @return 進捗のリスト
+     * @author R.Morioka
+     * @version 1.0
+     * @since 1.0
+     */
+    default List<GameProgress> findStaleFirst(LocalDateTime before, int limit) {
+        return findStaleAfter(before, KEYSET_START, "", limit);
+    }
+
+    /**
+     * 指定ユーザーの進捗のうち、before より前から更新されていないものだけを削除します（メンテナンス用）。
+     * 選んでから消すまでの間にプレイが再開された行は消さない。
+     *
+     * @param userIds 削除候補のユーザーID
+     * @param before  この日時より前に最終更新されたものだけ削除する
+     * @return 削除件数
+     * @author R.Morioka
+     * @version 1.0
+     * @since 1.0
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query(value = "DELETE FROM game_progress WHERE user_id IN (:userIds) AND last_updated < :before",
+            nativeQuery = true)
+    int deleteStaleByUserIds(@Param("userIds") Collection<String> userIds, @Param("before") LocalDateTime before);
+
+    /**
+     * 指定ユーザーのうち、進捗の行が残っているユーザーIDを返します（メンテナンス用）。
+     * 削除と同じトランザクションで呼ぶと、消さずに残した行だけが分かる。
+     *
+     * @param userIds ユーザーID
+     * @return 進捗の行があるユーザーID
+     * @author R.Morioka
+     * @version 1.0
+     * @since 1.0
+     */
+    @Query("select p.userId from GameProgress p where p.userId in :userIds")
+    List<String> findExistingUserIds(@Param("userIds") Collection<String> userIds);
+}
@@ -1,10 +1,18 @@
 package com.example.projectenigma.cipher.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.example.projectenigma.cipher.entity.User;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
 /**
  * ユーザー情報を操作するためのリポジトリインターフェース。
  * JpaRepositoryを継承しており、基本的なCRUD操作が利用可能。
@@ -16,4 +24,94 @@ import com.example.projectenigma.cipher.entity.User;
  */
 @Repository
 public interface UserRepository extends JpaRepository<User, String> {
-}
\ No newline at end of file
+
+    /** キーセットページングの先頭ページ用の番兵（これより古い日時は扱わない） */
+    LocalDateTime KEYSET_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    /**
+     * 作成日時が古い順のキーセットページング用SQL（メンテナンス用）。
+     * idx_users_created_at を前のページの最後の行から before まで範囲検索する。
+     */
+    String CREATED_BEFORE_SQL = "SELECT * FROM users "
+            + "WHERE created_at < :before AND created_at >= :createdAt "
+            + "AND (created_at > :createdAt OR id > :id) "
+            + "ORDER BY created_at ASC, id ASC "
+            + "LIMIT :limit";
+
+    /**
+     * 進捗の行がないユーザーを作成日時が古い順に辿るキーセットページング用SQL（メンテナンス用）。
+     */
+    String ORPHANS_CREATED_BEFORE_SQL = "SELECT * FROM users "
+            + "WHERE created_at < :before AND created_at >= :createdAt "
+            + "AND (created_at > :createdAt OR id > :id) "
+            + "AND NOT EXISTS (SELECT 1 FROM game_progress p WHERE p.user_id = users.id) "
+            + "ORDER BY created_at ASC, id ASC "
+            + "LIMIT :limit";
+
+    /**
+     * before より前に作成されたユーザーを、古い順に指定した位置の次から limit 件取得します。
+     * 前のページの最後の行を渡して次のページを取る（キーセットページング）。
+     *
+     * @param before    この日時より前に作成されたものが対象
+     * @param createdAt 前のページの最後の行の作成日時
+     * @param id        前のページの最後の行のユーザーID
+     * @param limit     最大件数
+     * @return ユーザーのリスト
+     * @author R.Morioka
+     * @version 1.0
+     * @since 1.0
+     */
+    @Query(value = CREATED_BEFORE_SQL, nativeQuery = true)
+    List<User> findCreatedBeforeAfter(@Param("before") LocalDateTime before,
+                                      @Param("createdAt") LocalDateTime createdAt,
+                                      @Param("id") String id,
+                                      @Param("limit") int limit);
+
+    /**
+     * before より前に作成されたユーザーを、古い順に先頭から limit 件取得します。
+     *
+     * @param before この日時より前に作成されたものが対象
+     * @param limit  最大件数
+     * @return ユーザーのリスト
+     * @author R.Morioka
+     * @version 1.0
+     * @since 1.0
+     */
+    default List<User> findCreatedBeforeFirst(LocalDateTime before, int limit) {
+        return findCreatedBeforeAfter(before, KEYSET_START, "", limit);
+    }
+
+    /**
+     * before より前に作成され、進捗の行がないユーザーを、古い順に指定した位置の次から limit 件取得します（メンテナンス用）。
+     *
+     * @param before    この日時より前に作成されたものが対象
+     * @param createdAt 前のページの最後の行の作成日時
+     * @param id        前のページの最後の行のユーザーID
+     * @param limit     最大件数
+     * @return ユーザーのリスト
+     * @author R.Morioka
+     * @version 1.0
+     * @since 1.0
+     */
+    @Query(value = ORPHANS_CREATED_BEFORE_SQL, nativeQuery = true)
+    List<User> findOrphansCreatedBeforeAfter(@Param("before") LocalDateTime before,
+                                             @Param("createdAt") LocalDateTime createdAt,
+                                             @Param("id") String id,
+                                             @Param("limit") int limit);
+
+    /**
+     * 指定ユーザーのうち、進捗の行がないものだけを削除します（メンテナンス用）。
+     *
+     * @param ids 削除候補のユーザーID
+     * @return 削除件数
+     * @author R.Morioka
+     * @version 1.0
+     * @since 1.0
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query(value = "DELETE FROM users WHERE id IN (:ids) "
+            + "AND NOT EXISTS (SELECT 1 FROM game_progress p WHERE p.user_id = users.id)",
+            nativeQuery = true)
+    int deleteOrphansByIds(@Param("ids") Collection<String> ids);
+}
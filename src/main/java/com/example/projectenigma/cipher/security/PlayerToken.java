@@ -0,0 +1,29 @@
+package com.example.projectenigma.cipher.security;
+
+import java.time.Instant;
+
+/**
+ * Cookie (enigma_uid) に載せる署名付きトークンの中身。
+ *
+ * @param userId   ユーザーID
+ * @param stageId  発行時点のステージID（仮プレイヤーは {@link #PROVISIONAL_STAGE}）
+ * @param issuedAt 発行日時
+ * @param keyId    署名に使った鍵のID
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+public record PlayerToken(String userId, int stageId, Instant issuedAt, String keyId) {
+
+    /** まだDBに行がない仮プレイヤーのトークンに載せるステージID（実在するステージは1から） */
+    public static final int PROVISIONAL_STAGE = 0;
+
+    /**
+     * 仮プレイヤー（Cookieだけで、まだDBに行がない）のトークンかどうかを返します。
+     *
+     * @return 仮プレイヤーなら true
+     */
+    public boolean isProvisional() {
+        return stageId == PROVISIONAL_STAGE;
+    }
+}
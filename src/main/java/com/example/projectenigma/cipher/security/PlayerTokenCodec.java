@@ -0,0 +1,225 @@
+package com.example.projectenigma.cipher.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * プレイヤートークンの署名（HMAC-SHA256）と検証を行うクラス。
+ * <p>
+ * 形式: {@code 鍵ID.ユーザーID.ステージID.発行日時(epoch秒).署名(Base64URL)}
+ * <p>
+ * 署名を検証できればユーザーIDを信用してよいので、Cookieの値を確かめるためにDBを引く必要がない。
+ * Mac は生成が重いので、鍵ごとに初期化済みのインスタンスを使い回す
+ * （スレッドに紐付けるとリクエストごとにスレッドが変わる仮想スレッドで効かないため、プール方式）。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+@Slf4j
+@Component
+public class PlayerTokenCodec {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private static final char SEPARATOR = '.';
+
+    /** 発行日時の未来方向の許容誤差（サーバー間の時計のずれ） */
+    private static final Duration CLOCK_SKEW = Duration.ofMinutes(5);
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    /** 鍵ID → 初期化済みMacのプール */
+    private final Map<String, MacPool> pools;
+
+    /** 署名に使う鍵ID */
+    private final String activeKey;
+
+    private final Duration maxAge;
+
+    /** 署名なしの旧Cookieを受け付ける期限 */
+    private final Instant legacyUntil;
+
+    private final Clock clock;
+
+    /**
+     * 設定から生成します。
+     *
+     * @param properties トークン設定
+     */
+    @Autowired
+    public PlayerTokenCodec(PlayerTokenProperties properties) {
+        this(properties, Clock.systemUTC());
+    }
+
+    PlayerTokenCodec(PlayerTokenProperties properties, Clock clock) {
+        Map<String, String> keys = properties.keys();
+        String active = properties.activeKey();
+        if (keys == null || keys.isEmpty()) {
+            // 開発用: 鍵が未設定なら起動ごとにランダム生成（再起動で既存のCookieは無効になる）
+            log.warn("enigma.token.keys is not configured. Using a random key; issued cookies will not survive a restart.");
+            byte[] random = new byte[32];
+            new SecureRandom().nextBytes(random);
+            keys = Map.of("dev", Base64.getEncoder().encodeToString(random));
+            active = "dev";
+        }
+        if (active == null || !keys.containsKey(active)) {
+            throw new IllegalStateException("enigma.token.active-key must be one of " + keys.keySet());
+        }
+
+        Map<String, MacPool> built = new HashMap<>();
+        keys.forEach((kid, secret) -> {
+            if (kid.indexOf(SEPARATOR) >= 0) {
+                throw new IllegalStateException("Key id must not contain '.': " + kid);
+            }
+            built.put(kid, new MacPool(Base64.getDecoder().decode(secret)));
+        });
+        this.pools = Map.copyOf(built);
+        this.activeKey = active;
+        this.maxAge = properties.maxAge();
+        this.legacyUntil = properties.legacyUntil();
+        this.clock = clock;
+    }
+
+    /**
+     * 現在有効な鍵で署名したトークンを発行します。
+     *
+     * @param userId  ユーザーID
+     * @param stageId ステージID
+     * @return Cookieに設定する文字列
+     */
+    public String issue(String userId, int stageId) {
+        if (userId.indexOf(SEPARATOR) >= 0) {
+            throw new IllegalArgumentException("User id must not contain '.': " + userId);
+        }
+        String payload = activeKey + SEPARATOR + userId + SEPARATOR + stageId
+                + SEPARATOR + clock.instant().getEpochSecond();
+        return payload + SEPARATOR + ENCODER.encodeToString(pools.get(activeKey).sign(payload));
+    }
+
+    /**
+     * トークンの署名と有効期間を検証し、中身を取り出します。
+     * 形式不正・未知の鍵・署名不一致・期限切れの場合はEmptyを返します。
+     *
+     * @param token Cookieの値
+     * @return 検証済みのトークン
+     */
+    public Optional<PlayerToken> verify(String token) {
+        if (token == null) {
+            return Optional.empty();
+        }
+        int sigStart = token.lastIndexOf(SEPARATOR);
+        int keyEnd = token.indexOf(SEPARATOR);
+        if (keyEnd <= 0 || sigStart <= keyEnd) {
+            return Optional.empty();
+        }
+        MacPool pool = pools.get(token.substring(0, keyEnd));
+        if (pool == null) {
+            return Optional.empty();
+        }
+
+        String payload = token.substring(0, sigStart);
+        byte[] signature;
+        try {
+            signature = DECODER.decode(token.substring(sigStart + 1));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+        if (!MessageDigest.isEqual(signature, pool.sign(payload))) {
+            return Optional.empty();
+        }
+
+        // 署名が正しいので、ここから先の形式は自分で発行したものと信用できる
+        String[] parts = payload.split("\\.");
+        if (parts.length != 4) {
+            return Optional.empty();
+        }
+        Instant issuedAt;
+        int stageId;
+        try {
+            stageId = Integer.parseInt(parts[2]);
+            issuedAt = Instant.ofEpochSecond(Long.parseLong(parts[3]));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+        Instant now = clock.instant();
+        if (issuedAt.plus(maxAge).isBefore(now) || issuedAt.isAfter(now.plus(CLOCK_SKEW))) {
+            return Optional.empty();
+        }
+        return Optional.of(new PlayerToken(parts[1], stageId, issuedAt, parts[0]));
+    }
+
+    /**
+     * トークンが現在の鍵以外で署名されている（＝発行し直した方がよい）かどうかを返します。
+     *
+     * @param token 検証済みのトークン
+     * @return 古い鍵で署名されていれば true
+     */
+    public boolean needsRotation(PlayerToken token) {
+        return !activeKey.equals(token.keyId());
+    }
+
+    /**
+     * 署名なしの旧Cookie (UUIDそのまま) をまだ受け付けるかどうかを返します。
+     * 旧Cookieは署名がないので、IDを知ってるだけでなりすませる。期限 (enigma.token.legacy-until) を過ぎたら受け付けない。
+     *
+     * @return 期限前なら true
+     */
+    public boolean acceptsLegacy() {
+        return clock.instant().isBefore(legacyUntil);
+    }
+
+    /**
+     * 1つの鍵に対する初期化済みMacのプール。
+     * 使うたびに取り出して返すので、同時に使われている数以上のインスタンスは作られない。
+     */
+    private static final class MacPool {
+
+        private final SecretKeySpec key;
+        private final ConcurrentLinkedQueue<Mac> idle = new ConcurrentLinkedQueue<>();
+
+        MacPool(byte[] secret) {
+            this.key = new SecretKeySpec(secret, ALGORITHM);
+            idle.offer(create());
+        }
+
+        byte[] sign(String payload) {
+            Mac mac = idle.poll();
+            if (mac == null) {
+                mac = create();
+            }
+            try {
+                return mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+            } finally {
+                idle.offer(mac);
+            }
+        }
+
+        private Mac create() {
+            try {
+                Mac mac = Mac.getInstance(ALGORITHM);
+                mac.init(key);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(ALGORITHM + " is not available", e);
+            }
+        }
+    }
+}
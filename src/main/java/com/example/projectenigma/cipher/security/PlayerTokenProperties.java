@@ -0,0 +1,29 @@
+package com.example.projectenigma.cipher.security;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * 署名付きトークンの設定 (enigma.token.*)。
+ * 鍵をローテーションする場合は、新しい鍵を keys に追加して active-key を切り替え、
+ * 古いトークンが期限切れになった頃に古い鍵を keys から消す。
+ *
+ * @param keys        鍵ID → 鍵（Base64）。空の場合は起動ごとにランダムな鍵を生成する
+ * @param activeKey   新しく発行するトークンの署名に使う鍵ID
+ * @param maxAge      トークンの有効期間
+ * @param legacyUntil 署名なしの旧Cookie (UUIDそのまま) を受け付ける期限。
+ *                    既定は署名付きに切り替えた日 + Cookie の有効期間 30日。過ぎたら旧Cookieは無いのと同じ扱い
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+@ConfigurationProperties(prefix = "enigma.token")
+public record PlayerTokenProperties(Map<String, String> keys,
+                                    String activeKey,
+                                    @DefaultValue("P30D") Duration maxAge,
+                                    @DefaultValue("2026-11-17T00:00:00Z") Instant legacyUntil) {
+}
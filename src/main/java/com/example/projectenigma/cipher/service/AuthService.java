@@ -4,17 +4,24 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import com.example.projectenigma.cipher.cache.PlayerCache;
+import com.example.projectenigma.cipher.dto.Player;
 import com.example.projectenigma.cipher.entity.GameProgress;
 import com.example.projectenigma.cipher.entity.User;
+import com.example.projectenigma.cipher.leaderboard.Leaderboard;
+import com.example.projectenigma.cipher.metrics.AuthOutcome;
+import com.example.projectenigma.cipher.metrics.EnigmaMetrics;
 import com.example.projectenigma.cipher.repository.GameProgressRepository;
-import com.example.projectenigma.cipher.repository.UserRepository;
+import com.example.projectenigma.cipher.provisioning.ProvisioningQueue;
+import com.example.projectenigma.cipher.security.PlayerToken;
+import com.example.projectenigma.cipher.security.PlayerTokenCodec;
 import com.example.projectenigma.cipher.util.CookieUtil;
 
 import java.time.LocalDateTime;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * ユーザー認証および登録処理を行うサービス実装クラス。
@@ -27,69 +34,272 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class AuthService {
 
-    private final UserRepository userRepository;
+    /** UUID文字列の長さ */
+    private static final int LEGACY_ID_LENGTH = 36;
+
     private final GameProgressRepository gameProgressRepository;
+    private final PlayerCache playerCache;
+    private final PlayerTokenCodec playerTokenCodec;
+    private final Leaderboard leaderboard;
+    private final ProvisioningQueue provisioningQueue;
+    private final EnigmaMetrics metrics;
+
+    /** 仮プレイヤーとして発行したID数 */
+    private final LongAdder provisionalIssued = new LongAdder();
+
+    /** DBに行を書き込んだ（本登録した）プレイヤー数 */
+    private final LongAdder materialized = new LongAdder();
 
     /**
-     * リクエストからユーザーを特定、または新規登録を行います。
-     * CookieにIDがあればDB検索、なければ新規発行してCookieとDBに保存します。
+     * リクエストからユーザーを特定、または仮ユーザーを発行します。
+     * 進捗も必要な場合は {@link #authOrCreatePlayer} を使用してください。
      *
      * @param request  HttpServletRequest
      * @param response HttpServletResponse
-     * @return 特定または作成されたUserオブジェクト
+     * @return 特定または発行されたUserオブジェクト
      * @author R.Morioka
      * @version 1.0
      * @since 1.0
      */
-    @Transactional
     public User authOrCreateUser(HttpServletRequest request, HttpServletResponse response) {
-        // 1. CookieからIDを探す
-        Optional<String> cookieId = CookieUtil.getCookieValue(request, CookieUtil.COOKIE_NAME);
-
-        if (cookieId.isPresent()) {
-            // 2. IDがあればDBから検索
-            Optional<User> user = userRepository.findById(cookieId.get());
-            if (user.isPresent()) {
-                // 既存ユーザーが見つかったらそれを返す
-                return user.get();
+        return authOrCreatePlayer(request, response).user();
+    }
+
+    /**
+     * リクエストからプレイヤー（ユーザーと進捗）を特定、または仮プレイヤーを発行します。
+     * Cookieの署名付きトークンを検証できればユーザーIDはそのまま信用し、
+     * 進捗はまずキャッシュ、なければDB検索で取得します。
+     * どちらにもなければ、Cookieだけの仮プレイヤーを発行します（DBには書かない）。
+     * 行を作るのは最初の解答時の {@link #materialize} です。
+     *
+     * @param request  HttpServletRequest
+     * @param response HttpServletResponse
+     * @return 特定または発行されたプレイヤー
+     * @author R.Morioka
+     * @version 1.0
+     * @since 1.0
+     */
+    public Player authOrCreatePlayer(HttpServletRequest request, HttpServletResponse response) {
+        long start = System.nanoTime();
+        Player player = resolvePlayer(request, response);
+        metrics.authTimed(System.nanoTime() - start);
+        return player;
+    }
+
+    /**
+     * {@link #authOrCreatePlayer} の本体。どの経路で特定したかをメトリクスに記録します。
+     */
+    private Player resolvePlayer(HttpServletRequest request, HttpServletResponse response) {
+        // 1. Cookieを探す
+        Optional<String> cookieValue = CookieUtil.getCookieValue(request, CookieUtil.COOKIE_NAME);
+
+        if (cookieValue.isPresent()) {
+            Optional<PlayerToken> token = playerTokenCodec.verify(cookieValue.get());
+            if (token.isPresent() && token.get().isProvisional()) {
+                // 2. 仮プレイヤー: まだ行がないのは分かってるのでDBは見ない
+                if (playerTokenCodec.needsRotation(token.get())) {
+                    issueToken(response, token.get().userId(), PlayerToken.PROVISIONAL_STAGE);
+                }
+                metrics.authResolved(AuthOutcome.PROVISIONAL_HIT);
+                return Player.provisional(token.get().userId());
+            } else if (token.isPresent()) {
+                // 3. 署名が正しければIDの確認にDBはいらん。キャッシュ→DBの順で進捗を取る
+                Optional<Player> player = findPlayer(token.get().userId());
+                if (player.isPresent()) {
+                    refreshTokenIfStale(response, token.get(), player.get());
+                    metrics.authResolved(AuthOutcome.COOKIE_HIT);
+                    return player.get();
+                }
+            } else if (playerTokenCodec.acceptsLegacy() && isLegacyUserId(cookieValue.get())) {
+                // 4. 旧形式 (UUIDそのまま) のCookie: DBで確認できたら署名付きに切り替える (期限まで)
+                Optional<Player> player = findPlayer(cookieValue.get());
+                if (player.isPresent()) {
+                    issueToken(response, player.get().userId(), player.get().progress().getCurrentStageId());
+                    metrics.authResolved(AuthOutcome.LEGACY_MIGRATED);
+                    return player.get();
+                }
             }
-            // CookieはあるけどDBにない（データ消えた？）場合は新規作成へ流す
+            // 改ざん・期限切れ・受付終了した旧Cookie・DBにない（データ消えた？）場合は仮プレイヤーの発行へ流す
         }
 
-        // 3. 新規ユーザー作成
-        return createNewUser(response);
+        // 5. 仮プレイヤー発行 (クローラーやヘルスチェックで行が増えんように、Cookieだけ)
+        metrics.authResolved(cookieValue.isPresent() ? AuthOutcome.RECREATED : AuthOutcome.CREATED);
+        return createProvisionalPlayer(response);
     }
 
     /**
-     * 新規ユーザーを作成し、DB保存とCookie設定を行います。
+     * 仮プレイヤーなら users / game_progress の行を後書きキューに積んで本登録し、Cookieを本登録のトークンに差し替えます。
+     * 解答の送信など、最初の意味のある操作の直前に呼びます。本登録済みならそのまま返します。
+     * 行が実際に書かれるのは少し後なので、行が必要な操作の前には {@link ProvisioningQueue#awaitPersisted} で待つこと。
      *
+     * @param player   認証済みのプレイヤー
      * @param response HttpServletResponse
-     * @return 作成されたUserオブジェクト
+     * @return 本登録済みのプレイヤー
      * @author R.Morioka
      * @version 1.0
      * @since 1.0
      */
-    private User createNewUser(HttpServletResponse response) {
-        String newUserId = UUID.randomUUID().toString();
+    public Player materialize(Player player, HttpServletResponse response) {
+        if (!player.provisional()) {
+            return player;
+        }
+        String userId = player.userId();
+        // 古い仮Cookieのリクエストが後から来た場合、もう本登録済みならそれを使う
+        Optional<Player> cached = playerCache.get(userId);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
         LocalDateTime now = LocalDateTime.now();
 
-        // User保存
         User newUser = new User();
-        newUser.setId(newUserId);
+        newUser.setId(userId);
         newUser.setCreatedAt(now);
-        userRepository.save(newUser);
 
-        // 初期進捗保存 (Stage 1, タイム0)
+        // 初期進捗 (Stage 1, タイム0。仮プレイヤーの間の時間は SessionClock が後で加算する)
         GameProgress newProgress = new GameProgress();
-        newProgress.setUserId(newUserId);
+        newProgress.setUserId(userId);
         newProgress.setCurrentStageId(1);
         newProgress.setTotalElapsedSeconds(0L);
         newProgress.setLastUpdated(now);
-        gameProgressRepository.save(newProgress);
 
-        // CookieにIDを焼く
-        CookieUtil.setUserIdCookie(response, newUserId);
+        // INSERT は後書きキューに任せる (まとめてバッチで書く)。ランキングには書けてから載せる
+        // よそのインスタンスには配らない (ステージ1・タイム0なので、Leaderboard の定期的な組み立て直しで拾えば十分)
+        // もう行があった (キャッシュから落ちた後に古い仮Cookieが来た) なら、下で載せたステージ1の状態を捨てる
+        long stamp = playerCache.stamp();
+        provisioningQueue.enqueue(newUser, newProgress).thenAccept(created -> {
+            if (created) {
+                leaderboard.join(userId);
+                materialized.increment();
+            } else {
+                playerCache.invalidate(userId);
+            }
+        });
+
+        // Cookieを本登録のトークンに焼き直す
+        issueToken(response, userId, newProgress.getCurrentStageId());
+
+        // 作ったばっかりの状態をそのままキャッシュしとく (書き込み前でも読めるように)
+        // 先に「もう行があった」と分かって捨てられてたら載せない
+        Player saved = new Player(newUser, newProgress);
+        playerCache.put(saved, stamp);
+        return saved;
+    }
+
+    /**
+     * 仮プレイヤーの発行数と本登録数を返します。
+     *
+     * @return 仮プレイヤー発行数・本登録数
+     * @author R.Morioka
+     * @version 1.0
+     * @since 1.0
+     */
+    public ProvisioningStats provisioningStats() {
+        return new ProvisioningStats(provisionalIssued.sum(), materialized.sum());
+    }
+
+    /**
+     * Cookieの署名付きトークンを検証して、ユーザーIDだけを取り出します。
+     * DBにもキャッシュにもアクセスせず、ユーザーの新規作成もしません（ハートビートなどの軽いAPI用）。
+     *
+     * @param request HttpServletRequest
+     * @return 検証済みのユーザーID、Cookieがない・不正な場合はEmpty
+     * @author R.Morioka
+     * @version 1.0
+     * @since 1.0
+     */
+    public Optional<String> resolveUserId(HttpServletRequest request) {
+        return resolveToken(request).map(PlayerToken::userId);
+    }
+
+    /**
+     * Cookieの署名付きトークンを検証して、中身（ユーザーID・仮プレイヤーかどうか）を取り出します。
+     * {@link #resolveUserId} と同じく、DBにもキャッシュにもアクセスしません。
+     *
+     * @param request HttpServletRequest
+     * @return 検証済みのトークン、Cookieがない・不正な場合はEmpty
+     * @author R.Morioka
+     * @version 1.0
+     * @since 1.0
+     */
+    public Optional<PlayerToken> resolveToken(HttpServletRequest request) {
+        return CookieUtil.getCookieValue(request, CookieUtil.COOKIE_NAME)
+                .flatMap(playerTokenCodec::verify);
+    }
+
+    /**
+     * 署名付きトークンを発行してCookieに設定します。ステージが進んだときなど、状態が変わったときに呼びます。
+     *
+     * @param response HttpServletResponse
+     * @param userId   ユーザーID
+     * @param stageId  現在のステージID
+     * @author R.Morioka
+     * @version 1.0
+     * @since 1.0
+     */
+    public void issueToken(HttpServletResponse response, String userId, int stageId) {
+        CookieUtil.setUserIdCookie(response, playerTokenCodec.issue(userId, stageId));
+    }
+
+    /**
+     * キャッシュ、なければDB（ユーザーと進捗を1クエリ）からプレイヤーを取得します。
+     */
+    private Optional<Player> findPlayer(String userId) {
+        Optional<Player> cached = playerCache.get(userId);
+        if (cached.isPresent()) {
+            return cached;
+        }
+        // 読んでる間に他のインスタンスでステージが進んだら、古い行は載せない
+        long stamp = playerCache.stamp();
+        Optional<Player> player = gameProgressRepository.findPlayerById(userId);
+        // 見つかったらキャッシュに載せとく
+        player.ifPresent(found -> playerCache.put(found, stamp));
+        return player;
+    }
 
-        return newUser;
+    /**
+     * トークンのステージが実際と違う、または古い鍵で署名されている場合はトークンを発行し直します。
+     */
+    private void refreshTokenIfStale(HttpServletResponse response, PlayerToken token, Player player) {
+        int stageId = player.progress().getCurrentStageId();
+        if (token.stageId() != stageId || playerTokenCodec.needsRotation(token)) {
+            issueToken(response, player.userId(), stageId);
+        }
+    }
+
+    /**
+     * 署名付きトークン導入前のCookie（UUIDそのまま）かどうかを判定します。
+     */
+    private static boolean isLegacyUserId(String value) {
+        try {
+            UUID.fromString(value);
+            return value.length() == LEGACY_ID_LENGTH;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 新しいIDで仮プレイヤーを発行し、Cookie設定だけを行います（DBには書かない）。
+     *
+     * @param response HttpServletResponse
+     * @return 仮プレイヤー
+     * @author R.Morioka
+     * @version 1.0
+     * @since 1.0
+     */
+    private Player createProvisionalPlayer(HttpServletResponse response) {
+        String newUserId = UUID.randomUUID().toString();
+        issueToken(response, newUserId, PlayerToken.PROVISIONAL_STAGE);
+        provisionalIssued.increment();
+        return Player.provisional(newUserId);
+    }
+
+    /**
+     * 仮プレイヤーの発行数と本登録数。
+     *
+     * @param provisionalIssued 仮プレイヤーとして発行したID数
+     * @param materialized      DBに行を作ったプレイヤー数
+     */
+    public record ProvisioningStats(long provisionalIssued, long materialized) {
     }
-}
\ No newline at end of file
+}
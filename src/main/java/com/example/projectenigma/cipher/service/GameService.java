@@ -1,10 +1,22 @@
 package com.example.projectenigma.cipher.service;
 
-import com.example.projectenigma.cipher.entity.GameProgress;
+import com.example.projectenigma.cipher.analytics.AnswerEventLog;
+import com.example.projectenigma.cipher.cache.PlayerCache;
+import com.example.projectenigma.cipher.cache.invalidation.InvalidationBus;
+import com.example.projectenigma.cipher.clock.SessionClock;
+import com.example.projectenigma.cipher.dto.AnswerOutcome;
+import com.example.projectenigma.cipher.dto.AnswerOutcome.Status;
+import com.example.projectenigma.cipher.dto.PlayState;
+import com.example.projectenigma.cipher.leaderboard.Leaderboard;
+import com.example.projectenigma.cipher.metrics.EnigmaMetrics;
+import com.example.projectenigma.cipher.provisioning.ProvisioningQueue;
 import com.example.projectenigma.cipher.repository.GameProgressRepository;
+import com.example.projectenigma.cipher.stage.Stage;
+import com.example.projectenigma.cipher.stage.StageRegistry;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
 
 /**
  * ゲームの進行や正誤判定を行うサービス。
@@ -18,38 +30,92 @@ import org.springframework.transaction.annotation.Transactional;
 public class GameService {
 
     private final GameProgressRepository gameProgressRepository;
+    private final PlayerCache playerCache;
+    private final StageRegistry stageRegistry;
+    private final SessionClock sessionClock;
+    private final Leaderboard leaderboard;
+    private final ProvisioningQueue provisioningQueue;
+    private final EnigmaMetrics metrics;
+    private final AnswerEventLog answerEventLog;
+    private final InvalidationBus invalidationBus;
 
     /**
      * 解答をチェックして、正解ならステージを進めます。
+     * 進捗は読み込まず、「今のステージが currentStageId のままなら +1」という条件付きUPDATEだけを発行します。
+     * 不正解ならDBには一切アクセスしません（トランザクションも張らない）。
+     * 正解でも更新が0件なら、DBに入っているステージを読み直して「既に進んでいた」か「行がない」かを返します。
      *
-     * @param userId ユーザーID
-     * @param answer ユーザーの解答
-     * @return 正解なら true, 不正解なら false
+     * @param userId         ユーザーID
+     * @param currentStageId 解答したステージID（画面に表示していたステージ）
+     * @param answer         ユーザーの解答
+     * @return 判定結果と、判定後にプレイヤーがいるステージ
      * @author R.Morioka
      * @version 1.0
      * @since 1.0
      */
-    @Transactional
-    public boolean checkAnswer(String userId, String answer) {
-        // ユーザーの進捗を取得
-        GameProgress progress = gameProgressRepository.findById(userId)
-                .orElseThrow(() -> new IllegalStateException("User not found"));
-
-        int currentStage = progress.getCurrentStageId();
-        boolean isCorrect = false;
-
-        // ★正解ロジック (今はStage 1: apple だけ)
-        // equalsIgnoreCase で大文字小文字を区別しない (Apple も apple もOK)
-        if (currentStage == 1 && "apple".equalsIgnoreCase(answer.trim())) {
-            isCorrect = true;
-        } 
-        
-        // 正解なら次のステージへ進める
-        if (isCorrect) {
-            progress.setCurrentStageId(currentStage + 1);
-            gameProgressRepository.save(progress);
+    public AnswerOutcome checkAnswer(String userId, int currentStageId, String answer) {
+        long start = System.nanoTime();
+        AnswerOutcome outcome = judgeAndAdvance(userId, currentStageId, answer);
+        metrics.answerChecked(currentStageId, outcome.correct(), System.nanoTime() - start);
+        // ファネル集計用のイベント (キューに積むだけ。書き込みは別スレッド)
+        answerEventLog.append(userId, currentStageId, outcome.correct());
+        return outcome;
+    }
+
+    /**
+     * {@link #checkAnswer} の本体。
+     */
+    private AnswerOutcome judgeAndAdvance(String userId, int currentStageId, String answer) {
+        // 解答を考えてた時間を積み上げとく (DB反映はまとめて後で)
+        sessionClock.touch(userId);
+
+        // ★正解ロジック: ステージ定義 (stages.json) のマッチャーで判定
+        // 配列を引くだけなので、ステージが増えても if が増えたりはせえへん
+        if (!stageRegistry.isCorrect(currentStageId, answer)) {
+            return new AnswerOutcome(Status.WRONG, currentStageId);
         }
 
-        return isCorrect;
+        // 本登録したばっかりで行がまだ書かれてなければ、書けるまで待つ (トランザクションの外で)
+        provisioningQueue.awaitPersisted(userId);
+
+        // 正解なら次のステージへ進める (UPDATE 1本)
+        int updated = gameProgressRepository.advanceStage(userId, currentStageId, LocalDateTime.now());
+
+        // キャッシュに古いステージが残らんように捨てとく (0件でも、持ってるステージは古い)
+        playerCache.invalidateAfterCommit(userId);
+
+        if (updated > 0) {
+            sessionClock.startStage(userId);
+            // ランキングは該当ユーザーの1件だけ付け替える (トランザクションは張ってないので、UPDATE 1本が返った時点ですぐ反映)
+            leaderboard.advance(userId, currentStageId + 1);
+            // 他のインスタンスのキャッシュにも古いステージが残らんように配る
+            invalidationBus.publish(userId);
+            return new AnswerOutcome(Status.ADVANCED, currentStageId + 1);
+        }
+
+        // 0件は二重送信だけやない。行がない (本登録に失敗・まだ書けてない・掃除で消された) こともあるので、
+        // 進んだことにはせず、DBに入ってるステージを見て返す
+        return gameProgressRepository.findCurrentStageId(userId)
+                .map(stored -> new AnswerOutcome(Status.ALREADY_ADVANCED, stored))
+                .orElseGet(() -> new AnswerOutcome(Status.NOT_SAVED, currentStageId));
+    }
+
+    /**
+     * 指定ステージのプレイ状態（問題文・経過時間）を組み立てます。DBにはアクセスしません。
+     *
+     * @param userId               ユーザーID
+     * @param stageId              ステージID
+     * @param storedElapsedSeconds DBに反映済みの経過時間（秒）
+     * @return プレイ状態
+     * @author R.Morioka
+     * @version 1.0
+     * @since 1.0
+     */
+    public PlayState stateOf(String userId, int stageId, long storedElapsedSeconds) {
+        Stage stage = stageRegistry.find(stageId).orElse(null);
+        long elapsed = storedElapsedSeconds + sessionClock.pendingSeconds(userId);
+        return stage == null
+                ? new PlayState(stageId, null, null, true, elapsed)
+                : new PlayState(stageId, stage.riddle(), stage.hint(), false, elapsed);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,214 @@
+package com.example.projectenigma.cipher.stage;
+
+import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 正解をハッシュ値（SHA-256）で保持・照合するためのユーティリティ。
+ * 定義ファイルには正規化済みの正解のハッシュ値だけを書き、平文の正解は持たない。
+ * <p>
+ * 照合時は、前後の空白除去・NFKC正規化・小文字化を使い回しの作業領域のバッファに直接書き込み、
+ * UTF-8 に変換してハッシュを計算する。ASCII・全角英数・かな・漢字だけの解答なら
+ * 判定中に String や配列を新たに作ることはない。
+ * <p>
+ * 正解のハッシュ値は {@code ./mvnw exec:java -Dexec.mainClass=...AnswerDigests -Dexec.args="apple"} などで
+ * {@link #main(String[])} を実行して求める。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+public final class AnswerDigests {
+
+    private static final String ALGORITHM = "SHA-256";
+
+    /** SHA-256 のハッシュ長（バイト） */
+    private static final int DIGEST_LENGTH = 32;
+
+    /** 作業領域ごとに持ち続けるバッファの上限（文字数）。これを超える解答は一時バッファで処理する */
+    private static final int MAX_RETAINED_CHARS = 16 * 1024;
+
+    /**
+     * 作業領域のプール。使うたびに取り出して返すので、同時に判定している数以上は作られない。
+     * （ThreadLocal だとリクエストごとにスレッドが変わる仮想スレッドで毎回作り直しになるため、プール方式）
+     */
+    private static final ConcurrentLinkedQueue<Scratch> SCRATCH = new ConcurrentLinkedQueue<>();
+
+    private AnswerDigests() {
+    }
+
+    /**
+     * 正解を正規化してハッシュ値を求めます（定義作成・起動時用）。
+     *
+     * @param answer 正解
+     * @return ハッシュ値
+     */
+    public static byte[] digest(String answer) {
+        return newDigest().digest(AnswerNormalizer.normalize(answer).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 正解を正規化してハッシュ値を16進文字列で求めます。
+     *
+     * @param answer 正解
+     * @return ハッシュ値（16進）
+     */
+    public static String hex(String answer) {
+        return HexFormat.of().formatHex(digest(answer));
+    }
+
+    /**
+     * ハッシュ値（16進）のどれかに一致すれば正解とするマッチャーを生成します。
+     * 別解がいくつあっても、正規化とハッシュ計算は1回だけです。
+     *
+     * @param hexDigests 正解のハッシュ値（16進）
+     * @return マッチャー
+     */
+    public static AnswerMatcher matcher(List<String> hexDigests) {
+        byte[][] expected = new byte[hexDigests.size()][];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = HexFormat.of().parseHex(hexDigests.get(i));
+            if (expected[i].length != DIGEST_LENGTH) {
+                throw new IllegalArgumentException("Not a SHA-256 digest: " + hexDigests.get(i));
+            }
+        }
+        return answer -> matches(answer, expected);
+    }
+
+    /**
+     * 解答を正規化してハッシュ値を計算し、いずれかの正解と一致するか判定します。
+     *
+     * @param answer   ユーザーの解答
+     * @param expected 正解のハッシュ値
+     * @return 一致すれば true
+     */
+    static boolean matches(CharSequence answer, byte[][] expected) {
+        if (answer == null) {
+            return false;
+        }
+        int start = AnswerNormalizer.trimStart(answer);
+        int end = AnswerNormalizer.trimEnd(answer, start);
+
+        CharSequence source = answer;
+        if (!AnswerNormalizer.isFoldable(answer, start, end)) {
+            // 結合文字などを含むので Normalizer に任せる（ここだけは文字列を作る）
+            source = AnswerNormalizer.normalize(answer.subSequence(start, end));
+            start = 0;
+            end = source.length();
+        }
+
+        Scratch scratch = SCRATCH.poll();
+        if (scratch == null) {
+            scratch = new Scratch();
+        }
+        try {
+            byte[] out = scratch.hash(source, start, end);
+            for (byte[] candidate : expected) {
+                if (MessageDigest.isEqual(out, candidate)) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            SCRATCH.offer(scratch);
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        }
+    }
+
+    /**
+     * 正解のハッシュ値（16進）を出力します。定義ファイル作成用。
+     *
+     * @param args 正解（複数可）
+     */
+    public static void main(String[] args) {
+        for (String answer : args) {
+            System.out.println(hex(answer) + "  " + AnswerNormalizer.normalize(answer));
+        }
+    }
+
+    /**
+     * 判定1回分の作業領域（正規化用の文字バッファ・UTF-8バッファ・MessageDigest）。
+     */
+    private static final class Scratch {
+
+        private final MessageDigest digest = newDigest();
+        private final byte[] out = new byte[DIGEST_LENGTH];
+        private char[] chars = new char[256];
+        private byte[] bytes = new byte[chars.length * 3];
+
+        /**
+         * 指定範囲を畳み込みながらバッファに書き込み、ハッシュ値を計算します。
+         * 戻り値の配列は次の呼び出しで上書きされます。
+         */
+        byte[] hash(CharSequence source, int start, int end) {
+            int length = end - start;
+            char[] c = length <= chars.length ? chars : grow(length);
+            for (int i = 0; i < length; i++) {
+                c[i] = AnswerNormalizer.fold(source.charAt(start + i));
+            }
+            byte[] b = length * 3 <= bytes.length ? bytes : new byte[length * 3];
+            int n = encodeUtf8(c, length, b);
+            if (length > MAX_RETAINED_CHARS) {
+                // 巨大な解答用に広げたバッファは持ち続けない
+                chars = new char[256];
+                bytes = new byte[chars.length * 3];
+            } else if (b != bytes) {
+                bytes = b;
+            }
+
+            digest.update(b, 0, n);
+            try {
+                digest.digest(out, 0, DIGEST_LENGTH);
+            } catch (DigestException e) {
+                throw new IllegalStateException(e);
+            }
+            return out;
+        }
+
+        private char[] grow(int length) {
+            chars = new char[Math.max(length, chars.length * 2)];
+            return chars;
+        }
+
+        /**
+         * String#getBytes(UTF_8) と同じ結果になるようにエンコードします（不正なサロゲートは '?'）。
+         */
+        private static int encodeUtf8(char[] c, int length, byte[] b) {
+            int n = 0;
+            for (int i = 0; i < length; i++) {
+                char ch = c[i];
+                if (ch < 0x80) {
+                    b[n++] = (byte) ch;
+                } else if (ch < 0x800) {
+                    b[n++] = (byte) (0xC0 | (ch >> 6));
+                    b[n++] = (byte) (0x80 | (ch & 0x3F));
+                } else if (Character.isHighSurrogate(ch) && i + 1 < length && Character.isLowSurrogate(c[i + 1])) {
+                    int cp = Character.toCodePoint(ch, c[++i]);
+                    b[n++] = (byte) (0xF0 | (cp >> 18));
+                    b[n++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                    b[n++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                    b[n++] = (byte) (0x80 | (cp & 0x3F));
+                } else if (Character.isSurrogate(ch)) {
+                    b[n++] = '?';
+                } else {
+                    b[n++] = (byte) (0xE0 | (ch >> 12));
+                    b[n++] = (byte) (0x80 | ((ch >> 6) & 0x3F));
+                    b[n++] = (byte) (0x80 | (ch & 0x3F));
+                }
+            }
+            return n;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.projectenigma.cipher.stage;
+
+/**
+ * ステージの正解判定を行うマッチャー。
+ * 起動時に {@link AnswerMatchers} で組み立てておき、判定時は文字列のコピーを作らずに比較する。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+@FunctionalInterface
+public interface AnswerMatcher {
+
+    /**
+     * 解答が正解かどうかを判定します。前後の空白（全角スペース含む）は無視します。
+     *
+     * @param answer ユーザーの解答（nullの場合は不正解）
+     * @return 正解なら true
+     */
+    boolean matches(CharSequence answer);
+}
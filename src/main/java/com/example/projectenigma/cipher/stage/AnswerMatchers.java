@@ -0,0 +1,141 @@
+package com.example.projectenigma.cipher.stage;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * {@link AnswerMatcher} の実装を生成するファクトリ。
+ * 判定は前後の空白を除いた範囲（インデックス）に対して行い、trim() したコピーは作らない。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+public final class AnswerMatchers {
+
+    private AnswerMatchers() {
+    }
+
+    /**
+     * 完全一致（大文字小文字も区別）のマッチャーを生成します。
+     *
+     * @param expected 正解
+     * @return マッチャー
+     */
+    public static AnswerMatcher exact(String expected) {
+        String value = expected.strip();
+        return answer -> regionEquals(answer, value, false);
+    }
+
+    /**
+     * 大文字小文字を区別しないマッチャーを生成します。
+     *
+     * @param expected 正解
+     * @return マッチャー
+     */
+    public static AnswerMatcher ignoreCase(String expected) {
+        String value = expected.strip();
+        return answer -> regionEquals(answer, value, true);
+    }
+
+    /**
+     * Unicode正規化（NFKC）と大文字小文字の同一視を行うマッチャーを生成します。
+     * 「ＡＰＰＬＥ」や「　apple　」も「apple」と同じ扱いになります。
+     * 正規化の詳細は {@link AnswerNormalizer} を参照してください。
+     *
+     * @param expected 正解
+     * @return マッチャー
+     */
+    public static AnswerMatcher normalized(String expected) {
+        String value = AnswerNormalizer.normalize(expected);
+        return answer -> normalizedEquals(answer, value);
+    }
+
+    /**
+     * 正規表現で判定するマッチャーを生成します。前後の空白を除いた範囲全体が一致する必要があります。
+     *
+     * @param regex      正規表現
+     * @param ignoreCase 大文字小文字を区別しない場合 true
+     * @return マッチャー
+     */
+    public static AnswerMatcher regex(String regex, boolean ignoreCase) {
+        Pattern pattern = Pattern.compile(regex,
+                ignoreCase ? Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE : 0);
+        return answer -> {
+            if (answer == null) {
+                return false;
+            }
+            int start = AnswerNormalizer.trimStart(answer);
+            int end = AnswerNormalizer.trimEnd(answer, start);
+            return pattern.matcher(answer).region(start, end).matches();
+        };
+    }
+
+    /**
+     * いずれかのマッチャーに一致すれば正解とするマッチャーを生成します（別解の集合）。
+     *
+     * @param alternatives 別解のマッチャー
+     * @return マッチャー
+     */
+    public static AnswerMatcher anyOf(List<AnswerMatcher> alternatives) {
+        AnswerMatcher[] matchers = alternatives.toArray(new AnswerMatcher[0]);
+        return answer -> {
+            for (AnswerMatcher matcher : matchers) {
+                if (matcher.matches(answer)) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
+    private static boolean regionEquals(CharSequence answer, String expected, boolean ignoreCase) {
+        if (answer == null) {
+            return false;
+        }
+        int start = AnswerNormalizer.trimStart(answer);
+        int end = AnswerNormalizer.trimEnd(answer, start);
+        if (end - start != expected.length()) {
+            return false;
+        }
+        for (int i = 0; i < expected.length(); i++) {
+            char a = answer.charAt(start + i);
+            char b = expected.charAt(i);
+            if (a != b && !(ignoreCase && equalsIgnoreCase(a, b))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean equalsIgnoreCase(char a, char b) {
+        char ua = Character.toUpperCase(a);
+        char ub = Character.toUpperCase(b);
+        return ua == ub || Character.toLowerCase(ua) == Character.toLowerCase(ub);
+    }
+
+    private static boolean normalizedEquals(CharSequence answer, String expected) {
+        if (answer == null) {
+            return false;
+        }
+        int start = AnswerNormalizer.trimStart(answer);
+        int end = AnswerNormalizer.trimEnd(answer, start);
+
+        // 1周目: コピー無しで畳み込める文字だけかどうか確認
+        if (!AnswerNormalizer.isFoldable(answer, start, end)) {
+            // 結合文字などがあるので素直に正規化する（ここだけは文字列を作る）
+            return AnswerNormalizer.normalize(answer.subSequence(start, end)).equals(expected);
+        }
+
+        // 2周目: 1文字ずつ畳み込んで比較
+        if (end - start != expected.length()) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (AnswerNormalizer.fold(answer.charAt(i)) != expected.charAt(i - start)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.projectenigma.cipher.stage;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * 解答の正規化（前後の空白除去・NFKC正規化・小文字化）を行うユーティリティ。
+ * ASCII・全角英数・かな・漢字は1文字ずつ畳み込めるので、文字列のコピーを作らずに処理できる。
+ * それ以外の文字（結合文字や半角カナなど）を含む場合のみ {@link Normalizer} にフォールバックする。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+public final class AnswerNormalizer {
+
+    /** 全角英数記号（！〜～）の開始位置 */
+    private static final char FULLWIDTH_FIRST = '！';
+
+    /** 全角英数記号の終了位置 */
+    private static final char FULLWIDTH_LAST = '～';
+
+    /** 全角と半角のコードポイントの差 */
+    private static final int FULLWIDTH_OFFSET = 0xFEE0;
+
+    /** 全角スペース */
+    private static final char IDEOGRAPHIC_SPACE = '　';
+
+    private AnswerNormalizer() {
+    }
+
+    /**
+     * 文字列を正規化した新しい文字列を返します。起動時の定義読み込みなど、判定以外で使用します。
+     *
+     * @param value 文字列
+     * @return 正規化後の文字列
+     */
+    public static String normalize(CharSequence value) {
+        return Normalizer.normalize(value, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT).strip();
+    }
+
+    /**
+     * 指定範囲が、コピー無しで畳み込める文字だけで構成されているかどうかを判定します。
+     *
+     * @param s     文字列
+     * @param start 開始位置
+     * @param end   終了位置（含まない）
+     * @return 畳み込めるなら true
+     */
+    static boolean isFoldable(CharSequence s, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (!isStable(s.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * NFKC正規化しても1文字→1文字の単純な変換で済む文字かどうか。
+     * ASCII、全角英数記号、全角スペース、ひらがな、カタカナ、CJK統合漢字が対象。
+     */
+    static boolean isStable(char c) {
+        return c < 0x80
+                || (c >= FULLWIDTH_FIRST && c <= FULLWIDTH_LAST)
+                || c == IDEOGRAPHIC_SPACE
+                || (c >= 'ぁ' && c <= 'ゖ')
+                || (c >= 'ァ' && c <= 'ヺ')
+                || (c >= '一' && c <= '鿿');
+    }
+
+    /**
+     * {@link #isStable(char)} な文字を、NFKC正規化＋小文字化した結果の1文字に変換します。
+     */
+    static char fold(char c) {
+        if (c >= FULLWIDTH_FIRST && c <= FULLWIDTH_LAST) {
+            c = (char) (c - FULLWIDTH_OFFSET);
+        } else if (c == IDEOGRAPHIC_SPACE) {
+            c = ' ';
+        }
+        if (c >= 'A' && c <= 'Z') {
+            c = (char) (c + ('a' - 'A'));
+        }
+        return c;
+    }
+
+    private static boolean isTrimmable(char c) {
+        return c <= ' ' || c == IDEOGRAPHIC_SPACE;
+    }
+
+    /**
+     * 前後の空白（全角スペース含む）を除いた範囲の開始位置を返します。
+     *
+     * @param s 文字列
+     * @return 開始位置
+     */
+    static int trimStart(CharSequence s) {
+        int i = 0;
+        while (i < s.length() && isTrimmable(s.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * 前後の空白（全角スペース含む）を除いた範囲の終了位置を返します。
+     *
+     * @param s     文字列
+     * @param start {@link #trimStart} の戻り値
+     * @return 終了位置（含まない）
+     */
+    static int trimEnd(CharSequence s, int start) {
+        int i = s.length();
+        while (i > start && isTrimmable(s.charAt(i - 1))) {
+            i--;
+        }
+        return i;
+    }
+}
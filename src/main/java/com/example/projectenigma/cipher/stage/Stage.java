@@ -0,0 +1,25 @@
+package com.example.projectenigma.cipher.stage;
+
+/**
+ * 1ステージ分の定義（問題文・ヒント・正解判定）。
+ *
+ * @param id      ステージID
+ * @param riddle  問題文
+ * @param hint    ヒント（なければnull）
+ * @param matcher 正解判定
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+public record Stage(int id, String riddle, String hint, AnswerMatcher matcher) {
+
+    /**
+     * 解答がこのステージの正解かどうかを判定します。
+     *
+     * @param answer ユーザーの解答
+     * @return 正解なら true
+     */
+    public boolean matches(CharSequence answer) {
+        return matcher.matches(answer);
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.projectenigma.cipher.stage;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 全ステージの定義を保持するレジストリ。
+ * 起動時にクラスパス上の定義ファイル（既定は stages.json）を1回だけ読み込み、
+ * 正解判定のマッチャーを組み立ててステージIDをインデックスとする配列に格納する。
+ * 判定は配列参照＋マッチャー呼び出しだけなので、ステージ数が増えてもコストは変わらない。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+@Component
+@ImportRuntimeHints(StageRegistry.StagesRuntimeHints.class)
+public class StageRegistry {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    /** ステージIDをインデックスとする配列（欠番はnull） */
+    private final Stage[] stages;
+
+    /**
+     * 定義ファイルを読み込んでレジストリを構築します。
+     *
+     * @param location 定義ファイルの場所 (enigma.stages.location)
+     */
+    public StageRegistry(@Value("${enigma.stages.location:classpath:stages.json}") Resource location) {
+        this.stages = load(location);
+    }
+
+    /**
+     * 指定ステージの定義を取得します。
+     *
+     * @param stageId ステージID
+     * @return ステージ定義、存在しなければEmpty
+     */
+    public Optional<Stage> find(int stageId) {
+        return Optional.ofNullable(get(stageId));
+    }
+
+    /**
+     * 解答が指定ステージの正解かどうかを判定します。存在しないステージなら常に不正解です。
+     *
+     * @param stageId ステージID
+     * @param answer  ユーザーの解答
+     * @return 正解なら true
+     */
+    public boolean isCorrect(int stageId, CharSequence answer) {
+        Stage stage = get(stageId);
+        return stage != null && stage.matches(answer);
+    }
+
+    /**
+     * 定義されている最後のステージIDを返します。
+     *
+     * @return 最終ステージID
+     */
+    public int lastStageId() {
+        return stages.length - 1;
+    }
+
+    private Stage get(int stageId) {
+        return stageId > 0 && stageId < stages.length ? stages[stageId] : null;
+    }
+
+    private static Stage[] load(Resource location) {
+        StagesDefinition definition;
+        try (InputStream in = location.getInputStream()) {
+            definition = MAPPER.readValue(in, StagesDefinition.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load stages from " + location, e);
+        }
+
+        int maxId = definition.stages().stream().mapToInt(StageDefinition::id).max().orElse(0);
+        Stage[] result = new Stage[maxId + 1];
+        for (StageDefinition def : definition.stages()) {
+            if (def.id() <= 0) {
+                throw new IllegalStateException("Stage id must be positive: " + def.id());
+            }
+            if (result[def.id()] != null) {
+                throw new IllegalStateException("Duplicate stage id: " + def.id());
+            }
+            result[def.id()] = new Stage(def.id(), def.riddle(), def.hint(), toMatcher(def.answer()));
+        }
+        return result;
+    }
+
+    private static AnswerMatcher toMatcher(AnswerDefinition def) {
+        if (def == null || def.type() == null) {
+            throw new IllegalStateException("Answer definition is missing");
+        }
+        return switch (def.type()) {
+            case "exact" -> AnswerMatchers.exact(def.value());
+            case "ignore-case" -> AnswerMatchers.ignoreCase(def.value());
+            case "normalized" -> AnswerMatchers.normalized(def.value());
+            case "regex" -> AnswerMatchers.regex(def.value(), Boolean.TRUE.equals(def.ignoreCase()));
+            case "sha256" -> AnswerDigests.matcher(def.values() != null ? def.values() : List.of(def.value()));
+            case "any-of" -> AnswerMatchers.anyOf(def.of().stream().map(StageRegistry::toMatcher).toList());
+            default -> throw new IllegalStateException("Unknown answer type: " + def.type());
+        };
+    }
+
+    /** 定義ファイルのルート */
+    private record StagesDefinition(List<StageDefinition> stages) {
+    }
+
+    /** ステージ1件分の定義 */
+    private record StageDefinition(int id, String riddle, String hint, AnswerDefinition answer) {
+    }
+
+    /** 正解判定の定義（sha256 の別解は values、any-of の場合は of に別解を並べる） */
+    private record AnswerDefinition(String type, String value, List<String> values, Boolean ignoreCase,
+                                    List<AnswerDefinition> of) {
+    }
+
+    /**
+     * ネイティブイメージ向けのヒント。定義ファイルはリソースとして同梱し、
+     * Jackson がリフレクションで組み立てる定義の record を登録しておく（ないと実行時に読めない）。
+     */
+    static class StagesRuntimeHints implements RuntimeHintsRegistrar {
+
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            hints.resources().registerPattern("stages.json");
+            new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(), StagesDefinition.class);
+        }
+    }
+}
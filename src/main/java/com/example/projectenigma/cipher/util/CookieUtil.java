@@ -47,9 +47,10 @@ public class CookieUtil {
 
     /**
      * レスポンスにユーザーID識別用のCookieを設定します。
+     * 値には通常、PlayerTokenCodec で署名したトークンを設定します。
      *
      * @param response HttpServletResponse
-     * @param userId   設定するユーザーID
+     * @param userId   設定する値（署名付きトークン）
      * @author R.Morioka
      * @version 1.0
      * @since 1.0
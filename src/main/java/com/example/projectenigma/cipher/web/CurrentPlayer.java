@@ -0,0 +1,31 @@
+package com.example.projectenigma.cipher.web;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * コントローラーの引数に、リクエストを送ってきたプレイヤー（{@link com.example.projectenigma.cipher.dto.Player}）を渡す。
+ * <pre>
+ * public String play(&#64;CurrentPlayer Player player, Model model) { ... }
+ * </pre>
+ * 特定はリクエストにつき1回だけ（{@link CurrentPlayerArgumentResolver}）。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface CurrentPlayer {
+
+    /**
+     * 仮プレイヤーなら本登録してから渡すか（解答の送信など、最初の意味のある操作で true にする）。
+     *
+     * @return 本登録するなら true
+     */
+    boolean materialize() default false;
+}
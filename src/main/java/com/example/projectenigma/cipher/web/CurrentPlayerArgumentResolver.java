@@ -0,0 +1,78 @@
+package com.example.projectenigma.cipher.web;
+
+import com.example.projectenigma.cipher.dto.Player;
+import com.example.projectenigma.cipher.service.AuthService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.MethodParameter;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+/**
+ * {@link CurrentPlayer} の付いた引数にプレイヤーを渡すリゾルバー。
+ * <p>
+ * 最初に必要になったときに {@link AuthService#authOrCreatePlayer} で特定して、リクエスト属性に置いておく。
+ * 同じリクエストの中で2回目以降はそれを返すので、Cookie の検証とキャッシュ・DBの検索はリクエストにつき1回だけ。
+ * {@code materialize = true} なら {@link AuthService#materialize} で本登録して、属性も本登録後のものに差し替える。
+ * <p>
+ * 引数を解決するときに特定するので、プレイヤーを使わないハンドラー（ハートビート・静的ファイル等）は何もしない。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+public class CurrentPlayerArgumentResolver implements HandlerMethodArgumentResolver {
+
+    /** 特定済みのプレイヤーを置いておくリクエスト属性 */
+    public static final String ATTRIBUTE = CurrentPlayerArgumentResolver.class.getName() + ".PLAYER";
+
+    private final AuthService authService;
+
+    /**
+     * リゾルバーを生成します。
+     *
+     * @param authService 認証サービス
+     */
+    public CurrentPlayerArgumentResolver(AuthService authService) {
+        this.authService = authService;
+    }
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return parameter.hasParameterAnnotation(CurrentPlayer.class)
+                && Player.class.isAssignableFrom(parameter.getParameterType());
+    }
+
+    @Override
+    public Player resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                  NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+        HttpServletRequest request = webRequest.getNativeRequest(HttpServletRequest.class);
+        HttpServletResponse response = webRequest.getNativeResponse(HttpServletResponse.class);
+
+        Player player = resolve(request, response);
+        CurrentPlayer annotation = parameter.getParameterAnnotation(CurrentPlayer.class);
+        if (annotation != null && annotation.materialize()) {
+            player = authService.materialize(player, response);
+            request.setAttribute(ATTRIBUTE, player);
+        }
+        return player;
+    }
+
+    /**
+     * リクエスト属性にあればそれを、なければ特定して属性に置きます。
+     *
+     * @param request  HttpServletRequest
+     * @param response HttpServletResponse（Cookie書き込み用）
+     * @return プレイヤー
+     */
+    public Player resolve(HttpServletRequest request, HttpServletResponse response) {
+        if (request.getAttribute(ATTRIBUTE) instanceof Player resolved) {
+            return resolved;
+        }
+        Player player = authService.authOrCreatePlayer(request, response);
+        request.setAttribute(ATTRIBUTE, player);
+        return player;
+    }
+}
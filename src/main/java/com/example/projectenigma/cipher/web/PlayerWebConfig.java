@@ -0,0 +1,55 @@
+package com.example.projectenigma.cipher.web;
+
+import com.example.projectenigma.cipher.ratelimit.AnswerRateLimiter;
+import com.example.projectenigma.cipher.service.AuthService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * プレイヤーまわりの Spring MVC の設定。
+ * <ul>
+ * <li>{@link CurrentPlayer} 引数の解決（{@link CurrentPlayerArgumentResolver}）</li>
+ * <li>解答の送信のレート制限。引数の解決（プレイヤーの特定・本登録）より先に数えるため、インターセプターで掛ける</li>
+ * </ul>
+ * コントローラーの動きそのものなので、MetricsConfig とは逆に WebMvcTest のスライスにも入るようにしてある
+ * （スライスのテストでは AuthService・AnswerRateLimiter をモックにすること）。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+@Configuration(proxyBeanMethods = false)
+@RequiredArgsConstructor
+public class PlayerWebConfig implements WebMvcConfigurer {
+
+    /** レート制限を掛ける解答の送信先 */
+    static final String[] ANSWER_PATHS = {"/play/answer", "/api/play/answer"};
+
+    private final AuthService authService;
+    private final AnswerRateLimiter answerRateLimiter;
+
+    @Override
+    public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+        resolvers.add(new CurrentPlayerArgumentResolver(authService));
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                // 総当たり対策: 本登録やDBアクセスより先に数える (多すぎたら 429)
+                answerRateLimiter.check(request);
+                return true;
+            }
+        }).addPathPatterns(ANSWER_PATHS);
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.projectenigma.cipher.web;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistration;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+import org.springframework.web.servlet.resource.ResourceUrlEncodingFilter;
+import org.springframework.web.servlet.resource.VersionResourceResolver;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 静的ファイル（static/ の CSS・JS・favicon）の配信設定。
+ * <ul>
+ * <li>テンプレートの {@code @{/css/style.css}} は、中身のハッシュ入りのURL（style-<i>md5</i>.css）に書き換わる</li>
+ * <li>ハッシュ入りのURLは中身が変わったらURLごと変わるので、immutable で長期間キャッシュさせる</li>
+ * <li>ハッシュなしのURL（ブラウザが勝手に取りに来る /favicon.ico 等）は毎回 304 で確認させる</li>
+ * <li>ビルドで作った *.gz があって、クライアントが gzip を受け付けるならそっちを返す</li>
+ * </ul>
+ * Spring Boot 標準の静的ファイルの設定（spring.web.resources.*）は、URLでキャッシュ期間を分けられんので使わない
+ * （spring.web.resources.add-mappings=false）。
+ * WebMvcTest のスライスに入らんように、全部ここの {@code @Bean} で登録する。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+@Configuration(proxyBeanMethods = false)
+public class StaticResourceConfig {
+
+    private static final String LOCATION = "classpath:/static/";
+
+    /** ハッシュ入りのファイル名（VersionResourceResolver の content 戦略: name-md5.ext） */
+    private static final String VERSIONED_FILE = "{file:[\\w.-]+-[0-9a-f]{32}\\.\\w+}";
+
+    /**
+     * 静的ファイルのハンドラーを登録します。ハッシュ入りのURLを先に、それ以外を後に見ます。
+     *
+     * @param maxAge ハッシュ入りのURLをキャッシュさせる期間 (enigma.static.max-age)
+     * @return WebMvcConfigurer
+     */
+    @Bean
+    WebMvcConfigurer staticResourceConfigurer(@Value("${enigma.static.max-age:P365D}") Duration maxAge) {
+        return new WebMvcConfigurer() {
+            @Override
+            public void addResourceHandlers(ResourceHandlerRegistry registry) {
+                // static/ 直下と1階層下まで。深くするならパターンを足すこと
+                CacheControl immutable = CacheControl.maxAge(maxAge.toSeconds(), TimeUnit.SECONDS)
+                        .cachePublic().immutable();
+                addChain(registry.addResourceHandler("/" + VERSIONED_FILE, "/*/" + VERSIONED_FILE), immutable);
+                addChain(registry.addResourceHandler("/**"), CacheControl.noCache());
+            }
+        };
+    }
+
+    /**
+     * テンプレートのURLをハッシュ入りに書き換えるフィルター。
+     *
+     * @return FilterRegistrationBean
+     */
+    @Bean
+    FilterRegistrationBean<ResourceUrlEncodingFilter> staticResourceUrlEncodingFilter() {
+        return new FilterRegistrationBean<>(new ResourceUrlEncodingFilter());
+    }
+
+    private static void addChain(ResourceHandlerRegistration registration,
+                                 CacheControl cacheControl) {
+        registration.addResourceLocations(LOCATION)
+                .setCacheControl(cacheControl)
+                .resourceChain(true)
+                .addResolver(new EncodedResourceResolver())
+                .addResolver(new VersionResourceResolver().addContentVersionStrategy("/**"));
+    }
+}
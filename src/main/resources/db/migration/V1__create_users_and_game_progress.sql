@@ -0,0 +1,26 @@
+-- users / game_progress の初期スキーマ (H2 と PostgreSQL の両方で通る書き方にしとく)
+-- エンティティ (User / GameProgress) と揃えること。起動時に ddl-auto=validate で照合される
+
+CREATE TABLE users (
+    id         VARCHAR(255) NOT NULL,
+    created_at TIMESTAMP(6),
+    CONSTRAINT pk_users PRIMARY KEY (id)
+);
+
+-- 作成日時が古い順のキーセットページング (削除ジョブ)
+CREATE INDEX idx_users_created_at ON users (created_at, id);
+
+CREATE TABLE game_progress (
+    user_id               VARCHAR(255) NOT NULL,
+    current_stage_id      INTEGER,
+    total_elapsed_seconds BIGINT,
+    last_updated          TIMESTAMP(6),
+    CONSTRAINT pk_game_progress PRIMARY KEY (user_id)
+);
+
+-- ランキング順 (ステージ降順 → タイム昇順 → ID) のキーセットページング
+CREATE INDEX idx_game_progress_rank
+    ON game_progress (current_stage_id DESC, total_elapsed_seconds ASC, user_id ASC);
+
+-- 最終更新日時が古い順のキーセットページング (削除ジョブ)
+CREATE INDEX idx_game_progress_last_updated ON game_progress (last_updated, user_id);
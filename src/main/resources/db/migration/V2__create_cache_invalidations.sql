@@ -0,0 +1,13 @@
+-- インスタンス間のキャッシュ無効化 (enigma.cache.invalidation.mode=jdbc で使う)
+-- 各インスタンスが id の昇順にポーリングする。古い行は retention を過ぎたら消す
+
+CREATE TABLE cache_invalidations (
+    id         BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    user_id    VARCHAR(255) NOT NULL,
+    origin     VARCHAR(64)  NOT NULL,
+    created_at TIMESTAMP(6) NOT NULL,
+    CONSTRAINT pk_cache_invalidations PRIMARY KEY (id)
+);
+
+-- 古い行の削除
+CREATE INDEX idx_cache_invalidations_created_at ON cache_invalidations (created_at);
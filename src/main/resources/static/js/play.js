@@ -0,0 +1,90 @@
+/*
+ * Play Page Controller
+ * 解答フォームの送信を fetch に置き換えて、JSON API の結果で画面の一部だけを書き換える
+ * (リダイレクト→画面全体の再描画をしなくて済む)
+ * JS が動かない環境では、フォームは従来どおり POST /play/answer に送られる
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+(() => {
+    // script タグの data-answer-url から送り先を取得
+    const answerUrl = document.currentScript && document.currentScript.dataset.answerUrl;
+
+    // API がエラーを返したときのメッセージ (送り直すかどうかはプレイヤーに任せる)
+    const ERROR_MESSAGE = 'Could not check your answer. Please try again in a moment. 🙏';
+
+    const byId = (id) => document.getElementById(id);
+
+    const showMessage = (message, correct) => {
+        const box = byId('message-box');
+        byId('message-text').innerText = message;
+        box.style.backgroundColor = correct ? '#28a745' : '#dc3545';
+        box.hidden = false;
+    };
+
+    // サーバーから返ってきた状態で画面を書き換える
+    const render = (state) => {
+        document.title = `Stage ${state.stageId} - Project Enigma`;
+        byId('stage-id').innerText = state.stageId;
+        byId('timer-val').innerText = state.elapsedSeconds;
+
+        byId('riddle-box').hidden = state.cleared;
+        byId('cleared-box').hidden = !state.cleared;
+        byId('answer-form').hidden = state.cleared;
+
+        if (!state.cleared) {
+            byId('riddle-text').innerText = `Q. ${state.riddle}`;
+            const hint = byId('hint-text');
+            hint.innerText = state.hint ? `(Hint: ${state.hint})` : '';
+            hint.hidden = !state.hint;
+        }
+    };
+
+    document.addEventListener('DOMContentLoaded', () => {
+        const form = byId('answer-form');
+        if (!form || !answerUrl) {
+            return;
+        }
+
+        form.addEventListener('submit', (event) => {
+            event.preventDefault();
+            const input = form.querySelector('input[name="answer"]');
+            const button = form.querySelector('button[type="submit"]');
+            button.disabled = true;
+
+            fetch(answerUrl, {
+                method: 'POST',
+                credentials: 'same-origin',
+                headers: { 'Content-Type': 'application/json', 'Accept': 'application/json' },
+                body: JSON.stringify({ answer: input.value })
+            })
+                .then((response) => {
+                    // 429・503・5xx はサーバーには届いてる (UPDATE 済みかもしれん) ので、フォームで送り直したりはしない
+                    // 送りすぎ (429) はサーバーのメッセージ、それ以外は決まったメッセージを出して、ボタンを戻すだけ
+                    if (response.status === 429) {
+                        return response.json()
+                            .catch(() => ({}))
+                            .then((body) => showMessage(body.message || ERROR_MESSAGE, false));
+                    }
+                    if (!response.ok) {
+                        showMessage(ERROR_MESSAGE, false);
+                        return undefined;
+                    }
+                    return response.json()
+                        .then((result) => {
+                            showMessage(result.message, result.correct);
+                            render(result.state);
+                            input.value = '';
+                            input.focus();
+                        })
+                        // 中身が壊れてても、解答はもう届いてるので送り直さない
+                        .catch(() => showMessage(ERROR_MESSAGE, false));
+                }, () => {
+                    // サーバーに届かなかった (ネットワークエラー) ときだけ、従来のフォーム送信に任せる
+                    form.submit();
+                })
+                .finally(() => { button.disabled = false; });
+        });
+    });
+})();
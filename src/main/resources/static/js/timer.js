@@ -1,22 +1,46 @@
 /*
  * Simple Game Timer
  * サーバーから受け取った初期値を起点にカウントアップする
+ * 経過時間の正はサーバー側 (SessionClock) で、ここからは定期的にハートビートを送るだけ
  * @author R.Morioka
  * @version 1.0
  * @since 1.0
  */
-document.addEventListener('DOMContentLoaded', () => {
-    // 時間を表示している要素を取得
-    const timerElement = document.getElementById('timer-val');
+(() => {
+    // ハートビートの間隔 (サーバーの enigma.clock.max-gap より短くすること)
+    const HEARTBEAT_INTERVAL_MS = 30 * 1000;
 
-    if (timerElement) {
-        // 現在の表示されている秒数を取得
-        let seconds = parseInt(timerElement.innerText, 10);
+    // script タグの data-heartbeat-url から送り先を取得
+    const heartbeatUrl = document.currentScript && document.currentScript.dataset.heartbeatUrl;
 
-        // 1秒(1000ms)ごとに実行
-        setInterval(() => {
-            seconds++;
-            timerElement.innerText = seconds;
-        }, 1000);
-    }
-});
\ No newline at end of file
+    const sendHeartbeat = () => {
+        if (heartbeatUrl) {
+            fetch(heartbeatUrl, { method: 'POST', credentials: 'same-origin', keepalive: true })
+                .catch(() => { /* 次のハートビートで取り返せるので無視 */ });
+        }
+    };
+
+    document.addEventListener('DOMContentLoaded', () => {
+        // 時間を表示している要素を取得
+        const timerElement = document.getElementById('timer-val');
+
+        if (timerElement) {
+            // 1秒(1000ms)ごとに実行
+            // play.js がサーバーの値で表示を補正することがあるので、毎回表示中の秒数から数える
+            setInterval(() => {
+                const seconds = parseInt(timerElement.innerText, 10) || 0;
+                timerElement.innerText = seconds + 1;
+            }, 1000);
+
+            // サーバー側の計測を進めるためのハートビート
+            setInterval(sendHeartbeat, HEARTBEAT_INTERVAL_MS);
+
+            // タブを離れるときにも1回送っておく
+            document.addEventListener('visibilitychange', () => {
+                if (document.visibilityState === 'hidden') {
+                    sendHeartbeat();
+                }
+            });
+        }
+    });
+})();
@@ -0,0 +1,151 @@
+package com.example.projectenigma;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.projectenigma.cipher.repository.GameProgressRepository;
+import com.example.projectenigma.cipher.security.PlayerTokenCodec;
+import com.example.projectenigma.cipher.util.CookieUtil;
+
+/**
+ * 仮想スレッドモード (virtual プロファイル) のテスト。
+ * リクエスト処理・非同期タスク・スケジュールタスクが仮想スレッドで動くことを確認します。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("virtual")
+@Import(VirtualThreadModeTest.ThreadProbeConfig.class)
+class VirtualThreadModeTest {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    @Qualifier("applicationTaskExecutor")
+    private AsyncTaskExecutor taskExecutor;
+
+    @Autowired
+    private TaskScheduler taskScheduler;
+
+    @Autowired
+    private PlayerTokenCodec playerTokenCodec;
+
+    @Autowired
+    private GameProgressRepository gameProgressRepository;
+
+    /** リクエストを処理しているスレッドが仮想スレッドかを返すだけのコントローラー */
+    @TestConfiguration
+    static class ThreadProbeConfig {
+
+        @RestController
+        static class ThreadProbeController {
+
+            @GetMapping("/test/thread")
+            boolean isVirtual() {
+                return Thread.currentThread().isVirtual();
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("リクエストが仮想スレッドで処理されること")
+    void requestRunsOnVirtualThread() {
+        // 1. 実行
+        Boolean virtual = restTemplate.getForObject("/test/thread", Boolean.class);
+
+        // 2. 検証
+        assertThat(virtual).isTrue();
+    }
+
+    @Test
+    @DisplayName("@Async 用のタスクが仮想スレッドで実行されること")
+    void asyncTaskRunsOnVirtualThread() throws Exception {
+        // 1. 実行
+        boolean virtual = taskExecutor.submit(() -> Thread.currentThread().isVirtual()).get(5, TimeUnit.SECONDS);
+
+        // 2. 検証
+        assertThat(virtual).isTrue();
+    }
+
+    @Test
+    @DisplayName("@Scheduled 用のスケジューラが仮想スレッドで実行すること")
+    void scheduledTaskRunsOnVirtualThread() throws Exception {
+        // 1. 準備
+        CompletableFuture<Boolean> virtual = new CompletableFuture<>();
+
+        // 2. 実行
+        taskScheduler.schedule(() -> virtual.complete(Thread.currentThread().isVirtual()), Instant.now());
+
+        // 3. 検証
+        assertThat(virtual.get(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    @DisplayName("ページ表示と回答が仮想スレッドモードでも動くこと (本登録・後書きキュー・ステージを進める UPDATE まで)")
+    void playAndAnswerWork() {
+        // 1. 準備: 仮プレイヤーの Cookie をもらう
+        ResponseEntity<String> page = restTemplate.getForEntity("/play", String.class);
+        assertThat(page.getStatusCode().is2xxSuccessful()).isTrue();
+        String cookie = cookieOf(page, null);
+
+        String userId = playerTokenCodec.verify(cookie.substring(cookie.indexOf('=') + 1)).orElseThrow().userId();
+
+        // 2. 実行 & 検証: 不正解 (ここで本登録される) はステージ1のまま
+        ResponseEntity<String> wrong = answer(cookie, "banana");
+        assertThat(wrong.getStatusCode().is2xxSuccessful()).isTrue();
+        assertThat(wrong.getBody()).contains("riddle-box");
+        assertThat(gameProgressRepository.findCurrentStageId(userId)).contains(1);
+
+        // 3. 実行 & 検証: 正解でステージ2 (全クリア) に進む
+        ResponseEntity<String> correct = answer(cookieOf(wrong, cookie), "apple");
+        assertThat(correct.getStatusCode().is2xxSuccessful()).isTrue();
+        assertThat(gameProgressRepository.findCurrentStageId(userId)).contains(2);
+    }
+
+    /** 解答をフォームで送る (JDK の HttpClient がリダイレクトを追いかけるので、戻り先の /play の画面が返る) */
+    private ResponseEntity<String> answer(String cookie, String answer) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
+        headers.add(HttpHeaders.COOKIE, cookie);
+        MultiValueMap<String, String> form = new LinkedMultiValueMap<>();
+        form.add("answer", answer);
+        return restTemplate.postForEntity("/play/answer", new HttpEntity<>(form, headers), String.class);
+    }
+
+    /** レスポンスで設定された enigma_uid の「名前=値」。設定し直されてなければ current のまま */
+    private static String cookieOf(ResponseEntity<?> response, String current) {
+        return response.getHeaders().getOrEmpty(HttpHeaders.SET_COOKIE).stream()
+                .filter(header -> header.startsWith(CookieUtil.COOKIE_NAME + "="))
+                .map(header -> header.substring(0, header.indexOf(';')))
+                .findFirst()
+                .or(() -> Optional.ofNullable(current))
+                .orElseThrow();
+    }
+}
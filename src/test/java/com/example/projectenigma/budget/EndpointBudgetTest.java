@@ -0,0 +1,180 @@
+package com.example.projectenigma.budget;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.servlet.http.Cookie;
+
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import com.example.projectenigma.cipher.provisioning.ProvisioningQueue;
+import com.example.projectenigma.cipher.util.CookieUtil;
+import com.example.projectenigma.support.RequestCostMeter;
+import com.example.projectenigma.support.RequestCostMeter.RequestCost;
+
+/**
+ * エンドポイントごとの1リクエストあたりのコスト（SQL文の数・エンティティの読み込み数・確保したメモリ）が、
+ * {@code budgets/endpoints.properties} に書いた予算を超えていないことを確認するテスト。
+ * 超えたらビルドが落ちるので、N+1 や全件読み込み、無駄な確保が入ったらここで気づく。
+ * <p>
+ * プレイヤーキャッシュの有効期限を0にして、毎回DBまで読みに行く一番重い経路で測る。
+ * 予算を見直すときは、出力される「measured」の行を参考に endpoints.properties を書き換える
+ * （メモリは JDK やライブラリの更新でも動くので、少し余裕を持たせておく）。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+@SpringBootTest(properties = {
+        "enigma.cache.player.ttl=PT0S",
+        "enigma.ratelimit.enabled=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        // 統計を有効にするとセッションごとに INFO で出るので黙らせる
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN"})
+@AutoConfigureMockMvc
+class EndpointBudgetTest {
+
+    private static final String BUDGETS = "/budgets/endpoints.properties";
+    private static final int WARMUP = 100;
+    private static final int MEASURED = 31;
+
+    private static final String WRONG_ANSWER = "{\"answer\":\"banana\"}";
+    private static final String CORRECT_ANSWER = "{\"answer\":\"apple\"}";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ProvisioningQueue provisioningQueue;
+
+    private RequestCostMeter meter;
+
+    /** 本登録済みプレイヤーの enigma_uid */
+    private Cookie registered;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        meter = new RequestCostMeter(entityManagerFactory, () -> {
+            ProvisioningQueue.Stats stats = provisioningQueue.stats();
+            return stats.enqueued() == stats.written() + stats.rejected();
+        });
+        // 最初の解答で本登録させる
+        registered = send(post("/api/play/answer").contentType(MediaType.APPLICATION_JSON).content(WRONG_ANSWER), null);
+    }
+
+    /**
+     * リクエストを送って、最後に返ってきた enigma_uid を返します（返ってこなければ送った分）。
+     * Cookie なしの初回解答は、仮の分と本登録の分の2つ返ってくる。
+     */
+    private Cookie send(MockHttpServletRequestBuilder request, Cookie cookie) throws Exception {
+        if (cookie != null) {
+            request.cookie(cookie);
+        }
+        // 画面からの解答はリダイレクトで返る
+        MvcResult result = mockMvc.perform(request)
+                .andExpect(response -> assertThat(response.getResponse().getStatus()).isLessThan(400))
+                .andReturn();
+        return Arrays.stream(result.getResponse().getCookies())
+                .filter(issued -> CookieUtil.COOKIE_NAME.equals(issued.getName()))
+                .reduce((first, second) -> second)
+                .orElse(cookie);
+    }
+
+    /**
+     * 測るシナリオ。キーは endpoints.properties の接頭辞。
+     */
+    private Map<String, RequestCostMeter.Request> scenarios() {
+        Map<String, RequestCostMeter.Request> scenarios = new LinkedHashMap<>();
+        scenarios.put("root", () -> send(get("/"), registered));
+        scenarios.put("play", () -> send(get("/play"), registered));
+        scenarios.put("play.guest", () -> send(get("/play"), null));
+        scenarios.put("play.answer.wrong", () -> send(post("/play/answer").param("answer", "banana"), registered));
+        scenarios.put("api.state", () -> send(get("/api/play/state"), registered));
+        scenarios.put("api.answer.wrong", () -> send(post("/api/play/answer")
+                .contentType(MediaType.APPLICATION_JSON).content(WRONG_ANSWER), registered));
+        // 毎回新しいプレイヤーで正解する（本登録の INSERT + クリアの UPDATE）
+        scenarios.put("api.answer.first-correct", () -> send(post("/api/play/answer")
+                .contentType(MediaType.APPLICATION_JSON).content(CORRECT_ANSWER), null));
+        scenarios.put("api.heartbeat", () -> send(post("/api/play/heartbeat"), registered));
+        scenarios.put("api.leaderboard", () -> send(get("/api/leaderboard"), registered));
+        return scenarios;
+    }
+
+    @Test
+    @DisplayName("どのエンドポイントも、1リクエストあたりのSQL文・エンティティ読み込み・確保メモリが予算内に収まる")
+    void testEndpointsStayWithinBudget() throws Exception {
+        // 1. 準備
+        Properties budgets = new Properties();
+        try (InputStream in = getClass().getResourceAsStream(BUDGETS)) {
+            assertThat(in).as(BUDGETS).isNotNull();
+            budgets.load(in);
+        }
+
+        // 2. 実行
+        Map<String, RequestCost> costs = new LinkedHashMap<>();
+        for (Map.Entry<String, RequestCostMeter.Request> scenario : scenarios().entrySet()) {
+            costs.put(scenario.getKey(), meter.measure(scenario.getValue(), WARMUP, MEASURED));
+        }
+
+        // 3. 検証
+        StringBuilder report = new StringBuilder("\n=== endpoint cost per request (measured) ===\n");
+        costs.forEach((name, cost) -> report.append(String.format("%s.statements=%d%n%s.entity-loads=%d%n%s.allocated-kb=%d%n",
+                name, cost.statements(), name, cost.entityLoads(), name, cost.allocatedBytes() / 1024)));
+        System.out.print(report);
+
+        SoftAssertions softly = new SoftAssertions();
+        for (Map.Entry<String, RequestCost> entry : costs.entrySet()) {
+            String name = entry.getKey();
+            RequestCost cost = entry.getValue();
+            check(softly, budgets, name + ".statements", cost.statements());
+            check(softly, budgets, name + ".entity-loads", cost.entityLoads());
+            if (!check(softly, budgets, name + ".allocated-kb", cost.allocatedBytes() / 1024)) {
+                // どこで確保してるかを JFR で取り直して出す
+                System.out.printf("%s: top allocation sites (JFR samples)%n    %s%n", name,
+                        String.join("\n    ", meter.allocationSites(scenarios().get(name), WARMUP, 10)));
+            }
+        }
+        // 予算だけ残ってるシナリオがあったら、消し忘れ
+        budgets.stringPropertyNames().forEach(key -> softly.assertThat(costs)
+                .as("budget without scenario: " + key)
+                .containsKey(key.substring(0, key.lastIndexOf('.'))));
+        softly.assertAll();
+    }
+
+    /**
+     * 予算と比べます。
+     *
+     * @return 予算内なら true
+     */
+    private static boolean check(SoftAssertions softly, Properties budgets, String key, long actual) {
+        String budget = budgets.getProperty(key);
+        if (budget == null) {
+            softly.fail("No budget for %s in %s (measured %d)", key, BUDGETS, actual);
+            return false;
+        }
+        long limit = Long.parseLong(budget.trim());
+        softly.assertThat(actual).as(key).isLessThanOrEqualTo(limit);
+        return actual <= limit;
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.projectenigma.cipher.analytics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * AnswerEventLogのテストクラス。
+ * 書き込みスレッドは起動せず、drainOnce を直接呼んで確認します。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+class AnswerEventLogTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2026-01-01T00:00:00Z"), ZoneOffset.UTC);
+
+    @TempDir
+    private Path dir;
+
+    private final String alice = UUID.randomUUID().toString();
+    private final String bob = UUID.randomUUID().toString();
+
+    private AnswerEventLog newLog(FunnelAggregator aggregator, Path file, int capacity) {
+        AnswerEventLog log = new AnswerEventLog(aggregator, file, capacity, CLOCK);
+        log.open();
+        return log;
+    }
+
+    @Test
+    @DisplayName("積んだイベントは固定長でファイルに追記され、集計にも流れること")
+    void testAppendAndDrain() throws IOException {
+        // 1. 準備
+        Path file = dir.resolve("events.log");
+        FunnelAggregator aggregator = new FunnelAggregator(100);
+        AnswerEventLog log = newLog(aggregator, file, 100);
+
+        // 2. 実行
+        log.append(alice, 1, false);
+        log.append(alice, 1, true);
+        log.append(bob, 1, false);
+        int drained = log.drainOnce(false);
+
+        // 3. 検証
+        assertEquals(3, drained);
+        assertEquals(3L * AnswerEvent.BYTES, Files.size(file));
+        assertEquals(3, aggregator.events());
+        assertEquals(1, aggregator.snapshot().get(0).solvers());
+        assertEquals(new AnswerEventLog.Stats(3, 3, 0, 0), log.stats());
+        log.shutdown();
+    }
+
+    @Test
+    @DisplayName("起動時にファイルを読み直して集計を復元し、続きから追記すること")
+    void testReplay() throws IOException {
+        // 1. 準備: 前回の起動で2件書いてある
+        Path file = dir.resolve("events.log");
+        AnswerEventLog previous = newLog(new FunnelAggregator(100), file, 100);
+        previous.append(alice, 1, true);
+        previous.append(bob, 1, false);
+        previous.shutdown();
+
+        // 2. 実行
+        FunnelAggregator aggregator = new FunnelAggregator(100);
+        AnswerEventLog log = newLog(aggregator, file, 100);
+        log.append(bob, 1, true);
+        log.drainOnce(false);
+
+        // 3. 検証
+        assertEquals(3, aggregator.events());
+        StageFunnel first = aggregator.snapshot().get(0);
+        assertEquals(2, first.playersReached());
+        assertEquals(2, first.solvers());
+        assertEquals(3L * AnswerEvent.BYTES, Files.size(file));
+        log.shutdown();
+    }
+
+    @Test
+    @DisplayName("最後のレコードが半端に書かれていたら切り捨ててから追記すること")
+    void testTruncatePartialRecord() throws IOException {
+        // 1. 準備: 1件書いたあと、書きかけで落ちた
+        Path file = dir.resolve("events.log");
+        AnswerEventLog previous = newLog(new FunnelAggregator(100), file, 100);
+        previous.append(alice, 1, false);
+        previous.shutdown();
+        Files.write(file, new byte[]{1, 2, 3}, StandardOpenOption.APPEND);
+
+        // 2. 実行
+        FunnelAggregator aggregator = new FunnelAggregator(100);
+        AnswerEventLog log = newLog(aggregator, file, 100);
+        log.append(alice, 1, true);
+        log.drainOnce(false);
+
+        // 3. 検証: 半端な3バイトは消えて、2件きれいに並んでる
+        assertEquals(2L * AnswerEvent.BYTES, Files.size(file));
+        assertEquals(2, aggregator.events());
+        log.shutdown();
+    }
+
+    @Test
+    @DisplayName("キューが満杯なら待たずに捨てて、破棄数に数えること")
+    void testDropWhenFull() {
+        // 1. 準備
+        FunnelAggregator aggregator = new FunnelAggregator(100);
+        AnswerEventLog log = newLog(aggregator, null, 1);
+
+        // 2. 実行
+        log.append(alice, 1, false);
+        log.append(bob, 1, false);
+
+        // 3. 検証
+        assertEquals(new AnswerEventLog.Stats(1, 0, 1, 1), log.stats());
+        log.shutdown();
+        assertEquals(1, aggregator.events(), "終了時に残りも集計される");
+    }
+
+    @Test
+    @DisplayName("イベントは29バイトで書けて、同じ内容で読み戻せること")
+    void testEventCodec() {
+        // 1. 準備
+        AnswerEvent event = new AnswerEvent(alice, 7, true, 1_234_567_890_123L);
+        ByteBuffer buffer = ByteBuffer.allocate(AnswerEvent.BYTES);
+
+        // 2. 実行
+        event.writeTo(buffer);
+        buffer.flip();
+
+        // 3. 検証
+        assertEquals(29, AnswerEvent.BYTES);
+        assertEquals(event, AnswerEvent.readFrom(buffer));
+    }
+}
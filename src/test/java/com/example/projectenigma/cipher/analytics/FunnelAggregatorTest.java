@@ -0,0 +1,142 @@
+package com.example.projectenigma.cipher.analytics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * FunnelAggregatorのテストクラス。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+class FunnelAggregatorTest {
+
+    private static final long T0 = 1_700_000_000_000L;
+
+    private static AnswerEvent event(String userId, int stageId, boolean correct, long secondsFromStart) {
+        return new AnswerEvent(userId, stageId, correct, T0 + secondsFromStart * 1000);
+    }
+
+    private static StageFunnel stage(List<StageFunnel> funnel, int stageId) {
+        return funnel.stream().filter(s -> s.stageId() == stageId).findFirst().orElseThrow();
+    }
+
+    @Test
+    @DisplayName("到達数・送信数・解いた人数・正解率がステージごとに集計されること")
+    void testCounts() {
+        // 1. 準備
+        FunnelAggregator aggregator = new FunnelAggregator(100);
+
+        // 2. 実行: a は2回目で正解、b は不正解のまま、c は1回で正解してステージ2で不正解
+        aggregator.apply(List.of(
+                event("a", 1, false, 0),
+                event("b", 1, false, 5),
+                event("a", 1, true, 10),
+                event("c", 1, true, 20),
+                event("c", 2, false, 30)));
+
+        // 3. 検証
+        List<StageFunnel> funnel = aggregator.snapshot();
+        StageFunnel first = stage(funnel, 1);
+        assertEquals(3, first.playersReached());
+        assertEquals(4, first.attempts());
+        assertEquals(2, first.correctAttempts());
+        assertEquals(2, first.solvers());
+        assertEquals(2.0 / 3, first.solveRate(), 1e-9);
+
+        // ステージ2には解いた2人が着いたことになる (c しか解答してなくても)
+        StageFunnel second = stage(funnel, 2);
+        assertEquals(2, second.playersReached());
+        assertEquals(1, second.attempts());
+        assertEquals(0, second.solvers());
+        assertEquals(0.0, second.solveRate());
+        assertEquals(-1, second.medianSecondsToSolve(), "解いた人がいなければ -1");
+        assertEquals(5, aggregator.events());
+    }
+
+    @Test
+    @DisplayName("解くまでの時間は、前のステージを解いた時刻から数えて中央値を出すこと")
+    void testMedianTimeToSolve() {
+        // 1. 準備
+        FunnelAggregator aggregator = new FunnelAggregator(100);
+
+        // 2. 実行: ステージ1は各自の最初の解答から、ステージ2はステージ1を解いた時刻から
+        aggregator.apply(List.of(
+                event("a", 1, false, 0),
+                event("a", 1, true, 4),     // 4秒
+                event("b", 1, true, 0),     // 0秒 (1回目で正解)
+                event("c", 1, false, 0),
+                event("c", 1, true, 9),     // 9秒
+                event("a", 2, true, 10),    // 4秒に解いて10秒 → 6秒
+                event("b", 2, true, 8)));   // 0秒に解いて8秒 → 8秒
+
+        // 3. 検証
+        List<StageFunnel> funnel = aggregator.snapshot();
+        assertEquals(4, stage(funnel, 1).medianSecondsToSolve());
+        assertEquals(6, stage(funnel, 2).medianSecondsToSolve(), "2件なら下側の中央値");
+        // 全クリ (ステージ3) に着いた人数
+        assertEquals(2, stage(funnel, 3).playersReached());
+    }
+
+    @Test
+    @DisplayName("先に進んだ後の二重送信は、送信数だけ数えて解いた人数は増やさないこと")
+    void testDuplicateSubmission() {
+        // 1. 準備
+        FunnelAggregator aggregator = new FunnelAggregator(100);
+
+        // 2. 実行
+        aggregator.apply(List.of(
+                event("a", 1, true, 3),
+                event("a", 1, true, 4)));
+
+        // 3. 検証
+        StageFunnel first = stage(aggregator.snapshot(), 1);
+        assertEquals(1, first.playersReached());
+        assertEquals(2, first.attempts());
+        assertEquals(2, first.correctAttempts());
+        assertEquals(1, first.solvers());
+        assertEquals(1, stage(aggregator.snapshot(), 2).playersReached());
+    }
+
+    @Test
+    @DisplayName("上限を超えたら古いプレイヤーの現在地を忘れ、戻ってきたら到達し直しとして数えること")
+    void testMaxTrackedPlayers() {
+        // 1. 準備: 1人分しか覚えない
+        FunnelAggregator aggregator = new FunnelAggregator(1);
+
+        // 2. 実行
+        aggregator.apply(List.of(
+                event("a", 1, false, 0),
+                event("b", 1, false, 1),
+                event("a", 1, false, 2)));
+
+        // 3. 検証: a は忘れられてたので2回着いたことになる
+        assertEquals(3, stage(aggregator.snapshot(), 1).playersReached());
+    }
+
+    @Test
+    @DisplayName("中央値のバケットは16秒未満は1秒刻み、それ以上は誤差1/8以内であること")
+    void testHistogramBuckets() {
+        for (long seconds = 0; seconds < 1_000_000; seconds += seconds < 100 ? 1 : 997) {
+            long lower = SolveTimeHistogram.lowerBound(SolveTimeHistogram.indexOf(seconds));
+            assertTrue(lower <= seconds, "下限は値以下: " + seconds);
+            if (seconds < 16) {
+                assertEquals(seconds, lower);
+            } else {
+                assertTrue(seconds - lower <= seconds / 8, "誤差が大きすぎる: " + seconds + " -> " + lower);
+            }
+        }
+        assertDoesNotThrow(() -> SolveTimeHistogram.indexOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    @DisplayName("覚えておくプレイヤー数が0以下ならエラーになること")
+    void testInvalidMaxTrackedPlayers() {
+        assertThrows(IllegalArgumentException.class, () -> new FunnelAggregator(0));
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.projectenigma.cipher.analytics;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalManagementPort;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.example.projectenigma.cipher.util.CookieUtil;
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.JsonPath;
+
+import jakarta.servlet.http.Cookie;
+
+/**
+ * FunnelEndpointのテストクラス。
+ * 画面から解答して、管理ポートの /actuator/funnel に集計が出てくるところまで通しで確認します。
+ * アプリのポートには Actuator を出していないことも見ます。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureMockMvc
+class FunnelEndpointTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private FunnelAggregator aggregator;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @LocalServerPort
+    private int port;
+
+    @LocalManagementPort
+    private int managementPort;
+
+    @Test
+    @DisplayName("解答するとファネル集計に反映され、/actuator/funnel で読めること")
+    void testFunnel() throws Exception {
+        // 1. 準備: 仮プレイヤーのCookieをもらう
+        Cookie cookie = mockMvc.perform(get("/play")).andReturn().getResponse().getCookie(CookieUtil.COOKIE_NAME);
+        long before = aggregator.events();
+
+        // 2. 実行: 不正解を1回送る
+        mockMvc.perform(post("/play/answer").cookie(cookie)
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED).param("answer", "banana"))
+                .andExpect(status().is3xxRedirection());
+
+        // 3. 検証: 書き込みスレッドが集計に流すまで待つ
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (aggregator.events() == before && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(before + 1, aggregator.events());
+        ResponseEntity<String> funnel = restTemplate.getForEntity(
+                "http://localhost:" + managementPort + "/actuator/funnel", String.class);
+        assertEquals(HttpStatus.OK, funnel.getStatusCode());
+        DocumentContext json = JsonPath.parse(funnel.getBody());
+        assertTrue(json.read("$.events", Long.class) >= 1);
+        assertEquals(1, json.read("$.stages[0].stageId", Integer.class));
+        assertTrue(json.read("$.stages[0].attempts", Long.class) >= 1);
+        assertTrue(json.read("$.stages[0].playersReached", Long.class) >= 1);
+    }
+
+    @Test
+    @DisplayName("アプリのポートには /actuator を出さないこと")
+    void testActuatorNotOnAppPort() {
+        // 1. 実行
+        ResponseEntity<String> funnel = restTemplate.getForEntity(
+                "http://localhost:" + port + "/actuator/funnel", String.class);
+        ResponseEntity<String> prometheus = restTemplate.getForEntity(
+                "http://localhost:" + port + "/actuator/prometheus", String.class);
+
+        // 2. 検証
+        assertEquals(HttpStatus.NOT_FOUND, funnel.getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, prometheus.getStatusCode());
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.projectenigma.cipher.cache;
+
+import com.example.projectenigma.cipher.dto.Player;
+import com.example.projectenigma.cipher.entity.GameProgress;
+import com.example.projectenigma.cipher.entity.User;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * PlayerCacheの単体テスト。
+ * 時計を差し替えて、TTL・件数上限による追い出しとカウンタを検証する。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+class PlayerCacheTest {
+
+    /** テスト用の時計（ナノ秒） */
+    private final AtomicLong now = new AtomicLong();
+
+    private Player player(String id) {
+        User user = new User();
+        user.setId(id);
+        GameProgress progress = new GameProgress();
+        progress.setUserId(id);
+        progress.setCurrentStageId(1);
+        return new Player(user, progress);
+    }
+
+    @Test
+    @DisplayName("get: 登録済みならヒット、未登録ならミスとしてカウントされる")
+    void testGet_HitAndMiss() {
+        // 1. 準備
+        PlayerCache cache = new PlayerCache(10, Duration.ofMinutes(1), now::get);
+        Player alice = player("alice");
+        cache.put(alice);
+
+        // 2. 実行 & 検証
+        assertSame(alice, cache.get("alice").orElseThrow());
+        assertTrue(cache.get("bob").isEmpty());
+
+        PlayerCache.Stats stats = cache.stats();
+        assertEquals(1, stats.hits());
+        assertEquals(1, stats.misses());
+        assertEquals(1, stats.size());
+    }
+
+    @Test
+    @DisplayName("get: TTLを過ぎたエントリは追い出されてミスになる")
+    void testGet_Expired() {
+        // 1. 準備
+        PlayerCache cache = new PlayerCache(10, Duration.ofSeconds(30), now::get);
+        cache.put(player("alice"));
+
+        // 2. 実行: 30秒経過させる
+        now.addAndGet(Duration.ofSeconds(30).toNanos());
+
+        // 3. 検証
+        assertTrue(cache.get("alice").isEmpty());
+        assertEquals(1, cache.stats().evictions());
+        assertEquals(0, cache.stats().size());
+    }
+
+    @Test
+    @DisplayName("put: 件数上限を超えたら一番使われてないエントリから追い出す")
+    void testPut_SizeEviction() {
+        // 1. 準備
+        PlayerCache cache = new PlayerCache(2, Duration.ofMinutes(1), now::get);
+        cache.put(player("a"));
+        cache.put(player("b"));
+        cache.get("a"); // aを触ったので、一番古いのはb
+
+        // 2. 実行
+        cache.put(player("c"));
+
+        // 3. 検証
+        assertTrue(cache.get("a").isPresent());
+        assertTrue(cache.get("b").isEmpty());
+        assertTrue(cache.get("c").isPresent());
+        assertEquals(1, cache.stats().evictions());
+    }
+
+    @Test
+    @DisplayName("invalidate: 指定したエントリだけ削除される")
+    void testInvalidate() {
+        // 1. 準備
+        PlayerCache cache = new PlayerCache(10, Duration.ofMinutes(1), now::get);
+        cache.put(player("a"));
+        cache.put(player("b"));
+
+        // 2. 実行 (トランザクション外なので即削除のみ)
+        cache.invalidateAfterCommit("a");
+
+        // 3. 検証
+        assertTrue(cache.get("a").isEmpty());
+        assertTrue(cache.get("b").isPresent());
+    }
+
+    @Test
+    @DisplayName("put(スタンプ付き): スタンプを取った後に無効化されたキーは載せない")
+    void testPutWithStamp_InvalidatedWhileReading() {
+        // 1. 準備
+        PlayerCache cache = new PlayerCache(10, Duration.ofMinutes(1), now::get);
+        long stamp = cache.stamp();
+
+        // 2. 実行: 読んでる間に a だけ無効化された
+        cache.invalidate("a");
+        boolean putA = cache.put(player("a"), stamp);
+        boolean putB = cache.put(player("b"), stamp);
+
+        // 3. 検証
+        assertFalse(putA);
+        assertTrue(putB);
+        assertTrue(cache.get("a").isEmpty());
+        assertTrue(cache.get("b").isPresent());
+
+        // 無効化の後に読み直した分は載る
+        assertTrue(cache.put(player("a"), cache.stamp()));
+    }
+
+    @Test
+    @DisplayName("put(スタンプ付き): 無効化の記録が溢れて忘れた後は、古いスタンプでは載せない")
+    void testPutWithStamp_ForgottenTombstones() {
+        // 1. 準備: 件数上限2なので、無効化の記録も2件まで
+        PlayerCache cache = new PlayerCache(2, Duration.ofMinutes(1), now::get);
+        long stamp = cache.stamp();
+
+        // 2. 実行: x の記録が y, z に押し出される
+        cache.invalidate("x");
+        cache.invalidate("y");
+        cache.invalidate("z");
+
+        // 3. 検証: x が無効化されたかどうか分からんので載せない
+        assertFalse(cache.put(player("x"), stamp));
+        assertTrue(cache.put(player("x"), cache.stamp()));
+    }
+
+    @Test
+    @DisplayName("addElapsed: 追い出さずに経過時間を足した写しに差し替え、それより前に読んだ分は載せない")
+    void testAddElapsed() {
+        // 1. 準備
+        PlayerCache cache = new PlayerCache(10, Duration.ofMinutes(1), now::get);
+        Player cached = player("a");
+        cached.progress().setTotalElapsedSeconds(100L);
+        cache.put(cached);
+        long stamp = cache.stamp();
+        now.addAndGet(Duration.ofSeconds(30).toNanos());
+
+        // 2. 実行
+        cache.addElapsed("a", 15);
+        cache.addElapsed("missing", 15);
+
+        // 3. 検証: エントリは残ってて、足した分が見える
+        Player updated = cache.get("a").orElseThrow();
+        assertEquals(115L, updated.progress().getTotalElapsedSeconds());
+        assertEquals(1, updated.progress().getCurrentStageId());
+        // 読んでる人が持ってる進捗は書き換えない
+        assertEquals(100L, cached.progress().getTotalElapsedSeconds());
+        // 有効期限は延ばさない (最初に載せてから1分で切れる)
+        now.addAndGet(Duration.ofSeconds(30).toNanos());
+        assertTrue(cache.get("a").isEmpty());
+        // 加算より前に読み始めた行は古いので載せない
+        assertFalse(cache.put(player("missing"), stamp));
+        assertEquals(1, cache.stats().evictions());
+    }
+
+    @Test
+    @DisplayName("invalidateAll: 全部消えて、それより前に読んだ分も載らない")
+    void testInvalidateAll() {
+        // 1. 準備
+        PlayerCache cache = new PlayerCache(10, Duration.ofMinutes(1), now::get);
+        cache.put(player("a"));
+        long stamp = cache.stamp();
+
+        // 2. 実行
+        cache.invalidateAll();
+
+        // 3. 検証
+        assertTrue(cache.get("a").isEmpty());
+        assertFalse(cache.put(player("b"), stamp));
+        assertEquals(0, cache.stats().size());
+    }
+
+    @Test
+    @DisplayName("コンストラクタ: 件数上限が0以下なら例外")
+    void testConstructor_InvalidSize() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new PlayerCache(0, Duration.ofMinutes(1), now::get));
+    }
+}
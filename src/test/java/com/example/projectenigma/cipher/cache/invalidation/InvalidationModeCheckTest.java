@@ -0,0 +1,41 @@
+package com.example.projectenigma.cipher.cache.invalidation;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * InvalidationModeCheckの単体テスト。
+ * AOT でビルド時のバスに固まったまま、起動時に別の mode を指定された場合を真似する。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+class InvalidationModeCheckTest {
+
+    @Test
+    @DisplayName("check: バスと設定値が同じなら何もしない")
+    void testCheck_Match() {
+        // 1. 準備
+        InvalidationModeCheck check = new InvalidationModeCheck(new LocalInvalidationBus(), "local");
+
+        // 2. 実行 & 検証
+        assertDoesNotThrow(check::check);
+    }
+
+    @Test
+    @DisplayName("check: local でビルドしたのに jdbc で起動したら、起動を止める")
+    void testCheck_Mismatch() {
+        // 1. 準備
+        InvalidationModeCheck check = new InvalidationModeCheck(new LocalInvalidationBus(), "jdbc");
+
+        // 2. 実行
+        IllegalStateException e = assertThrows(IllegalStateException.class, check::check);
+
+        // 3. 検証: 直し方 (ビルドし直すときの指定) がメッセージに出ている
+        assertTrue(e.getMessage().contains("'jdbc'"));
+        assertTrue(e.getMessage().contains("-Dstartup.invalidation.mode=jdbc"));
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.projectenigma.cipher.cache.invalidation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JdbcPollingInvalidationBusを、H2上の cache_invalidations テーブル（Flyway で作成）で検証するテスト。
+ * 同じテーブルを見る2つのバスを、2台のインスタンスの代わりにする。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+@JdbcTest
+class JdbcPollingInvalidationBusTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /** テスト用の時計 */
+    private final MutableClock clock = new MutableClock(Instant.parse("2025-01-01T00:00:00Z"));
+
+    private JdbcPollingInvalidationBus instanceA;
+    private JdbcPollingInvalidationBus instanceB;
+    private final RecordingListener listenerA = new RecordingListener();
+    private final RecordingListener listenerB = new RecordingListener();
+
+    @BeforeEach
+    void setUp() {
+        instanceA = bus("instance-a", listenerA);
+        instanceB = bus("instance-b", listenerB);
+    }
+
+    private JdbcPollingInvalidationBus bus(String origin, InvalidationListener listener) {
+        JdbcPollingInvalidationBus bus = new JdbcPollingInvalidationBus(jdbcTemplate, origin, 2,
+                Duration.ofSeconds(30), Duration.ofMinutes(10), clock);
+        bus.subscribe(listener);
+        bus.start();
+        return bus;
+    }
+
+    private void insertRow(long id, String userId) {
+        jdbcTemplate.update("INSERT INTO cache_invalidations (id, user_id, origin, created_at) VALUES (?, ?, ?, ?)",
+                id, userId, "instance-c", Timestamp.valueOf(LocalDateTime.now(clock)));
+    }
+
+    @Test
+    @DisplayName("poll: 他のインスタンスが書いた無効化だけを受け取る")
+    void testPoll_OtherInstancesOnly() {
+        // 1. 準備: インスタンスAで3人分のステージが進んだ (1回に読むのは2件ずつ)
+        instanceA.publish("alice");
+        instanceA.publish("bob");
+        instanceA.publish("carol");
+
+        // 2. 実行
+        int deliveredB = instanceB.poll();
+        int deliveredA = instanceA.poll();
+
+        // 3. 検証: Bは全部受け取り、Aは自分の分なので読み飛ばす
+        assertEquals(3, deliveredB);
+        assertEquals(List.of("alice", "bob", "carol"), listenerB.invalidated);
+        assertEquals(0, deliveredA);
+        assertTrue(listenerA.invalidated.isEmpty());
+        assertEquals(3, instanceA.stats().published());
+        assertEquals(3, instanceB.stats().received());
+
+        // 2回目のポーリングでは同じものは届かない
+        assertEquals(0, instanceB.poll());
+    }
+
+    @Test
+    @DisplayName("poll: IDが飛んでたら、後からコミットされた行も拾う")
+    void testPoll_LateCommit() {
+        // 1. 準備: 先に振られた ID 1 のトランザクションより先に、ID 2 がコミットされた
+        jdbcTemplate.update("DELETE FROM cache_invalidations");
+        instanceB.start();
+        insertRow(2, "bob");
+        assertEquals(1, instanceB.poll());
+
+        // 2. 実行: ID 1 が遅れてコミットされた
+        insertRow(1, "alice");
+        int delivered = instanceB.poll();
+
+        // 3. 検証
+        assertEquals(1, delivered);
+        assertEquals(List.of("bob", "alice"), listenerB.invalidated);
+    }
+
+    @Test
+    @DisplayName("poll: gap-timeout を過ぎても来ないIDは諦める")
+    void testPoll_GapExpires() {
+        // 1. 準備: ID 1 は来ないまま (ロールバックされた)
+        jdbcTemplate.update("DELETE FROM cache_invalidations");
+        instanceB.start();
+        insertRow(2, "bob");
+        instanceB.poll();
+
+        // 2. 実行
+        clock.advance(Duration.ofSeconds(30));
+        instanceB.poll();
+
+        // 3. 検証
+        assertEquals(1, instanceB.gapsExpired());
+    }
+
+    @Test
+    @DisplayName("poll: retention より長く止まってたら、取りこぼしたかもしれないので全部捨てる")
+    void testPoll_Stalled() {
+        // 1. 準備
+        instanceB.poll();
+
+        // 2. 実行: 11分ぶりのポーリング
+        clock.advance(Duration.ofMinutes(11));
+        instanceB.poll();
+
+        // 3. 検証
+        assertEquals(1, listenerB.invalidatedAll);
+    }
+
+    @Test
+    @DisplayName("cleanup: retention を過ぎた行だけ消す")
+    void testCleanup() {
+        // 1. 準備
+        instanceA.publish("old");
+        clock.advance(Duration.ofMinutes(11));
+        instanceA.publish("new");
+
+        // 2. 実行
+        int deleted = instanceA.cleanup();
+
+        // 3. 検証
+        assertEquals(1, deleted);
+        assertEquals(List.of("new"),
+                jdbcTemplate.queryForList("SELECT user_id FROM cache_invalidations", String.class));
+    }
+
+    /** 受け取った無効化を記録するだけのリスナー */
+    private static class RecordingListener implements InvalidationListener {
+
+        private final List<String> invalidated = new ArrayList<>();
+        private int invalidatedAll;
+
+        @Override
+        public void invalidate(String userId) {
+            invalidated.add(userId);
+        }
+
+        @Override
+        public void invalidateAll() {
+            invalidatedAll++;
+        }
+    }
+
+    /** 進められる時計 */
+    private static class MutableClock extends Clock {
+
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.systemDefault();
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.projectenigma.cipher.cache.invalidation;
+
+import com.example.projectenigma.cipher.cache.PlayerCache;
+import com.example.projectenigma.cipher.dto.Player;
+import com.example.projectenigma.cipher.entity.GameProgress;
+import com.example.projectenigma.cipher.entity.User;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * LocalInvalidationBusの単体テスト。
+ * 1つのバスに2つのキャッシュを登録して、2台のインスタンスの代わりにする。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+class LocalInvalidationBusTest {
+
+    private Player player(String id, int stageId) {
+        User user = new User();
+        user.setId(id);
+        GameProgress progress = new GameProgress();
+        progress.setUserId(id);
+        progress.setCurrentStageId(stageId);
+        return new Player(user, progress);
+    }
+
+    @Test
+    @DisplayName("publish: 登録した全部のキャッシュから消える")
+    void testPublish_AllInstances() {
+        // 1. 準備: インスタンスA・Bの両方が同じプレイヤーをキャッシュしてる
+        LocalInvalidationBus bus = new LocalInvalidationBus();
+        PlayerCache instanceA = new PlayerCache(10, Duration.ofMinutes(5));
+        PlayerCache instanceB = new PlayerCache(10, Duration.ofMinutes(5));
+        bus.subscribe(instanceA);
+        bus.subscribe(instanceB);
+        instanceA.put(player("alice", 1));
+        instanceB.put(player("alice", 1));
+        instanceB.put(player("bob", 1));
+
+        // 2. 実行: Aでステージが進んだ
+        bus.publish("alice");
+
+        // 3. 検証
+        assertTrue(instanceA.get("alice").isEmpty());
+        assertTrue(instanceB.get("alice").isEmpty());
+        assertTrue(instanceB.get("bob").isPresent());
+        assertEquals(1, bus.stats().published());
+    }
+
+    @Test
+    @DisplayName("publish: トランザクション中ならコミットされるまで配らない")
+    void testPublish_AfterCommit() {
+        // 1. 準備
+        LocalInvalidationBus bus = new LocalInvalidationBus();
+        PlayerCache cache = new PlayerCache(10, Duration.ofMinutes(5));
+        bus.subscribe(cache);
+        cache.put(player("alice", 1));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // 2. 実行
+            bus.publish("alice");
+
+            // 3. 検証: まだ消えてない
+            assertTrue(cache.get("alice").isPresent());
+
+            // コミットしたら消える
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            assertTrue(cache.get("alice").isEmpty());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("読んでる間に他のインスタンスから無効化が届いたら、読んだ古い行はキャッシュに載らない")
+    void testStaleReadIsNotCached() {
+        // 1. 準備: インスタンスBが読み始める (まだステージ1の行が返ってくる)
+        LocalInvalidationBus bus = new LocalInvalidationBus();
+        PlayerCache instanceB = new PlayerCache(10, Duration.ofMinutes(5));
+        bus.subscribe(instanceB);
+        long stamp = instanceB.stamp();
+        Player staleRow = player("alice", 1);
+
+        // 2. 実行: 読み終わる前に、インスタンスAでステージ2に進んだ
+        bus.publish("alice");
+        boolean cached = instanceB.put(staleRow, stamp);
+
+        // 3. 検証
+        assertFalse(cached);
+        assertTrue(instanceB.get("alice").isEmpty());
+    }
+}
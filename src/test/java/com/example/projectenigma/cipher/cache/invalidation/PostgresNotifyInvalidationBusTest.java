@@ -0,0 +1,102 @@
+package com.example.projectenigma.cipher.cache.invalidation;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * PostgresNotifyInvalidationBusの単体テスト。
+ * PostgreSQL は立てずに、送る内容と受け取った通知の振り分けだけを検証する。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+@ExtendWith(MockitoExtension.class)
+class PostgresNotifyInvalidationBusTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private InvalidationListener listener;
+
+    /** pg_notify の結果は読み捨てるので、型だけ合わせた ResultSetExtractor のマッチャー */
+    private static ResultSetExtractor<Object> notifyExtractor() {
+        return ArgumentMatchers.<ResultSetExtractor<Object>>any();
+    }
+
+    private PostgresNotifyInvalidationBus bus(String channel) {
+        PostgresNotifyInvalidationBus bus = new PostgresNotifyInvalidationBus(jdbcTemplate, new DataSourceProperties(),
+                "instance-a", channel, Duration.ofSeconds(5));
+        bus.subscribe(listener);
+        return bus;
+    }
+
+    @Test
+    @DisplayName("publish: pg_notify に 送信元:ユーザーID を渡す")
+    void testPublish() {
+        // 1. 準備
+        PostgresNotifyInvalidationBus bus = bus("enigma_cache");
+
+        // 2. 実行
+        bus.publish("alice");
+
+        // 3. 検証
+        verify(jdbcTemplate).query(eq("SELECT pg_notify(?, ?)"), notifyExtractor(),
+                eq("enigma_cache"), eq("instance-a:alice"));
+        assertEquals(1, bus.stats().published());
+    }
+
+    @Test
+    @DisplayName("publish: 失敗しても例外は投げずに失敗数を数える")
+    void testPublish_Failure() {
+        // 1. 準備
+        PostgresNotifyInvalidationBus bus = bus("enigma_cache");
+        when(jdbcTemplate.query(anyString(), notifyExtractor(), any(), any()))
+                .thenThrow(new DataAccessResourceFailureException("connection refused"));
+
+        // 2. 実行
+        assertDoesNotThrow(() -> bus.publish("alice"));
+
+        // 3. 検証
+        assertEquals(0, bus.stats().published());
+        assertEquals(1, bus.stats().failures());
+    }
+
+    @Test
+    @DisplayName("dispatch: 他のインスタンスからの通知だけリスナーに配る")
+    void testDispatch() {
+        // 1. 準備
+        PostgresNotifyInvalidationBus bus = bus("enigma_cache");
+
+        // 2. 実行 & 検証
+        assertTrue(bus.dispatch("instance-b:alice"));
+        assertFalse(bus.dispatch("instance-a:bob"));
+        assertFalse(bus.dispatch("garbage"));
+
+        verify(listener).invalidate("alice");
+        verifyNoMoreInteractions(listener);
+        assertEquals(1, bus.stats().received());
+    }
+
+    @Test
+    @DisplayName("コンストラクタ: LISTEN に埋め込めないチャンネル名は例外")
+    void testConstructor_InvalidChannel() {
+        assertThrows(IllegalArgumentException.class, () -> bus("enigma; DROP TABLE users"));
+    }
+}
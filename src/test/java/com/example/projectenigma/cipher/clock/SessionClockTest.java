@@ -0,0 +1,265 @@
+package com.example.projectenigma.cipher.clock;
+
+import com.example.projectenigma.cipher.cache.PlayerCache;
+import com.example.projectenigma.cipher.leaderboard.Leaderboard;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * SessionClockの単体テスト。
+ * 時計を差し替えて、経過時間の積み上げとバッチでの書き出しを検証する。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+@ExtendWith(MockitoExtension.class)
+class SessionClockTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlayerCache playerCache;
+
+    @Mock
+    private Leaderboard leaderboard;
+
+    /** flush が書き出した行 ([秒, ユーザーID]) */
+    @Captor
+    private ArgumentCaptor<List<Object[]>> rowsCaptor;
+
+    /** テスト用の時計（ミリ秒） */
+    private final AtomicLong now = new AtomicLong(1_000_000);
+
+    private SessionClock sessionClock;
+
+    @BeforeEach
+    void setUp() {
+        sessionClock = new SessionClock(jdbcTemplate, TransactionOperations.withoutTransaction(), playerCache, leaderboard,
+                Duration.ofSeconds(90), Duration.ofMinutes(30), 500, 10, 3, now::get);
+    }
+
+    /** flush のバッチUPDATE (どの行でも) を指すスタブ用の呼び出し */
+    private int[][] flushBatch() {
+        return jdbcTemplate.batchUpdate(anyString(), ArgumentMatchers.<List<Object[]>>any(), anyInt(),
+                ArgumentMatchers.<ParameterizedPreparedStatementSetter<Object[]>>any());
+    }
+
+    private List<Object[]> captureFlushedRows() {
+        verify(jdbcTemplate).batchUpdate(anyString(), rowsCaptor.capture(), eq(500),
+                ArgumentMatchers.<ParameterizedPreparedStatementSetter<Object[]>>any());
+        return rowsCaptor.getValue();
+    }
+
+    @Test
+    @DisplayName("touch: 操作の間隔を積み上げ、秒単位でまとめて1回のバッチで書き出す")
+    void testTouchAndFlush() {
+        // 1. 準備: 2人が操作
+        sessionClock.touch("alice");
+        sessionClock.touch("bob");
+        now.addAndGet(30_500);
+        sessionClock.touch("alice");
+        sessionClock.touch("bob");
+        now.addAndGet(10_000);
+        sessionClock.touch("alice");
+
+        assertEquals(40, sessionClock.pendingSeconds("alice"));
+        when(flushBatch())
+                .thenReturn(new int[][]{{1, 1}});
+
+        // 2. 実行
+        int flushed = sessionClock.flush();
+
+        // 3. 検証: UPDATEは1回のバッチにまとまってる
+        assertEquals(2, flushed);
+        List<Object[]> rows = captureFlushedRows();
+        assertEquals(2, rows.size());
+        assertTrue(rows.stream().anyMatch(r -> r[1].equals("alice") && (Long) r[0] == 40));
+        assertTrue(rows.stream().anyMatch(r -> r[1].equals("bob") && (Long) r[0] == 30));
+        // 1秒未満の端数は持ち越し
+        assertEquals(0, sessionClock.pendingSeconds("alice"));
+        // キャッシュは捨てずに、書いた分だけ経過時間を足す
+        verify(playerCache).addElapsed("alice", 40);
+        verify(playerCache).addElapsed("bob", 30);
+        verify(playerCache, never()).invalidate(any());
+        // ランキングのタイムも書き出した分だけ進める
+        verify(leaderboard).addElapsed("alice", 40);
+        verify(leaderboard).addElapsed("bob", 30);
+    }
+
+    @Test
+    @DisplayName("touch: 間隔が max-gap を超えた分は数えない（放置中のタブ）")
+    void testTouch_MaxGap() {
+        sessionClock.touch("alice");
+        now.addAndGet(Duration.ofHours(2).toMillis());
+        sessionClock.touch("alice");
+
+        assertEquals(90, sessionClock.pendingSeconds("alice"));
+    }
+
+    @Test
+    @DisplayName("flush: 書き出すものがなければDBにアクセスしない")
+    void testFlush_Nothing() {
+        sessionClock.touch("alice");
+
+        assertEquals(0, sessionClock.flush());
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    @DisplayName("flush: DBエラーの場合は次回に持ち越す")
+    void testFlush_Failure() {
+        // 1. 準備
+        sessionClock.touch("alice");
+        now.addAndGet(5_000);
+        sessionClock.touch("alice");
+        when(flushBatch())
+                .thenThrow(new DataAccessResourceFailureException("down"));
+
+        // 2. 実行
+        assertEquals(0, sessionClock.flush());
+
+        // 3. 検証: 消えずに残ってる
+        assertEquals(5, sessionClock.pendingSeconds("alice"));
+        verify(playerCache, never()).addElapsed(any(), anyLong());
+    }
+
+    @Test
+    @DisplayName("startStage: 直前のステージに費やした時間を返し、計測を始め直す")
+    void testStartStage() {
+        sessionClock.touch("alice");
+        now.addAndGet(42_000);
+
+        assertEquals(42_000, sessionClock.startStage("alice"));
+        now.addAndGet(1_000);
+        assertEquals(1_000, sessionClock.startStage("alice"));
+    }
+
+    @Test
+    @DisplayName("touch: セッション数の上限を超えた新しいユーザーは計測しない")
+    void testMaxSessions() {
+        for (int i = 0; i < 10; i++) {
+            sessionClock.touch("user-" + i);
+        }
+        sessionClock.touch("overflow");
+        now.addAndGet(5_000);
+        sessionClock.touch("overflow");
+
+        assertEquals(0, sessionClock.pendingSeconds("overflow"));
+        assertEquals(-1, sessionClock.startStage("overflow"));
+    }
+
+    @Test
+    @DisplayName("flush: 本登録したけど行がまだ書けてない分は、書けるまで持ち越す")
+    void testFlush_ProvisionalCarriedOver() {
+        // 1. 準備: 行がないので更新件数0
+        sessionClock.touch("guest");
+        now.addAndGet(20_000);
+        sessionClock.touch("guest");
+        when(flushBatch())
+                .thenReturn(new int[][]{{0}});
+
+        // 2. 実行
+        assertEquals(0, sessionClock.flush());
+
+        // 3. 検証: 消えずに残ってて、キャッシュ・ランキングには触らない
+        assertEquals(20, sessionClock.pendingSeconds("guest"));
+        verify(playerCache, never()).addElapsed(any(), anyLong());
+        verifyNoInteractions(leaderboard);
+
+        // 本登録されて行ができたら、持ち越した分がまとめて書かれる
+        when(flushBatch())
+                .thenReturn(new int[][]{{1}});
+        assertEquals(1, sessionClock.flush());
+        verify(leaderboard).addElapsed("guest", 20);
+        assertEquals(0, sessionClock.pendingSeconds("guest"));
+    }
+
+    @Test
+    @DisplayName("flush: 本登録されないまま放置された仮プレイヤーのセッションは捨てる")
+    void testFlush_AbandonedProvisionalDropped() {
+        // 1. 準備: 少し遊んで放置
+        sessionClock.touch("guest");
+        now.addAndGet(20_000);
+        sessionClock.touch("guest");
+        now.addAndGet(Duration.ofMinutes(31).toMillis());
+        when(flushBatch())
+                .thenReturn(new int[][]{{0}});
+
+        // 2. 実行
+        sessionClock.flush();
+
+        // 3. 検証: 捨てられてるので、次の flush では何も書かない
+        assertEquals(0, sessionClock.pendingSeconds("guest"));
+        clearInvocations(jdbcTemplate);
+        assertEquals(0, sessionClock.flush());
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    @DisplayName("touchProvisional: 仮プレイヤーは別枠で測って書き出さず、本登録後の touch で引き継ぐ")
+    void testTouchProvisional_CarriedOnMaterialize() {
+        // 1. 準備: 仮プレイヤーのまま画面を見てる
+        sessionClock.touchProvisional("guest");
+        now.addAndGet(25_000);
+        sessionClock.touchProvisional("guest");
+        assertEquals(25, sessionClock.pendingSeconds("guest"));
+
+        // 2. 実行 & 検証: 行がないので書き出さない
+        assertEquals(0, sessionClock.flush());
+        verifyNoInteractions(jdbcTemplate);
+
+        // 本登録して最初の解答 (touch) で、本登録済みの枠に移って続きを測る
+        now.addAndGet(5_000);
+        sessionClock.touch("guest");
+        when(flushBatch())
+                .thenReturn(new int[][]{{1}});
+        assertEquals(1, sessionClock.flush());
+        assertTrue(captureFlushedRows().stream().anyMatch(r -> r[1].equals("guest") && (Long) r[0] == 30));
+    }
+
+    @Test
+    @DisplayName("touchProvisional: 仮プレイヤーがいくら来ても本登録済みの枠は埋まらず、古い仮プレイヤーから捨てる")
+    void testTouchProvisional_DoesNotFillSessions() {
+        // 1. 準備: Cookie なしのクローラーが上限 (本登録済み10・仮3) を超えて来る
+        sessionClock.touchProvisional("guest-first");
+        for (int i = 0; i < 100; i++) {
+            sessionClock.touchProvisional("crawler-" + i);
+        }
+
+        // 2. 実行: 本物のプレイヤーが解答する
+        sessionClock.touch("alice");
+        now.addAndGet(5_000);
+        sessionClock.touch("alice");
+        sessionClock.touchProvisional("crawler-99");
+
+        // 3. 検証: ちゃんと測れてて、一番古い仮プレイヤーは捨てられてる
+        assertEquals(5, sessionClock.pendingSeconds("alice"));
+        assertEquals(5, sessionClock.pendingSeconds("crawler-99"));
+        assertEquals(0, sessionClock.pendingSeconds("guest-first"));
+    }
+}
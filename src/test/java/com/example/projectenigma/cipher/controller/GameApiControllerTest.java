@@ -0,0 +1,281 @@
+package com.example.projectenigma.cipher.controller;
+
+import com.example.projectenigma.cipher.clock.SessionClock;
+import com.example.projectenigma.cipher.dto.AnswerOutcome;
+import com.example.projectenigma.cipher.dto.AnswerOutcome.Status;
+import com.example.projectenigma.cipher.dto.AnswerResult;
+import com.example.projectenigma.cipher.dto.PlayState;
+import com.example.projectenigma.cipher.dto.Player;
+import com.example.projectenigma.cipher.entity.GameProgress;
+import com.example.projectenigma.cipher.entity.User;
+import com.example.projectenigma.cipher.ratelimit.AnswerRateLimiter;
+import com.example.projectenigma.cipher.ratelimit.RateLimitedException;
+import com.example.projectenigma.cipher.security.PlayerToken;
+import com.example.projectenigma.cipher.service.AuthService;
+import com.example.projectenigma.cipher.service.GameService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * GameApiControllerの単体テストクラス。
+ * JSON API がリダイレクトせず、小さなJSONだけを返すことを検証する。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+@WebMvcTest(GameApiController.class)
+class GameApiControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    /** 認証サービスのモック */
+    @MockitoBean
+    private AuthService authService;
+
+    /** ゲームロジックサービスのモック */
+    @MockitoBean
+    private GameService gameService;
+
+    /** プレイ時間計測のモック */
+    @MockitoBean
+    private SessionClock sessionClock;
+
+    /** レート制限のモック (既定では何もしない = 通す) */
+    @MockitoBean
+    private AnswerRateLimiter answerRateLimiter;
+
+    private static Player player(String id, int stage) {
+        User user = new User();
+        user.setId(id);
+        GameProgress progress = new GameProgress();
+        progress.setUserId(id);
+        progress.setCurrentStageId(stage);
+        progress.setTotalElapsedSeconds(100L);
+        return new Player(user, progress);
+    }
+
+    /**
+     * GET /api/play/state のテスト。
+     */
+    @Test
+    @DisplayName("GET /api/play/state: 現在のプレイ状態をJSONで返す")
+    void testState() throws Exception {
+        // 1. 準備
+        when(authService.authOrCreatePlayer(any(), any())).thenReturn(player("test-user", 1));
+        when(gameService.stateOf("test-user", 1, 100L))
+                .thenReturn(new PlayState(1, "Q?", "hint", false, 120L));
+
+        // 2. 実行と検証
+        mockMvc.perform(get("/api/play/state"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.stageId").value(1))
+                .andExpect(jsonPath("$.riddle").value("Q?"))
+                .andExpect(jsonPath("$.cleared").value(false))
+                .andExpect(jsonPath("$.elapsedSeconds").value(120));
+    }
+
+    /**
+     * POST /api/play/answer の正常系（正解）テスト。
+     * 次のステージの状態が返り、トークンが発行し直されることを確認する。
+     */
+    @Test
+    @DisplayName("POST /api/play/answer: 正解の場合 - 次ステージの状態を返す")
+    void testAnswer_Correct() throws Exception {
+        // 1. 準備
+        when(authService.authOrCreatePlayer(any(), any())).thenReturn(player("test-user", 1));
+        when(authService.materialize(any(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(gameService.checkAnswer("test-user", 1, "apple")).thenReturn(new AnswerOutcome(Status.ADVANCED, 2));
+        when(gameService.stateOf("test-user", 2, 100L))
+                .thenReturn(new PlayState(2, null, null, true, 130L));
+
+        // 2. 実行と検証
+        mockMvc.perform(post("/api/play/answer")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"answer\":\"apple\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.correct").value(true))
+                .andExpect(jsonPath("$.message").value(AnswerResult.MESSAGE_CORRECT))
+                .andExpect(jsonPath("$.state.stageId").value(2))
+                .andExpect(jsonPath("$.state.cleared").value(true));
+
+        // ステージが進んだのでトークンを発行し直してるか
+        verify(authService).issueToken(any(), eq("test-user"), eq(2));
+        // 解答したので仮プレイヤーなら本登録されてるはず
+        verify(authService).materialize(any(), any());
+    }
+
+    /**
+     * POST /api/play/answer の準正常系（不正解）テスト。
+     */
+    @Test
+    @DisplayName("POST /api/play/answer: 不正解の場合 - 同じステージの状態を返す")
+    void testAnswer_Wrong() throws Exception {
+        // 1. 準備
+        when(authService.authOrCreatePlayer(any(), any())).thenReturn(player("test-user", 1));
+        when(authService.materialize(any(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(gameService.checkAnswer(eq("test-user"), eq(1), any())).thenReturn(new AnswerOutcome(Status.WRONG, 1));
+        when(gameService.stateOf("test-user", 1, 100L))
+                .thenReturn(new PlayState(1, "Q?", null, false, 110L));
+
+        // 2. 実行と検証
+        mockMvc.perform(post("/api/play/answer")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"answer\":\"banana\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.correct").value(false))
+                .andExpect(jsonPath("$.message").value(AnswerResult.MESSAGE_WRONG))
+                .andExpect(jsonPath("$.state.stageId").value(1));
+
+        verify(authService, never()).issueToken(any(), any(), anyInt());
+    }
+
+    /**
+     * POST /api/play/answer で、別タブなどで既に進んでいた場合のテスト。
+     * DBに入っているステージでトークンを発行し直し、そのステージの状態を返すことを確認する。
+     */
+    @Test
+    @DisplayName("POST /api/play/answer: 既に進んでいた場合 - DBのステージの状態を返す")
+    void testAnswer_AlreadyAdvanced() throws Exception {
+        // 1. 準備 (画面はステージ1のままやけど、DBはもうステージ3)
+        when(authService.authOrCreatePlayer(any(), any())).thenReturn(player("test-user", 1));
+        when(authService.materialize(any(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(gameService.checkAnswer("test-user", 1, "apple")).thenReturn(new AnswerOutcome(Status.ALREADY_ADVANCED, 3));
+        when(gameService.stateOf("test-user", 3, 100L))
+                .thenReturn(new PlayState(3, "Q3?", null, false, 130L));
+
+        // 2. 実行と検証
+        mockMvc.perform(post("/api/play/answer")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"answer\":\"apple\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.correct").value(true))
+                .andExpect(jsonPath("$.message").value(AnswerResult.MESSAGE_ALREADY_ADVANCED))
+                .andExpect(jsonPath("$.state.stageId").value(3));
+
+        verify(authService).issueToken(any(), eq("test-user"), eq(3));
+    }
+
+    /**
+     * POST /api/play/answer で、進捗の行がなくて進められなかった場合のテスト。
+     * 進んだことにはせず、トークンも発行し直さないことを確認する。
+     */
+    @Test
+    @DisplayName("POST /api/play/answer: 進捗を保存できなかった場合 - 同じステージのまま失敗を返す")
+    void testAnswer_NotSaved() throws Exception {
+        // 1. 準備
+        when(authService.authOrCreatePlayer(any(), any())).thenReturn(player("test-user", 1));
+        when(authService.materialize(any(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(gameService.checkAnswer("test-user", 1, "apple")).thenReturn(new AnswerOutcome(Status.NOT_SAVED, 1));
+        when(gameService.stateOf("test-user", 1, 100L))
+                .thenReturn(new PlayState(1, "Q?", null, false, 110L));
+
+        // 2. 実行と検証
+        mockMvc.perform(post("/api/play/answer")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"answer\":\"apple\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.correct").value(false))
+                .andExpect(jsonPath("$.message").value(AnswerResult.MESSAGE_NOT_SAVED))
+                .andExpect(jsonPath("$.state.stageId").value(1));
+
+        verify(authService, never()).issueToken(any(), any(), anyInt());
+    }
+
+    /**
+     * POST /api/play/heartbeat のテスト。
+     * 署名付きCookieのユーザーの経過時間を積み上げ、204を返すことを確認する。
+     */
+    @Test
+    @DisplayName("POST /api/play/heartbeat: 経過時間を積み上げて 204 を返す")
+    void testHeartbeat() throws Exception {
+        // 1. 準備
+        when(authService.resolveToken(any())).thenReturn(Optional.of(new PlayerToken("test-user", 2, Instant.now(), "k1")));
+
+        // 2. 実行と検証
+        mockMvc.perform(post("/api/play/heartbeat"))
+                .andExpect(status().isNoContent());
+
+        verify(sessionClock).touch("test-user");
+        verify(sessionClock, never()).touchProvisional(any());
+        // ユーザーの新規作成は絶対にしない
+        verify(authService, never()).authOrCreatePlayer(any(), any());
+    }
+
+    /**
+     * POST /api/play/heartbeat のテスト（仮プレイヤー）。
+     * 仮プレイヤーの枠で測ることを確認する。
+     */
+    @Test
+    @DisplayName("POST /api/play/heartbeat: 仮プレイヤーは仮プレイヤーの枠で測る")
+    void testHeartbeat_Provisional() throws Exception {
+        // 1. 準備
+        when(authService.resolveToken(any())).thenReturn(
+                Optional.of(new PlayerToken("guest", PlayerToken.PROVISIONAL_STAGE, Instant.now(), "k1")));
+
+        // 2. 実行と検証
+        mockMvc.perform(post("/api/play/heartbeat"))
+                .andExpect(status().isNoContent());
+
+        verify(sessionClock).touchProvisional("guest");
+        verify(sessionClock, never()).touch(any());
+    }
+
+    /**
+     * POST /api/play/heartbeat のテスト（Cookieなし・不正）。
+     * 何もせずに 204 を返すことを確認する。
+     */
+    @Test
+    @DisplayName("POST /api/play/heartbeat: Cookieが不正なら何もせず 204 を返す")
+    void testHeartbeat_NoCookie() throws Exception {
+        when(authService.resolveToken(any())).thenReturn(Optional.empty());
+
+        mockMvc.perform(post("/api/play/heartbeat"))
+                .andExpect(status().isNoContent());
+
+        verify(sessionClock, never()).touch(any());
+        verify(sessionClock, never()).touchProvisional(any());
+    }
+
+    /**
+     * POST /api/play/answer の送りすぎテスト。
+     * 本登録や判定に進まず、429 と Retry-After を返すことを確認する。
+     */
+    @Test
+    @DisplayName("POST /api/play/answer: 送りすぎの場合 - 判定せずに 429 を返す")
+    void testSubmitAnswer_RateLimited() throws Exception {
+        // 1. 準備
+        doThrow(new RateLimitedException("player", 3)).when(answerRateLimiter).check(any());
+
+        // 2. 実行と検証
+        mockMvc.perform(post("/api/play/answer").contentType(MediaType.APPLICATION_JSON).content("{\"answer\": \"apple\"}"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "3"))
+                .andExpect(jsonPath("$.retryAfterSeconds").value(3));
+
+        // DBにもゲームロジックにも触ってないはず
+        verifyNoInteractions(authService, gameService);
+    }
+}
@@ -1,10 +1,19 @@
 package com.example.projectenigma.cipher.controller;
 
+import com.example.projectenigma.cipher.clock.SessionClock;
+import com.example.projectenigma.cipher.dto.AnswerOutcome;
+import com.example.projectenigma.cipher.dto.AnswerOutcome.Status;
+import com.example.projectenigma.cipher.dto.AnswerResult;
+import com.example.projectenigma.cipher.dto.Player;
 import com.example.projectenigma.cipher.entity.GameProgress;
 import com.example.projectenigma.cipher.entity.User;
-import com.example.projectenigma.cipher.repository.GameProgressRepository;
+import com.example.projectenigma.cipher.ratelimit.AnswerRateLimiter;
+import com.example.projectenigma.cipher.ratelimit.RateLimitedException;
 import com.example.projectenigma.cipher.service.AuthService;
 import com.example.projectenigma.cipher.service.GameService;
+import com.example.projectenigma.cipher.stage.AnswerMatchers;
+import com.example.projectenigma.cipher.stage.Stage;
+import com.example.projectenigma.cipher.stage.StageRegistry;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,7 +24,13 @@ import org.springframework.test.web.servlet.MockMvc;
 import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 // import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
@@ -41,14 +56,31 @@ public class GameControllerTest {
     @MockitoBean
     private AuthService authService;
 
-    /** 進捗リポジトリのモック */
-    @MockitoBean
-    private GameProgressRepository gameProgressRepository;
-
     /** ゲームロジックサービスのモック */
     @MockitoBean
     private GameService gameService;
 
+    /** ステージ定義のモック */
+    @MockitoBean
+    private StageRegistry stageRegistry;
+
+    /** プレイ時間計測のモック */
+    @MockitoBean
+    private SessionClock sessionClock;
+
+    /** レート制限のモック (既定では何もしない = 通す) */
+    @MockitoBean
+    private AnswerRateLimiter answerRateLimiter;
+
+    private static Player player(String id, int stage) {
+        User user = new User();
+        user.setId(id);
+        GameProgress progress = new GameProgress();
+        progress.setUserId(id);
+        progress.setCurrentStageId(stage);
+        return new Player(user, progress);
+    }
+
     /**
      * GET /play の正常系テスト。
      * ユーザーと進捗が存在する場合、ゲーム画面が正しく表示され、
@@ -63,9 +95,14 @@ public class GameControllerTest {
         GameProgress mockProgress = new GameProgress();
         mockProgress.setUserId("test-user");
         mockProgress.setCurrentStageId(1);
+        mockProgress.setTotalElapsedSeconds(100L);
+
+        Stage stage = new Stage(1, "Test riddle?", "test hint", AnswerMatchers.exact("apple"));
 
-        when(authService.authOrCreateUser(any(), any())).thenReturn(mockUser);
-        when(gameProgressRepository.findById("test-user")).thenReturn(Optional.of(mockProgress));
+        when(authService.authOrCreatePlayer(any(), any())).thenReturn(new Player(mockUser, mockProgress));
+        when(stageRegistry.find(1)).thenReturn(Optional.of(stage));
+        // まだDBに反映してない時間が20秒ある
+        when(sessionClock.pendingSeconds("test-user")).thenReturn(20L);
 
         // 2. 実行と検証 (When & Then)
         mockMvc.perform(get("/play"))
@@ -74,7 +111,12 @@ public class GameControllerTest {
                 .andExpect(model().attributeExists("user"))
                 .andExpect(model().attributeExists("progress"))
                 // フォーム入力用の空オブジェクトが渡されているか重要チェック
-                .andExpect(model().attributeExists("answerForm"));
+                .andExpect(model().attributeExists("answerForm"))
+                // 問題文はステージ定義から描画される
+                .andExpect(model().attribute("stage", stage))
+                // 経過時間は DB分 + メモリ上の分
+                .andExpect(model().attribute("elapsedSeconds", 120L))
+                .andExpect(content().string(containsString("Q. Test riddle?")));
     }
 
     /**
@@ -86,12 +128,10 @@ public class GameControllerTest {
     @DisplayName("POST /play/answer: 正解の場合 - メッセージ付きでリダイレクトされる")
     void testSubmitAnswer_Correct() throws Exception {
         // 1. 準備 (Given)
-        User mockUser = new User();
-        mockUser.setId("test-user");
-
-        when(authService.authOrCreateUser(any(), any())).thenReturn(mockUser);
-        // 正解(true)を返すように仕込む
-        when(gameService.checkAnswer(eq("test-user"), eq("apple"))).thenReturn(true);
+        when(authService.authOrCreatePlayer(any(), any())).thenReturn(player("test-user", 1));
+        when(authService.materialize(any(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+        // 正解でステージ2に進んだことにする
+        when(gameService.checkAnswer(eq("test-user"), eq(1), eq("apple"))).thenReturn(new AnswerOutcome(Status.ADVANCED, 2));
 
         // 2. 実行と検証 (When & Then)
         mockMvc.perform(post("/play/answer")
@@ -101,6 +141,11 @@ public class GameControllerTest {
                 .andExpect(status().is3xxRedirection())
                 .andExpect(redirectedUrl("/play"))
                 .andExpect(flash().attribute("alertClass", "success"));
+
+        // ステージが進んだのでトークンを発行し直してるか
+        verify(authService).issueToken(any(), eq("test-user"), eq(2));
+        // 解答したので仮プレイヤーなら本登録されてるはず
+        verify(authService).materialize(any(), any());
     }
 
     /**
@@ -112,12 +157,10 @@ public class GameControllerTest {
     @DisplayName("POST /play/answer: 不正解の場合 - エラーメッセージ付きでリダイレクトされる")
     void testSubmitAnswer_Wrong() throws Exception {
         // 1. 準備 (Given)
-        User mockUser = new User();
-        mockUser.setId("test-user");
-
-        when(authService.authOrCreateUser(any(), any())).thenReturn(mockUser);
-        // 不正解(false)を返すように仕込む
-        when(gameService.checkAnswer(eq("test-user"), any())).thenReturn(false);
+        when(authService.authOrCreatePlayer(any(), any())).thenReturn(player("test-user", 1));
+        when(authService.materialize(any(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+        // 不正解を返すように仕込む
+        when(gameService.checkAnswer(eq("test-user"), eq(1), any())).thenReturn(new AnswerOutcome(Status.WRONG, 1));
 
         // 2. 実行と検証 (When & Then)
         mockMvc.perform(post("/play/answer")
@@ -127,5 +170,70 @@ public class GameControllerTest {
                 .andExpect(status().is3xxRedirection())
                 .andExpect(redirectedUrl("/play"))
                 .andExpect(flash().attribute("alertClass", "error"));
+
+        verify(authService, never()).issueToken(any(), any(), anyInt());
+    }
+
+    /**
+     * POST /play/answer で、進捗の行がなくて進められなかった場合のテスト。
+     * 「次のステージへ」とは言わず、トークンも発行し直さないことを確認する。
+     */
+    @Test
+    @DisplayName("POST /play/answer: 進捗を保存できなかった場合 - 進んだことにせずエラーメッセージを出す")
+    void testSubmitAnswer_NotSaved() throws Exception {
+        // 1. 準備
+        when(authService.authOrCreatePlayer(any(), any())).thenReturn(player("test-user", 1));
+        when(authService.materialize(any(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(gameService.checkAnswer(eq("test-user"), eq(1), eq("apple"))).thenReturn(new AnswerOutcome(Status.NOT_SAVED, 1));
+
+        // 2. 実行と検証
+        mockMvc.perform(post("/play/answer").param("answer", "apple"))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/play"))
+                .andExpect(flash().attribute("message", AnswerResult.MESSAGE_NOT_SAVED))
+                .andExpect(flash().attribute("alertClass", "error"));
+
+        verify(authService, never()).issueToken(any(), any(), anyInt());
+    }
+
+    /**
+     * POST /play/answer で、別タブなどで既に進んでいた場合のテスト。
+     * DBに入っているステージでトークンを発行し直すことを確認する。
+     */
+    @Test
+    @DisplayName("POST /play/answer: 既に進んでいた場合 - DBのステージでトークンを発行し直す")
+    void testSubmitAnswer_AlreadyAdvanced() throws Exception {
+        // 1. 準備 (DBはもうステージ3)
+        when(authService.authOrCreatePlayer(any(), any())).thenReturn(player("test-user", 1));
+        when(authService.materialize(any(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(gameService.checkAnswer(eq("test-user"), eq(1), eq("apple"))).thenReturn(new AnswerOutcome(Status.ALREADY_ADVANCED, 3));
+
+        // 2. 実行と検証
+        mockMvc.perform(post("/play/answer").param("answer", "apple"))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(flash().attribute("message", AnswerResult.MESSAGE_ALREADY_ADVANCED))
+                .andExpect(flash().attribute("alertClass", "success"));
+
+        verify(authService).issueToken(any(), eq("test-user"), eq(3));
+    }
+
+    /**
+     * POST /play/answer の送りすぎテスト。
+     * 本登録や判定に進まず、429 と Retry-After を返すことを確認する。
+     */
+    @Test
+    @DisplayName("POST /play/answer: 送りすぎの場合 - 判定せずに 429 を返す")
+    void testSubmitAnswer_RateLimited() throws Exception {
+        // 1. 準備
+        doThrow(new RateLimitedException("player", 3)).when(answerRateLimiter).check(any());
+
+        // 2. 実行と検証
+        mockMvc.perform(post("/play/answer").param("answer", "apple"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "3"))
+                .andExpect(jsonPath("$.retryAfterSeconds").value(3));
+
+        // DBにもゲームロジックにも触ってないはず
+        verifyNoInteractions(authService, gameService);
     }
-}
\ No newline at end of file
+}
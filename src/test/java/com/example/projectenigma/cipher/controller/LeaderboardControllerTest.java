@@ -0,0 +1,96 @@
+package com.example.projectenigma.cipher.controller;
+
+import com.example.projectenigma.cipher.leaderboard.Leaderboard;
+import com.example.projectenigma.cipher.leaderboard.Standing;
+import com.example.projectenigma.cipher.ratelimit.AnswerRateLimiter;
+import com.example.projectenigma.cipher.service.AuthService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * LeaderboardControllerの単体テストクラス。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+@WebMvcTest(LeaderboardController.class)
+class LeaderboardControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    /** ランキングのモック */
+    @MockitoBean
+    private Leaderboard leaderboard;
+
+    /** 認証サービスのモック */
+    @MockitoBean
+    private AuthService authService;
+
+    /** PlayerWebConfig (解答のレート制限) が使うので置いとくだけ */
+    @MockitoBean
+    private AnswerRateLimiter answerRateLimiter;
+
+    /**
+     * GET /api/leaderboard のテスト。
+     * 上位N件と自分の順位が返り、ユーザーIDは先頭8文字だけになっていることを確認する。
+     */
+    @Test
+    @DisplayName("GET /api/leaderboard: 上位N件と自分の順位を返す")
+    void testLeaderboard() throws Exception {
+        // 1. 準備
+        when(leaderboard.top(2)).thenReturn(List.of(
+                new Standing("aaaaaaaa-1111-2222", 3, 100),
+                new Standing("bbbbbbbb-1111-2222", 2, 50)));
+        when(leaderboard.size()).thenReturn(42);
+        when(authService.resolveUserId(any())).thenReturn(Optional.of("cccccccc-1111-2222"));
+        when(leaderboard.standingOf("cccccccc-1111-2222"))
+                .thenReturn(Optional.of(new Standing("cccccccc-1111-2222", 1, 10)));
+        when(leaderboard.rankOf("cccccccc-1111-2222")).thenReturn(17);
+
+        // 2. 実行と検証
+        mockMvc.perform(get("/api/leaderboard").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(42))
+                .andExpect(jsonPath("$.top[0].rank").value(1))
+                .andExpect(jsonPath("$.top[0].player").value("aaaaaaaa"))
+                .andExpect(jsonPath("$.top[1].rank").value(2))
+                .andExpect(jsonPath("$.top[1].stageId").value(2))
+                .andExpect(jsonPath("$.me.rank").value(17))
+                .andExpect(jsonPath("$.me.player").value("cccccccc"));
+
+        // ユーザーの新規作成はしない
+        verify(authService, never()).authOrCreatePlayer(any(), any());
+    }
+
+    /**
+     * Cookieなし・件数指定が大きすぎる場合のテスト。
+     */
+    @Test
+    @DisplayName("GET /api/leaderboard: Cookieなしなら me は null、件数は100件まで")
+    void testLeaderboard_Anonymous() throws Exception {
+        when(leaderboard.top(100)).thenReturn(List.of());
+        when(authService.resolveUserId(any())).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/leaderboard").param("limit", "100000"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.me").doesNotExist());
+
+        verify(leaderboard).top(100);
+    }
+}
@@ -1,8 +1,9 @@
 package com.example.projectenigma.cipher.controller;
 
+import com.example.projectenigma.cipher.dto.Player;
 import com.example.projectenigma.cipher.entity.GameProgress;
 import com.example.projectenigma.cipher.entity.User;
-import com.example.projectenigma.cipher.repository.GameProgressRepository;
+import com.example.projectenigma.cipher.ratelimit.AnswerRateLimiter;
 import com.example.projectenigma.cipher.service.AuthService;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -11,8 +12,6 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
-import java.util.Optional;
-
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
@@ -35,8 +34,9 @@ public class RootControllerTest {
     @MockitoBean
     private AuthService authService;
 
+    /** PlayerWebConfig (解答のレート制限) が使うので置いとくだけ */
     @MockitoBean
-    private GameProgressRepository gameProgressRepository;
+    private AnswerRateLimiter answerRateLimiter;
 
     /**
      * トップページ（/）への正常アクセスをテストする。
@@ -61,8 +61,7 @@ public class RootControllerTest {
         mockProgress.setCurrentStageId(1);
 
         // モックの挙動定義
-        when(authService.authOrCreateUser(any(), any())).thenReturn(mockUser);
-        when(gameProgressRepository.findById("root-test-user")).thenReturn(Optional.of(mockProgress));
+        when(authService.authOrCreatePlayer(any(), any())).thenReturn(new Player(mockUser, mockProgress));
 
         // 2. 実行と検証 (When & Then)
         mockMvc.perform(get("/"))
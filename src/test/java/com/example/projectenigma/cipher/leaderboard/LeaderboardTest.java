@@ -0,0 +1,203 @@
+package com.example.projectenigma.cipher.leaderboard;
+
+import com.example.projectenigma.cipher.cache.invalidation.LocalInvalidationBus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.ResultSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Leaderboardの単体テスト。
+ * 順位付けのルール（ステージ降順 → タイム昇順）と、差分更新が正しく反映されるかを確認する。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+@ExtendWith(MockitoExtension.class)
+class LeaderboardTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private Leaderboard leaderboard;
+
+    @BeforeEach
+    void setUp() {
+        leaderboard = new Leaderboard(jdbcTemplate);
+    }
+
+    private static List<String> userIds(List<Standing> standings) {
+        return standings.stream().map(Standing::userId).toList();
+    }
+
+    @Test
+    @DisplayName("rebuild: game_progress の全件から1回で組み立てる")
+    void testRebuild() throws Exception {
+        // 1. 準備: 3行返すResultSet
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getString(1)).thenReturn("alice", "bob", "carol");
+        when(rs.getInt(2)).thenReturn(2, 3, 2);
+        when(rs.getLong(3)).thenReturn(100L, 500L, 50L);
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (int i = 0; i < 3; i++) {
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class));
+
+        // 2. 実行
+        leaderboard.rebuild();
+
+        // 3. 検証: ステージが進んでる順 → 同じステージならタイムが短い順
+        assertEquals(3, leaderboard.size());
+        assertEquals(List.of("bob", "carol", "alice"), userIds(leaderboard.top(10)));
+        assertEquals(3, leaderboard.rankOf("alice"));
+        verify(jdbcTemplate, times(1)).query(anyString(), any(RowCallbackHandler.class));
+    }
+
+    @Test
+    @DisplayName("join/advance/addElapsed: 該当プレイヤーだけ付け替えて順位が変わる")
+    void testIncrementalUpdates() {
+        // 1. 準備
+        leaderboard.join("alice");
+        leaderboard.join("bob");
+        leaderboard.addElapsed("alice", 30);
+        leaderboard.addElapsed("bob", 10);
+        assertEquals(List.of("bob", "alice"), userIds(leaderboard.top(10)));
+
+        // 2. 実行: alice だけステージ2へ
+        leaderboard.advance("alice", 2);
+
+        // 3. 検証
+        assertEquals(1, leaderboard.rankOf("alice"));
+        assertEquals(2, leaderboard.rankOf("bob"));
+        assertEquals(new Standing("alice", 2, 30), leaderboard.standingOf("alice").orElseThrow());
+        assertEquals(2, leaderboard.size(), "付け替えなので件数は増えない");
+    }
+
+    @Test
+    @DisplayName("advance: 古いステージへの更新（二重送信の遅れ）では戻らない")
+    void testAdvance_NoRegression() {
+        leaderboard.advance("alice", 3);
+        leaderboard.advance("alice", 2);
+
+        assertEquals(3, leaderboard.standingOf("alice").orElseThrow().stageId());
+    }
+
+    @Test
+    @DisplayName("addElapsed/remove: 未登録のプレイヤーは無視、remove で外れる")
+    void testAddElapsedUnknownAndRemove() {
+        leaderboard.addElapsed("ghost", 10);
+        assertEquals(0, leaderboard.size());
+
+        leaderboard.join("alice");
+        leaderboard.remove("alice");
+        assertEquals(0, leaderboard.rankOf("alice"));
+        assertTrue(leaderboard.standingOf("alice").isEmpty());
+    }
+
+    @Test
+    @DisplayName("advance: トランザクション中はコミットされるまで反映しない")
+    void testAdvance_AfterCommit() {
+        leaderboard.join("alice");
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // 1. 実行
+            leaderboard.advance("alice", 2);
+
+            // 2. 検証: まだ反映されてない
+            assertEquals(1, leaderboard.standingOf("alice").orElseThrow().stageId());
+
+            // コミット
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            assertEquals(2, leaderboard.standingOf("alice").orElseThrow().stageId());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("invalidate: 同じバスに載せた2台とも、DBの1行を読み直して付け替える")
+    void testInvalidate_TwoInstances() {
+        // 1. 準備: インスタンスA・Bのランキングを1つのバスに載せる (DBは共有)
+        Leaderboard instanceB = new Leaderboard(jdbcTemplate);
+        LocalInvalidationBus bus = new LocalInvalidationBus(List.of(leaderboard, instanceB));
+        leaderboard.join("alice");
+        instanceB.join("alice");
+        instanceB.join("bob");
+        when(jdbcTemplate.query(anyString(), ArgumentMatchers.<RowMapper<Standing>>any(), eq("alice")))
+                .thenReturn(List.of(new Standing("alice", 2, 40)));
+
+        // 2. 実行: Aで alice が正解して、経過時間も書き込まれた
+        leaderboard.advance("alice", 2);
+        bus.publish("alice");
+
+        // 3. 検証: B もDBの値に揃う。bob はそのまま
+        assertEquals(new Standing("alice", 2, 40), instanceB.standingOf("alice").orElseThrow());
+        assertEquals(new Standing("alice", 2, 40), leaderboard.standingOf("alice").orElseThrow());
+        assertEquals(1, instanceB.rankOf("alice"));
+        assertEquals(new Standing("bob", 1, 0), instanceB.standingOf("bob").orElseThrow());
+    }
+
+    @Test
+    @DisplayName("invalidate: 行がなくなってたら (削除ジョブで消された) ランキングから外す")
+    void testInvalidate_Deleted() {
+        // 1. 準備
+        leaderboard.join("alice");
+        when(jdbcTemplate.query(anyString(), ArgumentMatchers.<RowMapper<Standing>>any(), eq("alice"))).thenReturn(List.of());
+
+        // 2. 実行
+        leaderboard.invalidate("alice");
+
+        // 3. 検証
+        assertTrue(leaderboard.standingOf("alice").isEmpty());
+        assertEquals(0, leaderboard.size());
+    }
+
+    @Test
+    @DisplayName("invalidateAll/resync: 全件を組み立て直す。resync は local なら何もしない")
+    void testInvalidateAllAndResync() {
+        // 1. 準備: 取りこぼしてる間に、よそで bob が登録されてた
+        leaderboard.join("alice");
+        Leaderboard shared = new Leaderboard(jdbcTemplate, "jdbc");
+        doAnswer(invocation -> {
+            ResultSet rs = mock(ResultSet.class);
+            when(rs.getString(1)).thenReturn("bob");
+            when(rs.getInt(2)).thenReturn(1);
+            when(rs.getLong(3)).thenReturn(25L);
+            invocation.<RowCallbackHandler>getArgument(1).processRow(rs);
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class));
+
+        // 2. 実行 & 検証: local の resync は読まない
+        leaderboard.resync();
+        verify(jdbcTemplate, never()).query(anyString(), any(RowCallbackHandler.class));
+
+        // 3. 実行 & 検証: 取りこぼしの通知 → DBの中身だけになる
+        leaderboard.invalidateAll();
+        assertEquals(List.of("bob"), userIds(leaderboard.top(10)));
+
+        // 4. 実行 & 検証: local 以外は resync で組み立て直す
+        shared.resync();
+        assertEquals(new Standing("bob", 1, 25), shared.standingOf("bob").orElseThrow());
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.projectenigma.cipher.leaderboard;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * RankedSkipListの単体テスト。
+ * TreeSet と同じ操作をして、順位・範囲取得の結果が一致するかを確認する。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+class RankedSkipListTest {
+
+    @Test
+    @DisplayName("insert/rankOf/range: 小さい順に順位が付く")
+    void testBasic() {
+        RankedSkipList<Integer> list = new RankedSkipList<>(Comparator.naturalOrder());
+        for (int v : new int[]{50, 10, 40, 20, 30}) {
+            list.insert(v);
+        }
+
+        assertEquals(5, list.size());
+        assertEquals(1, list.rankOf(10));
+        assertEquals(3, list.rankOf(30));
+        assertEquals(5, list.rankOf(50));
+        assertEquals(0, list.rankOf(35), "いない要素は0");
+        assertEquals(List.of(10, 20, 30), list.range(1, 3));
+        assertEquals(List.of(40, 50), list.range(4, 10));
+        assertTrue(list.range(6, 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("remove: 削除すると後ろの順位が繰り上がる")
+    void testRemove() {
+        RankedSkipList<Integer> list = new RankedSkipList<>(Comparator.naturalOrder());
+        for (int v = 1; v <= 5; v++) {
+            list.insert(v);
+        }
+
+        assertTrue(list.remove(2));
+        assertFalse(list.remove(2), "2回目は消すものがない");
+
+        assertEquals(4, list.size());
+        assertEquals(2, list.rankOf(3));
+        assertEquals(List.of(1, 3, 4, 5), list.range(1, 10));
+    }
+
+    @Test
+    @DisplayName("ランダムな追加・削除を繰り返しても TreeSet と同じ順位になる")
+    void testRandomAgainstTreeSet() {
+        // 1. 準備
+        RankedSkipList<Integer> list = new RankedSkipList<>(Comparator.naturalOrder());
+        TreeSet<Integer> expected = new TreeSet<>();
+        Random random = new Random(42);
+
+        // 2. 実行
+        for (int i = 0; i < 20_000; i++) {
+            int v = random.nextInt(5_000);
+            if (expected.contains(v)) {
+                assertTrue(list.remove(v));
+                expected.remove(v);
+            } else {
+                list.insert(v);
+                expected.add(v);
+            }
+        }
+
+        // 3. 検証
+        assertEquals(expected.size(), list.size());
+        List<Integer> sorted = new ArrayList<>(expected);
+        assertEquals(sorted, list.range(1, Integer.MAX_VALUE));
+        for (int i = 0; i < sorted.size(); i += 37) {
+            assertEquals(i + 1, list.rankOf(sorted.get(i)));
+            assertEquals(sorted.get(i), list.range(i + 1, 1).get(0));
+        }
+    }
+}
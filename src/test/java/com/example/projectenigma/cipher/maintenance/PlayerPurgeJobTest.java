@@ -0,0 +1,166 @@
+package com.example.projectenigma.cipher.maintenance;
+
+import com.example.projectenigma.cipher.cache.PlayerCache;
+import com.example.projectenigma.cipher.cache.invalidation.InvalidationBus;
+import com.example.projectenigma.cipher.dto.Player;
+import com.example.projectenigma.cipher.entity.GameProgress;
+import com.example.projectenigma.cipher.entity.User;
+import com.example.projectenigma.cipher.leaderboard.Leaderboard;
+import com.example.projectenigma.cipher.repository.GameProgressRepository;
+import com.example.projectenigma.cipher.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.Period;
+import java.time.ZoneId;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * PlayerPurgeJobの結合テスト。H2 上で実際に行を消して確認する。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+@DataJpaTest
+class PlayerPurgeJobTest {
+
+    /** テストの「今」 */
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 6, 1, 12, 0);
+
+    @Autowired
+    private GameProgressRepository gameProgressRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private final PlayerCache playerCache = new PlayerCache(100, Duration.ofMinutes(5));
+    private final Leaderboard leaderboard = mock(Leaderboard.class);
+    private final InvalidationBus invalidationBus = mock(InvalidationBus.class);
+
+    private PlayerPurgeJob job;
+
+    @BeforeEach
+    void setUp() {
+        // テスト自体がトランザクションの中なので、チャンクごとのトランザクションはそれに乗る
+        Clock clock = Clock.fixed(NOW.atZone(ZoneId.systemDefault()).toInstant(), ZoneId.systemDefault());
+        job = new PlayerPurgeJob(gameProgressRepository, userRepository, TransactionOperations.withoutTransaction(),
+                playerCache, leaderboard, invalidationBus, Period.ofDays(30), 2, Duration.ZERO, clock);
+    }
+
+    private void persistUser(String id, LocalDateTime createdAt) {
+        User user = new User();
+        user.setId(id);
+        user.setCreatedAt(createdAt);
+        entityManager.persist(user);
+    }
+
+    private void persistPlayer(String id, LocalDateTime lastUpdated) {
+        persistUser(id, lastUpdated);
+        GameProgress progress = new GameProgress();
+        progress.setUserId(id);
+        progress.setCurrentStageId(1);
+        progress.setTotalElapsedSeconds(0L);
+        progress.setLastUpdated(lastUpdated);
+        entityManager.persist(progress);
+    }
+
+    @Test
+    @DisplayName("purge: 期限切れのプレイヤーだけをチャンクに分けて消し、最近のプレイヤーは残す")
+    void testPurge() {
+        // 1. 準備: 期限切れ5人 (チャンク2件なので3回に分かれる) + 最近の1人 + 進捗のない古いユーザー1人
+        for (int i = 0; i < 5; i++) {
+            persistPlayer("stale-" + i, NOW.minusDays(40 + i));
+        }
+        persistPlayer("active", NOW.minusDays(1));
+        persistUser("orphan", NOW.minusDays(90));
+        entityManager.flush();
+        entityManager.clear();
+
+        // 2. 実行
+        PlayerPurgeJob.RunResult result = job.purge();
+
+        // 3. 検証
+        assertEquals(5, result.progressPurged());
+        assertEquals(1, result.orphansPurged());
+        assertEquals(NOW.minusDays(30), result.before());
+        assertEquals(1, gameProgressRepository.count());
+        assertEquals(1, userRepository.count());
+        assertTrue(userRepository.existsById("active"));
+
+        // ランキングからも外して、よそのインスタンスにも配ってる
+        verify(leaderboard).remove("stale-0");
+        verify(leaderboard).remove("stale-4");
+        verify(invalidationBus).publish("stale-0");
+        verify(invalidationBus).publish("stale-4");
+
+        PlayerPurgeJob.Stats stats = job.stats();
+        assertEquals(1, stats.runs());
+        assertEquals(5, stats.progressPurged());
+        assertEquals(6, stats.usersPurged());
+        assertSame(result, stats.lastRun());
+    }
+
+    @Test
+    @DisplayName("purge: 選んでから消すまでに戻ってきたプレイヤーは消さず、ランキングにも残す")
+    void testPurge_ReturnedWhileSelected() {
+        // 1. 準備: 2人とも期限切れ。選んだ直後 (消す前) に returning だけ遊び始める
+        persistPlayer("returning", NOW.minusDays(50));
+        persistPlayer("gone", NOW.minusDays(40));
+        entityManager.flush();
+        entityManager.clear();
+        playerCache.put(new Player(
+                userRepository.findById("returning").orElseThrow(),
+                gameProgressRepository.findById("returning").orElseThrow()));
+        TransactionOperations returnsBeforeDelete = new TransactionOperations() {
+            @Override
+            public <T> T execute(TransactionCallback<T> action) {
+                gameProgressRepository.advanceStage("returning", 1, NOW);
+                return action.doInTransaction(null);
+            }
+        };
+        job = new PlayerPurgeJob(gameProgressRepository, userRepository, returnsBeforeDelete,
+                playerCache, leaderboard, invalidationBus, Period.ofDays(30), 2, Duration.ZERO,
+                Clock.fixed(NOW.atZone(ZoneId.systemDefault()).toInstant(), ZoneId.systemDefault()));
+
+        // 2. 実行
+        PlayerPurgeJob.RunResult result = job.purge();
+
+        // 3. 検証: 消したのは gone だけ
+        assertEquals(1, result.progressPurged());
+        assertTrue(gameProgressRepository.existsById("returning"));
+        verify(leaderboard).remove("gone");
+        verify(leaderboard, never()).remove("returning");
+        verify(invalidationBus, never()).publish("returning");
+        assertTrue(playerCache.get("returning").isPresent());
+    }
+
+    @Test
+    @DisplayName("purge: 消すものがなければ何もしない")
+    void testPurge_Nothing() {
+        persistPlayer("active", NOW.minusDays(1));
+        entityManager.flush();
+
+        PlayerPurgeJob.RunResult result = job.purge();
+
+        assertEquals(0, result.progressPurged());
+        assertEquals(0, result.orphansPurged());
+        assertEquals(1, userRepository.count());
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.projectenigma.cipher.metrics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import com.example.projectenigma.cipher.stage.StageRegistry;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * EnigmaMetricsのテストクラス。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+class EnigmaMetricsTest {
+
+    private SimpleMeterRegistry registry;
+    private EnigmaMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        metrics = new EnigmaMetrics(registry, new StageRegistry(new ClassPathResource("stages.json")));
+    }
+
+    @Test
+    @DisplayName("起動時に全メーターが登録済みで、記録前から0で見えること")
+    void testPreRegistered() {
+        // 1. 検証: 一回も記録してなくてもスクレイプに出る
+        for (AuthOutcome outcome : AuthOutcome.values()) {
+            assertEquals(0, registry.get("enigma.auth.resolutions").tag("outcome", outcome.tag()).counter().count());
+        }
+        assertEquals(0, registry.get("enigma.answer.checks").tags("stage", "1", "result", "correct").counter().count());
+        assertEquals(0, registry.get("enigma.answer.checks")
+                .tags("stage", EnigmaMetrics.OTHER_STAGE, "result", "incorrect").counter().count());
+        assertEquals(0, registry.get("enigma.answer.duration").tag("result", "correct").timer().count());
+        assertEquals(0, registry.get("enigma.request.repository.calls").summary().count());
+    }
+
+    @Test
+    @DisplayName("認証の経路と時間がそれぞれのメーターに記録されること")
+    void testAuth() {
+        // 1. 実行
+        metrics.authResolved(AuthOutcome.CREATED);
+        metrics.authResolved(AuthOutcome.CREATED);
+        metrics.authResolved(AuthOutcome.COOKIE_HIT);
+        metrics.authTimed(TimeUnit.MILLISECONDS.toNanos(3));
+
+        // 2. 検証
+        assertEquals(2, registry.get("enigma.auth.resolutions").tag("outcome", "created").counter().count());
+        assertEquals(1, registry.get("enigma.auth.resolutions").tag("outcome", "cookie_hit").counter().count());
+        assertEquals(0, registry.get("enigma.auth.resolutions").tag("outcome", "recreated").counter().count());
+        assertEquals(3.0, registry.get("enigma.auth.duration").timer().totalTime(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    @DisplayName("解答の判定はステージ・正誤ごとに数え、定義にないステージは other にまとめること")
+    void testAnswerChecked() {
+        // 1. 実行
+        metrics.answerChecked(1, true, 1_000);
+        metrics.answerChecked(1, false, 1_000);
+        metrics.answerChecked(1, false, 1_000);
+        metrics.answerChecked(999, false, 1_000);
+        metrics.answerChecked(0, false, 1_000);
+
+        // 2. 検証
+        assertEquals(1, registry.get("enigma.answer.checks").tags("stage", "1", "result", "correct").counter().count());
+        assertEquals(2, registry.get("enigma.answer.checks").tags("stage", "1", "result", "incorrect").counter().count());
+        assertEquals(2, registry.get("enigma.answer.checks")
+                .tags("stage", EnigmaMetrics.OTHER_STAGE, "result", "incorrect").counter().count());
+        assertEquals(1, registry.get("enigma.answer.duration").tag("result", "correct").timer().count());
+        assertEquals(4, registry.get("enigma.answer.duration").tag("result", "incorrect").timer().count());
+    }
+
+    @Test
+    @DisplayName("描画時間はビュー名ごとのタイマーに記録されること")
+    void testViewRendered() {
+        // 1. 実行
+        metrics.viewRendered("play", 2_000_000);
+        metrics.viewRendered("play", 4_000_000);
+        metrics.viewRendered("index", 1_000_000);
+
+        // 2. 検証
+        assertEquals(2, registry.get("enigma.view.render").tag("view", "play").timer().count());
+        assertEquals(6.0, registry.get("enigma.view.render").tag("view", "play").timer()
+                .totalTime(TimeUnit.MILLISECONDS));
+        assertEquals(1, registry.get("enigma.view.render").tag("view", "index").timer().count());
+    }
+
+    @Test
+    @DisplayName("リクエストごとのリポジトリ呼び出し回数が分布として記録されること")
+    void testRepositoryCalls() {
+        // 1. 実行
+        metrics.repositoryCalls(0);
+        metrics.repositoryCalls(2);
+
+        // 2. 検証
+        assertEquals(2, registry.get("enigma.request.repository.calls").summary().count());
+        assertEquals(2.0, registry.get("enigma.request.repository.calls").summary().totalAmount());
+        assertEquals(2.0, registry.get("enigma.request.repository.calls").summary().max());
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.projectenigma.cipher.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalManagementPort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.example.projectenigma.cipher.maintenance.PlayerPurgeJob;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * メトリクスの設定 (MetricsConfig) を通しで確認するテストクラス。
+ * 画面を表示してから管理ポートの /actuator/prometheus をスクレイプして、自前のメーターが出ていることを見ます。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+class MetricsConfigTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @LocalManagementPort
+    private int managementPort;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private PlayerPurgeJob purgeJob;
+
+    @Test
+    @DisplayName("画面表示の認証・描画・リポジトリ呼び出し回数と、各コンポーネントの統計がスクレイプできること")
+    void testPrometheusScrape() throws Exception {
+        // 1. 準備: Cookieなしで画面を表示 (仮プレイヤー発行 → play を描画)
+        mockMvc.perform(get("/play")).andExpect(status().isOk());
+
+        // 2. 実行
+        ResponseEntity<String> scrape = restTemplate.getForEntity(
+                "http://localhost:" + managementPort + "/actuator/prometheus", String.class);
+
+        // 3. 検証
+        assertThat(scrape.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(scrape.getBody())
+                .contains("enigma_auth_resolutions_total{outcome=\"created\"} 1.0")
+                .contains("enigma_auth_duration_seconds_count")
+                .contains("enigma_view_render_seconds_count{view=\"play\"} 1")
+                .contains("enigma_request_repository_calls_count 1")
+                .contains("enigma_answer_duration_seconds_bucket")
+                .contains("enigma_cache_player_hits_total")
+                .contains("enigma_provisioning_backlog")
+                .contains("enigma_players_provisional_total 1.0")
+                .contains("enigma_purge_runs_total")
+                .contains("enigma_purge_last_duration_seconds");
+    }
+
+    @Test
+    @DisplayName("掃除ジョブが動いたら、実行回数と直近の所要時間がスクレイプできること")
+    void testPurgeMeters() {
+        // 1. 準備
+        double runsBefore = meterRegistry.get("enigma.purge.runs").functionCounter().count();
+
+        // 2. 実行
+        purgeJob.purge();
+
+        // 3. 検証
+        assertThat(meterRegistry.get("enigma.purge.runs").functionCounter().count()).isEqualTo(runsBefore + 1);
+        assertThat(meterRegistry.get("enigma.purge.last.duration").timeGauge().value(TimeUnit.NANOSECONDS))
+                .isEqualTo(purgeJob.stats().lastRun().duration().toNanos());
+    }
+}
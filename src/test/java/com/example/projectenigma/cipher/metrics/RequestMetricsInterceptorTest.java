@@ -0,0 +1,105 @@
+package com.example.projectenigma.cipher.metrics;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.ModelAndView;
+
+/**
+ * RequestMetricsInterceptorのテストクラス。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+@ExtendWith(MockitoExtension.class)
+class RequestMetricsInterceptorTest {
+
+    @Mock
+    private EnigmaMetrics metrics;
+
+    private RequestMetricsInterceptor interceptor;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+    private HandlerMethod handler;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        interceptor = new RequestMetricsInterceptor(metrics);
+        request = new MockHttpServletRequest();
+        response = new MockHttpServletResponse();
+        handler = new HandlerMethod(new Object(), Object.class.getMethod("toString"));
+        // DispatcherServlet がやってるのと同じく、リクエストをスレッドに結び付ける
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    @DisplayName("リクエスト中のリポジトリ呼び出し回数と、テンプレートの描画時間を記録すること")
+    void testCountsAndRendering() {
+        // 1. 実行
+        interceptor.preHandle(request, response, handler);
+        RequestMetricsInterceptor.countRepositoryCall();
+        RequestMetricsInterceptor.countRepositoryCall();
+        interceptor.postHandle(request, response, handler, new ModelAndView("play"));
+        interceptor.afterCompletion(request, response, handler, null);
+
+        // 2. 検証
+        verify(metrics).repositoryCalls(2);
+        verify(metrics).viewRendered(eq("play"), anyLong());
+        verifyNoMoreInteractions(metrics);
+    }
+
+    @Test
+    @DisplayName("リダイレクトや REST の応答では描画時間を記録しないこと")
+    void testNoRendering() {
+        // 1. 実行: リダイレクト
+        interceptor.preHandle(request, response, handler);
+        interceptor.postHandle(request, response, handler, new ModelAndView("redirect:/play"));
+        interceptor.afterCompletion(request, response, handler, null);
+        // REST (ModelAndView なし)
+        interceptor.preHandle(request, response, handler);
+        RequestMetricsInterceptor.countRepositoryCall();
+        interceptor.postHandle(request, response, handler, null);
+        interceptor.afterCompletion(request, response, handler, null);
+
+        // 2. 検証
+        verify(metrics).repositoryCalls(0);
+        verify(metrics).repositoryCalls(1);
+        verify(metrics, never()).viewRendered(anyString(), anyLong());
+    }
+
+    @Test
+    @DisplayName("コントローラー以外 (静的ファイルなど) とリクエストの外の呼び出しは数えないこと")
+    void testOutsideController() {
+        // 1. 実行: 静的ファイルのハンドラー
+        Object resourceHandler = new Object();
+        interceptor.preHandle(request, response, resourceHandler);
+        RequestMetricsInterceptor.countRepositoryCall();
+        interceptor.afterCompletion(request, response, resourceHandler, null);
+        // リクエストに結び付いてないスレッド (後書きキューなど) からの呼び出し
+        RequestContextHolder.resetRequestAttributes();
+        RequestMetricsInterceptor.countRepositoryCall();
+
+        // 2. 検証
+        verifyNoInteractions(metrics);
+    }
+}
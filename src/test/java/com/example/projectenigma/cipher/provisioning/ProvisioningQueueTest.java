@@ -0,0 +1,148 @@
+package com.example.projectenigma.cipher.provisioning;
+
+import com.example.projectenigma.cipher.entity.GameProgress;
+import com.example.projectenigma.cipher.entity.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * ProvisioningQueueの単体テスト。
+ * まとめて書き込むこと・背圧・失敗時の扱いを確認する（書き込みスレッドは起動せず、drainOnce を直接呼ぶ）。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+@ExtendWith(MockitoExtension.class)
+class ProvisioningQueueTest {
+
+    @Mock
+    private EntityManager entityManager;
+
+    private ProvisioningQueue queue;
+
+    @BeforeEach
+    void setUp() {
+        queue = new ProvisioningQueue(entityManager, TransactionOperations.withoutTransaction(),
+                3, 100, Duration.ofMillis(10), Duration.ofMillis(100));
+    }
+
+    private static User user(String id) {
+        User user = new User();
+        user.setId(id);
+        return user;
+    }
+
+    private static GameProgress progress(String id) {
+        GameProgress progress = new GameProgress();
+        progress.setUserId(id);
+        progress.setCurrentStageId(1);
+        return progress;
+    }
+
+    @Test
+    @DisplayName("drainOnce: 積まれた分を1回のトランザクションでまとめて書き、完了を通知する")
+    void testDrain_Batch() {
+        // 1. 準備
+        CompletableFuture<Boolean> a = queue.enqueue(user("a"), progress("a"));
+        CompletableFuture<Boolean> b = queue.enqueue(user("b"), progress("b"));
+        assertFalse(a.isDone(), "まだ書いてない");
+
+        // 2. 実行
+        assertEquals(2, queue.drainOnce(false));
+
+        // 3. 検証: 全部 persist してから flush は1回だけ
+        InOrder inOrder = inOrder(entityManager);
+        inOrder.verify(entityManager, times(4)).persist(any());
+        inOrder.verify(entityManager, times(1)).flush();
+        assertTrue(a.isDone() && b.isDone());
+        assertTrue(a.join(), "新しく書いた");
+        assertEquals(new ProvisioningQueue.Stats(2, 2, 1, 0, 0), queue.stats());
+
+        // 書けたので待たずに返る
+        assertDoesNotThrow(() -> queue.awaitPersisted("a"));
+    }
+
+    @Test
+    @DisplayName("enqueue: 同じユーザーが書き込み待ちなら積み直さない")
+    void testEnqueue_Deduplicated() {
+        CompletableFuture<Boolean> first = queue.enqueue(user("a"), progress("a"));
+        CompletableFuture<Boolean> second = queue.enqueue(user("a"), progress("a"));
+
+        assertSame(first, second);
+        assertEquals(1, queue.backlog());
+    }
+
+    @Test
+    @DisplayName("enqueue: キューが満杯なら待ってから 503 用の例外 (背圧)")
+    void testEnqueue_Backpressure() {
+        queue.enqueue(user("a"), progress("a"));
+        queue.enqueue(user("b"), progress("b"));
+        queue.enqueue(user("c"), progress("c"));
+
+        assertThrows(ProvisioningBusyException.class, () -> queue.enqueue(user("d"), progress("d")));
+        assertEquals(1, queue.stats().rejected());
+
+        // 書き込みが進めばまた受け付ける
+        queue.drainOnce(false);
+        assertDoesNotThrow(() -> queue.enqueue(user("d"), progress("d")));
+    }
+
+    @Test
+    @DisplayName("awaitPersisted: 書き込みが間に合わなければ 503 用の例外")
+    void testAwaitPersisted_Timeout() {
+        queue.enqueue(user("a"), progress("a"));
+
+        assertThrows(ProvisioningBusyException.class, () -> queue.awaitPersisted("a"));
+        // 書き込み待ちでないユーザーはすぐ返る
+        assertDoesNotThrow(() -> queue.awaitPersisted("someone-else"));
+    }
+
+    @Test
+    @DisplayName("drainOnce: バッチが失敗したら1件ずつ書き直し、もう行がある分は「もうあった」で成功扱い")
+    void testDrain_FallbackOneByOne() {
+        // 1. 準備: 1回目 (バッチ) の flush は失敗、1件ずつなら成功
+        CompletableFuture<Boolean> dup = queue.enqueue(user("dup"), progress("dup"));
+        CompletableFuture<Boolean> fresh = queue.enqueue(user("fresh"), progress("fresh"));
+        doThrow(new PersistenceException("duplicate key")).doNothing().when(entityManager).flush();
+        when(entityManager.find(User.class, "dup")).thenReturn(user("dup"));
+
+        // 2. 実行
+        queue.drainOnce(false);
+
+        // 3. 検証: どちらも完了してて、失敗扱いにはなってない
+        assertTrue(dup.isDone() && !dup.isCompletedExceptionally());
+        assertTrue(fresh.isDone() && !fresh.isCompletedExceptionally());
+        // 呼び出し元がキャッシュを直せるように、もう行があったかどうかも返す
+        assertFalse(dup.join());
+        assertTrue(fresh.join());
+        assertEquals(2, queue.stats().written());
+    }
+
+    @Test
+    @DisplayName("shutdown: 受付を止めて、残りを全部書いてから終わる")
+    void testShutdown_FlushesBacklog() {
+        CompletableFuture<Boolean> a = queue.enqueue(user("a"), progress("a"));
+
+        queue.shutdown();
+
+        assertTrue(a.isDone());
+        assertEquals(0, queue.backlog());
+        assertThrows(ProvisioningBusyException.class, () -> queue.enqueue(user("b"), progress("b")));
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.projectenigma.cipher.ratelimit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import com.example.projectenigma.cipher.service.AuthService;
+
+/**
+ * AnswerRateLimiterのテストクラス。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+@ExtendWith(MockitoExtension.class)
+class AnswerRateLimiterTest {
+
+    @Mock
+    private AuthService authService;
+
+    private final AtomicLong now = new AtomicLong();
+
+    /** プレイヤー単位 2回/10秒、IP単位 3回/10秒 */
+    private AnswerRateLimiter limiter(boolean enabled) {
+        return new AnswerRateLimiter(authService, enabled,
+                new GcraRateLimiter(2, Duration.ofSeconds(10), 100, now::get),
+                new GcraRateLimiter(3, Duration.ofSeconds(10), 100, now::get));
+    }
+
+    private static MockHttpServletRequest request(String ip) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr(ip);
+        return request;
+    }
+
+    @Test
+    @DisplayName("同じプレイヤーは、IPを変えてもプレイヤー単位の上限で止まること")
+    void testPerUser() {
+        // 1. 準備
+        AnswerRateLimiter limiter = limiter(true);
+        when(authService.resolveUserId(any())).thenReturn(Optional.of("player-1"));
+
+        // 2. 実行 & 検証
+        limiter.check(request("10.0.0.1"));
+        limiter.check(request("10.0.0.2"));
+        RateLimitedException e = assertThrows(RateLimitedException.class, () -> limiter.check(request("10.0.0.3")));
+        assertEquals(5, e.getRetryAfterSeconds(), "10秒で2回 = 5秒に1回回復");
+        assertEquals(1, limiter.userStats().rejected());
+    }
+
+    @Test
+    @DisplayName("Cookieのないリクエストは、IP単位の上限だけで止まり、署名の検証より先に弾くこと")
+    void testPerIp() {
+        // 1. 準備: Cookieなし (毎回新しい仮プレイヤーになるボット)
+        AnswerRateLimiter limiter = limiter(true);
+        when(authService.resolveUserId(any())).thenReturn(Optional.empty());
+
+        // 2. 実行 & 検証
+        for (int i = 0; i < 3; i++) {
+            limiter.check(request("192.0.2.1"));
+        }
+        assertThrows(RateLimitedException.class, () -> limiter.check(request("192.0.2.1")));
+        // 別のIPは通る
+        limiter.check(request("192.0.2.2"));
+        // 弾いたリクエストでは Cookie を見てない
+        verify(authService, times(4)).resolveUserId(any());
+        assertEquals(1, limiter.ipStats().rejected());
+        assertEquals(0, limiter.userStats().keys());
+    }
+
+    @Test
+    @DisplayName("無効にしたら何も数えないこと")
+    void testDisabled() {
+        // 1. 準備
+        AnswerRateLimiter limiter = limiter(false);
+
+        // 2. 実行
+        for (int i = 0; i < 10; i++) {
+            limiter.check(request("192.0.2.1"));
+        }
+
+        // 3. 検証
+        verifyNoInteractions(authService);
+        assertEquals(0, limiter.ipStats().allowed());
+    }
+}
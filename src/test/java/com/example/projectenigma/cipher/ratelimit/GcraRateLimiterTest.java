@@ -0,0 +1,147 @@
+package com.example.projectenigma.cipher.ratelimit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * GcraRateLimiterのテストクラス。時刻は差し替えて進めます。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+class GcraRateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong(TimeUnit.HOURS.toNanos(1));
+
+    private void advance(Duration duration) {
+        now.addAndGet(duration.toNanos());
+    }
+
+    @Test
+    @DisplayName("容量分まではまとめて通し、超えたら次に通るまでの時間を返すこと")
+    void testBurstThenReject() {
+        // 1. 準備: 10秒で5回 (2秒に1回回復)
+        GcraRateLimiter limiter = new GcraRateLimiter(5, Duration.ofSeconds(10), 100, now::get);
+
+        // 2. 実行 & 検証
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, limiter.tryAcquire("bot"), "バースト分は通る: " + i);
+        }
+        long wait = limiter.tryAcquire("bot");
+        assertEquals(TimeUnit.SECONDS.toNanos(2), wait, "1回分の回復を待つ");
+        // 他のキーには影響しない
+        assertEquals(0, limiter.tryAcquire("player"));
+        assertEquals(new GcraRateLimiter.Stats(6, 1, 0, 0, 2), limiter.stats());
+    }
+
+    @Test
+    @DisplayName("時間が経った分だけ回復し、満タン以上には溜まらないこと")
+    void testRefill() {
+        // 1. 準備
+        GcraRateLimiter limiter = new GcraRateLimiter(5, Duration.ofSeconds(10), 100, now::get);
+        for (int i = 0; i < 5; i++) {
+            limiter.tryAcquire("bot");
+        }
+
+        // 2. 実行 & 検証: 2秒で1回分だけ回復
+        advance(Duration.ofSeconds(2));
+        assertEquals(0, limiter.tryAcquire("bot"));
+        assertTrue(limiter.tryAcquire("bot") > 0);
+
+        // 1時間放置しても5回分までしか溜まらない
+        advance(Duration.ofHours(1));
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, limiter.tryAcquire("bot"));
+        }
+        assertTrue(limiter.tryAcquire("bot") > 0);
+    }
+
+    @Test
+    @DisplayName("満タンに戻ったキーだけを掃除すること")
+    void testEvictIdle() {
+        // 1. 準備
+        GcraRateLimiter limiter = new GcraRateLimiter(5, Duration.ofSeconds(10), 100, now::get);
+        limiter.tryAcquire("idle");
+        advance(Duration.ofSeconds(5));
+        limiter.tryAcquire("busy");
+
+        // 2. 実行: idle は回復済み (2秒で満タン)、busy はまだ
+        int removed = limiter.evictIdle();
+
+        // 3. 検証
+        assertEquals(1, removed);
+        assertEquals(1, limiter.size());
+        assertEquals(1, limiter.stats().evicted());
+    }
+
+    @Test
+    @DisplayName("キー数の上限に達したら、掃除しても空かなければ新しいキーは素通しにすること")
+    void testMaxKeys() {
+        // 1. 準備: 2キーまで
+        GcraRateLimiter limiter = new GcraRateLimiter(1, Duration.ofSeconds(10), 2, now::get);
+        limiter.tryAcquire("a");
+        limiter.tryAcquire("b");
+
+        // 2. 実行 & 検証: 掃除しても空かない → 素通し (覚えない)
+        assertEquals(0, limiter.tryAcquire("c"));
+        assertEquals(0, limiter.tryAcquire("c"));
+        assertEquals(2, limiter.size());
+        assertEquals(2, limiter.stats().overflow());
+
+        // a と b が回復したら、その場の掃除で空きができて c も数えられる
+        advance(Duration.ofSeconds(10));
+        assertEquals(0, limiter.tryAcquire("c"));
+        assertTrue(limiter.tryAcquire("c") > 0);
+        assertEquals(1, limiter.size());
+    }
+
+    @Test
+    @DisplayName("同じキーを複数スレッドから叩いても、容量ちょうどだけ通すこと")
+    void testConcurrentAcquire() throws Exception {
+        // 1. 準備: 時間は止めたまま、容量1000
+        GcraRateLimiter limiter = new GcraRateLimiter(1000, Duration.ofHours(1), 100, now::get);
+        int threads = 8;
+        int perThread = 500;
+        LongAdder allowed = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+
+        // 2. 実行
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            for (int t = 0; t < threads; t++) {
+                executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        if (limiter.tryAcquire("hot") == 0) {
+                            allowed.increment();
+                        }
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+        }
+
+        // 3. 検証
+        assertEquals(1000, allowed.sum());
+        assertEquals(threads * perThread - 1000, limiter.stats().rejected());
+    }
+
+    @Test
+    @DisplayName("容量・期間・キー数が0以下ならエラーになること")
+    void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new GcraRateLimiter(0, Duration.ofSeconds(1), 1));
+        assertThrows(IllegalArgumentException.class, () -> new GcraRateLimiter(1, Duration.ZERO, 1));
+        assertThrows(IllegalArgumentException.class, () -> new GcraRateLimiter(1, Duration.ofSeconds(1), 0));
+    }
+}
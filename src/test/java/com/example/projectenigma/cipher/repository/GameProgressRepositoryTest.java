@@ -0,0 +1,172 @@
+package com.example.projectenigma.cipher.repository;
+
+import com.example.projectenigma.cipher.dto.Player;
+import com.example.projectenigma.cipher.entity.GameProgress;
+import com.example.projectenigma.cipher.entity.User;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * GameProgressRepositoryの独自クエリを、H2上で実際に流して検証するテスト。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class GameProgressRepositoryTest {
+
+    @Autowired
+    private GameProgressRepository gameProgressRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+    }
+
+    private void persistPlayer(String id, int stage) {
+        persistPlayer(id, stage, 0L, LocalDateTime.now());
+    }
+
+    private void persistPlayer(String id, int stage, long elapsedSeconds, LocalDateTime lastUpdated) {
+        User user = new User();
+        user.setId(id);
+        user.setCreatedAt(LocalDateTime.now());
+        entityManager.persist(user);
+
+        GameProgress progress = new GameProgress();
+        progress.setUserId(id);
+        progress.setCurrentStageId(stage);
+        progress.setTotalElapsedSeconds(elapsedSeconds);
+        progress.setLastUpdated(lastUpdated);
+        entityManager.persist(progress);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    @DisplayName("findPlayerById: ユーザーと進捗が1本のSQLでまとめて取れる")
+    void testFindPlayerById_SingleStatement() {
+        // 1. 準備
+        persistPlayer("player-1", 3);
+        statistics.clear();
+
+        // 2. 実行
+        Optional<Player> result = gameProgressRepository.findPlayerById("player-1");
+
+        // 3. 検証
+        assertTrue(result.isPresent());
+        assertEquals("player-1", result.get().user().getId());
+        assertEquals(3, result.get().progress().getCurrentStageId());
+        assertEquals(1, statistics.getPrepareStatementCount(), "SQLは1本だけのはず");
+    }
+
+    @Test
+    @DisplayName("findPlayerById: 存在しないIDならEmpty")
+    void testFindPlayerById_NotFound() {
+        assertTrue(gameProgressRepository.findPlayerById("ghost").isEmpty());
+    }
+
+    @Test
+    @DisplayName("advanceStage: 期待したステージの場合だけ1件更新し、二重送信では0件になる")
+    void testAdvanceStage_Conditional() {
+        // 1. 準備
+        persistPlayer("player-2", 1);
+
+        // 2. 実行: 同じ「ステージ1の正解」を2回送ったつもり
+        int first = gameProgressRepository.advanceStage("player-2", 1, LocalDateTime.now());
+        int second = gameProgressRepository.advanceStage("player-2", 1, LocalDateTime.now());
+
+        // 3. 検証: ステージは1つだけ進む
+        assertEquals(1, first);
+        assertEquals(0, second);
+        assertEquals(2, gameProgressRepository.findById("player-2").orElseThrow().getCurrentStageId());
+    }
+
+    @Test
+    @DisplayName("findRankingAfter: ランキング順にキーセットで全件を重複・漏れなく辿れる")
+    void testFindRanking_Keyset() {
+        // 1. 準備: 同じステージ・同じタイムの同点も混ぜる
+        persistPlayer("a", 2, 100L, LocalDateTime.now());
+        persistPlayer("b", 3, 500L, LocalDateTime.now());
+        persistPlayer("c", 2, 50L, LocalDateTime.now());
+        persistPlayer("d", 2, 100L, LocalDateTime.now());
+        persistPlayer("e", 1, 0L, LocalDateTime.now());
+
+        // 2. 実行: 2件ずつ辿る
+        List<String> ids = new ArrayList<>();
+        List<GameProgress> page = gameProgressRepository.findRankingFirst(2);
+        while (!page.isEmpty()) {
+            page.forEach(p -> ids.add(p.getUserId()));
+            GameProgress last = page.get(page.size() - 1);
+            page = gameProgressRepository.findRankingAfter(
+                    last.getCurrentStageId(), last.getTotalElapsedSeconds(), last.getUserId(), 2);
+        }
+
+        // 3. 検証: ステージ降順 → タイム昇順 → ID昇順
+        assertEquals(List.of("b", "c", "a", "d", "e"), ids);
+    }
+
+    @Test
+    @DisplayName("findStaleAfter: 古い順にキーセットで辿れ、before 以降のものは含まない")
+    void testFindStale_Keyset() {
+        // 1. 準備
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 0, 0);
+        persistPlayer("old-2", 1, 0L, base.plusHours(1));
+        persistPlayer("old-1", 1, 0L, base);
+        persistPlayer("old-3", 1, 0L, base.plusHours(1));
+        persistPlayer("fresh", 1, 0L, base.plusDays(10));
+
+        // 2. 実行
+        LocalDateTime before = base.plusDays(1);
+        List<GameProgress> first = gameProgressRepository.findStaleFirst(before, 2);
+        GameProgress last = first.get(first.size() - 1);
+        List<GameProgress> second = gameProgressRepository.findStaleAfter(
+                before, last.getLastUpdated(), last.getUserId(), 2);
+
+        // 3. 検証
+        assertEquals(List.of("old-1", "old-2"), first.stream().map(GameProgress::getUserId).toList());
+        assertEquals(List.of("old-3"), second.stream().map(GameProgress::getUserId).toList());
+    }
+
+    @Test
+    @DisplayName("クエリプラン: ランキング・メンテナンス用のクエリがインデックスを使い、ソートしない")
+    void testQueryPlans_UseIndexes() {
+        // 1. 実行: H2 の EXPLAIN でプランを取る
+        String rankingPlan = jdbcTemplate.queryForObject("EXPLAIN " + GameProgressRepository.RANKING_AFTER_SQL,
+                Map.of("stageId", 3, "elapsedSeconds", 100L, "userId", "x", "limit", 10), String.class);
+        String stalePlan = jdbcTemplate.queryForObject("EXPLAIN " + GameProgressRepository.STALE_AFTER_SQL,
+                Map.of("before", LocalDateTime.now(), "lastUpdated", GameProgressRepository.KEYSET_START,
+                        "userId", "", "limit", 10), String.class);
+
+        // 2. 検証: インデックスの範囲検索 + インデックス順のまま読む (全件スキャン・ソートなし)
+        assertTrue(rankingPlan.contains("IDX_GAME_PROGRESS_RANK: CURRENT_STAGE_ID <="), rankingPlan);
+        assertTrue(rankingPlan.contains("index sorted"), rankingPlan);
+        assertTrue(stalePlan.contains("IDX_GAME_PROGRESS_LAST_UPDATED: LAST_UPDATED <"), stalePlan);
+        assertTrue(stalePlan.contains("index sorted"), stalePlan);
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.projectenigma.cipher.repository;
+
+import com.example.projectenigma.cipher.entity.User;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * UserRepositoryの独自クエリを、H2上で実際に流して検証するテスト。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+@DataJpaTest
+class UserRepositoryTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    private void persistUser(String id, LocalDateTime createdAt) {
+        User user = new User();
+        user.setId(id);
+        user.setCreatedAt(createdAt);
+        entityManager.persist(user);
+        entityManager.flush();
+    }
+
+    @Test
+    @DisplayName("findCreatedBeforeAfter: 作成日時の古い順にキーセットで辿れ、before 以降のものは含まない")
+    void testFindCreatedBefore_Keyset() {
+        // 1. 準備: 同じ作成日時も混ぜる
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 0, 0);
+        persistUser("u-b", base);
+        persistUser("u-a", base);
+        persistUser("u-c", base.plusMinutes(1));
+        persistUser("u-new", base.plusDays(10));
+        entityManager.clear();
+
+        // 2. 実行
+        LocalDateTime before = base.plusDays(1);
+        List<User> first = userRepository.findCreatedBeforeFirst(before, 2);
+        User last = first.get(first.size() - 1);
+        List<User> second = userRepository.findCreatedBeforeAfter(before, last.getCreatedAt(), last.getId(), 2);
+
+        // 3. 検証
+        assertEquals(List.of("u-a", "u-b"), first.stream().map(User::getId).toList());
+        assertEquals(List.of("u-c"), second.stream().map(User::getId).toList());
+    }
+
+    @Test
+    @DisplayName("クエリプラン: 作成日時のインデックスを範囲検索し、ソートしない")
+    void testQueryPlan_UsesIndex() {
+        // 1. 実行
+        String plan = jdbcTemplate.queryForObject("EXPLAIN " + UserRepository.CREATED_BEFORE_SQL,
+                Map.of("before", LocalDateTime.now(), "createdAt", UserRepository.KEYSET_START,
+                        "id", "", "limit", 10), String.class);
+
+        // 2. 検証
+        assertTrue(plan.contains("IDX_USERS_CREATED_AT: CREATED_AT <"), plan);
+        assertTrue(plan.contains("index sorted"), plan);
+    }
+}
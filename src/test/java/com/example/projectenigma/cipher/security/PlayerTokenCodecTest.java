@@ -0,0 +1,106 @@
+package com.example.projectenigma.cipher.security;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * PlayerTokenCodecの単体テスト。
+ * 署名・検証・改ざん検知・鍵ローテーション・有効期限を確認する。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+class PlayerTokenCodecTest {
+
+    private static final String KEY1 = "a2V5LW9uZS1mb3ItcGxheWVyLXRva2VuLXRlc3Rz";
+    private static final String KEY2 = "a2V5LXR3by1mb3ItcGxheWVyLXRva2VuLXRlc3Rz";
+    private static final Instant NOW = Instant.parse("2026-01-01T00:00:00Z");
+    private static final Instant LEGACY_UNTIL = Instant.parse("2026-02-01T00:00:00Z");
+
+    private static PlayerTokenCodec codec(Map<String, String> keys, String active, Instant now) {
+        return new PlayerTokenCodec(new PlayerTokenProperties(keys, active, Duration.ofDays(30), LEGACY_UNTIL),
+                Clock.fixed(now, ZoneOffset.UTC));
+    }
+
+    @Test
+    @DisplayName("issue/verify: 発行したトークンを検証すると中身が取り出せる")
+    void testRoundTrip() {
+        PlayerTokenCodec codec = codec(Map.of("k1", KEY1), "k1", NOW);
+
+        PlayerToken token = codec.verify(codec.issue("user-1", 3)).orElseThrow();
+
+        assertEquals("user-1", token.userId());
+        assertEquals(3, token.stageId());
+        assertEquals(NOW, token.issuedAt());
+        assertEquals("k1", token.keyId());
+        assertFalse(codec.needsRotation(token));
+    }
+
+    @Test
+    @DisplayName("verify: 中身や署名を書き換えたトークンは通らない")
+    void testTampered() {
+        PlayerTokenCodec codec = codec(Map.of("k1", KEY1), "k1", NOW);
+        String token = codec.issue("user-1", 1);
+
+        assertTrue(codec.verify(token.replace(".1.", ".9.")).isEmpty(), "ステージ改ざん");
+        assertTrue(codec.verify(token.substring(0, token.length() - 2) + "AA").isEmpty(), "署名改ざん");
+        assertTrue(codec.verify("garbage").isEmpty());
+        assertTrue(codec.verify("k1.a.b").isEmpty());
+        assertTrue(codec.verify(null).isEmpty());
+    }
+
+    @Test
+    @DisplayName("verify: 別の鍵で署名されたトークン・未知の鍵IDは通らない")
+    void testWrongKey() {
+        String token = codec(Map.of("k1", KEY1), "k1", NOW).issue("user-1", 1);
+
+        assertTrue(codec(Map.of("k1", KEY2), "k1", NOW).verify(token).isEmpty());
+        assertTrue(codec(Map.of("k2", KEY2), "k2", NOW).verify(token).isEmpty());
+    }
+
+    @Test
+    @DisplayName("ローテーション: 古い鍵のトークンも検証でき、発行し直しが必要と判定される")
+    void testRotation() {
+        String oldToken = codec(Map.of("k1", KEY1), "k1", NOW).issue("user-1", 1);
+        PlayerTokenCodec rotated = codec(Map.of("k1", KEY1, "k2", KEY2), "k2", NOW);
+
+        PlayerToken token = rotated.verify(oldToken).orElseThrow();
+        assertTrue(rotated.needsRotation(token));
+        assertTrue(rotated.issue("user-1", 1).startsWith("k2."));
+    }
+
+    @Test
+    @DisplayName("verify: 有効期間を過ぎたトークンは通らない")
+    void testExpired() {
+        String token = codec(Map.of("k1", KEY1), "k1", NOW).issue("user-1", 1);
+
+        assertTrue(codec(Map.of("k1", KEY1), "k1", NOW.plus(Duration.ofDays(29))).verify(token).isPresent());
+        assertTrue(codec(Map.of("k1", KEY1), "k1", NOW.plus(Duration.ofDays(31))).verify(token).isEmpty());
+    }
+
+    @Test
+    @DisplayName("acceptsLegacy: 署名なしの旧Cookieは legacy-until の直前まで受け付けて、過ぎたら受け付けない")
+    void testAcceptsLegacy() {
+        assertTrue(codec(Map.of("k1", KEY1), "k1", LEGACY_UNTIL.minusSeconds(1)).acceptsLegacy());
+        assertFalse(codec(Map.of("k1", KEY1), "k1", LEGACY_UNTIL).acceptsLegacy());
+        assertFalse(codec(Map.of("k1", KEY1), "k1", LEGACY_UNTIL.plus(Duration.ofDays(1))).acceptsLegacy());
+    }
+
+    @Test
+    @DisplayName("コンストラクタ: active-key が keys にない場合はエラー、鍵未設定ならランダム鍵で動く")
+    void testConfiguration() {
+        assertThrows(IllegalStateException.class, () -> codec(Map.of("k1", KEY1), "k2", NOW));
+
+        PlayerTokenCodec dev = codec(Map.of(), null, NOW);
+        assertTrue(dev.verify(dev.issue("user-1", 1)).isPresent());
+    }
+}
@@ -1,8 +1,17 @@
 package com.example.projectenigma.cipher.service;
 
+import com.example.projectenigma.cipher.cache.PlayerCache;
+import com.example.projectenigma.cipher.dto.Player;
+import com.example.projectenigma.cipher.entity.GameProgress;
 import com.example.projectenigma.cipher.entity.User;
+import com.example.projectenigma.cipher.leaderboard.Leaderboard;
+import com.example.projectenigma.cipher.metrics.AuthOutcome;
+import com.example.projectenigma.cipher.metrics.EnigmaMetrics;
 import com.example.projectenigma.cipher.repository.GameProgressRepository;
-import com.example.projectenigma.cipher.repository.UserRepository;
+import com.example.projectenigma.cipher.provisioning.ProvisioningQueue;
+import com.example.projectenigma.cipher.security.PlayerToken;
+import com.example.projectenigma.cipher.security.PlayerTokenCodec;
+import com.example.projectenigma.cipher.security.PlayerTokenProperties;
 import com.example.projectenigma.cipher.util.CookieUtil;
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
@@ -10,14 +19,22 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 
 /**
@@ -32,10 +49,26 @@ import static org.mockito.Mockito.*;
 class AuthServiceTest {
 
     @Mock
-    private UserRepository userRepository;
+    private GameProgressRepository gameProgressRepository;
+
+    /** キャッシュは本物を使う（中身の出し入れも検証したいから） */
+    @Spy
+    private PlayerCache playerCache = new PlayerCache(100, Duration.ofMinutes(5));
+
+    /** トークンの署名・検証も本物（テスト用の固定鍵。旧Cookieの受付期限は切れてない扱い） */
+    @Spy
+    private PlayerTokenCodec playerTokenCodec = new PlayerTokenCodec(new PlayerTokenProperties(
+            Map.of("test", "dGVzdC1rZXktZm9yLWF1dGgtc2VydmljZS10ZXN0cw=="), "test", Duration.ofDays(30),
+            Instant.MAX));
 
     @Mock
-    private GameProgressRepository gameProgressRepository;
+    private Leaderboard leaderboard;
+
+    @Mock
+    private ProvisioningQueue provisioningQueue;
+
+    @Mock
+    private EnigmaMetrics metrics;
 
     @InjectMocks
     private AuthService authService;
@@ -46,19 +79,30 @@ class AuthServiceTest {
     @Mock
     private HttpServletResponse response;
 
+    private static Player player(String userId, int stage) {
+        User user = new User();
+        user.setId(userId);
+        GameProgress progress = new GameProgress();
+        progress.setUserId(userId);
+        progress.setCurrentStageId(stage);
+        return new Player(user, progress);
+    }
+
+    private void givenCookie(String value) {
+        when(request.getCookies()).thenReturn(new Cookie[]{new Cookie(CookieUtil.COOKIE_NAME, value)});
+    }
+
     @Test
-    @DisplayName("authOrCreateUser: CookieもDBデータもある場合 - 既存ユーザーを返す")
+    @DisplayName("authOrCreateUser: 署名付きCookieもDBデータもある場合 - 既存ユーザーを返す")
     void testAuth_ExistingUser() {
         // 1. 準備 (Given)
         String userId = "existing-user-id";
-        Cookie cookie = new Cookie(CookieUtil.COOKIE_NAME, userId);
-        User existUser = new User();
-        existUser.setId(userId);
+        Player exist = player(userId, 1);
 
-        // リクエストにCookieが含まれている振る舞い
-        when(request.getCookies()).thenReturn(new Cookie[]{cookie});
-        // DB検索でユーザーが見つかる振る舞い
-        when(userRepository.findById(userId)).thenReturn(Optional.of(existUser));
+        // リクエストに署名付きCookieが含まれている振る舞い
+        givenCookie(playerTokenCodec.issue(userId, 1));
+        // DB検索でユーザーと進捗が（1クエリで）見つかる振る舞い
+        when(gameProgressRepository.findPlayerById(userId)).thenReturn(Optional.of(exist));
 
         // 2. 実行 (When)
         User result = authService.authOrCreateUser(request, response);
@@ -66,50 +110,280 @@ class AuthServiceTest {
         // 3. 検証 (Then)
         assertEquals(userId, result.getId());
         // 新規保存は呼ばれてないはず
-        verify(userRepository, never()).save(any());
+        verifyNoInteractions(provisioningQueue);
+        // ユーザーの存在確認 (findById) はせず、結合クエリ1本で済ませてるはず
+        verify(gameProgressRepository, never()).findById(any());
+        // トークンのステージも合ってるので、Cookieは発行し直さない
+        verify(response, never()).addCookie(any());
+        // 次回用にキャッシュに載ってるはず
+        assertTrue(playerCache.get(userId).isPresent());
+        verify(metrics).authResolved(AuthOutcome.COOKIE_HIT);
+    }
+
+    @Test
+    @DisplayName("authOrCreatePlayer: キャッシュにある場合 - DBを見ずにキャッシュの内容を返す")
+    void testAuth_CacheHit() {
+        // 1. 準備
+        String userId = "cached-user-id";
+        Player cached = player(userId, 1);
+        playerCache.put(cached);
+        givenCookie(playerTokenCodec.issue(userId, 1));
+
+        // 2. 実行
+        Player result = authService.authOrCreatePlayer(request, response);
+
+        // 3. 検証
+        assertSame(cached, result);
+        // DBには一切アクセスしてないはず
+        verifyNoInteractions(provisioningQueue, gameProgressRepository);
+        verify(metrics).authResolved(AuthOutcome.COOKIE_HIT);
+    }
+
+    @Test
+    @DisplayName("authOrCreatePlayer: トークンのステージが古い場合 - Cookieを発行し直す")
+    void testAuth_StaleTokenStage() {
+        // 1. 準備: 実際はステージ2だけど、Cookieはステージ1のまま
+        String userId = "advanced-user-id";
+        playerCache.put(player(userId, 2));
+        givenCookie(playerTokenCodec.issue(userId, 1));
+
+        // 2. 実行
+        authService.authOrCreatePlayer(request, response);
+
+        // 3. 検証: ステージ2のトークンが発行されてる
+        ArgumentCaptor<Cookie> captor = ArgumentCaptor.forClass(Cookie.class);
+        verify(response, times(1)).addCookie(captor.capture());
+        assertEquals(2, playerTokenCodec.verify(captor.getValue().getValue()).orElseThrow().stageId());
     }
 
     @Test
-    @DisplayName("authOrCreateUser: Cookieがない場合 - 新規ユーザーを作成してCookie発行")
+    @DisplayName("authOrCreatePlayer: 旧形式 (UUIDそのまま) のCookieの場合 - DBで確認して署名付きCookieに切り替える")
+    void testAuth_LegacyCookie() {
+        // 1. 準備
+        String userId = UUID.randomUUID().toString();
+        givenCookie(userId);
+        when(gameProgressRepository.findPlayerById(userId)).thenReturn(Optional.of(player(userId, 1)));
+
+        // 2. 実行
+        Player result = authService.authOrCreatePlayer(request, response);
+
+        // 3. 検証
+        assertEquals(userId, result.userId());
+        ArgumentCaptor<Cookie> captor = ArgumentCaptor.forClass(Cookie.class);
+        verify(response, times(1)).addCookie(captor.capture());
+        assertEquals(userId, playerTokenCodec.verify(captor.getValue().getValue()).orElseThrow().userId());
+        verify(metrics).authResolved(AuthOutcome.LEGACY_MIGRATED);
+    }
+
+    @Test
+    @DisplayName("authOrCreatePlayer: 受付期限を過ぎた旧形式のCookieの場合 - DBを見ずに新しい仮プレイヤーを発行")
+    void testAuth_LegacyCookie_AfterSunset() {
+        // 1. 準備: IDを知ってるだけの (署名のない) Cookie
+        String userId = UUID.randomUUID().toString();
+        givenCookie(userId);
+        doReturn(false).when(playerTokenCodec).acceptsLegacy();
+
+        // 2. 実行
+        Player result = authService.authOrCreatePlayer(request, response);
+
+        // 3. 検証: そのIDにはなれない
+        assertNotEquals(userId, result.userId());
+        assertTrue(result.provisional());
+        verifyNoInteractions(gameProgressRepository);
+        verify(metrics).authResolved(AuthOutcome.RECREATED);
+    }
+
+    @Test
+    @DisplayName("authOrCreatePlayer: 改ざんされたCookieの場合 - DBを見ずに新しい仮プレイヤーを発行")
+    void testAuth_TamperedCookie() {
+        // 1. 準備: 他人のIDに書き換えたつもり
+        String token = playerTokenCodec.issue("victim", 1).replace("victim", "attacker");
+        givenCookie(token);
+
+        // 2. 実行
+        Player result = authService.authOrCreatePlayer(request, response);
+
+        // 3. 検証
+        assertNotEquals("attacker", result.userId());
+        assertTrue(result.provisional());
+        verifyNoInteractions(provisioningQueue, gameProgressRepository);
+        verify(metrics).authResolved(AuthOutcome.RECREATED);
+    }
+
+    @Test
+    @DisplayName("authOrCreateUser: Cookieがない場合 - DBには書かず、仮プレイヤーのCookieだけ発行")
     void testAuth_NewUser_NoCookie() {
         // 1. 準備 (Given)
         // Cookieは空っぽ
         when(request.getCookies()).thenReturn(null);
 
         // 2. 実行 (When)
-        User result = authService.authOrCreateUser(request, response);
+        Player result = authService.authOrCreatePlayer(request, response);
 
         // 3. 検証 (Then)
-        assertNotNull(result.getId(), "新しいIDが発行されてるはず");
-        
-        // 保存処理が走ったか
-        verify(userRepository, times(1)).save(any(User.class));
-        verify(gameProgressRepository, times(1)).save(any()); // 進捗初期化も大事
-        
-        // レスポンスにCookieを追加したか（これがAuthServiceの肝！）
-        verify(response, times(1)).addCookie(any(Cookie.class));
-    }
-    
-    @Test
-    @DisplayName("authOrCreateUser: CookieはあるけどDBにない場合 - 新規ユーザーを作成(再発行)")
+        assertNotNull(result.userId(), "新しいIDが発行されてるはず");
+        assertTrue(result.provisional());
+        assertEquals(1, result.progress().getCurrentStageId(), "画面にはステージ1を出す");
+
+        // クローラーやヘルスチェックで行が増えんように、DBには何も書かない
+        verifyNoInteractions(provisioningQueue, gameProgressRepository, leaderboard);
+        assertTrue(playerCache.get(result.userId()).isEmpty());
+
+        // レスポンスに仮プレイヤーの署名付きCookieを追加したか
+        ArgumentCaptor<Cookie> captor = ArgumentCaptor.forClass(Cookie.class);
+        verify(response, times(1)).addCookie(captor.capture());
+        PlayerToken token = playerTokenCodec.verify(captor.getValue().getValue()).orElseThrow();
+        assertEquals(result.userId(), token.userId());
+        assertTrue(token.isProvisional());
+
+        assertEquals(new AuthService.ProvisioningStats(1, 0), authService.provisioningStats());
+        // Cookieなしの新規発行として数えて、かかった時間も記録してるはず
+        verify(metrics).authResolved(AuthOutcome.CREATED);
+        verify(metrics).authTimed(anyLong());
+    }
+
+    @Test
+    @DisplayName("authOrCreatePlayer: 仮プレイヤーのCookieの場合 - DBを見ずに同じIDの仮プレイヤーを返す")
+    void testAuth_ProvisionalCookie() {
+        // 1. 準備
+        givenCookie(playerTokenCodec.issue("guest-id", PlayerToken.PROVISIONAL_STAGE));
+
+        // 2. 実行
+        Player result = authService.authOrCreatePlayer(request, response);
+
+        // 3. 検証: 同じIDのまま、DBにもキャッシュにも触らず、Cookieも発行し直さない
+        assertEquals("guest-id", result.userId());
+        assertTrue(result.provisional());
+        verifyNoInteractions(provisioningQueue, gameProgressRepository);
+        verify(response, never()).addCookie(any());
+        assertEquals(new AuthService.ProvisioningStats(0, 0), authService.provisioningStats());
+        verify(metrics).authResolved(AuthOutcome.PROVISIONAL_HIT);
+    }
+
+    @Test
+    @DisplayName("authOrCreateUser: CookieはあるけどDBにない場合 - 別IDの仮プレイヤーを発行")
     void testAuth_CookieExists_But_NoDB() {
         // 1. 準備
         String oldId = "ghost-user";
-        Cookie cookie = new Cookie(CookieUtil.COOKIE_NAME, oldId);
-        
-        when(request.getCookies()).thenReturn(new Cookie[]{cookie});
+        givenCookie(playerTokenCodec.issue(oldId, 1));
         // DB探しても見つからん！(Optional.empty)
-        when(userRepository.findById(oldId)).thenReturn(Optional.empty());
+        when(gameProgressRepository.findPlayerById(oldId)).thenReturn(Optional.empty());
 
         // 2. 実行
-        User result = authService.authOrCreateUser(request, response);
+        Player result = authService.authOrCreatePlayer(request, response);
 
         // 3. 検証
-        assertNotNull(result);
-        assertNotEquals(oldId, result.getId(), "古いIDとは別のIDになってるはず");
-        
-        // やっぱり新規作成ルートに入るはず
-        verify(userRepository, times(1)).save(any());
+        assertNotEquals(oldId, result.userId(), "古いIDとは別のIDになってるはず");
+        assertTrue(result.provisional());
+        verifyNoInteractions(provisioningQueue);
         verify(response, times(1)).addCookie(any());
+        verify(metrics).authResolved(AuthOutcome.RECREATED);
+    }
+
+    @Test
+    @DisplayName("materialize: 仮プレイヤーなら行を後書きキューに積んで本登録し、Cookieを差し替える")
+    void testMaterialize_Provisional() {
+        // 1. 準備: キューへの書き込みはまだ終わってない
+        CompletableFuture<Boolean> written = new CompletableFuture<>();
+        when(provisioningQueue.enqueue(any(), any())).thenReturn(written);
+
+        // 2. 実行
+        Player result = authService.materialize(Player.provisional("guest-id"), response);
+
+        // 3. 検証
+        assertEquals("guest-id", result.userId(), "仮プレイヤーのIDをそのまま引き継ぐ");
+        assertFalse(result.provisional());
+        ArgumentCaptor<User> user = ArgumentCaptor.forClass(User.class);
+        ArgumentCaptor<GameProgress> progress = ArgumentCaptor.forClass(GameProgress.class);
+        verify(provisioningQueue, times(1)).enqueue(user.capture(), progress.capture());
+        assertEquals("guest-id", user.getValue().getId());
+        assertEquals(1, progress.getValue().getCurrentStageId()); // 進捗初期化も大事
+        // 自分では INSERT しない
+        verifyNoInteractions(gameProgressRepository);
+
+        // 本登録のトークン (ステージ1) に差し替わってるか
+        ArgumentCaptor<Cookie> captor = ArgumentCaptor.forClass(Cookie.class);
+        verify(response, times(1)).addCookie(captor.capture());
+        PlayerToken token = playerTokenCodec.verify(captor.getValue().getValue()).orElseThrow();
+        assertEquals("guest-id", token.userId());
+        assertEquals(1, token.stageId());
+
+        // 書き込み前でも読めるように、キャッシュには入ってるはず
+        assertTrue(playerCache.get("guest-id").isPresent());
+
+        // ランキング・本登録数は書き込みが終わってから
+        verifyNoInteractions(leaderboard);
+        written.complete(true);
+        verify(leaderboard).join("guest-id");
+        assertEquals(new AuthService.ProvisioningStats(0, 1), authService.provisioningStats());
+    }
+
+    @Test
+    @DisplayName("materialize: 古い仮Cookieでも、もう本登録済みならキャッシュの内容を返す")
+    void testMaterialize_AlreadyInCache() {
+        Player saved = player("guest-id", 2);
+        playerCache.put(saved);
+
+        assertSame(saved, authService.materialize(Player.provisional("guest-id"), response));
+        verifyNoInteractions(provisioningQueue, response);
+    }
+
+    @Test
+    @DisplayName("materialize: キャッシュから落ちた後の古い仮Cookieで、もう行があった場合 - 仮で載せたステージ1を捨てる")
+    void testMaterialize_AlreadyPersisted() {
+        // 1. 準備: キャッシュにはないけど、行はもうある (キューは「もうあった」で完了)
+        CompletableFuture<Boolean> written = new CompletableFuture<>();
+        when(provisioningQueue.enqueue(any(), any())).thenReturn(written);
+        authService.materialize(Player.provisional("guest-id"), response);
+        assertTrue(playerCache.get("guest-id").isPresent());
+
+        // 2. 実行
+        written.complete(false);
+
+        // 3. 検証: ステージ1・タイム0 の状態は捨てて、次はDBから読み直す。ランキング・本登録数はそのまま
+        assertTrue(playerCache.get("guest-id").isEmpty());
+        verifyNoInteractions(leaderboard);
+        assertEquals(new AuthService.ProvisioningStats(0, 0), authService.provisioningStats());
+    }
+
+    @Test
+    @DisplayName("materialize: もう行があると先に分かってたら、ステージ1の状態はキャッシュに載せない")
+    void testMaterialize_AlreadyPersisted_CompletedFirst() {
+        // 1. 準備: キューがすぐ「もうあった」で完了する (書き込みスレッドの方が速かった)
+        when(provisioningQueue.enqueue(any(), any())).thenReturn(CompletableFuture.completedFuture(false));
+
+        // 2. 実行
+        authService.materialize(Player.provisional("guest-id"), response);
+
+        // 3. 検証
+        assertTrue(playerCache.get("guest-id").isEmpty());
+    }
+
+    @Test
+    @DisplayName("materialize: 本登録済みならそのまま返し、DBには触らない")
+    void testMaterialize_AlreadyMaterialized() {
+        Player existing = player("user-1", 3);
+
+        assertSame(existing, authService.materialize(existing, response));
+        verifyNoInteractions(provisioningQueue, gameProgressRepository, response, leaderboard);
+    }
+
+    @Test
+    @DisplayName("resolveUserId: 署名付きCookieならIDを返し、DBには触らない")
+    void testResolveUserId() {
+        // 1. 準備
+        givenCookie(playerTokenCodec.issue("user-1", 1));
+
+        // 2. 実行 & 検証
+        assertEquals(Optional.of("user-1"), authService.resolveUserId(request));
+        verifyNoInteractions(provisioningQueue, gameProgressRepository, response);
+    }
+
+    @Test
+    @DisplayName("resolveUserId: 旧形式・不正なCookieならEmpty")
+    void testResolveUserId_Invalid() {
+        givenCookie(UUID.randomUUID().toString());
+
+        assertTrue(authService.resolveUserId(request).isEmpty());
     }
-}
\ No newline at end of file
+}
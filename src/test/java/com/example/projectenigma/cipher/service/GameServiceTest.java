@@ -1,23 +1,40 @@
 package com.example.projectenigma.cipher.service;
 
-import com.example.projectenigma.cipher.entity.GameProgress;
+import com.example.projectenigma.cipher.analytics.AnswerEventLog;
+import com.example.projectenigma.cipher.cache.PlayerCache;
+import com.example.projectenigma.cipher.cache.invalidation.InvalidationBus;
+import com.example.projectenigma.cipher.clock.SessionClock;
+import com.example.projectenigma.cipher.dto.AnswerOutcome;
+import com.example.projectenigma.cipher.dto.AnswerOutcome.Status;
+import com.example.projectenigma.cipher.dto.PlayState;
+import com.example.projectenigma.cipher.leaderboard.Leaderboard;
+import com.example.projectenigma.cipher.metrics.EnigmaMetrics;
+import com.example.projectenigma.cipher.provisioning.ProvisioningQueue;
 import com.example.projectenigma.cipher.repository.GameProgressRepository;
+import com.example.projectenigma.cipher.stage.StageRegistry;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.ClassPathResource;
 
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 /**
  * GameServiceのビジネスロジックを検証する単体テスト。
- * 正誤判定のロジックや、DBへの保存が正しく行われるかを確認する。
+ * 正誤判定のロジックや、DBへの更新が正しく行われるかを確認する。
  *
  * @author R.Morioka
  * @version 1.0
@@ -29,35 +46,76 @@ class GameServiceTest {
     @Mock
     private GameProgressRepository gameProgressRepository;
 
+    @Mock
+    private PlayerCache playerCache;
+
+    @Mock
+    private SessionClock sessionClock;
+
+    @Mock
+    private Leaderboard leaderboard;
+
+    @Mock
+    private ProvisioningQueue provisioningQueue;
+
+    @Mock
+    private EnigmaMetrics metrics;
+
+    @Mock
+    private AnswerEventLog answerEventLog;
+
+    @Mock
+    private InvalidationBus invalidationBus;
+
+    /** ステージ定義は本物 (stages.json) を読み込む */
+    @Spy
+    private StageRegistry stageRegistry = new StageRegistry(new ClassPathResource("stages.json"));
+
     @InjectMocks
     private GameService gameService;
 
     /**
      * 正解の場合のテスト。
-     * - trueが返ること
-     * - ステージ番号が +1 されること
-     * - 変更がリポジトリに保存されること
+     * - ADVANCED と次のステージが返ること
+     * - 「ステージ1なら2へ」という条件付きUPDATEが発行されること
+     * - 進捗の読み込み・saveは行わないこと
      */
     @Test
-    @DisplayName("checkAnswer: 正解(apple)の場合 - trueを返し、ステージを進めて保存する")
+    @DisplayName("checkAnswer: 正解(apple)の場合 - ADVANCEDを返し、条件付きUPDATEでステージを進める")
     void testCheckAnswer_Correct() {
         // 1. 準備 (Given)
         String userId = "user-123";
-        GameProgress progress = new GameProgress();
-        progress.setUserId(userId);
-        progress.setCurrentStageId(1); // 現在ステージ1
-
-        when(gameProgressRepository.findById(userId)).thenReturn(Optional.of(progress));
+        when(gameProgressRepository.advanceStage(eq(userId), eq(1), any())).thenReturn(1);
 
         // 2. 実行 (When)
-        boolean result = gameService.checkAnswer(userId, "apple");
+        AnswerOutcome result = gameService.checkAnswer(userId, 1, "apple");
 
         // 3. 検証 (Then)
-        assertTrue(result, "正解なのでtrueが返るはず");
-        assertEquals(2, progress.getCurrentStageId(), "ステージが2に進んでいるはず");
-        
-        // saveメソッドが1回呼ばれたか確認（これが大事！）
-        verify(gameProgressRepository, times(1)).save(progress);
+        assertEquals(new AnswerOutcome(Status.ADVANCED, 2), result, "正解なのでステージ2に進むはず");
+
+        // 「今ステージ1なら」の条件付きで1回だけ更新してるか（これが大事！）
+        verify(gameProgressRepository, times(1)).advanceStage(eq(userId), eq(1), any());
+        // 読み込み → save の read-modify-write はしない
+        verify(gameProgressRepository, never()).findById(any());
+        verify(gameProgressRepository, never()).save(any());
+        verify(gameProgressRepository, never()).findCurrentStageId(any());
+        // 古いステージがキャッシュに残らんように捨ててるか
+        verify(playerCache, times(1)).invalidateAfterCommit(userId);
+        // 経過時間を積み上げて、次のステージの計測を始めてるか
+        verify(sessionClock).touch(userId);
+        verify(sessionClock).startStage(userId);
+        // ランキングも次のステージに付け替えてるか
+        verify(leaderboard).advance(userId, 2);
+        // 他のインスタンスのキャッシュにも無効化を配ってるか
+        verify(invalidationBus).publish(userId);
+        // ステージ1の正解として判定時間ごと記録してるはず
+        verify(metrics).answerChecked(eq(1), eq(true), anyLong());
+        // ファネル集計用のイベントも積んでるはず
+        verify(answerEventLog).append(userId, 1, true);
+        // 本登録の書き込み待ちを、UPDATEの前に確認してるか
+        InOrder inOrder = inOrder(provisioningQueue, gameProgressRepository);
+        inOrder.verify(provisioningQueue).awaitPersisted(userId);
+        inOrder.verify(gameProgressRepository).advanceStage(eq(userId), eq(1), any());
     }
 
     /**
@@ -65,49 +123,150 @@ class GameServiceTest {
      * - "Apple" や "APPLE" でも正解になること
      */
     @Test
-    @DisplayName("checkAnswer: 正解(大文字混じり Apple)の場合 - trueを返す(大文字小文字無視)")
+    @DisplayName("checkAnswer: 正解(大文字混じり Apple)の場合 - 正解になる(大文字小文字無視)")
     void testCheckAnswer_CaseInsensitive() {
-        // 1. 準備
-        String userId = "user-123";
-        GameProgress progress = new GameProgress();
-        progress.setUserId(userId);
-        progress.setCurrentStageId(1);
+        // 1. 実行
+        AnswerOutcome result = gameService.checkAnswer("user-123", 1, "Apple");
 
-        when(gameProgressRepository.findById(userId)).thenReturn(Optional.of(progress));
+        // 2. 検証
+        assertTrue(result.correct(), "大文字混じりでも正解になるはず");
+        verify(gameProgressRepository, times(1)).advanceStage(anyString(), anyInt(), any());
+    }
+
+    /**
+     * 全角・前後空白の揺れを許容するかのテスト。
+     * - "　ＡＰＰＬＥ " でも正解になること
+     */
+    @Test
+    @DisplayName("checkAnswer: 正解(全角・前後空白あり)の場合 - 正解になる(正規化して比較)")
+    void testCheckAnswer_FullWidth() {
+        // 1. 実行
+        AnswerOutcome result = gameService.checkAnswer("user-123", 1, "　ＡＰＰＬＥ ");
+
+        // 2. 検証
+        assertTrue(result.correct(), "全角でも正解になるはず");
+        verify(gameProgressRepository, times(1)).advanceStage(eq("user-123"), eq(1), any());
+    }
+
+    /**
+     * 二重送信（他のリクエストが先に進めていた）場合のテスト。
+     * - 更新件数0なら進んだことにはせず、DBに入っているステージを返すこと
+     * - 2回目の更新は試みないこと
+     */
+    @Test
+    @DisplayName("checkAnswer: 既に他のリクエストで進んでいた場合 - ALREADY_ADVANCEDとDBのステージを返す")
+    void testCheckAnswer_AlreadyAdvanced() {
+        // 1. 準備: 条件付きUPDATEが0件 (もうステージ2になってる)
+        when(gameProgressRepository.advanceStage(eq("user-123"), eq(1), any())).thenReturn(0);
+        when(gameProgressRepository.findCurrentStageId("user-123")).thenReturn(Optional.of(2));
 
         // 2. 実行
-        boolean result = gameService.checkAnswer(userId, "Apple");
+        AnswerOutcome result = gameService.checkAnswer("user-123", 1, "apple");
 
         // 3. 検証
-        assertTrue(result, "大文字混じりでも正解になるはず");
-        verify(gameProgressRepository, times(1)).save(any());
+        assertEquals(new AnswerOutcome(Status.ALREADY_ADVANCED, 2), result);
+        assertTrue(result.stageChanged());
+        verify(gameProgressRepository, times(1)).advanceStage(anyString(), anyInt(), any());
+        verify(playerCache, times(1)).invalidateAfterCommit("user-123");
+        // ランキングも二重には進めない。進めたリクエストが配ってるので、無効化も配らない
+        verify(leaderboard, never()).advance(any(), anyInt());
+        verify(invalidationBus, never()).publish(any());
+        verify(sessionClock, never()).startStage(any());
+        // 正解は正解として記録する
+        verify(answerEventLog).append("user-123", 1, true);
+    }
+
+    /**
+     * 進捗の行がない（本登録に失敗した・まだ書けてない・掃除で消された）場合のテスト。
+     * - 更新件数0で行も見つからなければ、進んだことにしない（NOT_SAVED で同じステージ）
+     */
+    @Test
+    @DisplayName("checkAnswer: 進捗の行がない場合 - NOT_SAVEDを返し、進んだことにしない")
+    void testCheckAnswer_NoRow() {
+        // 1. 準備: 条件付きUPDATEが0件で、行もない
+        when(gameProgressRepository.advanceStage(eq("user-123"), eq(1), any())).thenReturn(0);
+        when(gameProgressRepository.findCurrentStageId("user-123")).thenReturn(Optional.empty());
+
+        // 2. 実行
+        AnswerOutcome result = gameService.checkAnswer("user-123", 1, "apple");
+
+        // 3. 検証
+        assertEquals(new AnswerOutcome(Status.NOT_SAVED, 1), result);
+        assertFalse(result.stageChanged());
+        verify(leaderboard, never()).advance(any(), anyInt());
+        verify(invalidationBus, never()).publish(any());
+        verify(sessionClock, never()).startStage(any());
+    }
+
+    /**
+     * 定義のないステージ（全クリ後）のテスト。
+     * - 何を答えても不正解になること
+     */
+    @Test
+    @DisplayName("checkAnswer: 定義のないステージの場合 - 不正解になり、更新しない")
+    void testCheckAnswer_UnknownStage() {
+        assertEquals(Status.WRONG, gameService.checkAnswer("user-123", 999, "apple").status());
+        verifyNoInteractions(gameProgressRepository);
     }
 
     /**
      * 不正解の場合のテスト。
-     * - falseが返ること
-     * - ステージ番号が変わらないこと
-     * - DB保存が走らないこと
+     * - WRONG が返ること
+     * - DBアクセスが一切走らないこと
      */
     @Test
-    @DisplayName("checkAnswer: 不正解の場合 - falseを返し、ステージは進まない")
+    @DisplayName("checkAnswer: 不正解の場合 - WRONGを返し、ステージは進まない")
     void testCheckAnswer_Wrong() {
-        // 1. 準備
-        String userId = "user-123";
-        GameProgress progress = new GameProgress();
-        progress.setUserId(userId);
-        progress.setCurrentStageId(1);
+        // 1. 実行
+        AnswerOutcome result = gameService.checkAnswer("user-123", 1, "banana");
+
+        // 2. 検証
+        assertEquals(new AnswerOutcome(Status.WRONG, 1), result, "不正解なのでステージ1のまま");
+
+        // DBには触ってないことを確認（無駄な更新を防ぐ）
+        verifyNoInteractions(gameProgressRepository, leaderboard, provisioningQueue, invalidationBus);
+        verify(playerCache, never()).invalidateAfterCommit(any());
+        // 考えてた時間は数えるけど、ステージは始め直さない
+        verify(sessionClock).touch("user-123");
+        verify(sessionClock, never()).startStage(any());
+        verify(metrics).answerChecked(eq(1), eq(false), anyLong());
+        verify(answerEventLog).append("user-123", 1, false);
+    }
 
-        when(gameProgressRepository.findById(userId)).thenReturn(Optional.of(progress));
+    /**
+     * プレイ状態の組み立てテスト。
+     * 問題文はステージ定義から、経過時間は DB分 + メモリ上の分になること。
+     */
+    @Test
+    @DisplayName("stateOf: 問題文と経過時間 (DB分 + メモリ上の分) を返す")
+    void testStateOf() {
+        // 1. 準備
+        when(sessionClock.pendingSeconds("user-123")).thenReturn(20L);
 
         // 2. 実行
-        boolean result = gameService.checkAnswer(userId, "banana");
+        PlayState state = gameService.stateOf("user-123", 1, 100L);
 
         // 3. 検証
-        assertFalse(result, "不正解なのでfalseが返るはず");
-        assertEquals(1, progress.getCurrentStageId(), "ステージは1のままのはず");
-        
-        // saveメソッドが呼ばれていないことを確認（無駄な保存を防ぐ）
-        verify(gameProgressRepository, never()).save(any());
+        assertEquals(1, state.stageId());
+        assertFalse(state.cleared());
+        assertTrue(state.riddle().contains("Snow White"));
+        assertNotNull(state.hint());
+        assertEquals(120L, state.elapsedSeconds());
+        verifyNoInteractions(gameProgressRepository);
+    }
+
+    /**
+     * 定義の無いステージ（全クリ後）のテスト。
+     */
+    @Test
+    @DisplayName("stateOf: 定義の無いステージなら全クリ扱い")
+    void testStateOf_Cleared() {
+        // 1. 実行
+        PlayState state = gameService.stateOf("user-123", 999, 0L);
+
+        // 2. 検証
+        assertTrue(state.cleared());
+        assertNull(state.riddle());
+        assertNull(state.hint());
     }
-}
\ No newline at end of file
+}
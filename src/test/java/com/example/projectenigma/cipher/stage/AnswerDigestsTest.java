@@ -0,0 +1,71 @@
+package com.example.projectenigma.cipher.stage;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * AnswerDigestsのハッシュ計算と照合を検証する単体テスト。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+class AnswerDigestsTest {
+
+    /** sha256("apple") */
+    private static final String APPLE = "3a7bd3e2360a3d29eea436fcfb7e44c735d117c42d1c1835420b6b9942dd4f1b";
+
+    @Test
+    @DisplayName("hex: 正規化してからハッシュを取る (APPLE も apple と同じ値)")
+    void testHex() {
+        assertEquals(APPLE, AnswerDigests.hex("apple"));
+        assertEquals(APPLE, AnswerDigests.hex(" ＡＰＰＬＥ "));
+    }
+
+    @Test
+    @DisplayName("matcher: 大文字・全角・前後空白の揺れがあっても一致する")
+    void testMatcher_Variants() {
+        AnswerMatcher matcher = AnswerDigests.matcher(List.of(APPLE));
+
+        assertTrue(matcher.matches("apple"));
+        assertTrue(matcher.matches("  Apple\n"));
+        assertTrue(matcher.matches("　ａｐｐｌｅ　"));
+        assertFalse(matcher.matches("apples"));
+        assertFalse(matcher.matches(""));
+        assertFalse(matcher.matches(null));
+    }
+
+    @Test
+    @DisplayName("matcher: 別解のどれかに一致すれば正解、Normalizerが必要な入力も同じハッシュになる")
+    void testMatcher_Alternatives() {
+        AnswerMatcher matcher = AnswerDigests.matcher(List.of(
+                AnswerDigests.hex("リンゴ"), AnswerDigests.hex("café"), AnswerDigests.hex("🍎")));
+
+        assertTrue(matcher.matches("リンゴ"));
+        assertTrue(matcher.matches("ﾘﾝｺﾞ"));       // 半角カナ
+        assertTrue(matcher.matches("café"));  // 結合文字
+        assertTrue(matcher.matches(" 🍎 "));        // サロゲートペア
+        assertFalse(matcher.matches("りんご"));
+    }
+
+    @Test
+    @DisplayName("matcher: バッファを超える長い解答や、その後の短い解答も正しく判定できる")
+    void testMatcher_LongInput() {
+        String longAnswer = "a".repeat(40_000);
+        AnswerMatcher matcher = AnswerDigests.matcher(List.of(AnswerDigests.hex(longAnswer), APPLE));
+
+        assertTrue(matcher.matches(longAnswer.toUpperCase()));
+        assertFalse(matcher.matches(longAnswer + "b"));
+        assertTrue(matcher.matches("APPLE"));
+    }
+
+    @Test
+    @DisplayName("matcher: SHA-256 でない値は起動時にエラー")
+    void testMatcher_InvalidDigest() {
+        assertThrows(IllegalArgumentException.class, () -> AnswerDigests.matcher(List.of("abcd")));
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.projectenigma.cipher.stage;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * AnswerMatchersの各マッチャーの判定を検証する単体テスト。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+class AnswerMatchersTest {
+
+    @Test
+    @DisplayName("exact: 前後の空白は無視、大文字小文字は区別する")
+    void testExact() {
+        AnswerMatcher matcher = AnswerMatchers.exact("Apple");
+
+        assertTrue(matcher.matches("Apple"));
+        assertTrue(matcher.matches("  Apple\t"));
+        assertFalse(matcher.matches("apple"));
+        assertFalse(matcher.matches("Apples"));
+        assertFalse(matcher.matches(null));
+    }
+
+    @Test
+    @DisplayName("ignoreCase: 大文字小文字を区別しない")
+    void testIgnoreCase() {
+        AnswerMatcher matcher = AnswerMatchers.ignoreCase("apple");
+
+        assertTrue(matcher.matches("APPLE"));
+        assertTrue(matcher.matches(" aPpLe "));
+        assertFalse(matcher.matches("appl"));
+        assertFalse(matcher.matches(""));
+    }
+
+    @Test
+    @DisplayName("normalized: 全角英数・全角スペース・大文字小文字の揺れを吸収する")
+    void testNormalized_FullWidth() {
+        AnswerMatcher matcher = AnswerMatchers.normalized("apple");
+
+        assertTrue(matcher.matches("apple"));
+        assertTrue(matcher.matches("ＡＰＰＬＥ"));
+        assertTrue(matcher.matches("　Ａｐｐｌｅ　"));
+        assertFalse(matcher.matches("ａｐｐｌｅｓ"));
+    }
+
+    @Test
+    @DisplayName("normalized: かな・漢字や、結合文字・半角カナも正規化して比較する")
+    void testNormalized_Unicode() {
+        assertTrue(AnswerMatchers.normalized("りんご").matches(" りんご "));
+        assertTrue(AnswerMatchers.normalized("林檎").matches("林檎"));
+        // 半角カナ → 全角カナ (遅い方の経路)
+        assertTrue(AnswerMatchers.normalized("リンゴ").matches("ﾘﾝｺﾞ"));
+        // e + 結合アクセント → é
+        assertTrue(AnswerMatchers.normalized("café").matches("café"));
+        assertFalse(AnswerMatchers.normalized("りんご").matches("みかん"));
+    }
+
+    @Test
+    @DisplayName("regex: 前後の空白を除いた範囲全体で一致を判定する")
+    void testRegex() {
+        AnswerMatcher matcher = AnswerMatchers.regex("apples?", true);
+
+        assertTrue(matcher.matches("Apple"));
+        assertTrue(matcher.matches(" APPLES "));
+        assertFalse(matcher.matches("pineapple"));
+        assertFalse(AnswerMatchers.regex("apple", false).matches("APPLE"));
+    }
+
+    @Test
+    @DisplayName("anyOf: 別解のどれかに一致すれば正解")
+    void testAnyOf() {
+        AnswerMatcher matcher = AnswerMatchers.anyOf(List.of(
+                AnswerMatchers.normalized("apple"),
+                AnswerMatchers.exact("りんご")));
+
+        assertTrue(matcher.matches("APPLE"));
+        assertTrue(matcher.matches("りんご"));
+        assertFalse(matcher.matches("banana"));
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.projectenigma.cipher.stage;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * AnswerNormalizerの単体テスト。
+ * 1文字ずつの畳み込み (fold) が NFKC＋小文字化 と同じ結果になるかを確認する。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+class AnswerNormalizerTest {
+
+    @Test
+    @DisplayName("normalize: 全角・大文字・前後空白を正規化する")
+    void testNormalize() {
+        assertEquals("apple", AnswerNormalizer.normalize("　ＡＰＰＬＥ "));
+        assertEquals("リンゴ", AnswerNormalizer.normalize("ﾘﾝｺﾞ"));
+    }
+
+    @Test
+    @DisplayName("fold: 畳み込める文字は全て NFKC＋小文字化 と一致する")
+    void testFold_MatchesNormalizer() {
+        for (char c = 0; c < Character.MAX_VALUE; c++) {
+            // 空白は normalize 側で strip されるので対象外
+            if (AnswerNormalizer.isStable(c) && c > ' ' && c != '　') {
+                String expected = AnswerNormalizer.normalize(String.valueOf(c));
+                assertEquals(expected, String.valueOf(AnswerNormalizer.fold(c)), "U+" + Integer.toHexString(c));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("trimStart/trimEnd: 半角・全角スペースや改行を除いた範囲を返す")
+    void testTrim() {
+        String s = " \t　abc　\n";
+        int start = AnswerNormalizer.trimStart(s);
+        int end = AnswerNormalizer.trimEnd(s, start);
+
+        assertEquals("abc", s.substring(start, end));
+        assertEquals(0, AnswerNormalizer.trimEnd("   ", AnswerNormalizer.trimStart("   ")) - AnswerNormalizer.trimStart("   "));
+    }
+
+    @Test
+    @DisplayName("isFoldable: 半角カナや結合文字があれば false")
+    void testIsFoldable() {
+        String foldable = "Ａpple りんご 林檎";
+        String halfWidth = "ﾘﾝｺﾞ";
+        String combining = "café";
+
+        assertTrue(AnswerNormalizer.isFoldable(foldable, 0, foldable.length()));
+        assertFalse(AnswerNormalizer.isFoldable(halfWidth, 0, halfWidth.length()));
+        assertFalse(AnswerNormalizer.isFoldable(combining, 0, combining.length()));
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.projectenigma.cipher.stage;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * StageRegistryの読み込みと判定を検証する単体テスト。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+class StageRegistryTest {
+
+    private static ByteArrayResource json(String json) {
+        return new ByteArrayResource(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("stages.json: 同梱の定義が読み込め、Stage 1 の正解は apple")
+    void testLoadBundledStages() {
+        StageRegistry registry = new StageRegistry(new ClassPathResource("stages.json"));
+
+        Stage stage = registry.find(1).orElseThrow();
+        assertNotNull(stage.riddle());
+        assertTrue(registry.isCorrect(1, "Apple"));
+        assertFalse(registry.isCorrect(1, "banana"));
+    }
+
+    @Test
+    @DisplayName("find/isCorrect: 欠番・範囲外のステージはEmpty・不正解")
+    void testUnknownStage() {
+        StageRegistry registry = new StageRegistry(json("""
+                {"stages": [
+                  {"id": 1, "riddle": "one", "answer": {"type": "exact", "value": "1"}},
+                  {"id": 3, "riddle": "three", "answer": {"type": "regex", "value": "th(ree|3)", "ignoreCase": true}}
+                ]}
+                """));
+
+        assertEquals(3, registry.lastStageId());
+        assertTrue(registry.find(2).isEmpty());
+        assertTrue(registry.find(0).isEmpty());
+        assertTrue(registry.find(4).isEmpty());
+        assertFalse(registry.isCorrect(2, "anything"));
+        assertFalse(registry.isCorrect(-1, "anything"));
+        assertTrue(registry.isCorrect(3, "TH3"));
+    }
+
+    @Test
+    @DisplayName("読み込み: ステージIDが重複していたら起動時にエラー")
+    void testDuplicateId() {
+        ByteArrayResource resource = json("""
+                {"stages": [
+                  {"id": 1, "riddle": "a", "answer": {"type": "exact", "value": "a"}},
+                  {"id": 1, "riddle": "b", "answer": {"type": "exact", "value": "b"}}
+                ]}
+                """);
+
+        assertThrows(IllegalStateException.class, () -> new StageRegistry(resource));
+    }
+
+    @Test
+    @DisplayName("読み込み: 未知の判定タイプは起動時にエラー")
+    void testUnknownType() {
+        ByteArrayResource resource = json("""
+                {"stages": [{"id": 1, "riddle": "a", "answer": {"type": "telepathy", "value": "a"}}]}
+                """);
+
+        assertThrows(IllegalStateException.class, () -> new StageRegistry(resource));
+    }
+
+    @Test
+    @DisplayName("ネイティブ向けヒント: 定義ファイルと、入れ子の定義 record まで登録される")
+    void testRuntimeHints() {
+        RuntimeHints hints = new RuntimeHints();
+
+        new StageRegistry.StagesRuntimeHints().registerHints(hints, getClass().getClassLoader());
+
+        assertTrue(RuntimeHintsPredicates.resource().forResource("stages.json").test(hints));
+        for (String type : new String[] {"StagesDefinition", "StageDefinition", "AnswerDefinition"}) {
+            TypeReference definition = TypeReference.of(StageRegistry.class.getName() + "$" + type);
+            assertTrue(RuntimeHintsPredicates.reflection().onType(definition).test(hints), type);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.projectenigma.cipher.web;
+
+import com.example.projectenigma.cipher.dto.Player;
+import com.example.projectenigma.cipher.entity.GameProgress;
+import com.example.projectenigma.cipher.entity.User;
+import com.example.projectenigma.cipher.service.AuthService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.MethodParameter;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.lang.reflect.Method;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * CurrentPlayerArgumentResolverの単体テスト。
+ * 同じリクエストの中で何回解決しても、プレイヤーの特定は1回だけなことを確認する。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+@ExtendWith(MockitoExtension.class)
+class CurrentPlayerArgumentResolverTest {
+
+    @Mock
+    private AuthService authService;
+
+    private CurrentPlayerArgumentResolver resolver;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+    private ServletWebRequest webRequest;
+
+    /** 引数の形だけ借りるためのハンドラー */
+    @SuppressWarnings("unused")
+    private static class Handlers {
+        void plain(@CurrentPlayer Player player) {
+        }
+
+        void materialize(@CurrentPlayer(materialize = true) Player player) {
+        }
+
+        void unannotated(Player player) {
+        }
+    }
+
+    private static MethodParameter parameter(String methodName) throws NoSuchMethodException {
+        Method method = Handlers.class.getDeclaredMethod(methodName, Player.class);
+        return new MethodParameter(method, 0);
+    }
+
+    private static Player player(String id, boolean provisional) {
+        if (provisional) {
+            return Player.provisional(id);
+        }
+        User user = new User();
+        user.setId(id);
+        GameProgress progress = new GameProgress();
+        progress.setUserId(id);
+        progress.setCurrentStageId(2);
+        return new Player(user, progress);
+    }
+
+    @BeforeEach
+    void setUp() {
+        resolver = new CurrentPlayerArgumentResolver(authService);
+        request = new MockHttpServletRequest();
+        response = new MockHttpServletResponse();
+        webRequest = new ServletWebRequest(request, response);
+    }
+
+    @Test
+    @DisplayName("supportsParameter: @CurrentPlayer の付いた Player だけ対象にする")
+    void testSupportsParameter() throws Exception {
+        assertTrue(resolver.supportsParameter(parameter("plain")));
+        assertTrue(resolver.supportsParameter(parameter("materialize")));
+        assertFalse(resolver.supportsParameter(parameter("unannotated")));
+    }
+
+    @Test
+    @DisplayName("resolveArgument: 同じリクエストで何回解決しても、特定は1回だけ")
+    void testResolveArgument_OncePerRequest() throws Exception {
+        // 1. 準備
+        Player alice = player("alice", false);
+        when(authService.authOrCreatePlayer(request, response)).thenReturn(alice);
+
+        // 2. 実行
+        Object first = resolver.resolveArgument(parameter("plain"), null, webRequest, null);
+        Object second = resolver.resolveArgument(parameter("plain"), null, webRequest, null);
+
+        // 3. 検証
+        assertSame(alice, first);
+        assertSame(alice, second);
+        assertSame(alice, request.getAttribute(CurrentPlayerArgumentResolver.ATTRIBUTE));
+        verify(authService, times(1)).authOrCreatePlayer(request, response);
+    }
+
+    @Test
+    @DisplayName("resolveArgument: materialize なら本登録して、属性も本登録後のものに差し替える")
+    void testResolveArgument_Materialize() throws Exception {
+        // 1. 準備
+        Player provisional = player("guest", true);
+        Player saved = player("guest", false);
+        when(authService.authOrCreatePlayer(request, response)).thenReturn(provisional);
+        when(authService.materialize(provisional, response)).thenReturn(saved);
+
+        // 2. 実行
+        Object resolved = resolver.resolveArgument(parameter("materialize"), null, webRequest, null);
+
+        // 3. 検証: 後から解決しても本登録後のが返る
+        assertSame(saved, resolved);
+        assertSame(saved, resolver.resolve(request, response));
+        verify(authService, times(1)).authOrCreatePlayer(request, response);
+    }
+
+    @Test
+    @DisplayName("resolveArgument: materialize でなければ本登録はしない")
+    void testResolveArgument_NoMaterialize() throws Exception {
+        // 1. 準備
+        when(authService.authOrCreatePlayer(request, response)).thenReturn(player("guest", true));
+
+        // 2. 実行
+        resolver.resolveArgument(parameter("plain"), null, webRequest, null);
+
+        // 3. 検証
+        verify(authService, never()).materialize(any(), any());
+    }
+}
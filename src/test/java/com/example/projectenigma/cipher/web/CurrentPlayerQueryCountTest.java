@@ -0,0 +1,104 @@
+package com.example.projectenigma.cipher.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+import java.util.List;
+import java.util.Locale;
+
+import jakarta.servlet.http.Cookie;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import com.example.projectenigma.cipher.util.CookieUtil;
+import com.example.projectenigma.support.SqlStatementCounter;
+
+/**
+ * 各エンドポイントが、プレイヤーを特定するクエリ（users と game_progress の結合）を
+ * 1リクエストにつき高々1回しか発行しないことを、実際に発行されたSQLを数えて確認するテスト。
+ * プレイヤーキャッシュの有効期限を0にして、毎回DBまで読みに行かせる。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+@SpringBootTest(properties = {
+        "enigma.cache.player.ttl=PT0S",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.example.projectenigma.support.SqlStatementCounter"})
+@AutoConfigureMockMvc
+class CurrentPlayerQueryCountTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    /** 今持ってる enigma_uid */
+    private Cookie cookie;
+
+    /**
+     * リクエストを1本送って、その間に発行されたプレイヤー特定のクエリの数を返します。
+     * 返ってきた Cookie は次のリクエストに引き継ぎます。
+     */
+    private long identityQueries(RequestBuilder request) throws Exception {
+        SqlStatementCounter.start();
+        MvcResult result;
+        try {
+            // 画面からの解答はリダイレクトで返る
+            result = mockMvc.perform(request)
+                    .andExpect(response -> assertThat(response.getResponse().getStatus()).isLessThan(400))
+                    .andReturn();
+        } catch (AssertionError e) {
+            SqlStatementCounter.stop();
+            throw e;
+        }
+        List<String> statements = SqlStatementCounter.stop();
+        Cookie issued = result.getResponse().getCookie(CookieUtil.COOKIE_NAME);
+        if (issued != null) {
+            cookie = issued;
+        }
+        return statements.stream()
+                .map(sql -> sql.toLowerCase(Locale.ROOT))
+                .filter(sql -> sql.startsWith("select") && sql.contains(" users ") && sql.contains("game_progress"))
+                .count();
+    }
+
+    private <T extends MockHttpServletRequestBuilder> T withCookie(T request) {
+        if (cookie != null) {
+            request.cookie(cookie);
+        }
+        return request;
+    }
+
+    @Test
+    @DisplayName("どのエンドポイントも、プレイヤーを特定するクエリは1リクエストにつき高々1回")
+    void testAtMostOneIdentityQueryPerRequest() throws Exception {
+        // 1. 仮プレイヤーの間は、DBを見ない
+        assertThat(identityQueries(withCookie(get("/")))).isZero();
+        assertThat(identityQueries(withCookie(get("/play")))).isZero();
+
+        // 2. 最初の解答で本登録される (まだ行を読む必要はない)
+        assertThat(identityQueries(withCookie(post("/api/play/answer")
+                .contentType(MediaType.APPLICATION_JSON).content("{\"answer\":\"banana\"}")))).isZero();
+
+        // 3. 本登録後は、キャッシュが効かないので毎回1回だけ読む
+        assertThat(identityQueries(withCookie(get("/")))).isEqualTo(1);
+        assertThat(identityQueries(withCookie(get("/play")))).isEqualTo(1);
+        assertThat(identityQueries(withCookie(get("/api/play/state")))).isEqualTo(1);
+        assertThat(identityQueries(withCookie(post("/api/play/answer")
+                .contentType(MediaType.APPLICATION_JSON).content("{\"answer\":\"banana\"}")))).isEqualTo(1);
+        assertThat(identityQueries(withCookie(post("/play/answer").param("answer", "banana")))).isEqualTo(1);
+
+        // 4. ハートビートは Cookie の署名を見るだけ
+        assertThat(identityQueries(withCookie(post("/api/play/heartbeat")))).isZero();
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.projectenigma.cipher.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+
+/**
+ * 静的ファイルの配信（ハッシュ入りURL・gzip・キャッシュ）を、実際にサーバーを立てて検証するテスト。
+ * gzip は Tomcat がかけるので MockMvc ではなく HttpClient で叩く（HttpClient は展開しないので、転送量がそのまま測れる）。
+ * <p>
+ * 1ページ分（/play の HTML と、そこから参照する CSS・JS・favicon）の転送量を、
+ * 圧縮なし・ハッシュなしURL（変更前の配信）と、今の配信とで比べて表示する。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class StaticResourceConfigTest {
+
+    /** ビルドで gzip 版を作る種類 (テキスト系と、中身が非圧縮の ico) */
+    private static final String COMPRESSIBLE = "css|js|mjs|json|map|svg|txt|html|webmanifest|ico";
+
+    /** もう圧縮されてるので gzip しない種類 */
+    private static final String BINARY = "png|jpe?g|gif|webp|avif|woff2?";
+
+    /** HTML の中の静的ファイルへの参照 */
+    private static final Pattern ASSET = Pattern.compile("(?:href|src)=\"(/[^\"]+\\.(?:css|js|ico))\"");
+
+    /** ハッシュ入りのファイル名 */
+    private static final Pattern VERSIONED = Pattern.compile(".+-[0-9a-f]{32}\\.\\w+");
+
+    @LocalServerPort
+    private int port;
+
+    private final HttpClient http = HttpClient.newBuilder().followRedirects(HttpClient.Redirect.NEVER).build();
+
+    private HttpResponse<byte[]> get(String path, boolean gzip) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path));
+        if (gzip) {
+            request.header("Accept-Encoding", "gzip");
+        }
+        return http.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private List<String> assetsOf(String html) {
+        List<String> assets = new ArrayList<>();
+        Matcher matcher = ASSET.matcher(html);
+        while (matcher.find()) {
+            assets.add(matcher.group(1));
+        }
+        return assets;
+    }
+
+    @Test
+    @DisplayName("/play: 静的ファイルはハッシュ入りURLで参照され、gzip・immutable で返る")
+    void testPlayPage() throws Exception {
+        // 1. 準備: HTML は圧縮なしで取って、参照してるファイルを拾う
+        HttpResponse<byte[]> page = get("/play", false);
+        List<String> assets = assetsOf(new String(page.body()));
+
+        // 2. 検証: 全部ハッシュ入り
+        assertThat(assets).hasSize(4).allSatisfy(path ->
+                assertThat(path.substring(path.lastIndexOf('/') + 1)).matches(VERSIONED));
+
+        // 3. 実行 & 検証: gzip を受け付けるなら、HTML も静的ファイルも圧縮して返る
+        HttpResponse<byte[]> gzipPage = get("/play", true);
+        assertThat(gzipPage.headers().firstValue("Content-Encoding")).hasValue("gzip");
+        long before = page.body().length;
+        long after = gzipPage.body().length;
+        for (String asset : assets) {
+            HttpResponse<byte[]> response = get(asset, true);
+            assertThat(response.statusCode()).isEqualTo(200);
+            assertThat(response.headers().firstValue("Content-Encoding")).as(asset).hasValue("gzip");
+            assertThat(response.headers().firstValue("Vary")).as(asset).hasValueSatisfying(
+                    vary -> assertThat(vary).containsIgnoringCase("Accept-Encoding"));
+            assertThat(response.headers().firstValue("Cache-Control")).as(asset)
+                    .hasValue("max-age=31536000, public, immutable");
+            after += response.body().length;
+            // 変更前はハッシュなしのURLを圧縮なしで取ってた
+            before += get(asset.replaceFirst("-[0-9a-f]{32}(\\.\\w+)$", "$1"), false).body().length;
+        }
+        System.out.printf("bytes per page view (/play): before=%,d (identity, revalidated every view) "
+                + "first=%,d (gzip) repeat=%,d (assets cached as immutable)%n", before, after, gzipPage.body().length);
+        assertThat(after).isLessThan(before);
+    }
+
+    @Test
+    @DisplayName("ハッシュなしのURLは、毎回確認させる (no-cache)")
+    void testUnversioned() throws Exception {
+        // 1. 実行
+        HttpResponse<byte[]> response = get("/favicon.ico", false);
+
+        // 2. 検証
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.headers().firstValue("Cache-Control")).hasValue("no-cache");
+        assertThat(response.headers().firstValue("Last-Modified")).isPresent();
+    }
+
+    @Test
+    @DisplayName("ハッシュが合わないURLは 404")
+    void testWrongHash() throws Exception {
+        assertThat(get("/css/style-00000000000000000000000000000000.css", false).statusCode()).isEqualTo(404);
+    }
+
+    @Test
+    @DisplayName("static/ の圧縮できるファイルには、全部ビルドで作った gzip 版がある")
+    void testPrecompressed() throws Exception {
+        // 1. 準備
+        PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+        List<String> checked = new ArrayList<>();
+
+        // 2. 実行 & 検証 (pom.xml の maven-antrun-plugin に足し忘れてないか)
+        for (Resource resource : resolver.getResources("classpath:/static/**/*.*")) {
+            String name = resource.getFilename();
+            if (name == null || name.endsWith(".gz")) {
+                continue;
+            }
+            // 知らん種類のファイルは、gzip するかどうか決めてからここに足す
+            assertThat(name).as("static/ の新しい種類のファイル").matches(".+\\.(" + COMPRESSIBLE + "|" + BINARY + ")");
+            if (name.matches(".+\\.(" + COMPRESSIBLE + ")")) {
+                assertThat(resource.createRelative(name + ".gz").exists()).as(name + ".gz").isTrue();
+                checked.add(name);
+            }
+        }
+        // 3. 検証: 何も見つからずに素通りしてないこと
+        assertThat(checked).contains("style.css", "play.js", "timer.js", "favicon.ico");
+    }
+}
@@ -0,0 +1,471 @@
+package com.example.projectenigma.load;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.random.RandomGenerator;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.projectenigma.ProjectenigmaApplication;
+import com.example.projectenigma.cipher.util.CookieUtil;
+
+/**
+ * プレイヤーっぽいトラフィックをアプリに流して、応答時間の分布とスループットを測る負荷ドライバー（インスタンスのサイジング用）。
+ * {@code ./mvnw -Pload test-compile exec:exec -Dload.args="--rate=500 --duration=PT2M"} で実行します。
+ * <p>
+ * 決まった到着レート（既定はポアソン到着）でリクエストを出す開ループで、前の応答を待たずに次を送る。
+ * 1リクエストは Cookie を持ったプレイヤー1人の1操作（/ を見る・/play を見る・解答を送る）で、
+ * 手の空いてるプレイヤーがいなければ新しい人が来たことにする。正解したプレイヤーはクリアして帰る。
+ * <p>
+ * 応答時間は「送るはずだった時刻」から測る（coordinated omission の補正）。ドライバーが詰まって送るのが遅れた分も
+ * 利用者から見れば待ち時間なので、実際に送った時刻からの時間（service）と両方出す。分布は HdrHistogram に記録し、
+ * 操作ごとの .hgrm を {@code --report} のディレクトリに書く（HdrHistogram のプロッターでそのまま描ける）。
+ * <p>
+ * {@code --target} を省くと、同じJVMの中でアプリを起動して流す（ドライバーとCPUを取り合うので、サイジングには別マシンから流すこと）。
+ * 引数（すべて {@code --key=value}）:
+ * <ul>
+ *   <li>target: アプリのURL（既定: 同じJVMで起動）</li>
+ *   <li>rate: 1秒あたりのリクエスト数（既定 200）</li>
+ *   <li>arrivals: poisson / uniform（既定 poisson）</li>
+ *   <li>warmup: 記録しない時間（既定 PT10S）, duration: 記録する時間（既定 PT60S）</li>
+ *   <li>mix: 操作の比率（既定 root:10,play:60,answer-wrong:25,answer-correct:5）</li>
+ *   <li>max-in-flight: 同時に待てる応答の上限。超えた分は送らずに dropped に数える（既定 10000）</li>
+ *   <li>report: .hgrm の書き出し先（既定 target/load）</li>
+ * </ul>
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+public final class LoadDriver {
+
+    /** 応答待ちの上限 */
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    /** 有効桁数 (HdrHistogram) */
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    /**
+     * プレイヤーの操作。
+     */
+    enum Action {
+        ROOT("root"),
+        PLAY("play"),
+        ANSWER_WRONG("answer-wrong"),
+        ANSWER_CORRECT("answer-correct");
+
+        private final String label;
+
+        Action(String label) {
+            this.label = label;
+        }
+
+        static Action of(String label) {
+            for (Action action : values()) {
+                if (action.label.equals(label)) {
+                    return action;
+                }
+            }
+            throw new IllegalArgumentException("Unknown action: " + label);
+        }
+
+        HttpRequest.Builder request(URI base) {
+            return switch (this) {
+                case ROOT -> HttpRequest.newBuilder(base.resolve("/")).GET();
+                case PLAY -> HttpRequest.newBuilder(base.resolve("/play")).GET();
+                case ANSWER_WRONG -> answer(base, "banana");
+                case ANSWER_CORRECT -> answer(base, "apple");
+            };
+        }
+
+        private static HttpRequest.Builder answer(URI base, String answer) {
+            return HttpRequest.newBuilder(base.resolve("/play/answer"))
+                    .header("Content-Type", "application/x-www-form-urlencoded")
+                    .POST(HttpRequest.BodyPublishers.ofString("answer=" + answer));
+        }
+    }
+
+    /**
+     * 実行の設定。
+     *
+     * @param target      アプリのURL（null なら同じJVMで起動）
+     * @param rate        1秒あたりのリクエスト数
+     * @param poisson     ポアソン到着なら true、等間隔なら false
+     * @param warmup      記録しない時間
+     * @param duration    記録する時間
+     * @param mix         操作ごとの重み
+     * @param maxInFlight 同時に待てる応答の上限
+     * @param report      .hgrm の書き出し先
+     */
+    record Settings(URI target, double rate, boolean poisson, Duration warmup, Duration duration,
+                    Map<Action, Integer> mix, int maxInFlight, Path report) {
+
+        Settings {
+            if (rate <= 0) {
+                throw new IllegalArgumentException("rate must be positive: " + rate);
+            }
+            if (mix.isEmpty() || mix.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+                throw new IllegalArgumentException("mix must have a positive weight: " + mix);
+            }
+        }
+
+        /**
+         * {@code --key=value} 形式の引数から設定を作ります。指定のないものは既定値。
+         *
+         * @param args 引数
+         * @return 設定
+         */
+        static Settings parse(String... args) {
+            Map<String, String> options = new LinkedHashMap<>();
+            for (String arg : args) {
+                if (arg.isBlank()) {
+                    continue;
+                }
+                int eq = arg.indexOf('=');
+                if (!arg.startsWith("--") || eq < 0) {
+                    throw new IllegalArgumentException("Expected --key=value: " + arg);
+                }
+                options.put(arg.substring(2, eq), arg.substring(eq + 1));
+            }
+            String target = take(options, "target", "");
+            Settings settings = new Settings(
+                    target.isBlank() ? null : URI.create(target),
+                    Double.parseDouble(take(options, "rate", "200")),
+                    poisson(take(options, "arrivals", "poisson")),
+                    Duration.parse(take(options, "warmup", "PT10S")),
+                    Duration.parse(take(options, "duration", "PT60S")),
+                    parseMix(take(options, "mix", "root:10,play:60,answer-wrong:25,answer-correct:5")),
+                    Integer.parseInt(take(options, "max-in-flight", "10000")),
+                    Path.of(take(options, "report", "target/load")));
+            if (!options.isEmpty()) {
+                throw new IllegalArgumentException("Unknown options: " + options.keySet());
+            }
+            return settings;
+        }
+
+        private static String take(Map<String, String> options, String key, String fallback) {
+            String value = options.remove(key);
+            return value == null ? fallback : value;
+        }
+
+        private static boolean poisson(String arrivals) {
+            return switch (arrivals) {
+                case "poisson" -> true;
+                case "uniform" -> false;
+                default -> throw new IllegalArgumentException("arrivals must be poisson or uniform: " + arrivals);
+            };
+        }
+
+        private static Map<Action, Integer> parseMix(String mix) {
+            Map<Action, Integer> weights = new EnumMap<>(Action.class);
+            for (String entry : mix.split(",")) {
+                String[] pair = entry.trim().split(":");
+                if (pair.length != 2) {
+                    throw new IllegalArgumentException("Expected action:weight in mix: " + entry);
+                }
+                int weight = Integer.parseInt(pair[1].trim());
+                if (weight < 0) {
+                    throw new IllegalArgumentException("Negative weight in mix: " + entry);
+                }
+                weights.put(Action.of(pair[0].trim()), weight);
+            }
+            return weights;
+        }
+
+        /**
+         * 重みに従って操作を1つ選びます。
+         */
+        Action pick(RandomGenerator random) {
+            int total = mix.values().stream().mapToInt(Integer::intValue).sum();
+            int roll = random.nextInt(total);
+            for (Map.Entry<Action, Integer> entry : mix.entrySet()) {
+                roll -= entry.getValue();
+                if (roll < 0) {
+                    return entry.getKey();
+                }
+            }
+            throw new IllegalStateException("unreachable");
+        }
+    }
+
+    /**
+     * 操作ごとの結果。
+     *
+     * @param latency 送るはずだった時刻からの応答時間（マイクロ秒, coordinated omission 補正済み）
+     * @param service 実際に送った時刻からの応答時間（マイクロ秒）
+     * @param errors  4xx/5xx・タイムアウト・接続失敗の数
+     */
+    record ActionResult(Histogram latency, Histogram service, long errors) {
+    }
+
+    /**
+     * 実行結果。
+     *
+     * @param actions  操作ごとの結果
+     * @param failures 失敗の理由ごとの数
+     * @param dropped  max-in-flight を超えて送らなかった数
+     * @param players  来たプレイヤーの数
+     * @param duration 記録した時間
+     */
+    record Report(Map<Action, ActionResult> actions, Map<String, Long> failures, long dropped, int players,
+                  Duration duration) {
+
+        /**
+         * 全操作をまとめた結果を返します。
+         */
+        ActionResult total() {
+            Histogram latency = new Histogram(SIGNIFICANT_DIGITS);
+            Histogram service = new Histogram(SIGNIFICANT_DIGITS);
+            long errors = 0;
+            for (ActionResult result : actions.values()) {
+                latency.add(result.latency());
+                service.add(result.service());
+                errors += result.errors();
+            }
+            return new ActionResult(latency, service, errors);
+        }
+
+        /**
+         * 結果を表にして書き出します。
+         *
+         * @param out 書き出し先
+         */
+        void print(PrintStream out) {
+            double seconds = duration.toNanos() / 1e9;
+            out.printf("%n=== load (%.0fs, dropped=%,d, players=%,d) latency from intended start, ms ===%n",
+                    seconds, dropped, players);
+            out.printf("%-15s %9s %8s %9s %8s %8s %8s %8s %8s %8s %12s%n",
+                    "action", "count", "errors", "req/s", "p50", "p90", "p99", "p99.9", "max", "mean", "service p99");
+            actions.forEach((action, result) -> row(out, action.label, result, seconds));
+            row(out, "total", total(), seconds);
+            failures.forEach((reason, count) -> out.printf("failed: %s x %,d%n", reason, count));
+        }
+
+        private static void row(PrintStream out, String label, ActionResult result, double seconds) {
+            Histogram latency = result.latency();
+            out.printf("%-15s %,9d %,8d %,9.1f %8.2f %8.2f %8.2f %8.2f %8.2f %8.2f %12.2f%n",
+                    label, latency.getTotalCount(), result.errors(), latency.getTotalCount() / seconds,
+                    millis(latency.getValueAtPercentile(50)), millis(latency.getValueAtPercentile(90)),
+                    millis(latency.getValueAtPercentile(99)), millis(latency.getValueAtPercentile(99.9)),
+                    millis(latency.getMaxValue()), latency.getMean() / 1000.0,
+                    millis(result.service().getValueAtPercentile(99)));
+        }
+
+        private static double millis(long micros) {
+            return micros / 1000.0;
+        }
+
+        /**
+         * 操作ごとの分布を .hgrm で書き出します（単位はミリ秒）。
+         *
+         * @param directory 書き出し先
+         * @throws IOException 書けなかった場合
+         */
+        void write(Path directory) throws IOException {
+            Files.createDirectories(directory);
+            for (Map.Entry<Action, ActionResult> entry : actions.entrySet()) {
+                write(directory.resolve(entry.getKey().label + ".hgrm"), entry.getValue().latency());
+                write(directory.resolve(entry.getKey().label + "-service.hgrm"), entry.getValue().service());
+            }
+            write(directory.resolve("total.hgrm"), total().latency());
+        }
+
+        private static void write(Path file, Histogram histogram) throws IOException {
+            try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+                histogram.outputPercentileDistribution(out, 1000.0);
+            }
+        }
+    }
+
+    /**
+     * Cookie を持って遊んでるプレイヤー1人。同時に2つのリクエストは出さない。
+     */
+    private static final class Player {
+        private String cookie;
+    }
+
+    private final Settings settings;
+
+    LoadDriver(Settings settings) {
+        this.settings = settings;
+    }
+
+    /**
+     * 負荷をかけて結果を返します。
+     *
+     * @param base アプリのURL
+     * @return 実行結果
+     * @throws InterruptedException 割り込まれた場合
+     */
+    Report run(URI base) throws InterruptedException {
+        Map<Action, ConcurrentHistogram> latency = new EnumMap<>(Action.class);
+        Map<Action, ConcurrentHistogram> service = new EnumMap<>(Action.class);
+        Map<Action, LongAdder> errors = new EnumMap<>(Action.class);
+        for (Action action : settings.mix().keySet()) {
+            latency.put(action, new ConcurrentHistogram(SIGNIFICANT_DIGITS));
+            service.put(action, new ConcurrentHistogram(SIGNIFICANT_DIGITS));
+            errors.put(action, new LongAdder());
+        }
+        Map<String, LongAdder> failures = new ConcurrentHashMap<>();
+        ConcurrentLinkedQueue<Player> idle = new ConcurrentLinkedQueue<>();
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger players = new AtomicInteger();
+        long dropped = 0;
+
+        // 送った分を全部待ってから (requests を閉じてから) クライアントを閉じる。逆だと最後のほうが送れずにコケる
+        try (HttpClient http = HttpClient.newBuilder()
+                     .version(HttpClient.Version.HTTP_1_1)
+                     .followRedirects(HttpClient.Redirect.NEVER)
+                     .connectTimeout(Duration.ofSeconds(10))
+                     .build();
+             ExecutorService requests = Executors.newVirtualThreadPerTaskExecutor()) {
+            RandomGenerator random = ThreadLocalRandom.current();
+            double meanIntervalNanos = 1e9 / settings.rate();
+            long start = System.nanoTime();
+            long recordFrom = start + settings.warmup().toNanos();
+            long end = recordFrom + settings.duration().toNanos();
+            double next = start;
+
+            // 送る時刻は前の応答とは関係なく決める (開ループ)
+            while (next < end) {
+                long intended = (long) next;
+                next += settings.poisson() ? -Math.log(1 - random.nextDouble()) * meanIntervalNanos : meanIntervalNanos;
+                long wait = intended - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                boolean recorded = intended >= recordFrom;
+                if (inFlight.get() >= settings.maxInFlight()) {
+                    if (recorded) {
+                        dropped++;
+                    }
+                    continue;
+                }
+                Action action = settings.pick(random);
+                Player player = idle.poll();
+                if (player == null) {
+                    player = new Player();
+                    players.incrementAndGet();
+                }
+                Player current = player;
+                inFlight.incrementAndGet();
+                requests.submit(() -> {
+                    try {
+                        long sent = System.nanoTime();
+                        String failure = send(http, base, current, action);
+                        long done = System.nanoTime();
+                        if (recorded) {
+                            latency.get(action).recordValue(TimeUnit.NANOSECONDS.toMicros(done - intended));
+                            service.get(action).recordValue(TimeUnit.NANOSECONDS.toMicros(done - sent));
+                            if (failure != null) {
+                                errors.get(action).increment();
+                                failures.computeIfAbsent(failure, reason -> new LongAdder()).increment();
+                            }
+                        }
+                        // 正解したらクリアして帰る。代わりに新しい人が来る
+                        if (failure != null || action != Action.ANSWER_CORRECT) {
+                            idle.add(current);
+                        }
+                    } finally {
+                        inFlight.decrementAndGet();
+                    }
+                });
+            }
+            // 送った分の応答は全部待つ (ExecutorService#close)
+        }
+
+        Map<Action, ActionResult> results = new EnumMap<>(Action.class);
+        for (Action action : settings.mix().keySet()) {
+            results.put(action, new ActionResult(latency.get(action), service.get(action), errors.get(action).sum()));
+        }
+        Map<String, Long> reasons = new TreeMap<>();
+        failures.forEach((reason, count) -> reasons.put(reason, count.sum()));
+        return new Report(results, reasons, dropped, players.get(), settings.duration());
+    }
+
+    /**
+     * プレイヤーとして1リクエスト送ります。返ってきた enigma_uid は次から使う。
+     *
+     * @return 失敗の理由（「HTTP 503」や例外のクラス名）。成功なら null
+     */
+    private static String send(HttpClient http, URI base, Player player, Action action) {
+        HttpRequest.Builder request = action.request(base).timeout(REQUEST_TIMEOUT);
+        if (player.cookie != null) {
+            request.header("Cookie", player.cookie);
+        }
+        try {
+            HttpResponse<Void> response = http.send(request.build(), HttpResponse.BodyHandlers.discarding());
+            // Cookie なしの初回解答は、仮の分と本登録の分の2つ返ってくるので最後のを使う
+            issuedCookie(response).ifPresent(cookie -> player.cookie = cookie);
+            return response.statusCode() < 400 ? null : "HTTP " + response.statusCode();
+        } catch (IOException e) {
+            return e.getClass().getSimpleName();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return e.getClass().getSimpleName();
+        }
+    }
+
+    private static Optional<String> issuedCookie(HttpResponse<?> response) {
+        return response.headers().allValues("Set-Cookie").stream()
+                .filter(value -> value.startsWith(CookieUtil.COOKIE_NAME + "="))
+                .map(value -> value.indexOf(';') < 0 ? value : value.substring(0, value.indexOf(';')))
+                .reduce((first, second) -> second);
+    }
+
+    /**
+     * コマンドラインから実行します。
+     *
+     * @param args {@code --key=value} 形式の引数（クラスのコメント参照）
+     * @throws Exception 実行に失敗した場合
+     */
+    public static void main(String[] args) throws Exception {
+        Settings settings = Settings.parse(args);
+        LoadDriver driver = new LoadDriver(settings);
+        Report report;
+        if (settings.target() != null) {
+            report = driver.run(settings.target());
+        } else {
+            // main から起動すると devtools がこのクラスの main ごと再起動しようとするので、起動前に切る
+            System.setProperty("spring.devtools.restart.enabled", "false");
+            try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ProjectenigmaApplication.class)
+                    .run("--server.port=0",
+                            // 全プレイヤーが localhost から来るので、回答の流量制限は切っておく
+                            "--enigma.ratelimit.enabled=false",
+                            "--logging.level.root=WARN")) {
+                int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+                report = driver.run(URI.create("http://localhost:" + port));
+            }
+        }
+        report.print(System.out);
+        report.write(settings.report());
+        System.out.println("Histograms written to " + settings.report().toAbsolutePath());
+        // アプリのスレッドが残ってても終わらせる
+        System.exit(0);
+    }
+}
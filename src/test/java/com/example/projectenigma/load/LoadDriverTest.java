@@ -0,0 +1,154 @@
+package com.example.projectenigma.load;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.random.RandomGenerator;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.example.projectenigma.cipher.util.CookieUtil;
+import com.example.projectenigma.load.LoadDriver.Action;
+import com.example.projectenigma.load.LoadDriver.ActionResult;
+import com.example.projectenigma.load.LoadDriver.Report;
+import com.example.projectenigma.load.LoadDriver.Settings;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * LoadDriver のテスト。アプリの代わりに、Cookie を配るだけの小さなHTTPサーバーに流す。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+class LoadDriverTest {
+
+    private HttpServer server;
+
+    /** Cookie なしで来たリクエスト数 (= 新しいプレイヤー) */
+    private final LongAdder withoutCookie = new LongAdder();
+
+    /** Cookie 付きで来たリクエスト数 */
+    private final LongAdder withCookie = new LongAdder();
+
+    private final AtomicInteger issued = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            if (exchange.getRequestHeaders().getFirst("Cookie") == null) {
+                withoutCookie.increment();
+                exchange.getResponseHeaders().add("Set-Cookie",
+                        CookieUtil.COOKIE_NAME + "=player-" + issued.incrementAndGet() + "; Path=/; HttpOnly");
+            } else {
+                withCookie.increment();
+            }
+            // 画面からの解答はリダイレクトで返る
+            boolean answer = exchange.getRequestURI().getPath().equals("/play/answer");
+            exchange.sendResponseHeaders(answer ? 302 : 200, -1);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    private URI base() {
+        return URI.create("http://localhost:" + server.getAddress().getPort());
+    }
+
+    @Test
+    @DisplayName("引数を省くと既定値になり、mix の比率で操作を選ぶ")
+    void testParseDefaults() {
+        // 1. 実行
+        Settings settings = Settings.parse();
+        Settings custom = Settings.parse("--rate=50", "--arrivals=uniform", "--mix=play:1", "--report=out");
+
+        // 2. 検証
+        assertThat(settings.target()).isNull();
+        assertThat(settings.rate()).isEqualTo(200);
+        assertThat(settings.poisson()).isTrue();
+        assertThat(settings.mix()).containsEntry(Action.PLAY, 60).containsEntry(Action.ANSWER_CORRECT, 5);
+        assertThat(custom.rate()).isEqualTo(50);
+        assertThat(custom.poisson()).isFalse();
+        assertThat(custom.report()).isEqualTo(Path.of("out"));
+        assertThat(custom.pick(RandomGenerator.getDefault())).isEqualTo(Action.PLAY);
+    }
+
+    @Test
+    @DisplayName("知らない引数や壊れた mix はエラーにする")
+    void testParseRejectsInvalid() {
+        assertThatThrownBy(() -> Settings.parse("--rtae=10")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Settings.parse("--mix=play")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Settings.parse("--mix=fly:1")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Settings.parse("--mix=play:0")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Settings.parse("--arrivals=burst")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("決まったレートで送り、Cookie を引き継ぎ、送るはずだった時刻から応答時間を測る")
+    void testRunRecordsOpenLoopLatency() throws Exception {
+        // 1. 準備 (等間隔 200 req/s を 1 秒記録)
+        Settings settings = new Settings(null, 200, false, Duration.ofMillis(500), Duration.ofSeconds(1),
+                Map.of(Action.PLAY, 6, Action.ANSWER_WRONG, 3, Action.ANSWER_CORRECT, 1), 1_000, Path.of("unused"));
+
+        // 2. 実行
+        Report report = new LoadDriver(settings).run(base());
+
+        // 3. 検証
+        ActionResult total = report.total();
+        assertThat(total.latency().getTotalCount()).isBetween(195L, 205L);
+        assertThat(total.errors()).as("failures: %s", report.failures()).isZero();
+        assertThat(report.dropped()).isZero();
+        // 2回目からは Cookie 付きで来る。正解したプレイヤーは帰るので、新しい人も来続ける
+        assertThat(withCookie.sum()).isGreaterThan(withoutCookie.sum());
+        assertThat(report.players()).isEqualTo(withoutCookie.intValue());
+        // 送るはずだった時刻から測るので、実際に送ってからの時間より短くはならない
+        report.actions().values().forEach(result ->
+                assertThat(result.latency().getMaxValue()).isGreaterThanOrEqualTo(result.service().getMaxValue()));
+    }
+
+    @Test
+    @DisplayName("同時に待てる上限を超えた分は送らずに dropped に数える")
+    void testRunDropsBeyondMaxInFlight() throws Exception {
+        // 1. 準備 (応答を返さないサーバー)
+        server.removeContext("/");
+        server.createContext("/", exchange -> {
+            try {
+                Thread.sleep(Duration.ofSeconds(2));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        Settings settings = new Settings(null, 200, false, Duration.ZERO, Duration.ofMillis(500),
+                Map.of(Action.PLAY, 1), 10, Path.of("unused"));
+
+        // 2. 実行
+        Report report = new LoadDriver(settings).run(base());
+
+        // 3. 検証
+        assertThat(report.total().latency().getTotalCount()).isEqualTo(10);
+        assertThat(report.dropped()).isBetween(85L, 95L);
+        assertThat(report.total().latency().getMinValue()).isGreaterThanOrEqualTo(Duration.ofSeconds(2).toNanos() / 1_000);
+    }
+}
@@ -0,0 +1,240 @@
+package com.example.projectenigma.load;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.projectenigma.ProjectenigmaApplication;
+import com.example.projectenigma.cipher.util.CookieUtil;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+
+/**
+ * プラットフォームスレッドと仮想スレッドで、/play と /play/answer のスループット・p99 を比べる負荷試験。
+ * 通常のテストには含めず、{@code ./mvnw -Pload test} で実行します。
+ * <p>
+ * アプリを同じJVMの中で2回（spring.threads.virtual.enabled=false / true）起動し、同じシナリオを流す。
+ * クライアントは Cookie を1つずつ持ち、GET /play → POST /play/answer（不正解）を繰り返す。
+ * プレイヤーキャッシュの有効期限を0にして、毎回 JPA でプレイヤーを読み込ませる。
+ * <p>
+ * 仮想スレッドのほうは JFR の jdk.VirtualThreadPinned を記録し、JPA・JDBC の経路
+ * （Hibernate / Hikari / H2 / Spring ORM・JDBC・トランザクション）でキャリアスレッドを
+ * 掴んだまま止まった箇所があれば失敗にします。
+ * <p>
+ * 調整用のシステムプロパティ: load.clients（同時クライアント数, 既定 256）,
+ * load.warmup（既定 PT5S）, load.duration（既定 PT15S）
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+@Tag("load")
+class ThreadModeLoadTest {
+
+    private static final int CLIENTS = Integer.getInteger("load.clients", 256);
+    private static final Duration WARMUP = Duration.parse(System.getProperty("load.warmup", "PT5S"));
+    private static final Duration DURATION = Duration.parse(System.getProperty("load.duration", "PT15S"));
+
+    /** この中のクラスで止まってたら JPA の経路でピン留めされたとみなす */
+    private static final List<String> JPA_PATH_PACKAGES = List.of(
+            "org.hibernate.", "com.zaxxer.hikari.", "org.h2.",
+            "org.springframework.orm.", "org.springframework.jdbc.", "org.springframework.transaction.");
+
+    /** 計測結果 */
+    record Result(String mode, long requests, long errors, double throughput, double p50Millis, double p99Millis) {
+
+        @Override
+        public String toString() {
+            return String.format("%-9s requests=%,d errors=%,d throughput=%,.0f req/s p50=%.2fms p99=%.2fms",
+                    mode, requests, errors, throughput, p50Millis, p99Millis);
+        }
+    }
+
+    @Test
+    @DisplayName("プラットフォームスレッドと仮想スレッドで負荷をかけて比較し、JPAの経路でピン留めがないこと")
+    void compareThreadModes() throws Exception {
+        // 1. 実行
+        Result platform = run("platform", false, null);
+        List<String> pinned = new ArrayList<>();
+        Result virtual = run("virtual", true, pinned);
+
+        // 2. 検証
+        System.out.printf("%n=== /play + /play/answer (clients=%d, duration=%s) ===%n%s%n%s%n",
+                CLIENTS, DURATION, platform, virtual);
+        pinned.forEach(stack -> System.out.println("pinned in JPA path:\n" + stack));
+        assertThat(platform.errors()).isZero();
+        assertThat(virtual.errors()).isZero();
+        assertThat(pinned).as("virtual threads pinned in the JPA path").isEmpty();
+    }
+
+    /**
+     * アプリを起動して負荷をかけ、計測結果を返します。
+     *
+     * @param mode    表示名
+     * @param virtual 仮想スレッドを使うか
+     * @param pinned  ピン留めの検出結果の格納先（検出しないならnull）
+     * @return 計測結果
+     */
+    private Result run(String mode, boolean virtual, List<String> pinned) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ProjectenigmaApplication.class)
+                // application.properties より優先させたいので、既定値ではなくコマンドライン引数で渡す
+                .run("--server.port=0",
+                        "--spring.threads.virtual.enabled=" + virtual,
+                        "--enigma.cache.player.ttl=PT0S",
+                        // 全クライアントが localhost から来るので、回答の流量制限は切っておく
+                        "--enigma.ratelimit.enabled=false",
+                        "--spring.devtools.restart.enabled=false",
+                        "--logging.level.root=WARN")) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            URI base = URI.create("http://localhost:" + port);
+
+            RecordingStream recording = pinned == null ? null : startPinnedRecording(pinned);
+            try {
+                drive(base, WARMUP, null);
+                return drive(base, DURATION, mode);
+            } finally {
+                if (recording != null) {
+                    // 最後のイベントが流れてくるまで少し待つ
+                    Thread.sleep(1_500);
+                    recording.close();
+                }
+            }
+        }
+    }
+
+    private static RecordingStream startPinnedRecording(List<String> pinned) {
+        RecordingStream recording = new RecordingStream();
+        recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+        recording.onEvent("jdk.VirtualThreadPinned", event -> {
+            if (inJpaPath(event)) {
+                synchronized (pinned) {
+                    pinned.add(event.getStackTrace().toString());
+                }
+            }
+        });
+        recording.startAsync();
+        return recording;
+    }
+
+    private static boolean inJpaPath(RecordedEvent event) {
+        if (event.getStackTrace() == null) {
+            return false;
+        }
+        for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+            String type = frame.getMethod().getType().getName();
+            if (JPA_PATH_PACKAGES.stream().anyMatch(type::startsWith)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 指定時間だけクライアントを走らせます。
+     *
+     * @param base     アプリのURL
+     * @param duration 走らせる時間
+     * @param mode     表示名（ウォームアップならnull）
+     * @return 計測結果（ウォームアップならnull）
+     */
+    private static Result drive(URI base, Duration duration, String mode) throws Exception {
+        // クライアント側は仮想スレッドで、サーバーの同時実行数だけを比べる
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient http = HttpClient.newBuilder()
+                     .executor(clients)
+                     .followRedirects(HttpClient.Redirect.NEVER)
+                     .connectTimeout(Duration.ofSeconds(10))
+                     .build()) {
+            ConcurrentLinkedQueue<long[]> latencies = new ConcurrentLinkedQueue<>();
+            LongAdder errors = new LongAdder();
+            long deadline = System.nanoTime() + duration.toNanos();
+
+            List<Future<?>> running = new ArrayList<>(CLIENTS);
+            for (int i = 0; i < CLIENTS; i++) {
+                running.add(clients.submit(() -> latencies.add(client(http, base, deadline, errors))));
+            }
+            for (Future<?> future : running) {
+                future.get();
+            }
+            if (mode == null) {
+                return null;
+            }
+
+            long[] all = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+            return new Result(mode, all.length, errors.sum(), all.length / (duration.toNanos() / 1e9),
+                    percentileMillis(all, 0.50), percentileMillis(all, 0.99));
+        }
+    }
+
+    /**
+     * 1クライアント分のループ。GET /play で Cookie をもらい、あとは /play と不正解の回答を交互に送る。
+     *
+     * @return 各リクエストの応答時間（ナノ秒）
+     */
+    private static long[] client(HttpClient http, URI base, long deadline, LongAdder errors) {
+        long[] samples = new long[1024];
+        int count = 0;
+        String cookie = null;
+        boolean answer = false;
+        while (System.nanoTime() < deadline) {
+            HttpRequest.Builder builder = answer
+                    ? HttpRequest.newBuilder(base.resolve("/play/answer"))
+                            .header("Content-Type", "application/x-www-form-urlencoded")
+                            .POST(HttpRequest.BodyPublishers.ofString("answer=banana"))
+                    : HttpRequest.newBuilder(base.resolve("/play")).GET();
+            if (cookie != null) {
+                builder.header("Cookie", cookie);
+            }
+            long start = System.nanoTime();
+            try {
+                HttpResponse<Void> response = http.send(builder.build(), HttpResponse.BodyHandlers.discarding());
+                long elapsed = System.nanoTime() - start;
+                if (response.statusCode() >= 400) {
+                    errors.increment();
+                }
+                // トークンの再発行 (本登録など) に付いていく
+                cookie = response.headers().firstValue("Set-Cookie")
+                        .filter(value -> value.startsWith(CookieUtil.COOKIE_NAME + "="))
+                        .map(value -> value.substring(0, value.indexOf(';') < 0 ? value.length() : value.indexOf(';')))
+                        .orElse(cookie);
+                if (count == samples.length) {
+                    samples = Arrays.copyOf(samples, count * 2);
+                }
+                samples[count++] = elapsed;
+            } catch (Exception e) {
+                errors.increment();
+            }
+            answer = !answer && cookie != null;
+        }
+        return Arrays.copyOf(samples, count);
+    }
+
+    private static double percentileMillis(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return Double.NaN;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+}
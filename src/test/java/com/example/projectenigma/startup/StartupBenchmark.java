@@ -0,0 +1,354 @@
+package com.example.projectenigma.startup;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 起動方法ごとに、プロセスを立ち上げてから GET /play が初めて 200 を返すまでの時間を測るベンチマーク。
+ * {@code ./mvnw -Pstartup package exec:exec} で実行します（-Pstartup のビルドで AOT・展開・CDS アーカイブを作ってから測る）。
+ * <p>
+ * 起動方法（variant）:
+ * <ul>
+ *   <li>fat-jar: 今までどおり {@code java -jar} で Spring Boot の jar をそのまま起動</li>
+ *   <li>jar: 展開した jar を起動</li>
+ *   <li>cds: 展開した jar + CDS アーカイブ (application.jsa)</li>
+ *   <li>aot: 展開した jar + Spring AOT ({@code -Dspring.aot.enabled=true})</li>
+ *   <li>aot-cds: AOT + AOT 込みで学習した CDS アーカイブ (application-aot.jsa)</li>
+ *   <li>native: GraalVM のネイティブイメージ（{@code ./mvnw -Pnative native:compile} で作ったもの）</li>
+ * </ul>
+ * ファイルがそろってない起動方法は飛ばす。1回目はディスクキャッシュが温まってないので捨て、
+ * 残りは起動方法を順番に回して測る（途中でマシンが重くなっても、どれか1つだけ損しないように）。
+ * アプリはそれぞれ空いてるポート・インメモリDBで起動し、ログは --dir の logs/ に残す。
+ * <p>
+ * 引数（すべて {@code --key=value}）:
+ * <ul>
+ *   <li>fat-jar: Spring Boot の jar, dir: 展開先（-Pstartup の startup.dir）, native: ネイティブイメージ（pom から渡す）</li>
+ *   <li>variants: 測る起動方法（既定 fat-jar,jar,cds,aot,aot-cds,native）</li>
+ *   <li>runs: 1起動方法あたりの計測回数（既定 5）, warmup: 捨てる回数（既定 1）</li>
+ *   <li>timeout: 1回の起動を待つ上限（既定 PT120S）</li>
+ * </ul>
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+public final class StartupBenchmark {
+
+    /** /play を叩き直す間隔 */
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(5);
+
+    /** 計測後、プロセスが終わるのを待つ上限 */
+    private static final Duration STOP_TIMEOUT = Duration.ofSeconds(10);
+
+    /**
+     * 起動方法。
+     *
+     * @param name    表示名
+     * @param command 起動コマンド（アプリへの引数は除く）
+     * @param files   起動に要るファイル（1つでも欠けてたら飛ばす）
+     */
+    record Variant(String name, List<String> command, List<Path> files) {
+
+        boolean available() {
+            return files.stream().allMatch(Files::isRegularFile);
+        }
+    }
+
+    /**
+     * 実行の設定。
+     *
+     * @param fatJar      Spring Boot の jar
+     * @param dir         展開先（CDS アーカイブとログもここ）
+     * @param nativeImage ネイティブイメージ
+     * @param variants    測る起動方法の名前
+     * @param runs        計測回数
+     * @param warmup      捨てる回数
+     * @param timeout     1回の起動を待つ上限
+     */
+    record Settings(Path fatJar, Path dir, Path nativeImage, List<String> variants, int runs, int warmup,
+                    Duration timeout) {
+
+        Settings {
+            if (runs <= 0) {
+                throw new IllegalArgumentException("runs must be positive: " + runs);
+            }
+            if (warmup < 0) {
+                throw new IllegalArgumentException("warmup must not be negative: " + warmup);
+            }
+        }
+
+        /**
+         * {@code --key=value} 形式の引数から設定を作ります。指定のないものは既定値。
+         *
+         * @param args 引数
+         * @return 設定
+         */
+        static Settings parse(String... args) {
+            Map<String, String> options = new LinkedHashMap<>();
+            for (String arg : args) {
+                if (arg.isBlank()) {
+                    continue;
+                }
+                int eq = arg.indexOf('=');
+                if (!arg.startsWith("--") || eq < 0) {
+                    throw new IllegalArgumentException("Expected --key=value: " + arg);
+                }
+                options.put(arg.substring(2, eq), arg.substring(eq + 1));
+            }
+            Settings settings = new Settings(
+                    Path.of(take(options, "fat-jar", "target/projectenigma-0.0.1-SNAPSHOT.jar")),
+                    Path.of(take(options, "dir", "target/startup")),
+                    Path.of(take(options, "native", "target/projectenigma")),
+                    Arrays.stream(take(options, "variants", "fat-jar,jar,cds,aot,aot-cds,native").split(","))
+                            .map(String::trim).toList(),
+                    Integer.parseInt(take(options, "runs", "5")),
+                    Integer.parseInt(take(options, "warmup", "1")),
+                    Duration.parse(take(options, "timeout", "PT120S")));
+            if (!options.isEmpty()) {
+                throw new IllegalArgumentException("Unknown options: " + options.keySet());
+            }
+            return settings;
+        }
+
+        private static String take(Map<String, String> options, String key, String fallback) {
+            String value = options.remove(key);
+            return value == null ? fallback : value;
+        }
+
+        /**
+         * 起動方法の名前をコマンドに直します。
+         *
+         * @param java java コマンド（このJVMと同じもの。CDS アーカイブは作ったJVMでしか使えない）
+         * @return 起動方法（variants の順）
+         */
+        List<Variant> resolve(String java) {
+            // 展開した jar は元の jar と同じ名前
+            Path extracted = dir.resolve(fatJar.getFileName());
+            Path archive = dir.resolve("application.jsa");
+            Path aotArchive = dir.resolve("application-aot.jsa");
+            return variants.stream().map(name -> switch (name) {
+                case "fat-jar" -> new Variant(name, List.of(java, "-jar", fatJar.toString()), List.of(fatJar));
+                case "jar" -> new Variant(name, List.of(java, "-jar", extracted.toString()), List.of(extracted));
+                case "cds" -> new Variant(name,
+                        List.of(java, "-XX:SharedArchiveFile=" + archive, "-jar", extracted.toString()),
+                        List.of(extracted, archive));
+                case "aot" -> new Variant(name,
+                        List.of(java, "-Dspring.aot.enabled=true", "-jar", extracted.toString()),
+                        List.of(extracted));
+                case "aot-cds" -> new Variant(name,
+                        List.of(java, "-XX:SharedArchiveFile=" + aotArchive, "-Dspring.aot.enabled=true",
+                                "-jar", extracted.toString()),
+                        List.of(extracted, aotArchive));
+                case "native" -> new Variant(name, List.of(nativeImage.toString()), List.of(nativeImage));
+                default -> throw new IllegalArgumentException("Unknown variant: " + name);
+            }).toList();
+        }
+    }
+
+    /**
+     * 1回分の計測結果。
+     *
+     * @param firstPlay 起動から GET /play が初めて 200 を返すまでの時間
+     * @param rssBytes  そのときの常駐メモリ（取れなければ -1）
+     */
+    record Sample(Duration firstPlay, long rssBytes) {
+    }
+
+    /**
+     * 起動方法ごとの結果。
+     *
+     * @param variant 起動方法の名前
+     * @param samples 計測結果（ウォームアップは除く）
+     */
+    record Result(String variant, List<Sample> samples) {
+
+        Duration median() {
+            return samples.stream().map(Sample::firstPlay).sorted().toList().get(samples.size() / 2);
+        }
+
+        Duration min() {
+            return samples.stream().map(Sample::firstPlay).min(Duration::compareTo).orElseThrow();
+        }
+
+        Duration max() {
+            return samples.stream().map(Sample::firstPlay).max(Duration::compareTo).orElseThrow();
+        }
+
+        long medianRss() {
+            long[] rss = samples.stream().mapToLong(Sample::rssBytes).sorted().toArray();
+            return rss[rss.length / 2];
+        }
+    }
+
+    private final Settings settings;
+
+    private final HttpClient http = HttpClient.newBuilder()
+            .followRedirects(HttpClient.Redirect.NEVER)
+            .connectTimeout(Duration.ofSeconds(1))
+            .build();
+
+    StartupBenchmark(Settings settings) {
+        this.settings = settings;
+    }
+
+    /**
+     * 起動方法を順番に回して測ります。
+     *
+     * @param variants 起動方法（使えるものだけ）
+     * @return 起動方法ごとの結果（variants の順）
+     */
+    List<Result> run(List<Variant> variants) throws IOException, InterruptedException {
+        Map<String, List<Sample>> samples = new LinkedHashMap<>();
+        variants.forEach(variant -> samples.put(variant.name(), new ArrayList<>()));
+        for (int i = 0; i < settings.warmup() + settings.runs(); i++) {
+            boolean warmup = i < settings.warmup();
+            for (Variant variant : variants) {
+                Sample sample = measure(variant, warmup ? "warmup-" + (i + 1) : "run-" + (i - settings.warmup() + 1));
+                if (!warmup) {
+                    samples.get(variant.name()).add(sample);
+                }
+            }
+        }
+        return samples.entrySet().stream().map(entry -> new Result(entry.getKey(), entry.getValue())).toList();
+    }
+
+    /**
+     * 1回起動して、最初の /play が返るまでの時間を測ります。測ったらプロセスは止める。
+     *
+     * @param variant 起動方法
+     * @param label   ログファイル名に付ける印
+     * @return 計測結果
+     */
+    Sample measure(Variant variant, String label) throws IOException, InterruptedException {
+        int port = freePort();
+        List<String> command = new ArrayList<>(variant.command());
+        command.addAll(List.of(
+                "--server.port=" + port,
+                // 管理ポート (8081) は手元で動かしてるアプリとぶつからんよう空いてるところに
+                "--management.server.port=0",
+                // 毎回まっさらなDBで、前の回の状態を持ち越さない
+                "--spring.datasource.url=jdbc:h2:mem:startup",
+                "--enigma.analytics.log-file=",
+                "--logging.level.root=WARN"));
+        Path log = settings.dir().resolve("logs").resolve(variant.name() + "-" + label + ".log");
+        Files.createDirectories(log.getParent());
+
+        HttpRequest play = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/play"))
+                .timeout(settings.timeout())
+                .GET()
+                .build();
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+        try {
+            long deadline = start + settings.timeout().toNanos();
+            while (true) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException(variant.name() + " exited with " + process.exitValue()
+                            + " before serving /play, see " + log);
+                }
+                if (System.nanoTime() > deadline) {
+                    throw new IllegalStateException(variant.name() + " did not serve /play within "
+                            + settings.timeout() + ", see " + log);
+                }
+                if (served(play)) {
+                    return new Sample(Duration.ofNanos(System.nanoTime() - start), rss(process.pid()));
+                }
+                Thread.sleep(POLL_INTERVAL);
+            }
+        } finally {
+            process.destroy();
+            if (!process.waitFor(STOP_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    private boolean served(HttpRequest play) throws InterruptedException {
+        try {
+            return http.send(play, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+        } catch (IOException e) {
+            // まだポートを開けてない
+            return false;
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * プロセスの常駐メモリ (VmRSS) を読みます。/proc がない環境では -1。
+     */
+    private static long rss(long pid) {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc", Long.toString(pid), "status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    // "VmRSS:	  123456 kB"
+                    return Long.parseLong(line.substring(6).replace("kB", "").trim()) * 1024;
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // 取れなくても時間は測れてるので、メモリは出さない
+        }
+        return -1;
+    }
+
+    /**
+     * 結果を表にして出力します。倍率は最初の起動方法（既定は fat-jar）との比。
+     *
+     * @param results 起動方法ごとの結果
+     * @param out     出力先
+     */
+    static void print(List<Result> results, PrintStream out) {
+        out.printf("%n=== time to first successful GET /play ===%n");
+        out.printf("%-8s %5s %10s %10s %10s %9s %8s%n", "variant", "runs", "median", "min", "max", "rss", "speedup");
+        double baseline = results.getFirst().median().toNanos();
+        for (Result result : results) {
+            long rss = result.medianRss();
+            out.printf("%-8s %5d %8dms %8dms %8dms %9s %7.2fx%n",
+                    result.variant(), result.samples().size(),
+                    result.median().toMillis(), result.min().toMillis(), result.max().toMillis(),
+                    rss < 0 ? "-" : (rss >> 20) + "MB",
+                    baseline / result.median().toNanos());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Settings settings = Settings.parse(args);
+        // CDS アーカイブは作ったときと同じJVMでないと使われないので、exec から起動されたこのJVMの java で揃える
+        String java = ProcessHandle.current().info().command().orElse("java");
+        List<Variant> variants = new ArrayList<>();
+        for (Variant variant : settings.resolve(java)) {
+            if (variant.available()) {
+                variants.add(variant);
+            } else {
+                System.out.printf("skip %s (missing %s)%n", variant.name(),
+                        variant.files().stream().filter(file -> !Files.isRegularFile(file)).toList());
+            }
+        }
+        if (variants.isEmpty()) {
+            throw new IllegalStateException("Nothing to measure. Build with ./mvnw -Pstartup package first");
+        }
+        List<Result> results = new StartupBenchmark(settings).run(variants);
+        print(results, System.out);
+    }
+}
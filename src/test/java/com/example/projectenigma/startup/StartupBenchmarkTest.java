@@ -0,0 +1,163 @@
+package com.example.projectenigma.startup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.projectenigma.startup.StartupBenchmark.Result;
+import com.example.projectenigma.startup.StartupBenchmark.Sample;
+import com.example.projectenigma.startup.StartupBenchmark.Settings;
+import com.example.projectenigma.startup.StartupBenchmark.Variant;
+
+/**
+ * StartupBenchmark のテスト。アプリの代わりに、--server.port で /play を返すだけの小さなJavaプログラムを起動する。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+class StartupBenchmarkTest {
+
+    /** --server.port=... を受け取って、/play に 200 を返すだけのアプリ（ソースのまま java で起動する） */
+    private static final String STUB = """
+            import com.sun.net.httpserver.HttpServer;
+            import java.net.InetSocketAddress;
+
+            public class Stub {
+                public static void main(String[] args) throws Exception {
+                    int port = 0;
+                    for (String arg : args) {
+                        if (arg.startsWith("--server.port=")) {
+                            port = Integer.parseInt(arg.substring("--server.port=".length()));
+                        }
+                    }
+                    HttpServer server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+                    server.createContext("/play", exchange -> {
+                        exchange.sendResponseHeaders(200, -1);
+                        exchange.close();
+                    });
+                    server.start();
+                }
+            }
+            """;
+
+    @TempDir
+    Path dir;
+
+    private static String java() {
+        return ProcessHandle.current().info().command().orElse("java");
+    }
+
+    private Settings settings(String... variants) {
+        return new Settings(dir.resolve("app.jar"), dir, dir.resolve("app"), List.of(variants), 1, 0,
+                Duration.ofSeconds(60));
+    }
+
+    @Test
+    @DisplayName("引数を省くと既定値になり、知らない引数や起動方法はエラーにする")
+    void testParse() {
+        // 1. 実行
+        Settings settings = Settings.parse();
+        Settings custom = Settings.parse("--variants=jar, aot-cds", "--runs=3", "--warmup=0", "--dir=out");
+
+        // 2. 検証
+        assertThat(settings.variants()).containsExactly("fat-jar", "jar", "cds", "aot", "aot-cds", "native");
+        assertThat(settings.runs()).isEqualTo(5);
+        assertThat(settings.warmup()).isEqualTo(1);
+        assertThat(custom.variants()).containsExactly("jar", "aot-cds");
+        assertThat(custom.runs()).isEqualTo(3);
+        assertThat(custom.dir()).isEqualTo(Path.of("out"));
+        assertThatThrownBy(() -> Settings.parse("--rnus=3")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Settings.parse("--runs=0")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Settings.parse("--variants=war").resolve("java"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("起動方法ごとに CDS アーカイブと AOT のオプションを付け、ファイルがそろってないものは使えない扱い")
+    void testResolve() throws IOException {
+        // 1. 準備 (展開した jar と AOT なしのアーカイブだけある)
+        Files.createFile(dir.resolve("app.jar"));
+        Files.createFile(dir.resolve("application.jsa"));
+
+        // 2. 実行
+        List<Variant> variants = settings("fat-jar", "cds", "aot-cds", "native").resolve("java");
+
+        // 3. 検証 (展開先が dir なので、fat-jar と展開した jar は同じファイルになる)
+        assertThat(variants.get(1).command())
+                .containsExactly("java", "-XX:SharedArchiveFile=" + dir.resolve("application.jsa"), "-jar",
+                        dir.resolve("app.jar").toString());
+        assertThat(variants.get(2).command()).contains("-Dspring.aot.enabled=true",
+                "-XX:SharedArchiveFile=" + dir.resolve("application-aot.jsa"));
+        assertThat(variants).extracting(Variant::name, Variant::available).containsExactly(
+                tuple("fat-jar", true),
+                tuple("cds", true),
+                tuple("aot-cds", false),
+                tuple("native", false));
+    }
+
+    @Test
+    @DisplayName("起動してから /play が 200 を返すまでを測り、測り終えたらプロセスを止める")
+    void testMeasure() throws Exception {
+        // 1. 準備
+        Path stub = Files.writeString(dir.resolve("Stub.java"), STUB);
+        Variant variant = new Variant("stub", List.of(java(), stub.toString()), List.of(stub));
+        StartupBenchmark benchmark = new StartupBenchmark(settings());
+
+        // 2. 実行
+        List<Result> results = benchmark.run(List.of(variant));
+
+        // 3. 検証
+        Sample sample = results.getFirst().samples().getFirst();
+        assertThat(sample.firstPlay()).isPositive();
+        assertThat(dir.resolve("logs").resolve("stub-run-1.log")).exists();
+        assertThat(ProcessHandle.current().children()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("/play を返す前にプロセスが終わったら、ログの場所を付けてエラーにする")
+    void testMeasureFailsWhenProcessExits() {
+        // 1. 準備 (バージョンを出してすぐ終わる)
+        Variant variant = new Variant("version", List.of(java(), "-version"), List.of());
+        StartupBenchmark benchmark = new StartupBenchmark(settings());
+
+        // 2. 実行・検証
+        assertThatThrownBy(() -> benchmark.measure(variant, "run-1"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("before serving /play")
+                .hasMessageContaining("version-run-1.log");
+    }
+
+    @Test
+    @DisplayName("結果の表は最初の起動方法を基準に倍率を出す")
+    void testPrint() {
+        // 1. 準備
+        List<Result> results = List.of(
+                new Result("fat-jar", List.of(new Sample(Duration.ofMillis(3000), 300L << 20),
+                        new Sample(Duration.ofMillis(2000), 200L << 20),
+                        new Sample(Duration.ofMillis(2600), 260L << 20))),
+                new Result("aot-cds", List.of(new Sample(Duration.ofMillis(1300), -1))));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // 2. 実行
+        StartupBenchmark.print(results, new PrintStream(out, true, StandardCharsets.UTF_8));
+
+        // 3. 検証
+        String table = out.toString(StandardCharsets.UTF_8);
+        assertThat(table).containsPattern("fat-jar +3 +2600ms +2000ms +3000ms +260MB +1.00x");
+        assertThat(table).containsPattern("aot-cds +1 +1300ms +1300ms +1300ms +- +2.00x");
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.projectenigma.support;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+import jakarta.persistence.EntityManagerFactory;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+
+/**
+ * 1リクエストあたりのコスト（SQL文の数・エンティティの読み込み数・確保したメモリ）を測る道具。
+ * <p>
+ * SQL とエンティティは Hibernate の統計（hibernate.generate_statistics=true が必要）から、
+ * メモリはリクエストを処理したスレッドの確保バイト数（ThreadMXBean）から取る。
+ * MockMvc のリクエストは呼び出し元のスレッドで動くので、そのスレッドの分がそのままリクエストの分になる。
+ * どこで確保してるかは {@link #allocationSites} で JFR の jdk.ObjectAllocationSample を記録して調べる（予算オーバーの調査用）。
+ * <p>
+ * Hibernate の統計は全スレッド共通なので、測る前後に {@code idle} が true になるまで待つ
+ * （後書きキューの INSERT など、リクエストが起こした非同期の書き込みもそのリクエストの分として数える）。
+ * JdbcTemplate で直接流すSQL（SessionClock など）は Hibernate を通らないので数えない。
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+public class RequestCostMeter {
+
+    /** 待つ最大時間 */
+    private static final Duration IDLE_TIMEOUT = Duration.ofSeconds(10);
+
+    /** 確保した場所として出すのはこのパッケージの一番上のフレーム（なければスタックの一番上） */
+    private static final String APP_PACKAGE = "com.example.projectenigma.";
+
+    private static final String SUPPORT_PACKAGE = RequestCostMeter.class.getPackageName() + ".";
+
+    private final Statistics statistics;
+    private final BooleanSupplier idle;
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * 測定器を生成します。
+     *
+     * @param entityManagerFactory 統計を取る EntityManagerFactory
+     * @param idle                 非同期の処理が終わってたら true を返す
+     */
+    public RequestCostMeter(EntityManagerFactory entityManagerFactory, BooleanSupplier idle) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        if (!statistics.isStatisticsEnabled()) {
+            throw new IllegalStateException("hibernate.generate_statistics must be enabled");
+        }
+        this.idle = idle;
+    }
+
+    /**
+     * リクエストを warmup 回流してから measured 回測って、1リクエストあたりのコストを返します。
+     * SQL文とエンティティは最大値、メモリは中央値（JITやクラスの初期化のぶれを避けるため）。
+     *
+     * @param request  1リクエスト分の処理
+     * @param warmup   測らずに流す回数
+     * @param measured 測る回数
+     * @return 1リクエストあたりのコスト
+     * @throws Exception リクエストが失敗した場合
+     */
+    public RequestCost measure(Request request, int warmup, int measured) throws Exception {
+        for (int i = 0; i < warmup; i++) {
+            request.perform();
+        }
+        awaitIdle();
+
+        long statements = 0;
+        long entityLoads = 0;
+        long[] allocated = new long[measured];
+        for (int i = 0; i < measured; i++) {
+            statistics.clear();
+            long before = threads.getCurrentThreadAllocatedBytes();
+            request.perform();
+            allocated[i] = threads.getCurrentThreadAllocatedBytes() - before;
+            awaitIdle();
+            statements = Math.max(statements, statistics.getPrepareStatementCount());
+            entityLoads = Math.max(entityLoads, statistics.getEntityLoadCount() + statistics.getEntityFetchCount());
+        }
+        Arrays.sort(allocated);
+        return new RequestCost(statements, entityLoads, allocated[measured / 2]);
+    }
+
+    /**
+     * JFR の jdk.ObjectAllocationSample を記録しながらリクエストを流して、確保の多かった場所の上位を返します。
+     * サンプリングなので量はおおよそ。予算オーバーしたときの調査用で、普段は呼ばない。
+     *
+     * @param request    1リクエスト分の処理
+     * @param iterations 流す回数
+     * @param limit      返す件数
+     * @return 「クラス.メソッド (1リクエストあたりのKB)」の一覧（多い順）
+     * @throws Exception リクエストが失敗した場合
+     */
+    public List<String> allocationSites(Request request, int iterations, int limit) throws Exception {
+        Map<String, Long> sites = new HashMap<>();
+        long threadId = Thread.currentThread().threadId();
+        AtomicBoolean first = new AtomicBoolean(true);
+        try (RecordingStream recording = new RecordingStream()) {
+            recording.enable("jdk.ObjectAllocationSample").withStackTrace();
+            recording.onEvent("jdk.ObjectAllocationSample", event -> {
+                if (event.getThread("eventThread") == null
+                        || event.getThread("eventThread").getJavaThreadId() != threadId) {
+                    return;
+                }
+                // weight は前のサンプルからの確保量なので、最初の1件には記録を始める前の分まで入ってる
+                if (first.getAndSet(false)) {
+                    return;
+                }
+                synchronized (sites) {
+                    sites.merge(siteOf(event), event.getLong("weight"), Long::sum);
+                }
+            });
+            recording.startAsync();
+            for (int i = 0; i < iterations; i++) {
+                request.perform();
+            }
+            // 最後のイベントが流れてくるまで少し待つ
+            TimeUnit.MILLISECONDS.sleep(1_500);
+        }
+
+        List<Map.Entry<String, Long>> sorted;
+        synchronized (sites) {
+            sorted = new ArrayList<>(sites.entrySet());
+        }
+        sorted.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        return sorted.stream()
+                .limit(limit)
+                .map(site -> String.format("%s (~%.1f KB/request)", site.getKey(), site.getValue() / 1024.0 / iterations))
+                .toList();
+    }
+
+    private void awaitIdle() throws InterruptedException {
+        long deadline = System.nanoTime() + IDLE_TIMEOUT.toNanos();
+        while (!idle.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("Background work did not settle within " + IDLE_TIMEOUT);
+            }
+            TimeUnit.MILLISECONDS.sleep(5);
+        }
+    }
+
+    private static String siteOf(RecordedEvent event) {
+        if (event.getStackTrace() == null || event.getStackTrace().getFrames().isEmpty()) {
+            return "(unknown)";
+        }
+        List<RecordedFrame> frames = event.getStackTrace().getFrames();
+        RecordedFrame site = frames.stream()
+                .filter(frame -> isApplication(frame.getMethod().getType().getName()))
+                .findFirst()
+                .orElse(frames.get(0));
+        return site.getMethod().getType().getName() + "." + site.getMethod().getName();
+    }
+
+    /**
+     * アプリのクラスか（テストのクラスは、リクエストを流してるだけなので除く）。
+     */
+    private static boolean isApplication(String type) {
+        return type.startsWith(APP_PACKAGE) && !type.startsWith(SUPPORT_PACKAGE)
+                && !type.endsWith("Test") && !type.contains("Test$");
+    }
+
+    /**
+     * 測る1リクエスト分の処理。
+     */
+    @FunctionalInterface
+    public interface Request {
+
+        /**
+         * リクエストを1回流します。
+         *
+         * @throws Exception リクエストが失敗した場合
+         */
+        void perform() throws Exception;
+    }
+
+    /**
+     * 1リクエストあたりのコスト。
+     *
+     * @param statements      Hibernate が発行したSQL文の数
+     * @param entityLoads     エンティティの読み込み数（クエリ結果・遅延読み込みを含む）
+     * @param allocatedBytes  リクエストを処理したスレッドが確保したバイト数
+     */
+    public record RequestCost(long statements, long entityLoads, long allocatedBytes) {
+    }
+}
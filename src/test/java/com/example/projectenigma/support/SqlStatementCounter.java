@@ -0,0 +1,50 @@
+package com.example.projectenigma.support;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hibernate が発行するSQLを、{@link #start()} したスレッドの分だけ記録する StatementInspector。
+ * MockMvc のリクエストはテストのスレッドで動くので、後書きキューなど別スレッドのSQLは数えない。
+ * <pre>
+ * &#64;SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+ *         + "com.example.projectenigma.support.SqlStatementCounter")
+ * </pre>
+ *
+ * @author R.Morioka
+ * @version 1.0
+ * @since 1.0
+ */
+public class SqlStatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<List<String>> RECORDED = new ThreadLocal<>();
+
+    /**
+     * このスレッドで記録を始めます。
+     */
+    public static void start() {
+        RECORDED.set(new ArrayList<>());
+    }
+
+    /**
+     * 記録をやめて、記録したSQLを返します。
+     *
+     * @return 記録したSQL（発行順）
+     */
+    public static List<String> stop() {
+        List<String> statements = RECORDED.get();
+        RECORDED.remove();
+        return statements == null ? List.of() : statements;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        List<String> statements = RECORDED.get();
+        if (statements != null) {
+            statements.add(sql);
+        }
+        return sql;
+    }
+}